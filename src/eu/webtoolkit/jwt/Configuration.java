@@ -188,6 +188,12 @@ public class Configuration {
 	private List<Network> trustedProxies = Collections.emptyList();
 	private boolean webSocketsEnabled = false;
 	private long asyncContextTimeout = 90000;
+	private int sessionMemoryAccountingInterval = -1;
+	private long sessionMemoryBudget = 0;
+	private MetricsSink metricsSink = null;
+	private int maxQueuedRequests = 0;
+	private boolean virtualThreadsEnabled = false;
+	private int serverPushInterval = 0;
 
 	private Collection<String> allowedOrigins_ = Collections.<String>emptySet();
 
@@ -285,6 +291,16 @@ public class Configuration {
 						} else if (node.getAttributes().getNamedItem("type").getTextContent().trim().equals("bot")) {
 							parseUserAgents(errorMessage, node, botList);
 						}
+					} else if (node.getNodeName().equalsIgnoreCase("server-push-interval")) {
+						setServerPushInterval(parseInt(errorMessage, node));
+					} else if (node.getNodeName().equalsIgnoreCase("virtual-threads")) {
+						setVirtualThreadsEnabled(parseBoolean(errorMessage, node));
+					} else if (node.getNodeName().equalsIgnoreCase("max-queued-requests")) {
+						setMaxQueuedRequests(parseInt(errorMessage, node));
+					} else if (node.getNodeName().equalsIgnoreCase("session-memory-accounting-interval")) {
+						setSessionMemoryAccountingInterval(parseInt(errorMessage, node));
+					} else if (node.getNodeName().equalsIgnoreCase("session-memory-budget")) {
+						setSessionMemoryBudget(parseLong(errorMessage, node));
 					} else if (node.getNodeName().equalsIgnoreCase("allowed-origins")) {
 						String origins = node.getTextContent().trim();
 						for (String origin : origins.split(",")) {
@@ -320,6 +336,22 @@ public class Configuration {
 		}
 	}
 
+	private int parseInt(String errorMessage, Node n) {
+		try {
+			return Integer.parseInt(n.getTextContent().trim());
+		} catch (Exception e) {
+			throw new RuntimeException(errorMessage + "Cannot parse integer value from element " + n.getNodeName());
+		}
+	}
+
+	private long parseLong(String errorMessage, Node n) {
+		try {
+			return Long.parseLong(n.getTextContent().trim());
+		} catch (Exception e) {
+			throw new RuntimeException(errorMessage + "Cannot parse integer value from element " + n.getNodeName());
+		}
+	}
+
 	/**
 	 * Sets properties.
 	 * <br/>
@@ -887,6 +919,58 @@ public class Configuration {
 		return webSocketsEnabled;
 	}
 
+	/**
+	 * Enables or disables handling requests on virtual threads.
+	 * <p>
+	 * When enabled, and the servlet supports asynchronous processing, JWt handles every request
+	 * (including long-polling server push and recursive event loops such as {@link WDialog#exec(WAnimation)})
+	 * on a new virtual thread instead of a thread of the servlet container. A request that is
+	 * blocked waiting for the session lock or for a server push update then does not tie up a
+	 * platform thread.
+	 * <p>
+	 * Virtual threads require Java 21 or later: on older JVMs, requests are handled on container
+	 * threads as if this option was disabled.
+	 * <p>
+	 * The default value is <code>false</code>.
+	 */
+	public void setVirtualThreadsEnabled(boolean enabled) {
+		this.virtualThreadsEnabled = enabled;
+	}
+
+	/**
+	 * Returns whether requests are handled on virtual threads.
+	 *
+	 * @see #setVirtualThreadsEnabled(boolean)
+	 */
+	public boolean isVirtualThreadsEnabled() {
+		return virtualThreadsEnabled;
+	}
+
+	/**
+	 * Sets the minimum interval between server push updates of a session (ms).
+	 * <p>
+	 * Every {@link WApplication#triggerUpdate()} normally renders and flushes the pending
+	 * changes to the client immediately. When an interval is set, updates triggered within
+	 * the interval after the previous push are merged and flushed together at the end of the
+	 * interval, limiting a session to at most one push per interval (e.g. 40 ms for 25 frames
+	 * per second). The interval backs off automatically when the client is slow to
+	 * acknowledge updates.
+	 * <p>
+	 * The default value is 0, which pushes every update immediately.
+	 */
+	public void setServerPushInterval(int interval) {
+		this.serverPushInterval = interval;
+	}
+
+	/**
+	 * Returns the minimum interval between server push updates of a session (ms).
+	 *
+	 * @see #setServerPushInterval(int)
+	 */
+	public int getServerPushInterval() {
+		return serverPushInterval;
+	}
+
 	/*
 	 * The following are not yet enabled for JWt
 	 */
@@ -927,6 +1011,30 @@ public class Configuration {
 		this.maxPendingEvents = maxPendingEvents;
 	}
 
+	/**
+	 * Sets the maximum number of requests that may be queued for a single session.
+	 * <p>
+	 * Requests for a session are serialized: while one request holds the session, concurrent
+	 * requests to the same session (resource fetches, Ajax updates, ...) wait in a fair (FIFO)
+	 * queue. This limits the number of requests being handled or waiting for a single session.
+	 * When exceeded, the request is refused immediately with a 503 (Service Unavailable)
+	 * response, so that a busy session cannot exhaust the container's thread pool.
+	 * <p>
+	 * The default value is 0, which means that the queue is unbounded.
+	 */
+	public void setMaxQueuedRequests(int maxQueuedRequests) {
+		this.maxQueuedRequests = maxQueuedRequests;
+	}
+
+	/**
+	 * Returns the maximum number of requests that may be queued for a single session.
+	 *
+	 * @see #setMaxQueuedRequests(int)
+	 */
+	public int getMaxQueuedRequests() {
+		return maxQueuedRequests;
+	}
+
 	SessionTracking getSessionTracking() {
 		return SessionTracking.Auto;
 	}
@@ -1104,4 +1212,77 @@ public class Configuration {
 	public void setAsyncContextTimeout(long asyncContextTimeout) {
 		this.asyncContextTimeout = asyncContextTimeout;
 	}
+
+	/**
+	 * Sets the interval at which the memory retained by each session is estimated.
+	 * <p>
+	 * When enabled, JWt computes {@link SessionMemoryStats} for a session at the end of a
+	 * request (while still holding the session lock), at most once every <i>interval</i> seconds.
+	 * A value of 0 recomputes the statistics after every request.
+	 * <p>
+	 * The default value is -1, which disables session memory accounting.
+	 *
+	 * @see WtServlet#getSessionMemoryStats()
+	 * @see #setSessionMemoryBudget(long)
+	 */
+	public void setSessionMemoryAccountingInterval(int interval) {
+		this.sessionMemoryAccountingInterval = interval;
+	}
+
+	/**
+	 * Returns the interval at which the memory retained by each session is estimated.
+	 *
+	 * @see #setSessionMemoryAccountingInterval(int)
+	 */
+	public int getSessionMemoryAccountingInterval() {
+		return sessionMemoryAccountingInterval;
+	}
+
+	/**
+	 * Sets the per-session memory budget (in bytes).
+	 * <p>
+	 * When the estimated size of a session ({@link SessionMemoryStats#getEstimatedSize()})
+	 * exceeds this budget, {@link WtServlet#sessionMemoryBudgetExceeded(WApplication, SessionMemoryStats)}
+	 * is called. The budget is only enforced when session memory accounting is enabled.
+	 * <p>
+	 * The default value is 0, which means that there is no budget.
+	 *
+	 * @see #setSessionMemoryAccountingInterval(int)
+	 */
+	public void setSessionMemoryBudget(long budget) {
+		this.sessionMemoryBudget = budget;
+	}
+
+	/**
+	 * Returns the per-session memory budget (in bytes).
+	 *
+	 * @see #setSessionMemoryBudget(long)
+	 */
+	public long getSessionMemoryBudget() {
+		return sessionMemoryBudget;
+	}
+
+	/**
+	 * Sets the sink for request-path metrics.
+	 * <p>
+	 * When set, JWt records the latency of the stages of request handling, the time spent
+	 * waiting for the session lock and response sizes into the sink.
+	 * <p>
+	 * The default value is <code>null</code>, which disables metrics.
+	 *
+	 * @see SnapshotMetricsSink
+	 * @see JmxMetricsSink
+	 */
+	public void setMetricsSink(MetricsSink metricsSink) {
+		this.metricsSink = metricsSink;
+	}
+
+	/**
+	 * Returns the sink for request-path metrics.
+	 *
+	 * @see #setMetricsSink(MetricsSink)
+	 */
+	public MetricsSink getMetricsSink() {
+		return metricsSink;
+	}
 }
@@ -93,8 +93,9 @@ class FontSupport {
           && (i.font.getSpecificFamilies().toString().equals(font.getSpecificFamilies().toString()))
           && i.font.getWeight() == font.getWeight()
           && i.font.getStyle() == font.getStyle()) {
-        CollectionUtils.splice(this.cache_, this.cache_.iterator(), this.cache_, i);
-        return this.cache_.getFirst().match;
+        i_it.remove();
+        this.cache_.addFirst(i);
+        return i.match;
       }
     }
     FontMatch match = new FontMatch();
@@ -185,7 +186,8 @@ class FontSupport {
   private WFont font_;
 
   private FontMatch matchFont(final WFont font, final String directory, boolean recursive) {
-    if (!FileUtils.exists(directory) || !FileUtils.isDirectory(directory)) {
+    Map<String, String> index = getFontIndex(directory, recursive);
+    if (index == null) {
       logger.error(
           new StringWriter()
               .append("cannot read directory '")
@@ -226,81 +228,134 @@ class FontSupport {
         break;
       default:;
     }
-    FontMatch match = new FontMatch();
-    this.matchFont(font, fontNames, directory, recursive, match);
-    return match;
+    List<String> weightVariants = new ArrayList<String>();
+    List<String> styleVariants = new ArrayList<String>();
+    if (font.getWeight() == FontWeight.Bold) {
+      weightVariants.add("bold");
+      weightVariants.add("bf");
+    } else {
+      weightVariants.add("");
+    }
+    switch (font.getStyle()) {
+      case Normal:
+        styleVariants.add("regular");
+        styleVariants.add("");
+        break;
+      case Italic:
+        styleVariants.add("italic");
+        styleVariants.add("oblique");
+        break;
+      case Oblique:
+        styleVariants.add("oblique");
+        break;
+    }
+    for (int i = 0; i < fontNames.size(); ++i) {
+      double q = 1.0 - 0.1 * i;
+      if (q <= 0) {
+        break;
+      }
+      for (int w = 0; w < weightVariants.size(); ++w) {
+        for (int s = 0; s < styleVariants.size(); ++s) {
+          String fn = fontNames.get(i) + weightVariants.get(w) + styleVariants.get(s);
+          String path = index.get(fn);
+          if (path != null) {
+            return new FontMatch(path, q);
+          }
+        }
+      }
+    }
+    return new FontMatch();
+  }
+  /**
+   * Returns the index of the true type fonts in a directory.
+   *
+   * <p>The index maps a font name, which is the lower case file name without extension and spaces,
+   * to the first file with that name. It is built once for each directory and shared by all
+   * devices; it returns <code>null</code> if the directory cannot be read.
+   */
+  static Map<String, String> getFontIndex(final String directory, boolean recursive) {
+    String key = (recursive ? "r:" : "n:") + directory;
+    Map<String, String> result = fontIndex_.get(key);
+    if (result == null) {
+      if (!FileUtils.exists(directory) || !FileUtils.isDirectory(directory)) {
+        return null;
+      }
+      Map<String, String> index = new HashMap<String, String>();
+      indexFonts(directory, recursive, index);
+      result = fontIndex_.putIfAbsent(key, index);
+      if (result == null) {
+        result = index;
+      }
+    }
+    return result;
   }
+  /**
+   * Returns the contents of a font file.
+   *
+   * <p>Font files are read once and shared, until they are modified on disk. At most {@link
+   * #MAX_FONT_DATA_SIZE} bytes are kept.
+   */
+  static byte[] getFontData(final String fileName) throws IOException {
+    File f = new File(fileName);
+    long modified = f.lastModified();
+    FontData data = fontData_.get(fileName);
+    if (data != null && data.modified == modified) {
+      return data.bytes;
+    }
+    byte[] bytes = java.nio.file.Files.readAllBytes(f.toPath());
+    synchronized (fontData_) {
+      long size = bytes.length;
+      for (FontData d : fontData_.values()) {
+        size += d.bytes.length;
+      }
+      if (size > MAX_FONT_DATA_SIZE) {
+        fontData_.clear();
+      }
+      if (bytes.length <= MAX_FONT_DATA_SIZE) {
+        fontData_.put(fileName, new FontData(modified, bytes));
+      }
+    }
+    return bytes;
+  }
+
+  static final long MAX_FONT_DATA_SIZE = 64 * 1024 * 1024;
 
-  private void matchFont(
-      final WFont font,
-      final List<String> fontNames,
-      final String path,
-      boolean recursive,
-      final FontMatch match) {
+  private static void indexFonts(
+      final String path, boolean recursive, final Map<String, String> index) {
     List<String> files = new ArrayList<String>();
     FileUtils.listFiles(path, files);
     for (int i = 0; i < files.size(); ++i) {
       String f = files.get(i);
       if (FileUtils.isDirectory(f)) {
         if (recursive) {
-          this.matchFont(font, fontNames, f, recursive, match);
-          if (match.getQuality() == 1.0) {
-            return;
-          }
+          indexFonts(f, recursive, index);
         }
       } else {
-        this.matchFont(font, fontNames, f, match);
-        if (match.getQuality() == 1.0) {
-          return;
+        if (f.endsWith(".ttf") || f.endsWith(".ttc")) {
+          String name = FileUtils.leaf(f).toLowerCase();
+          name = name.substring(0, 0 + name.length() - 4);
+          name = StringUtils.replace(name, ' ', "");
+          if (!index.containsKey(name)) {
+            index.put(name, f);
+          }
         }
       }
     }
   }
 
-  private void matchFont(
-      final WFont font, final List<String> fontNames, final String path, final FontMatch match) {
-    if (path.endsWith(".ttf") || path.endsWith(".ttc")) {
-      String name = FileUtils.leaf(path).toLowerCase();
-      name = name.substring(0, 0 + name.length() - 4);
-      StringUtils.replace(name, ' ', "");
-      List<String> weightVariants = new ArrayList<String>();
-      List<String> styleVariants = new ArrayList<String>();
-      if (font.getWeight() == FontWeight.Bold) {
-        weightVariants.add("bold");
-        weightVariants.add("bf");
-      } else {
-        weightVariants.add("");
-      }
-      switch (font.getStyle()) {
-        case Normal:
-          styleVariants.add("regular");
-          styleVariants.add("");
-          break;
-        case Italic:
-          styleVariants.add("italic");
-          styleVariants.add("oblique");
-          break;
-        case Oblique:
-          styleVariants.add("oblique");
-          break;
-      }
-      for (int i = 0; i < fontNames.size(); ++i) {
-        double q = 1.0 - 0.1 * i;
-        if (q <= match.getQuality()) {
-          return;
-        }
-        for (int w = 0; w < weightVariants.size(); ++w) {
-          for (int s = 0; s < styleVariants.size(); ++s) {
-            String fn = fontNames.get(i) + weightVariants.get(w) + styleVariants.get(s);
-            if (fn.equals(name)) {
-              Utils.assignFontMatch(match, new FontMatch(path, q));
-              return;
-            }
-          }
-        }
-      }
+  static class FontData {
+    public final long modified;
+    public final byte[] bytes;
+
+    public FontData(long modified, byte[] bytes) {
+      this.modified = modified;
+      this.bytes = bytes;
     }
   }
 
+  private static Map<String, Map<String, String>> fontIndex_ =
+      new java.util.concurrent.ConcurrentHashMap<String, Map<String, String>>();
+  private static Map<String, FontData> fontData_ =
+      new java.util.concurrent.ConcurrentHashMap<String, FontData>();
   private static Map<String, String> fontRegistry_ = new HashMap<String, String>();
 }
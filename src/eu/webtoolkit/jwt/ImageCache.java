@@ -0,0 +1,363 @@
+/*
+ * Copyright (C) 2020 Emweb bv, Herent, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A cache of images used by the server-side paint devices.
+ * <p>
+ * Charts and reports often draw the same image (a logo, a marker icon) many
+ * times. This cache keeps the contents of an image, its decoded pixels and its
+ * intrinsic size, so that an image is read and decoded only once, and shares
+ * them between all paint devices (and threads) of the JVM.
+ * <p>
+ * An image is identified by its URI, which is resolved like
+ * {@link FileUtils#getResourceAsStream(String)}, or is a data URI. An image in a
+ * file is read again when the file's modification time changes. Images from a
+ * remote URL are not cached.
+ * <p>
+ * The cache is bounded by the size of the cached contents and decoded pixels
+ * (see {@link #setMaxSize(long)}); the least recently used images are evicted
+ * first.
+ */
+public class ImageCache {
+	private static final Logger logger = LoggerFactory.getLogger(ImageCache.class);
+
+	/**
+	 * The default maximum size, in bytes.
+	 */
+	public static final long DEFAULT_MAX_SIZE = 64L * 1024 * 1024;
+
+	private static final ImageCache instance = new ImageCache(DEFAULT_MAX_SIZE);
+
+	/**
+	 * A cached image.
+	 * <p>
+	 * The decoded image returned by {@link #getImage()} is shared, and must not be
+	 * modified.
+	 */
+	public static class Entry {
+		private final ImageCache cache;
+		private final String uri;
+		private final long lastModified;
+		private final byte[] data;
+		private String mimeType;
+		private BufferedImage image;
+		private WPoint size;
+		private long accounted; // guarded by the cache
+
+		Entry(ImageCache cache, String uri, long lastModified, byte[] data) {
+			this.cache = cache;
+			this.uri = uri;
+			this.lastModified = lastModified;
+			this.data = data;
+		}
+
+		/**
+		 * Returns the URI.
+		 */
+		public String getUri() {
+			return uri;
+		}
+
+		/**
+		 * Returns the modification time of the file, or 0 if it is not a file.
+		 */
+		public long getLastModified() {
+			return lastModified;
+		}
+
+		/**
+		 * Returns the contents (the encoded image).
+		 */
+		public byte[] getData() {
+			return data;
+		}
+
+		/**
+		 * Returns the mime type, identified from the contents.
+		 * <p>
+		 * Returns an empty string if the type is not recognized.
+		 */
+		public synchronized String getMimeType() {
+			if (mimeType == null) {
+				List<Byte> header = new ArrayList<Byte>();
+				for (int i = 0; i < Math.min(data.length, 25); ++i)
+					header.add(data[i]);
+				mimeType = ImageUtils.identifyMimeType(header);
+			}
+			return mimeType;
+		}
+
+		/**
+		 * Returns the decoded image, or <code>null</code> if it could not be
+		 * decoded.
+		 */
+		public BufferedImage getImage() {
+			boolean decoded = false;
+			BufferedImage result;
+			synchronized (this) {
+				if (image == null) {
+					try {
+						image = ImageIO.read(new ByteArrayInputStream(data));
+					} catch (IOException e) {
+						logger.error("Error decoding image: {}", uri, e);
+					}
+					decoded = image != null;
+				}
+				result = image;
+			}
+
+			if (decoded)
+				cache.resized(this, (long) result.getWidth() * result.getHeight() * 4);
+			return result;
+		}
+
+		/**
+		 * Returns the intrinsic size, or (0, 0) if the image could not be read.
+		 * <p>
+		 * Unless the image has already been decoded, the size is read from the
+		 * image header.
+		 */
+		public synchronized WPoint getSize() {
+			if (size == null) {
+				if (image != null)
+					size = new WPoint(image.getWidth(), image.getHeight());
+				else
+					size = readSize(data);
+				if (size == null) {
+					logger.error("Error reading the size of image: {}", uri);
+					size = new WPoint();
+				}
+			}
+			return size;
+		}
+
+		synchronized long getMemoryUsage() {
+			long result = data.length + 2 * uri.length();
+			if (image != null)
+				result += (long) image.getWidth() * image.getHeight() * 4;
+			return result;
+		}
+	}
+
+	private final LinkedHashMap<String, Entry> entries;
+	private long maxSize;
+	private long size;
+	private long hits;
+	private long misses;
+
+	/**
+	 * Creates a cache.
+	 * <p>
+	 * Usually, the JVM-wide cache returned by {@link #getInstance()} is used.
+	 */
+	public ImageCache(long maxSize) {
+		this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Returns the JVM-wide cache.
+	 */
+	public static ImageCache getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Sets the maximum size, in bytes.
+	 * <p>
+	 * The default size is {@link #DEFAULT_MAX_SIZE}. A size of 0 disables caching.
+	 */
+	public synchronized void setMaxSize(long maxSize) {
+		this.maxSize = maxSize;
+		evict();
+	}
+
+	/**
+	 * Returns the maximum size.
+	 *
+	 * @see #setMaxSize(long)
+	 */
+	public synchronized long getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * Returns the size of the cached images, in bytes.
+	 */
+	public synchronized long getSize() {
+		return size;
+	}
+
+	/**
+	 * Returns the number of lookups that found a cached image.
+	 */
+	public synchronized long getHitCount() {
+		return hits;
+	}
+
+	/**
+	 * Returns the number of lookups that had to read the image.
+	 */
+	public synchronized long getMissCount() {
+		return misses;
+	}
+
+	/**
+	 * Removes all cached images.
+	 */
+	public synchronized void clear() {
+		entries.clear();
+		size = 0;
+	}
+
+	/**
+	 * Returns an image.
+	 * <p>
+	 * Returns <code>null</code> if the image could not be read.
+	 */
+	public Entry get(String uri) {
+		boolean dataUri = DataUri.isDataUri(uri);
+		boolean remote = !dataUri && isRemote(uri);
+		long lastModified = dataUri || remote ? 0 : getLastModified(uri);
+
+		if (!remote) {
+			synchronized (this) {
+				Entry result = entries.get(uri);
+				if (result != null && result.getLastModified() == lastModified) {
+					++hits;
+					return result;
+				}
+				++misses;
+			}
+		}
+
+		byte[] data = dataUri ? readDataUri(uri) : read(uri);
+		if (data == null)
+			return null;
+
+		Entry result = new Entry(this, uri, lastModified, data);
+		if (!remote)
+			result = put(result);
+		return result;
+	}
+
+	private synchronized Entry put(Entry entry) {
+		Entry existing = entries.get(entry.getUri());
+		if (existing != null) {
+			if (existing.getLastModified() == entry.getLastModified())
+				return existing;
+			entries.remove(entry.getUri());
+			size -= existing.accounted;
+		}
+
+		entry.accounted = entry.getMemoryUsage();
+		if (entry.accounted <= maxSize) {
+			entries.put(entry.getUri(), entry);
+			size += entry.accounted;
+			evict();
+		}
+		return entry;
+	}
+
+	private synchronized void resized(Entry entry, long delta) {
+		if (entries.get(entry.getUri()) == entry) {
+			entry.accounted += delta;
+			size += delta;
+			evict();
+		}
+	}
+
+	private void evict() {
+		Iterator<Entry> i = entries.values().iterator();
+		while (size > maxSize && i.hasNext()) {
+			Entry e = i.next();
+			i.remove();
+			size -= e.accounted;
+		}
+	}
+
+	private static boolean isRemote(String uri) {
+		int colon = uri.indexOf("://");
+		return colon > 1 && !uri.startsWith("file:");
+	}
+
+	private static long getLastModified(String uri) {
+		File f = new File(uri);
+		return f.isFile() ? f.lastModified() : 0;
+	}
+
+	private static byte[] read(String uri) {
+		InputStream is = null;
+		try {
+			is = FileUtils.getResourceAsStream(uri);
+			ByteArrayOutputStream result = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			int n;
+			while ((n = is.read(buffer)) > 0)
+				result.write(buffer, 0, n);
+			return result.toByteArray();
+		} catch (IOException e) {
+			logger.error("Error reading image: {}", uri, e);
+			return null;
+		} finally {
+			if (is != null) {
+				try {
+					is.close();
+				} catch (IOException e) {
+				}
+			}
+		}
+	}
+
+	private static byte[] readDataUri(String uri) {
+		try {
+			List<Byte> data = new DataUri(uri).data;
+			byte[] result = new byte[data.size()];
+			for (int i = 0; i < result.length; ++i)
+				result[i] = data.get(i);
+			return result;
+		} catch (WException e) {
+			logger.error("Error reading image: {}", e.getMessage());
+			return null;
+		}
+	}
+
+	private static WPoint readSize(byte[] data) {
+		try (ImageInputStream iis = ImageIO.createImageInputStream(new ByteArrayInputStream(data))) {
+			Iterator<ImageReader> readers = ImageIO.getImageReaders(iis);
+			if (!readers.hasNext())
+				return null;
+			ImageReader reader = readers.next();
+			try {
+				reader.setInput(iis, true, true);
+				return new WPoint(reader.getWidth(0), reader.getHeight(0));
+			} finally {
+				reader.dispose();
+			}
+		} catch (IOException e) {
+			return null;
+		}
+	}
+}
@@ -31,11 +31,11 @@ class ImageUtils {
   }
 
   public static String identifyMimeType(final String fileName) {
-    List<Byte> header = FileUtils.fileHeader(fileName, 25);
-    if (header.isEmpty()) {
+    ImageCache.Entry entry = ImageCache.getInstance().get(fileName);
+    if (entry == null) {
       return "";
     } else {
-      return identifyMimeType(header);
+      return entry.getMimeType();
     }
   }
 
@@ -0,0 +1,230 @@
+/*
+ * Copyright (C) 2009 Emweb bv, Herent, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A metrics sink that exports its histograms through JMX.
+ * <p>
+ * The sink registers itself as an MBean with the platform MBean server. For every request type
+ * and stage, the MBean exposes read-only attributes "<i>type</i>.<i>stage</i>.<i>statistic</i>",
+ * where <i>statistic</i> is one of Count, MeanMicros, P50Micros, P90Micros, P99Micros and MaxMicros.
+ * Response sizes are exposed as "<i>type</i>.ResponseSize.<i>statistic</i>" with statistics
+ * Count, MeanBytes, P50Bytes, P90Bytes, P99Bytes and MaxBytes. The statistics of the
+ * {@link RenderCache} are exposed as "RenderCache.<i>statistic</i>", with statistics Hits, Misses,
+ * HitRate, SavedRenderMicros and SizeBytes. The "reset" operation clears all histograms and the
+ * render cache statistics.
+ *
+ * @see Configuration#setMetricsSink(MetricsSink)
+ */
+public class JmxMetricsSink extends SnapshotMetricsSink implements DynamicMBean {
+	private static Logger logger = LoggerFactory.getLogger(JmxMetricsSink.class);
+
+	private static final String[] statistics = { "Count", "Mean", "P50", "P90", "P99", "Max" };
+	private static final String RENDER_CACHE = "RenderCache.";
+
+	private ObjectName objectName;
+
+	/**
+	 * Creates a sink registered as "eu.webtoolkit.jwt:type=Metrics".
+	 */
+	public JmxMetricsSink() {
+		this("eu.webtoolkit.jwt:type=Metrics");
+	}
+
+	/**
+	 * Creates a sink registered with the given object name.
+	 * <p>
+	 * Use a distinct name for every servlet if multiple JWt servlets run in the same JVM.
+	 */
+	public JmxMetricsSink(String objectName) {
+		try {
+			this.objectName = new ObjectName(objectName);
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			if (server.isRegistered(this.objectName))
+				server.unregisterMBean(this.objectName);
+			server.registerMBean(this, this.objectName);
+		} catch (JMException e) {
+			logger.error("Could not register metrics MBean {}: {}", objectName, e.getMessage());
+			this.objectName = null;
+		}
+	}
+
+	/**
+	 * Unregisters the MBean.
+	 */
+	public void unregister() {
+		if (objectName == null)
+			return;
+
+		try {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+		} catch (JMException e) {
+			logger.info("Could not unregister metrics MBean {}: {}", objectName, e.getMessage());
+		}
+		objectName = null;
+	}
+
+	@Override
+	public Object getAttribute(String attribute) throws AttributeNotFoundException {
+		if (attribute.startsWith(RENDER_CACHE))
+			return getRenderCacheStatistic(attribute.substring(RENDER_CACHE.length()), attribute);
+
+		int i = attribute.lastIndexOf('.');
+		if (i == -1)
+			throw new AttributeNotFoundException(attribute);
+
+		String key = attribute.substring(0, i);
+		String statistic = attribute.substring(i + 1);
+
+		String[] parts = key.split("\\.");
+		if (parts.length != 2)
+			throw new AttributeNotFoundException(attribute);
+
+		MetricsHistogram h;
+		try {
+			RequestType type = RequestType.valueOf(parts[0]);
+			if (parts[1].equals("ResponseSize")) {
+				h = getResponseSize(type);
+				if (!statistic.equals("Count")) {
+					if (!statistic.endsWith("Bytes"))
+						throw new AttributeNotFoundException(attribute);
+					statistic = statistic.substring(0, statistic.length() - 5);
+				}
+				return getStatistic(h, statistic, 1, attribute);
+			} else {
+				h = getLatency(type, Stage.valueOf(parts[1]));
+				if (!statistic.equals("Count")) {
+					if (!statistic.endsWith("Micros"))
+						throw new AttributeNotFoundException(attribute);
+					statistic = statistic.substring(0, statistic.length() - 6);
+				}
+				return getStatistic(h, statistic, 1000, attribute);
+			}
+		} catch (IllegalArgumentException e) {
+			throw new AttributeNotFoundException(attribute);
+		}
+	}
+
+	private static Object getStatistic(MetricsHistogram h, String statistic, long unit, String attribute)
+			throws AttributeNotFoundException {
+		if (statistic.equals("Count"))
+			return h.getCount();
+		else if (statistic.equals("Mean"))
+			return h.getMean() / unit;
+		else if (statistic.equals("P50"))
+			return h.getValueAtPercentile(50) / unit;
+		else if (statistic.equals("P90"))
+			return h.getValueAtPercentile(90) / unit;
+		else if (statistic.equals("P99"))
+			return h.getValueAtPercentile(99) / unit;
+		else if (statistic.equals("Max"))
+			return h.getMax() / unit;
+		else
+			throw new AttributeNotFoundException(attribute);
+	}
+
+	private static Object getRenderCacheStatistic(String statistic, String attribute)
+			throws AttributeNotFoundException {
+		RenderCache cache = RenderCache.getInstance();
+		if (statistic.equals("Hits"))
+			return cache.getHitCount();
+		else if (statistic.equals("Misses"))
+			return cache.getMissCount();
+		else if (statistic.equals("HitRate"))
+			return cache.getHitRate();
+		else if (statistic.equals("SavedRenderMicros"))
+			return cache.getSavedRenderTime() / 1000;
+		else if (statistic.equals("SizeBytes"))
+			return cache.getSize();
+		else
+			throw new AttributeNotFoundException(attribute);
+	}
+
+	@Override
+	public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+		throw new AttributeNotFoundException("Attributes are read-only: " + attribute.getName());
+	}
+
+	@Override
+	public AttributeList getAttributes(String[] attributes) {
+		AttributeList result = new AttributeList();
+		for (String attribute : attributes) {
+			try {
+				result.add(new Attribute(attribute, getAttribute(attribute)));
+			} catch (AttributeNotFoundException e) {
+				// Skip unknown attributes, as required by DynamicMBean
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public AttributeList setAttributes(AttributeList attributes) {
+		return new AttributeList();
+	}
+
+	@Override
+	public Object invoke(String actionName, Object[] params, String[] signature) {
+		if (actionName.equals("reset")) {
+			reset();
+			RenderCache.getInstance().resetStatistics();
+		}
+		return null;
+	}
+
+	@Override
+	public MBeanInfo getMBeanInfo() {
+		List<MBeanAttributeInfo> attributes = new ArrayList<MBeanAttributeInfo>();
+
+		for (RequestType type : RequestType.values()) {
+			for (Stage stage : Stage.values())
+				addAttributes(attributes, type + "." + stage, "Micros", "Latency of " + stage + " for " + type + " requests");
+			addAttributes(attributes, type + ".ResponseSize", "Bytes", "Response size of " + type + " requests");
+		}
+
+		attributes.add(new MBeanAttributeInfo(RENDER_CACHE + "Hits", "long", "Render cache hits", true, false, false));
+		attributes.add(new MBeanAttributeInfo(RENDER_CACHE + "Misses", "long", "Render cache misses", true, false, false));
+		attributes.add(new MBeanAttributeInfo(RENDER_CACHE + "HitRate", "double", "Render cache hit rate", true, false, false));
+		attributes.add(new MBeanAttributeInfo(RENDER_CACHE + "SavedRenderMicros", "long",
+				"Render time saved by the render cache", true, false, false));
+		attributes.add(new MBeanAttributeInfo(RENDER_CACHE + "SizeBytes", "long", "Size of the render cache", true, false,
+				false));
+
+		MBeanOperationInfo[] operations = {
+			new MBeanOperationInfo("reset", "Clears all histograms and render cache statistics", null, "void", MBeanOperationInfo.ACTION)
+		};
+
+		return new MBeanInfo(getClass().getName(), "JWt request metrics",
+			attributes.toArray(new MBeanAttributeInfo[attributes.size()]), null, operations, null);
+	}
+
+	private static void addAttributes(List<MBeanAttributeInfo> attributes, String key, String unit, String description) {
+		for (String statistic : statistics) {
+			boolean count = statistic.equals("Count");
+			String name = key + "." + statistic + (count ? "" : unit);
+			String type = count ? "long" : (statistic.equals("Mean") ? "double" : "long");
+			attributes.add(new MBeanAttributeInfo(name, type, description, true, false, false));
+		}
+	}
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright (C) 2009 Emweb bv, Herent, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A concurrent histogram with a bounded relative error.
+ * <p>
+ * Values are recorded in log-linear buckets (in the style of an HDR histogram): every power
+ * of two is split in {@value #SUB_BUCKET_COUNT} linear sub-buckets, which bounds the
+ * relative error of reported percentiles to about 6%, while using a fixed amount of memory.
+ * <p>
+ * Recording is lock-free and does not allocate. Reading a histogram while values are being
+ * recorded yields an approximate (but consistent enough) view.
+ *
+ * @see SnapshotMetricsSink
+ */
+public class MetricsHistogram {
+	static final int SUB_BUCKET_BITS = 4;
+	static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+	static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+	private final AtomicLongArray counts;
+	private final AtomicLong count;
+	private final AtomicLong sum;
+	private final AtomicLong max;
+
+	/**
+	 * Creates an empty histogram.
+	 */
+	public MetricsHistogram() {
+		this.counts = new AtomicLongArray(BUCKET_COUNT);
+		this.count = new AtomicLong();
+		this.sum = new AtomicLong();
+		this.max = new AtomicLong();
+	}
+
+	/**
+	 * Records a value.
+	 * <p>
+	 * Negative values are recorded as 0.
+	 */
+	public void record(long value) {
+		if (value < 0)
+			value = 0;
+
+		counts.incrementAndGet(bucketIndex(value));
+		count.incrementAndGet();
+		sum.addAndGet(value);
+
+		long m = max.get();
+		while (value > m && !max.compareAndSet(m, value))
+			m = max.get();
+	}
+
+	/**
+	 * Returns the number of recorded values.
+	 */
+	public long getCount() {
+		return count.get();
+	}
+
+	/**
+	 * Returns the sum of all recorded values.
+	 */
+	public long getSum() {
+		return sum.get();
+	}
+
+	/**
+	 * Returns the largest recorded value.
+	 */
+	public long getMax() {
+		return max.get();
+	}
+
+	/**
+	 * Returns the mean of the recorded values.
+	 * <p>
+	 * Returns 0 if no values were recorded.
+	 */
+	public double getMean() {
+		long c = count.get();
+		return c == 0 ? 0 : (double) sum.get() / c;
+	}
+
+	/**
+	 * Returns the value at a given percentile.
+	 * <p>
+	 * The result is the upper bound of the bucket that contains the percentile, and is
+	 * never larger than {@link #getMax()}. Returns 0 if no values were recorded.
+	 *
+	 * @param percentile a percentile between 0 and 100
+	 */
+	public long getValueAtPercentile(double percentile) {
+		long total = 0;
+		for (int i = 0; i < BUCKET_COUNT; ++i)
+			total += counts.get(i);
+
+		if (total == 0)
+			return 0;
+
+		long rank = (long) Math.ceil(Math.min(100, Math.max(0, percentile)) / 100.0 * total);
+		if (rank < 1)
+			rank = 1;
+
+		long seen = 0;
+		for (int i = 0; i < BUCKET_COUNT; ++i) {
+			seen += counts.get(i);
+			if (seen >= rank)
+				return Math.min(bucketUpperBound(i), getMax());
+		}
+
+		return getMax();
+	}
+
+	/**
+	 * Returns a copy of this histogram.
+	 */
+	public MetricsHistogram copy() {
+		MetricsHistogram result = new MetricsHistogram();
+		for (int i = 0; i < BUCKET_COUNT; ++i)
+			result.counts.set(i, counts.get(i));
+		result.count.set(count.get());
+		result.sum.set(sum.get());
+		result.max.set(max.get());
+		return result;
+	}
+
+	/**
+	 * Clears all recorded values.
+	 */
+	public void reset() {
+		for (int i = 0; i < BUCKET_COUNT; ++i)
+			counts.set(i, 0);
+		count.set(0);
+		sum.set(0);
+		max.set(0);
+	}
+
+	@Override
+	public String toString() {
+		return "count=" + getCount() + " mean=" + (long) getMean() + " p50=" + getValueAtPercentile(50)
+			+ " p90=" + getValueAtPercentile(90) + " p99=" + getValueAtPercentile(99) + " max=" + getMax();
+	}
+
+	static int bucketIndex(long value) {
+		if (value < 2 * SUB_BUCKET_COUNT)
+			return (int) value;
+
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int shift = exponent - SUB_BUCKET_BITS;
+		return shift * SUB_BUCKET_COUNT + (int) (value >>> shift);
+	}
+
+	static long bucketUpperBound(int index) {
+		if (index < 2 * SUB_BUCKET_COUNT)
+			return index;
+
+		int shift = index / SUB_BUCKET_COUNT - 1;
+		long subBucket = index % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+		long upper = ((subBucket + 1) << shift) - 1;
+		return upper < 0 ? Long.MAX_VALUE : upper;
+	}
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2009 Emweb bv, Herent, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt;
+
+/**
+ * A sink for request-path metrics.
+ * <p>
+ * When a sink is configured using {@link Configuration#setMetricsSink(MetricsSink)}, JWt
+ * reports the latency of the different stages of request handling, the time spent waiting
+ * for the session lock, and the size of responses. When no sink is configured, no
+ * measurements are taken.
+ * <p>
+ * Methods of a sink are called from many threads concurrently, and from within the
+ * request path: implementations should be thread-safe and cheap.
+ *
+ * @see SnapshotMetricsSink
+ * @see JmxMetricsSink
+ */
+public interface MetricsSink {
+	/**
+	 * The type of a request.
+	 */
+	public enum RequestType {
+		/**
+		 * A (plain HTML or bootstrap) page or script request.
+		 */
+		Page,
+		/**
+		 * An Ajax update request.
+		 */
+		JsUpdate,
+		/**
+		 * A request for a resource.
+		 */
+		Resource,
+		/**
+		 * A message received on a WebSocket.
+		 */
+		WebSocket
+	}
+
+	/**
+	 * A stage of request handling.
+	 */
+	public enum Stage {
+		/**
+		 * The entire handling of a request (including the other stages).
+		 */
+		HandleRequest,
+		/**
+		 * Waiting for the session lock.
+		 */
+		LockWait,
+		/**
+		 * Propagating and processing the events of a request.
+		 */
+		NotifySignal,
+		/**
+		 * Rendering the response.
+		 */
+		ServeResponse,
+		/**
+		 * Collecting the JavaScript for changed widgets (part of {@link #ServeResponse}).
+		 */
+		CollectJavaScript,
+		/**
+		 * Handling a resource request (see {@link WResource#handleRequest(eu.webtoolkit.jwt.servlet.WebRequest, eu.webtoolkit.jwt.servlet.WebResponse)}).
+		 */
+		Resource
+	}
+
+	/**
+	 * Records the latency of a stage.
+	 *
+	 * @param type the type of the request
+	 * @param stage the stage
+	 * @param nanos the latency, in nanoseconds
+	 */
+	public void recordLatency(RequestType type, Stage stage, long nanos);
+
+	/**
+	 * Records the size of a response.
+	 *
+	 * @param type the type of the request
+	 * @param bytes the size of the response, in bytes
+	 */
+	public void recordResponseSize(RequestType type, long bytes);
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2009 Emweb bv, Herent, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rate limits server push updates of a session.
+ * <p>
+ * Each call to {@link WApplication#triggerUpdate()} marks the session as dirty. When a minimum
+ * push interval is configured, a push that comes too soon after the previous one is deferred:
+ * changes accumulate in the renderer and a single flush is scheduled at the end of the
+ * interval, so that a session is flushed at most once per interval regardless of how often
+ * updates are triggered.
+ * <p>
+ * The interval backs off (doubling, up to {@link #MAX_BACKOFF} times the configured
+ * interval) when the client does not keep up: when no channel is available to push to, or
+ * when the client acknowledges an update later than the current interval. It recovers
+ * (halving) when updates are delivered and acknowledged in time.
+ * <p>
+ * All methods except the timer callback are called while holding the session lock.
+ *
+ * @see Configuration#setServerPushInterval(int)
+ */
+class PushScheduler {
+	static final int MAX_BACKOFF = 16;
+
+	private static ScheduledExecutorService timer;
+
+	private final WebSession session;
+	private long lastFlush;
+	private boolean awaitingAck;
+	private int backoff;
+	private ScheduledFuture<?> scheduledFlush;
+
+	PushScheduler(WebSession session) {
+		this.session = session;
+		this.lastFlush = System.nanoTime() - TimeUnit.DAYS.toNanos(1);
+		this.awaitingAck = false;
+		this.backoff = 1;
+		this.scheduledFlush = null;
+	}
+
+	/**
+	 * Returns whether a push may be flushed now.
+	 * <p>
+	 * If not, a flush is scheduled (unless one is already scheduled) at the end of the
+	 * current interval.
+	 */
+	boolean isFlushDue(int interval) {
+		long delay = lastFlush + getInterval(interval) - System.nanoTime();
+		if (delay <= 0)
+			return true;
+
+		if (scheduledFlush == null)
+			scheduledFlush = getTimer().schedule(new Runnable() {
+				@Override
+				public void run() {
+					flush();
+				}
+			}, delay, TimeUnit.NANOSECONDS);
+
+		return false;
+	}
+
+	/**
+	 * Records a push.
+	 *
+	 * @param delivered whether the update could be written to the client, or needs to wait
+	 *        for the client to reconnect.
+	 */
+	void flushed(boolean delivered) {
+		lastFlush = System.nanoTime();
+		if (delivered) {
+			awaitingAck = true;
+			backoff = Math.max(1, backoff / 2);
+		} else
+			backoff = Math.min(MAX_BACKOFF, backoff * 2);
+	}
+
+	/**
+	 * Records that the client acknowledged the last update.
+	 */
+	void acknowledged(int interval) {
+		if (!awaitingAck)
+			return;
+
+		awaitingAck = false;
+		if (interval > 0 && System.nanoTime() - lastFlush > getInterval(interval))
+			backoff = Math.min(MAX_BACKOFF, backoff * 2);
+	}
+
+	/**
+	 * Cancels a scheduled flush.
+	 */
+	void cancel() {
+		if (scheduledFlush != null) {
+			scheduledFlush.cancel(false);
+			scheduledFlush = null;
+		}
+	}
+
+	/**
+	 * Returns the current back-off factor.
+	 */
+	int getBackoff() {
+		return backoff;
+	}
+
+	private long getInterval(int interval) {
+		return TimeUnit.MILLISECONDS.toNanos((long) interval * backoff);
+	}
+
+	private void flush() {
+		session.queueEvent(new ApplicationEvent(session.getSessionId(), new Runnable() {
+			@Override
+			public void run() {
+				scheduledFlush = null;
+				session.setTriggerUpdate(true);
+			}
+		}));
+
+		WebSession.Handler handler = null;
+		try {
+			handler = new WebSession.Handler(session, WebSession.Handler.LockOption.TryLock);
+		} finally {
+			if (handler != null)
+				handler.release();
+		}
+	}
+
+	private static synchronized ScheduledExecutorService getTimer() {
+		if (timer == null)
+			timer = Executors.newSingleThreadScheduledExecutor(r -> {
+				Thread t = new Thread(r, "jwt-push-scheduler");
+				t.setDaemon(true);
+				return t;
+			});
+
+		return timer;
+	}
+}
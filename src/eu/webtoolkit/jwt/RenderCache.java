@@ -0,0 +1,365 @@
+/*
+ * Copyright (C) 2020 Emweb bv, Herent, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import eu.webtoolkit.jwt.servlet.WebRequest;
+import eu.webtoolkit.jwt.servlet.WebResponse;
+
+/**
+ * A cache of the rendered output of painted widgets, shared by all sessions.
+ * <p>
+ * When many sessions display the same chart (the same data, size and styling),
+ * every session paints it again, and produces the same output. A
+ * {@link WPaintedWidget} for which a render cache key is set (see
+ * {@link WPaintedWidget#setRenderCacheKey(String)}) stores its output in this
+ * cache: the SVG markup, the canvas JavaScript or the PNG image. Other widgets
+ * with the same key, size and rendering method, in any session, use the cached
+ * output instead of painting.
+ * <p>
+ * Cached PNG images are served by a single public resource, deployed at
+ * {@link #RESOURCE_PATH}, with a URL that depends only on the key and on a
+ * digest of the image. Browsers (and proxies) may therefore cache the image once
+ * for all sessions, and a URL never refers to a different image, even after the
+ * output for a key has changed or the cache was restarted.
+ * <p>
+ * The cache is bounded by the size of the cached output (see
+ * {@link #setMaxSize(long)}); the least recently used output is evicted first.
+ * The number of hits and misses, and the time saved by not painting, are
+ * reported by {@link #getHitCount()}, {@link #getMissCount()} and
+ * {@link #getSavedRenderTime()}, and exported by {@link JmxMetricsSink}.
+ */
+public class RenderCache {
+	private static final Logger logger = LoggerFactory.getLogger(RenderCache.class);
+
+	/**
+	 * The default maximum size, in bytes.
+	 */
+	public static final long DEFAULT_MAX_SIZE = 32L * 1024 * 1024;
+
+	/**
+	 * The path at which cached images are served.
+	 *
+	 * @see WtServlet#addResource(WResource, String)
+	 */
+	public static final String RESOURCE_PATH = "jwt-render-cache";
+
+	private static final RenderCache instance = new RenderCache(DEFAULT_MAX_SIZE);
+
+	private static final Map<WtServlet, WResource> resources = new WeakHashMap<WtServlet, WResource>();
+
+	/**
+	 * The cached output of a widget.
+	 */
+	public static class Entry {
+		private final String key;
+		private final String digest;
+		private final String text;
+		private final List<String> images;
+		private final byte[] data;
+		private final long renderTime;
+
+		Entry(String key, String text, List<String> images, byte[] data, long renderTime) {
+			this.key = key;
+			this.digest = createDigest(key, data);
+			this.text = text;
+			this.images = images != null
+					? Collections.unmodifiableList(new ArrayList<String>(images))
+					: Collections.<String>emptyList();
+			this.data = data;
+			this.renderTime = renderTime;
+		}
+
+		/**
+		 * Returns the key.
+		 * <p>
+		 * The key combines the rendering method, the size and the render cache key
+		 * of the widget.
+		 */
+		public String getKey() {
+			return key;
+		}
+
+		/**
+		 * Returns the time it took to paint the output, in nanoseconds.
+		 */
+		public long getRenderTime() {
+			return renderTime;
+		}
+
+		/**
+		 * Returns the size of the output, in bytes.
+		 */
+		public long getSize() {
+			long result = 2 * key.length() + digest.length();
+			if (text != null)
+				result += 2 * text.length();
+			for (String image : images)
+				result += 2 * image.length();
+			if (data != null)
+				result += data.length;
+			return result;
+		}
+
+		String getDigest() {
+			return digest;
+		}
+
+		/*
+		 * The SVG or VML markup, or the canvas JavaScript.
+		 */
+		String getText() {
+			return text;
+		}
+
+		/*
+		 * The images used by the canvas JavaScript.
+		 */
+		List<String> getImages() {
+			return images;
+		}
+
+		/*
+		 * The PNG image.
+		 */
+		byte[] getData() {
+			return data;
+		}
+	}
+
+	/*
+	 * Serves the cached images of the JVM-wide cache.
+	 */
+	static class Resource extends WResource {
+		@Override
+		protected void handleRequest(WebRequest request, WebResponse response) throws IOException {
+			String digest = request.getParameter("key");
+			Entry entry = digest != null ? getInstance().getByDigest(digest) : null;
+			if (entry == null || entry.getData() == null) {
+				response.setStatus(404);
+				return;
+			}
+
+			response.setContentType("image/png");
+			response.addHeader("Cache-Control", "public, max-age=31536000");
+			response.getOutputStream().write(entry.getData());
+		}
+	}
+
+	private final LinkedHashMap<String, Entry> entries;
+	private final Map<String, Entry> digests;
+	private long maxSize;
+	private long size;
+	private long hits;
+	private long misses;
+	private long savedRenderTime;
+
+	/**
+	 * Creates a cache.
+	 * <p>
+	 * Painted widgets use the JVM-wide cache returned by {@link #getInstance()}.
+	 */
+	public RenderCache(long maxSize) {
+		this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+		this.digests = new HashMap<String, Entry>();
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Returns the JVM-wide cache.
+	 */
+	public static RenderCache getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Sets the maximum size, in bytes.
+	 * <p>
+	 * The default size is {@link #DEFAULT_MAX_SIZE}. A size of 0 disables caching.
+	 */
+	public synchronized void setMaxSize(long maxSize) {
+		this.maxSize = maxSize;
+		evict();
+	}
+
+	/**
+	 * Returns the maximum size.
+	 *
+	 * @see #setMaxSize(long)
+	 */
+	public synchronized long getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * Returns the size of the cached output, in bytes.
+	 */
+	public synchronized long getSize() {
+		return size;
+	}
+
+	/**
+	 * Returns the number of lookups that found cached output.
+	 */
+	public synchronized long getHitCount() {
+		return hits;
+	}
+
+	/**
+	 * Returns the number of lookups that did not find cached output.
+	 */
+	public synchronized long getMissCount() {
+		return misses;
+	}
+
+	/**
+	 * Returns the fraction of lookups that found cached output.
+	 * <p>
+	 * Returns 0 if there were no lookups.
+	 */
+	public synchronized double getHitRate() {
+		long lookups = hits + misses;
+		return lookups == 0 ? 0 : (double) hits / lookups;
+	}
+
+	/**
+	 * Returns the time saved by using cached output, in nanoseconds.
+	 * <p>
+	 * This is the sum of the time it took to paint the output (see
+	 * {@link Entry#getRenderTime()}) over all hits.
+	 */
+	public synchronized long getSavedRenderTime() {
+		return savedRenderTime;
+	}
+
+	/**
+	 * Resets the hit and miss counts and the saved render time.
+	 */
+	public synchronized void resetStatistics() {
+		hits = 0;
+		misses = 0;
+		savedRenderTime = 0;
+	}
+
+	/**
+	 * Removes all cached output.
+	 */
+	public synchronized void clear() {
+		entries.clear();
+		digests.clear();
+		size = 0;
+	}
+
+	/**
+	 * Returns cached output, or <code>null</code> if there is none.
+	 */
+	public synchronized Entry get(String key) {
+		Entry result = entries.get(key);
+		if (result != null) {
+			++hits;
+			savedRenderTime += result.getRenderTime();
+		} else
+			++misses;
+		return result;
+	}
+
+	synchronized Entry put(String key, String text, List<String> images, byte[] data, long renderTime) {
+		Entry result = new Entry(key, text, images, data, renderTime);
+		Entry existing = entries.remove(key);
+		if (existing != null) {
+			digests.remove(existing.getDigest());
+			size -= existing.getSize();
+		}
+
+		if (result.getSize() <= maxSize) {
+			entries.put(key, result);
+			digests.put(result.getDigest(), result);
+			size += result.getSize();
+			evict();
+		}
+		return result;
+	}
+
+	synchronized Entry getByDigest(String digest) {
+		return digests.get(digest);
+	}
+
+	/*
+	 * Returns the URL of a cached image of the JVM-wide cache, deploying the
+	 * resource that serves it if needed, or null if there is no servlet.
+	 */
+	static String getUrl(Entry entry) {
+		WApplication app = WApplication.getInstance();
+		WtServlet servlet = app != null ? app.getEnvironment().getServer() : null;
+		if (servlet == null)
+			return null;
+
+		synchronized (resources) {
+			if (!resources.containsKey(servlet)) {
+				WResource resource = new Resource();
+				try {
+					servlet.addResource(resource, RESOURCE_PATH);
+				} catch (RuntimeException e) {
+					logger.error("Could not deploy the render cache: {}", e.getMessage());
+					resource = null;
+				}
+				resources.put(servlet, resource);
+			}
+			if (resources.get(servlet) == null)
+				return null;
+		}
+
+		String url = app.getBookmarkUrl("/" + RESOURCE_PATH);
+		return url + (url.indexOf('?') == -1 ? '?' : '&') + "key=" + entry.getDigest();
+	}
+
+	private void evict() {
+		Iterator<Entry> i = entries.values().iterator();
+		while (size > maxSize && i.hasNext()) {
+			Entry e = i.next();
+			i.remove();
+			digests.remove(e.getDigest());
+			size -= e.getSize();
+		}
+	}
+
+	/*
+	 * Digests the key and the image, so that the URL of an image changes with its
+	 * content.
+	 */
+	private static String createDigest(String key, byte[] data) {
+		byte[] digest;
+		try {
+			MessageDigest md = MessageDigest.getInstance("SHA-1");
+			md.update(key.getBytes(StandardCharsets.UTF_8));
+			if (data != null)
+				md.update(data);
+			digest = md.digest();
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+
+		StringBuilder result = new StringBuilder();
+		for (byte b : digest)
+			result.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		return result.toString();
+	}
+}
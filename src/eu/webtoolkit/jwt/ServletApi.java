@@ -11,6 +11,8 @@ import java.util.Enumeration;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.servlet.AsyncContext;
@@ -36,6 +38,7 @@ import org.slf4j.Logger;
 
 import eu.webtoolkit.jwt.servlet.WebRequest;
 import eu.webtoolkit.jwt.servlet.WebResponse;
+import eu.webtoolkit.jwt.utils.ThreadUtils;
 
 
 /**
@@ -45,8 +48,30 @@ import eu.webtoolkit.jwt.servlet.WebResponse;
  * @author pieter
  */
 public abstract class ServletApi {
+	private static final Object virtualThreadLock = new Object();
+	private static boolean virtualThreadsChecked = false;
+	private static ExecutorService virtualThreadExecutor = null;
+
 	protected abstract Logger getLogger();
 
+	/*
+	 * Returns the executor for virtual threads, or null if not supported by this JVM.
+	 */
+	private ExecutorService getVirtualThreadExecutor() {
+		synchronized (virtualThreadLock) {
+			if (!virtualThreadsChecked) {
+				virtualThreadsChecked = true;
+				virtualThreadExecutor = ThreadUtils.newVirtualThreadPerTaskExecutor();
+				if (virtualThreadExecutor != null)
+					getLogger().info("Handling requests on virtual threads");
+				else
+					getLogger().warn("Virtual threads are not supported by this JVM (requires Java 21), "
+						+ "handling requests on container threads");
+			}
+			return virtualThreadExecutor;
+		}
+	}
+
 	public void init(ServletContext context, boolean contextIsInitializing) {
 		configureSessionTracking(context, contextIsInitializing);
 		configureRequestEncoding(context, contextIsInitializing);
@@ -265,14 +290,29 @@ public abstract class ServletApi {
 				public void onComplete(AsyncEvent arg0) throws IOException {
 				}
 			});
-			request.getAsyncContext().start(new Runnable() {
+			Runnable task = new Runnable() {
 				@Override
 				public void run() {
 					threadWrapper.t = Thread.currentThread();
 					handleRequest(servlet, request, response);
 					handleRequestFinished.set(true);
 				}
-			});
+			};
+
+			ExecutorService executor = null;
+			if (servlet.getConfiguration().isVirtualThreadsEnabled())
+				executor = getVirtualThreadExecutor();
+
+			if (executor != null) {
+				try {
+					executor.execute(task);
+					return;
+				} catch (RejectedExecutionException e) {
+					getLogger().error("Could not start virtual thread, handling request on container thread", e);
+				}
+			}
+
+			request.getAsyncContext().start(task);
 		} else
 			handleRequest(servlet, request, response);
 	}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2009 Emweb bv, Herent, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * An estimate of the memory retained by a single session.
+ * <p>
+ * The statistics are computed periodically by JWt while the session lock is held
+ * (see {@link Configuration#setSessionMemoryAccountingInterval(int)}), and can be
+ * inspected for all sessions using {@link WtServlet#getSessionMemoryStats()}.
+ * <p>
+ * The numbers are estimates: widgets, model cells and pending events are counted
+ * and weighted with a fixed average cost, while the size of JavaScript buffers and
+ * in-memory resource data are measured. They are intended to spot runaway sessions,
+ * not as an exact heap measurement.
+ *
+ * @see Configuration#setSessionMemoryBudget(long)
+ * @see WtServlet#sessionMemoryBudgetExceeded(WApplication, SessionMemoryStats)
+ */
+public class SessionMemoryStats {
+	static final long WIDGET_BYTES = 1024;
+	static final long MODEL_CELL_BYTES = 64;
+	static final long EVENT_BYTES = 256;
+	static final long RESOURCE_BYTES = 512;
+
+	private final String sessionId;
+	private final long timestamp;
+	private final int widgetCount;
+	private final long modelCellCount;
+	private final int exposedResourceCount;
+	private final long resourceDataSize;
+	private final long javaScriptBufferSize;
+	private final int pendingEventCount;
+
+	SessionMemoryStats(String sessionId, int widgetCount, long modelCellCount, int exposedResourceCount,
+			long resourceDataSize, long javaScriptBufferSize, int pendingEventCount) {
+		this.sessionId = sessionId;
+		this.timestamp = System.currentTimeMillis();
+		this.widgetCount = widgetCount;
+		this.modelCellCount = modelCellCount;
+		this.exposedResourceCount = exposedResourceCount;
+		this.resourceDataSize = resourceDataSize;
+		this.javaScriptBufferSize = javaScriptBufferSize;
+		this.pendingEventCount = pendingEventCount;
+	}
+
+	/**
+	 * Returns the id of the session.
+	 */
+	public String getSessionId() {
+		return sessionId;
+	}
+
+	/**
+	 * Returns the time (in milliseconds since the epoch) at which these statistics were computed.
+	 */
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	/**
+	 * Returns the number of widgets in the widget tree of the application.
+	 */
+	public int getWidgetCount() {
+		return widgetCount;
+	}
+
+	/**
+	 * Returns the number of (top-level) cells of all models displayed by item views.
+	 * <p>
+	 * A model shared by several views is counted only once.
+	 */
+	public long getModelCellCount() {
+		return modelCellCount;
+	}
+
+	/**
+	 * Returns the number of resources exposed by the application.
+	 */
+	public int getExposedResourceCount() {
+		return exposedResourceCount;
+	}
+
+	/**
+	 * Returns the size (in bytes) of the data held by exposed in-memory resources.
+	 *
+	 * @see WMemoryResource
+	 */
+	public long getResourceDataSize() {
+		return resourceDataSize;
+	}
+
+	/**
+	 * Returns the size (in bytes) of JavaScript that is buffered, waiting to be sent to the browser.
+	 */
+	public long getJavaScriptBufferSize() {
+		return javaScriptBufferSize;
+	}
+
+	/**
+	 * Returns the number of events that are queued for the session.
+	 *
+	 * @see WtServlet#post(WApplication, Runnable, Runnable)
+	 */
+	public int getPendingEventCount() {
+		return pendingEventCount;
+	}
+
+	/**
+	 * Returns the estimated number of bytes retained by the session.
+	 */
+	public long getEstimatedSize() {
+		return widgetCount * WIDGET_BYTES
+			+ modelCellCount * MODEL_CELL_BYTES
+			+ exposedResourceCount * RESOURCE_BYTES
+			+ resourceDataSize
+			+ javaScriptBufferSize
+			+ pendingEventCount * EVENT_BYTES;
+	}
+
+	@Override
+	public String toString() {
+		return "SessionMemoryStats(" + sessionId + ": ~" + getEstimatedSize() + " bytes, "
+			+ widgetCount + " widgets, " + modelCellCount + " model cells, "
+			+ exposedResourceCount + " resources (" + resourceDataSize + " bytes), "
+			+ javaScriptBufferSize + " bytes JavaScript, " + pendingEventCount + " pending events)";
+	}
+
+	/*
+	 * Computes the statistics of a session, must be called while holding the session lock.
+	 */
+	static SessionMemoryStats compute(WebSession session) {
+		WApplication app = session.getApp();
+
+		int widgetCount = 0;
+		long modelCellCount = 0;
+		int exposedResourceCount = 0;
+		long resourceDataSize = 0;
+		long javaScriptBufferSize = 0;
+
+		if (app != null) {
+			Set<WAbstractItemModel> models = Collections.newSetFromMap(new IdentityHashMap<WAbstractItemModel, Boolean>());
+			Deque<WWidget> toVisit = new ArrayDeque<WWidget>();
+			if (app.getDomRoot() != null)
+				toVisit.add(app.getDomRoot());
+			if (app.getDomRoot2() != null)
+				toVisit.add(app.getDomRoot2());
+			if (app.getTimerRoot() != null)
+				toVisit.add(app.getTimerRoot());
+
+			while (!toVisit.isEmpty()) {
+				WWidget w = toVisit.pop();
+				++widgetCount;
+
+				if (w instanceof WAbstractItemView) {
+					WAbstractItemModel model = ((WAbstractItemView) w).getModel();
+					if (model != null && models.add(model))
+						modelCellCount += (long) model.getRowCount() * model.getColumnCount();
+				}
+
+				List<WWidget> children = w.getChildren();
+				if (children != null)
+					toVisit.addAll(children);
+			}
+
+			for (WResource resource : app.getExposedResources()) {
+				++exposedResourceCount;
+				if (resource instanceof WMemoryResource) {
+					byte[] data = ((WMemoryResource) resource).getData();
+					if (data != null)
+						resourceDataSize += data.length;
+				}
+			}
+
+			javaScriptBufferSize = 2L * app.getJavaScriptBufferSize();
+		}
+
+		javaScriptBufferSize += 2L * session.getRenderer().getJavaScriptBufferSize();
+
+		return new SessionMemoryStats(session.getSessionId(), widgetCount, modelCellCount,
+			exposedResourceCount, resourceDataSize, javaScriptBufferSize, session.getPendingEventCount());
+	}
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2009 Emweb bv, Herent, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A metrics sink that keeps histograms in memory.
+ * <p>
+ * Latencies (in nanoseconds) are kept in a {@link MetricsHistogram} per request type and stage,
+ * and response sizes (in bytes) in a histogram per request type. The histograms can be
+ * inspected at any time using {@link #getSnapshot()}.
+ *
+ * @see Configuration#setMetricsSink(MetricsSink)
+ */
+public class SnapshotMetricsSink implements MetricsSink {
+	private static final RequestType[] requestTypes = RequestType.values();
+	private static final Stage[] stages = Stage.values();
+
+	private final MetricsHistogram[][] latencies;
+	private final MetricsHistogram[] responseSizes;
+
+	/**
+	 * Creates a new sink.
+	 */
+	public SnapshotMetricsSink() {
+		latencies = new MetricsHistogram[requestTypes.length][stages.length];
+		responseSizes = new MetricsHistogram[requestTypes.length];
+
+		for (int i = 0; i < requestTypes.length; ++i) {
+			for (int j = 0; j < stages.length; ++j)
+				latencies[i][j] = new MetricsHistogram();
+			responseSizes[i] = new MetricsHistogram();
+		}
+	}
+
+	@Override
+	public void recordLatency(RequestType type, Stage stage, long nanos) {
+		latencies[type.ordinal()][stage.ordinal()].record(nanos);
+	}
+
+	@Override
+	public void recordResponseSize(RequestType type, long bytes) {
+		responseSizes[type.ordinal()].record(bytes);
+	}
+
+	/**
+	 * Returns a copy of the latency histogram (in nanoseconds) of a stage.
+	 */
+	public MetricsHistogram getLatency(RequestType type, Stage stage) {
+		return latencies[type.ordinal()][stage.ordinal()].copy();
+	}
+
+	/**
+	 * Returns a copy of the response size histogram (in bytes) of a request type.
+	 */
+	public MetricsHistogram getResponseSize(RequestType type) {
+		return responseSizes[type.ordinal()].copy();
+	}
+
+	/**
+	 * Returns a snapshot of all non-empty histograms.
+	 * <p>
+	 * Latency histograms are keyed as "<i>type</i>.<i>stage</i>" (e.g. "JsUpdate.LockWait"), and
+	 * response size histograms as "<i>type</i>.ResponseSize".
+	 */
+	public Map<String, MetricsHistogram> getSnapshot() {
+		Map<String, MetricsHistogram> result = new LinkedHashMap<String, MetricsHistogram>();
+
+		for (RequestType type : requestTypes) {
+			for (Stage stage : stages) {
+				MetricsHistogram h = latencies[type.ordinal()][stage.ordinal()];
+				if (h.getCount() > 0)
+					result.put(type + "." + stage, h.copy());
+			}
+
+			MetricsHistogram h = responseSizes[type.ordinal()];
+			if (h.getCount() > 0)
+				result.put(type + ".ResponseSize", h.copy());
+		}
+
+		return result;
+	}
+
+	/**
+	 * Clears all histograms.
+	 */
+	public void reset() {
+		for (int i = 0; i < requestTypes.length; ++i) {
+			for (int j = 0; j < stages.length; ++j)
+				latencies[i][j].reset();
+			responseSizes[i].reset();
+		}
+	}
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) 2009 Emweb bv, Herent, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt;
+
+import java.util.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An index of the heights of the expanded subtrees of a {@link WTreeView}.
+ *
+ * <p>For every expanded node, the index keeps the heights (in rows) of the subtrees of its
+ * children in a Fenwick tree. This allows computing the height of a subtree, the row of an index
+ * and the child at a given row in O(log n) per level, instead of walking all expanded descendants.
+ *
+ * <p>Nodes are built lazily. Expanding or collapsing a node updates its ancestors in O(depth log
+ * n), while a structural change to the model invalidates the affected parent and its ancestors,
+ * which are rebuilt (from the cached heights of their children) when needed.
+ */
+class TreeHeightIndex {
+  private static Logger logger = LoggerFactory.getLogger(TreeHeightIndex.class);
+
+  public TreeHeightIndex(WTreeView view) {
+    this.view_ = view;
+    this.nodes_ = new HashMap<WModelIndex, Node>();
+  }
+  /** Returns the total height of the children of an index (whether it is expanded or not). */
+  public int getChildrenHeight(final WModelIndex index) {
+    return this.getNode(index).total;
+  }
+  /** Returns the total height of the subtrees of the children of an index before a row. */
+  public int getRowOffset(final WModelIndex parent, int row) {
+    return this.getNode(parent).prefix(row);
+  }
+  /**
+   * Returns the row of the child of an index whose subtree contains the given row offset (relative
+   * to the first child), or the number of children if the offset is beyond the last child.
+   */
+  public int findChild(final WModelIndex parent, int offset) {
+    return this.getNode(parent).find(offset);
+  }
+  /** Updates the index after an index was expanded. */
+  public void expanded(final WModelIndex index) {
+    this.propagate(index, this.getChildrenHeight(index));
+  }
+  /** Updates the index after an index was collapsed. */
+  public void collapsed(final WModelIndex index) {
+    this.propagate(index, -this.getChildrenHeight(index));
+  }
+  /**
+   * Invalidates the index for a change in the rows of a parent.
+   *
+   * <p>This drops the parent and its ancestors, and the children from the given row onwards (which
+   * are keyed on their row). When rows are about to be removed, the subtrees of the removed rows are
+   * dropped too.
+   */
+  public void rowsChanged(final WModelIndex parent, int start, int removedCount) {
+    WAbstractItemModel model = this.view_.getModel();
+    for (int r = start; r < start + removedCount; ++r) {
+      this.dropSubtree(model.getIndex(r, 0, parent));
+    }
+    if (this.nodes_.isEmpty()) {
+      return;
+    }
+    final int rowCount = model.getRowCount(parent);
+    for (int r = start + removedCount; r < rowCount; ++r) {
+      this.nodes_.remove(model.getIndex(r, 0, parent));
+    }
+    this.invalidate(parent);
+  }
+  /** Clears the index. */
+  public void clear() {
+    this.nodes_.clear();
+  }
+
+  private WTreeView view_;
+  private Map<WModelIndex, Node> nodes_;
+
+  private Node getNode(final WModelIndex index) {
+    Node node = this.nodes_.get(index);
+    if (node == null) {
+      WAbstractItemModel model = this.view_.getModel();
+      int childCount = model.getRowCount(index);
+      int[] heights = new int[childCount];
+      for (int i = 0; i < childCount; ++i) {
+        WModelIndex childIndex = model.getIndex(i, 0, index);
+        heights[i] = 1 + (this.view_.isExpanded(childIndex) ? this.getChildrenHeight(childIndex) : 0);
+      }
+      node = new Node(heights);
+      this.nodes_.put(index, node);
+    }
+    return node;
+  }
+
+  private void propagate(WModelIndex index, int delta) {
+    if (delta == 0) {
+      return;
+    }
+    WModelIndex rootIndex = this.view_.getRootIndex();
+    for (WModelIndex child = index;
+        !(child == rootIndex || (child != null && child.equals(rootIndex))); ) {
+      WModelIndex parent = child.getParent();
+      Node node = this.nodes_.get(parent);
+      if (node == null) {
+        return;
+      }
+      node.add(child.getRow(), delta);
+      if (!this.view_.isExpanded(parent)) {
+        return;
+      }
+      child = parent;
+    }
+  }
+
+  private void invalidate(final WModelIndex index) {
+    for (WModelIndex p = index; ; p = p.getParent()) {
+      this.nodes_.remove(p);
+      if (p == null) {
+        break;
+      }
+    }
+  }
+
+  private void dropSubtree(final WModelIndex index) {
+    if (this.nodes_.remove(index) != null) {
+      WAbstractItemModel model = this.view_.getModel();
+      final int rowCount = model.getRowCount(index);
+      for (int r = 0; r < rowCount; ++r) {
+        this.dropSubtree(model.getIndex(r, 0, index));
+      }
+    }
+  }
+
+  static class Node {
+    public Node(int[] heights) {
+      this.tree = new int[heights.length + 1];
+      this.total = 0;
+      for (int i = 1; i <= heights.length; ++i) {
+        this.tree[i] += heights[i - 1];
+        this.total += heights[i - 1];
+        int j = i + (i & -i);
+        if (j <= heights.length) {
+          this.tree[j] += this.tree[i];
+        }
+      }
+    }
+
+    public int prefix(int row) {
+      int result = 0;
+      for (int i = Math.min(row, this.tree.length - 1); i > 0; i -= i & -i) {
+        result += this.tree[i];
+      }
+      return result;
+    }
+
+    public void add(int row, int delta) {
+      for (int i = row + 1; i < this.tree.length; i += i & -i) {
+        this.tree[i] += delta;
+      }
+      this.total += delta;
+    }
+
+    public int find(int offset) {
+      int n = this.tree.length - 1;
+      int pos = 0;
+      for (int step = Integer.highestOneBit(Math.max(1, n)); step > 0; step >>= 1) {
+        if (pos + step <= n && this.tree[pos + step] <= offset) {
+          pos += step;
+          offset -= this.tree[pos];
+        }
+      }
+      return pos;
+    }
+
+    public int[] tree;
+    public int total;
+  }
+}
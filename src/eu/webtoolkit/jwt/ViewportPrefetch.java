@@ -0,0 +1,218 @@
+/*
+ * Copyright (C) 2009 Emweb bv, Herent, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adaptive prefetching of the rows rendered by an item view.
+ * <p>
+ * An item view renders the rows in its viewport and a margin around it, and the client
+ * reports back when it scrolls out of the rendered rows. With a fixed margin, fast scrolling
+ * causes many round-trips that each render a thin band of rows, while a view that is not
+ * scrolled renders more rows than needed.
+ * <p>
+ * This class tracks the scroll velocity and direction from the viewport changes reported by
+ * the client. It renders only a small margin around an idle viewport, and renders ahead in the
+ * scroll direction proportionally to the scroll velocity. Rows are fetched in blocks of
+ * {@link #BLOCK_ROWS}, and rows that were rendered behind the viewport are kept for up to
+ * {@link #KEEP_PAGES} pages, so that scrolling back reuses them.
+ * <p>
+ * It also keeps statistics on the rows rendered and on the round-trips of scroll gestures: a
+ * gesture is a sequence of viewport changes that are less than {@link #GESTURE_GAP_MILLIS}
+ * apart.
+ *
+ * @see WAbstractItemView#setAdaptivePrefetch(boolean)
+ */
+public final class ViewportPrefetch {
+	/**
+	 * The number of rows that are fetched at once.
+	 */
+	public static final int BLOCK_ROWS = 32;
+
+	/**
+	 * The number of pages that are kept rendered behind the viewport.
+	 */
+	public static final int KEEP_PAGES = 2;
+
+	/**
+	 * The maximum number of pages that are rendered ahead of the viewport.
+	 */
+	public static final int MAX_AHEAD_PAGES = 4;
+
+	/**
+	 * The maximum time between viewport changes of one scroll gesture.
+	 */
+	public static final int GESTURE_GAP_MILLIS = 300;
+
+	private static final int BORDER_ROWS = 5;
+	private static final double LOOKAHEAD_SECONDS = 0.5;
+
+	private long lastEvent;
+	private int lastTop;
+	private double velocity;
+	private long activeNanos;
+	private long rowsRendered;
+	private long roundTrips;
+	private long gestures;
+
+	ViewportPrefetch() {
+		reset();
+	}
+
+	/**
+	 * Records a viewport change reported by the client.
+	 *
+	 * @param top the first row in the viewport
+	 */
+	void scrolled(int top) {
+		scrolled(top, System.nanoTime());
+	}
+
+	void scrolled(int top, long now) {
+		++roundTrips;
+		long dt = now - lastEvent;
+		if (gestures == 0 || dt > TimeUnit.MILLISECONDS.toNanos(GESTURE_GAP_MILLIS)) {
+			++gestures;
+			velocity = 0;
+		} else {
+			activeNanos += dt;
+			double v = (top - lastTop) / Math.max(1E-3, dt / 1E9);
+			if (velocity * v <= 0)
+				velocity = v;
+			else
+				velocity = (velocity + v) / 2;
+		}
+		lastEvent = now;
+		lastTop = top;
+	}
+
+	/**
+	 * Records rows that were rendered.
+	 */
+	void rendered(int rows) {
+		if (rows > 0)
+			rowsRendered += rows;
+	}
+
+	/**
+	 * Returns the number of rows to render before the viewport.
+	 */
+	int getRowsBefore(int pageRows) {
+		return velocity < 0 ? getRowsAhead(pageRows) : getRowsBehind(pageRows);
+	}
+
+	/**
+	 * Returns the number of rows to render after the viewport.
+	 */
+	int getRowsAfter(int pageRows) {
+		return velocity > 0 ? getRowsAhead(pageRows) : getRowsBehind(pageRows);
+	}
+
+	/**
+	 * Returns the first row to render.
+	 *
+	 * @param currentFirst the first row that is currently rendered, or -1
+	 * @param top the first row in the viewport
+	 */
+	int getFirstRow(int currentFirst, int top, int pageRows) {
+		int result = Math.max(0, top - getRowsBefore(pageRows));
+		result -= result % BLOCK_ROWS;
+		if (currentFirst >= 0 && currentFirst <= result
+				&& result - currentFirst <= KEEP_PAGES * Math.max(1, pageRows))
+			return currentFirst;
+		else
+			return result;
+	}
+
+	/**
+	 * Returns the last row to render.
+	 *
+	 * @param currentLast the last row that is currently rendered, or -1
+	 * @param top the first row in the viewport
+	 */
+	int getLastRow(int currentLast, int top, int pageRows, int rowCount) {
+		int result = top + pageRows + getRowsAfter(pageRows);
+		result += BLOCK_ROWS - 1 - result % BLOCK_ROWS;
+		if (currentLast >= result && currentLast - result <= KEEP_PAGES * Math.max(1, pageRows))
+			result = currentLast;
+		return Math.min(result, rowCount - 1);
+	}
+
+	/**
+	 * Returns the maximum number of rows that are rendered.
+	 */
+	int getMaxRenderedRows(int pageRows) {
+		return BLOCK_ROWS * 2 + pageRows * (2 * KEEP_PAGES + 1) + getRowsAhead(pageRows)
+				+ getRowsBehind(pageRows);
+	}
+
+	/**
+	 * Returns the estimated scroll velocity.
+	 * <p>
+	 * This is expressed in rows per second, and is positive when scrolling down.
+	 */
+	public double getVelocity() {
+		return velocity;
+	}
+
+	/**
+	 * Returns the number of rows that were rendered.
+	 */
+	public long getRowsRendered() {
+		return rowsRendered;
+	}
+
+	/**
+	 * Returns the number of rows rendered per second of scrolling.
+	 */
+	public double getRowsRenderedPerSecond() {
+		return activeNanos == 0 ? 0 : rowsRendered / (activeNanos / 1E9);
+	}
+
+	/**
+	 * Returns the number of viewport changes reported by the client.
+	 */
+	public long getRoundTrips() {
+		return roundTrips;
+	}
+
+	/**
+	 * Returns the number of scroll gestures.
+	 */
+	public long getGestures() {
+		return gestures;
+	}
+
+	/**
+	 * Returns the average number of round-trips per scroll gesture.
+	 */
+	public double getRoundTripsPerGesture() {
+		return gestures == 0 ? 0 : (double) roundTrips / gestures;
+	}
+
+	/**
+	 * Resets the statistics.
+	 */
+	public void reset() {
+		lastEvent = 0;
+		lastTop = 0;
+		velocity = 0;
+		activeNanos = 0;
+		rowsRendered = 0;
+		roundTrips = 0;
+		gestures = 0;
+	}
+
+	private int getRowsBehind(int pageRows) {
+		return pageRows / 2 + BORDER_ROWS;
+	}
+
+	private int getRowsAhead(int pageRows) {
+		double extra = Math.min(Math.abs(velocity) * LOOKAHEAD_SECONDS, MAX_AHEAD_PAGES * pageRows);
+		return getRowsBehind(pageRows) + (int) Math.ceil(extra);
+	}
+}
@@ -620,7 +620,7 @@ public abstract class WAbstractItemView extends WCompositeWidget {
    * @see WAbstractItemView#getSelectionModel()
    */
   public void setSelectedIndexes(final SortedSet<WModelIndex> indexes) {
-    if (indexes.isEmpty() && this.selectionModel_.selection_.isEmpty()) {
+    if (indexes.isEmpty() && this.selectionModel_.isEmpty()) {
       return;
     }
     this.clearSelection();
@@ -638,11 +638,13 @@ public abstract class WAbstractItemView extends WCompositeWidget {
    * @see WAbstractItemView#setSelectedIndexes(SortedSet indexes)
    */
   public void clearSelection() {
-    final SortedSet<WModelIndex> nodes = this.selectionModel_.selection_;
-    while (!nodes.isEmpty()) {
-      WModelIndex i = nodes.iterator().next();
-      this.internalSelect(i, SelectionFlag.Deselect);
+    if (this.selectionModel_.isEmpty()) {
+      return;
     }
+    List<WModelIndex> rendered = this.getRenderedIndexes();
+    boolean[] selected = this.getSelectedState(rendered);
+    this.selectionModel_.clear();
+    this.renderSelectionChanges(rendered, selected);
   }
   /**
    * Selects a single item.
@@ -709,7 +711,7 @@ public abstract class WAbstractItemView extends WCompositeWidget {
    * @see WAbstractItemView#setSelectedIndexes(SortedSet indexes)
    */
   public SortedSet<WModelIndex> getSelectedIndexes() {
-    return this.selectionModel_.selection_;
+    return this.selectionModel_.getSelectedIndexes();
   }
   /**
    * Enables the selection to be dragged (drag &amp; drop).
@@ -831,6 +833,47 @@ public abstract class WAbstractItemView extends WCompositeWidget {
   public WLength getRowHeight() {
     return this.rowHeight_;
   }
+  /**
+   * Configures adaptive prefetching of rows.
+   *
+   * <p>By default, a view that uses JavaScript renders a fixed margin of rows around its viewport
+   * (see for example {@link WTableView#setPreloadMargin(WLength margin, EnumSet side)
+   * WTableView#setPreloadMargin()}). When adaptive prefetching is enabled, the view tracks the
+   * scroll velocity and direction reported by the client, and renders ahead in the scroll
+   * direction, in blocks of rows, while keeping recently rendered rows for when the user scrolls
+   * back (see {@link ViewportPrefetch}). Preload margins that are set explicitly take precedence.
+   *
+   * <p>The default value is <code>false</code>.
+   *
+   * @see WAbstractItemView#getViewportPrefetch()
+   */
+  public void setAdaptivePrefetch(boolean enabled) {
+    if (enabled == (this.prefetch_ != null)) {
+      return;
+    }
+    this.prefetch_ = enabled ? new ViewportPrefetch() : null;
+    this.scheduleRerender(WAbstractItemView.RenderState.NeedAdjustViewPort);
+  }
+  /**
+   * Returns whether adaptive prefetching of rows is enabled.
+   *
+   * <p>
+   *
+   * @see WAbstractItemView#setAdaptivePrefetch(boolean enabled)
+   */
+  public boolean isAdaptivePrefetch() {
+    return this.prefetch_ != null;
+  }
+  /**
+   * Returns the adaptive prefetching state and statistics.
+   *
+   * <p>Returns <code>null</code> if adaptive prefetching is not enabled.
+   *
+   * @see WAbstractItemView#setAdaptivePrefetch(boolean enabled)
+   */
+  public ViewportPrefetch getViewportPrefetch() {
+    return this.prefetch_;
+  }
   /**
    * Sets the column width.
    *
@@ -1497,6 +1540,7 @@ public abstract class WAbstractItemView extends WCompositeWidget {
     this.headerItemDelegate_ = null;
     this.selectionModel_ = new WItemSelectionModel();
     this.rowHeight_ = new WLength(20);
+    this.prefetch_ = null;
     this.headerLineHeight_ = new WLength(20);
     this.selectionMode_ = SelectionMode.None;
     this.sorting_ = true;
@@ -2155,7 +2199,7 @@ public abstract class WAbstractItemView extends WCompositeWidget {
       option = SelectionFlag.ClearAndSelect;
     }
     if ((option == SelectionFlag.ClearAndSelect || option == SelectionFlag.Select)
-        && this.getSelectionModel().selection_.size() == 1
+        && this.getSelectionModel().size() == 1
         && this.isSelected(index)) {
       return false;
     } else {
@@ -2168,9 +2212,9 @@ public abstract class WAbstractItemView extends WCompositeWidget {
       option = SelectionFlag.Select;
     }
     if (option == SelectionFlag.Select) {
-      this.getSelectionModel().selection_.add(index);
+      this.getSelectionModel().select(index);
     } else {
-      this.getSelectionModel().selection_.remove(index);
+      this.getSelectionModel().deselect(index);
     }
     return true;
   }
@@ -2370,6 +2414,7 @@ public abstract class WAbstractItemView extends WCompositeWidget {
   private WAbstractItemDelegate headerItemDelegate_;
   private WItemSelectionModel selectionModel_;
   private WLength rowHeight_;
+  ViewportPrefetch prefetch_;
   private WLength headerLineHeight_;
   private SelectionMode selectionMode_;
   private boolean sorting_;
@@ -2522,7 +2567,7 @@ public abstract class WAbstractItemView extends WCompositeWidget {
   }
 
   private void extendSelection(final WModelIndex index) {
-    if (this.selectionModel_.selection_.isEmpty()) {
+    if (this.selectionModel_.isEmpty()) {
       this.internalSelect(index, SelectionFlag.Select);
     } else {
       if (this.getSelectionBehavior() == SelectionBehavior.Rows && index.getColumn() != 0) {
@@ -2530,12 +2575,12 @@ public abstract class WAbstractItemView extends WCompositeWidget {
         return;
       }
     }
-    WModelIndex top = this.selectionModel_.selection_.iterator().next();
+    WModelIndex top = this.selectionModel_.getSelectedIndexes().first();
     if (top.compareTo(index) < 0) {
       this.clearSelection();
       this.selectRange(top, index);
     } else {
-      WModelIndex bottom = this.selectionModel_.selection_.last();
+      WModelIndex bottom = this.selectionModel_.getSelectedIndexes().last();
       this.clearSelection();
       this.selectRange(index, bottom);
     }
@@ -2557,6 +2602,29 @@ public abstract class WAbstractItemView extends WCompositeWidget {
 
   abstract void selectRange(final WModelIndex first, final WModelIndex last);
 
+  List<WModelIndex> getRenderedIndexes() {
+    return new ArrayList<WModelIndex>();
+  }
+
+  void renderSelected(boolean selected, final WModelIndex index) {}
+
+  boolean[] getSelectedState(final List<WModelIndex> indexes) {
+    boolean[] result = new boolean[indexes.size()];
+    for (int i = 0; i < indexes.size(); ++i) {
+      result[i] = this.isSelected(indexes.get(i));
+    }
+    return result;
+  }
+
+  void renderSelectionChanges(final List<WModelIndex> indexes, boolean[] selected) {
+    for (int i = 0; i < indexes.size(); ++i) {
+      boolean s = this.isSelected(indexes.get(i));
+      if (s != selected[i]) {
+        this.renderSelected(s, indexes.get(i));
+      }
+    }
+  }
+
   private void checkDragSelection() {
     this.computedDragMimeType_ = new WString(this.selectionModel_.getMimeType());
     this.setAttributeValue("dmt", this.computedDragMimeType_.toString());
@@ -1469,6 +1469,10 @@ public class WApplication extends WObject {
    * <p>The update is not immediate, and thus changes that happen after this call will equally be
    * pushed to the client.
    *
+   * <p>When a minimum push interval is configured, updates triggered in quick succession are
+   * merged and pushed at most once per interval (see {@link
+   * Configuration#setServerPushInterval(int)}).
+   *
    * <p>
    *
    * @see WApplication#enableUpdates(boolean enabled)
@@ -2770,21 +2774,27 @@ public class WApplication extends WObject {
   void addExposedSignal(AbstractEventSignal signal) {
     String s = signal.encodeCmd();
     this.exposedSignals_.put(s, signal);
-    logger.debug(new StringWriter().append("addExposedSignal: ").append(s).toString());
+    if (logger.isDebugEnabled()) {
+      logger.debug(new StringWriter().append("addExposedSignal: ").append(s).toString());
+    }
   }
 
   void removeExposedSignal(AbstractEventSignal signal) {
     String s = signal.encodeCmd();
     if (this.exposedSignals_.remove(s) != null) {
       this.justRemovedSignals_.add(s);
-      logger.debug(new StringWriter().append("removeExposedSignal: ").append(s).toString());
+      if (logger.isDebugEnabled()) {
+        logger.debug(new StringWriter().append("removeExposedSignal: ").append(s).toString());
+      }
     } else {
-      logger.debug(
-          new StringWriter()
-              .append("removeExposedSignal of non-exposed ")
-              .append(s)
-              .append("??")
-              .toString());
+      if (logger.isDebugEnabled()) {
+        logger.debug(
+            new StringWriter()
+                .append("removeExposedSignal of non-exposed ")
+                .append(s)
+                .append("??")
+                .toString());
+      }
     }
   }
 
@@ -2848,6 +2858,16 @@ public class WApplication extends WObject {
     }
   }
 
+  Collection<WResource> getExposedResources() {
+    return this.exposedResources_.values();
+  }
+
+  int getJavaScriptBufferSize() {
+    return this.afterLoadJavaScript_.length()
+        + this.beforeLoadJavaScript_.length()
+        + this.autoJavaScript_.length();
+  }
+
   WResource decodeExposedResource(final String resourceKey) {
     WResource i = this.exposedResources_.get(resourceKey);
     if (i != null) {
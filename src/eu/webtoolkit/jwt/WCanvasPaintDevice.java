@@ -549,6 +549,20 @@ public class WCanvasPaintDevice extends WObject implements WPaintDevice {
     js_target.append("ctx.save();").append(this.js_.toString()).append("ctx.restore();");
   }
 
+  String getPaintCommands() {
+    return this.js_.toString();
+  }
+
+  List<String> getImages() {
+    return this.images_;
+  }
+
+  void setPaintCommands(final String js, final List<String> images) {
+    this.js_ = new StringWriter();
+    this.js_.append(js);
+    this.images_ = new ArrayList<String>(images);
+  }
+
   public WLength getWidth() {
     return this.width_;
   }
@@ -898,57 +912,57 @@ public class WCanvasPaintDevice extends WObject implements WPaintDevice {
   private void drawPlainPath(final StringWriter out, final WPainterPath path) {
     char[] buf = new char[30];
     out.append("ctx.beginPath();");
-    final List<WPainterPath.Segment> segments = path.getSegments();
-    if (segments.size() > 0 && segments.get(0).getType() != SegmentType.MoveTo) {
+    if (path.getSegmentCount() > 0 && path.getSegmentType(0) != SegmentType.MoveTo) {
       out.append("ctx.moveTo(0,0);");
     }
-    for (int i = 0; i < segments.size(); ++i) {
-      final WPainterPath.Segment s = segments.get(i);
-      switch (s.getType()) {
+    for (int i = 0; i < path.getSegmentCount(); ++i) {
+      switch (path.getSegmentType(i)) {
         case MoveTo:
           out.append("ctx.moveTo(")
-              .append(MathUtils.roundJs(s.getX() + this.pathTranslation_.getX(), 3));
+              .append(MathUtils.roundJs(path.getSegmentX(i) + this.pathTranslation_.getX(), 3));
           out.append(',')
-              .append(MathUtils.roundJs(s.getY() + this.pathTranslation_.getY(), 3))
+              .append(MathUtils.roundJs(path.getSegmentY(i) + this.pathTranslation_.getY(), 3))
               .append(");");
           break;
         case LineTo:
           out.append("ctx.lineTo(")
-              .append(MathUtils.roundJs(s.getX() + this.pathTranslation_.getX(), 3));
+              .append(MathUtils.roundJs(path.getSegmentX(i) + this.pathTranslation_.getX(), 3));
           out.append(',')
-              .append(MathUtils.roundJs(s.getY() + this.pathTranslation_.getY(), 3))
+              .append(MathUtils.roundJs(path.getSegmentY(i) + this.pathTranslation_.getY(), 3))
               .append(");");
           break;
         case CubicC1:
           out.append("ctx.bezierCurveTo(")
-              .append(MathUtils.roundJs(s.getX() + this.pathTranslation_.getX(), 3));
-          out.append(',').append(MathUtils.roundJs(s.getY() + this.pathTranslation_.getY(), 3));
+              .append(MathUtils.roundJs(path.getSegmentX(i) + this.pathTranslation_.getX(), 3));
+          out.append(',')
+              .append(MathUtils.roundJs(path.getSegmentY(i) + this.pathTranslation_.getY(), 3));
           break;
         case CubicC2:
           out.append(',')
-              .append(MathUtils.roundJs(s.getX() + this.pathTranslation_.getX(), 3))
+              .append(MathUtils.roundJs(path.getSegmentX(i) + this.pathTranslation_.getX(), 3))
               .append(',');
-          out.append(MathUtils.roundJs(s.getY() + this.pathTranslation_.getY(), 3));
+          out.append(MathUtils.roundJs(path.getSegmentY(i) + this.pathTranslation_.getY(), 3));
           break;
         case CubicEnd:
           out.append(',')
-              .append(MathUtils.roundJs(s.getX() + this.pathTranslation_.getX(), 3))
+              .append(MathUtils.roundJs(path.getSegmentX(i) + this.pathTranslation_.getX(), 3))
               .append(',');
-          out.append(MathUtils.roundJs(s.getY() + this.pathTranslation_.getY(), 3)).append(");");
+          out.append(MathUtils.roundJs(path.getSegmentY(i) + this.pathTranslation_.getY(), 3))
+              .append(");");
           break;
         case ArcC:
           out.append("ctx.arc(")
-              .append(MathUtils.roundJs(s.getX() + this.pathTranslation_.getX(), 3))
+              .append(MathUtils.roundJs(path.getSegmentX(i) + this.pathTranslation_.getX(), 3))
               .append(',');
-          out.append(MathUtils.roundJs(s.getY() + this.pathTranslation_.getY(), 3));
+          out.append(MathUtils.roundJs(path.getSegmentY(i) + this.pathTranslation_.getY(), 3));
           break;
         case ArcR:
-          out.append(',').append(MathUtils.roundJs(Math.max(0.0, s.getX()), 3));
+          out.append(',').append(MathUtils.roundJs(Math.max(0.0, path.getSegmentX(i)), 3));
           break;
         case ArcAngleSweep:
           {
-            final double startAngle = s.getX();
-            final double spanAngle = s.getY();
+            final double startAngle = path.getSegmentX(i);
+            final double spanAngle = path.getSegmentY(i);
             final double rStartAngle = WTransform.degreesToRadians(adjustPositive360(-startAngle));
             double rEndAngle;
             if (spanAngle >= 360.0 || spanAngle <= -360.0) {
@@ -966,8 +980,8 @@ public class WCanvasPaintDevice extends WObject implements WPaintDevice {
           break;
         case QuadC:
           {
-            final double cpx = s.getX();
-            final double cpy = s.getY();
+            final double cpx = path.getSegmentX(i);
+            final double cpy = path.getSegmentY(i);
             out.append("ctx.quadraticCurveTo(")
                 .append(MathUtils.roundJs(cpx + this.pathTranslation_.getX(), 3))
                 .append(',');
@@ -976,9 +990,10 @@ public class WCanvasPaintDevice extends WObject implements WPaintDevice {
           }
         case QuadEnd:
           out.append(',')
-              .append(MathUtils.roundJs(s.getX() + this.pathTranslation_.getX(), 3))
+              .append(MathUtils.roundJs(path.getSegmentX(i) + this.pathTranslation_.getX(), 3))
               .append(',');
-          out.append(MathUtils.roundJs(s.getY() + this.pathTranslation_.getY(), 3)).append(");");
+          out.append(MathUtils.roundJs(path.getSegmentY(i) + this.pathTranslation_.getY(), 3))
+              .append(");");
       }
     }
   }
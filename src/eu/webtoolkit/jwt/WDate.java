@@ -7,10 +7,22 @@ package eu.webtoolkit.jwt;
 
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.time.DateTimeException;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.temporal.TemporalAdjusters;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.GregorianCalendar;
 import java.util.Locale;
+import java.util.Map;
 import java.util.TimeZone;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Class which holds a date on the gregorian calendar, specified as
@@ -28,10 +40,25 @@ import java.util.TimeZone;
  * both methods.
  * 
  * Simple operations are supported to compare dates, or to calculate with dates.
+ * 
+ * A date is stored as a number of milliseconds since the epoch. The calendar
+ * fields (year, month, day, ...) are computed in the time zone (see
+ * {@link #setTimezone(TimeZone)}) when first needed, and kept until the date or
+ * the time zone changes.
  */
 public class WDate implements Comparable<WDate> {
+	private static final int FORMAT_CACHE_SIZE = 256;
+	private static final int FORMAT_POOL_SIZE = 8;
+
 	static private TimeZone timeZone = null;
-	private Date d;
+	static private ZoneId zoneId = null;
+
+	private static final Map<Locale, Map<String, ArrayBlockingQueue<SimpleDateFormat>>> formats
+		= new ConcurrentHashMap<Locale, Map<String, ArrayBlockingQueue<SimpleDateFormat>>>();
+	private static final Map<String, RegExpInfo> regExps = new ConcurrentHashMap<String, RegExpInfo>();
+
+	private long millis;
+	private ZonedDateTime fields;
 
 	static class RegExpInfo {
 		public String regexp;
@@ -69,6 +96,7 @@ public class WDate implements Comparable<WDate> {
 	 * The default is <code>null</code>.
 	 */
 	public static void setTimezone(TimeZone timeZone) {
+		WDate.zoneId = timeZone != null ? timeZone.toZoneId() : null;
 		WDate.timeZone = timeZone; 
 	}
 
@@ -83,7 +111,6 @@ public class WDate implements Comparable<WDate> {
 	 */
 	public WDate(int year, int month, int day, int hour, int minute,
 			int second, int millisecond) {
-		d = new Date();
 		setDate(year, month, day, hour, minute, second, millisecond);
 	}
 
@@ -118,7 +145,16 @@ public class WDate implements Comparable<WDate> {
 	 * Specify a date by a Date object.
 	 */
 	public WDate(Date date) {
-		d = date;
+		this(date.getTime());
+	}
+
+	private WDate(long millis) {
+		this.millis = millis;
+	}
+
+	private WDate(ZonedDateTime fields) {
+		this.millis = fields.toInstant().toEpochMilli();
+		this.fields = fields;
 	}
 
 	/**
@@ -139,28 +175,42 @@ public class WDate implements Comparable<WDate> {
 	 */
 	public void setDate(int year, int month, int day, int hour, int minute,
 			int second, int millisecond) {
-		Calendar c = createCalendar();
-		c.setTime(d);
-		c.set(year, month - 1, day, hour, minute, second);
-		c.set(Calendar.MILLISECOND, millisecond);
-
-		if (c.get(Calendar.YEAR) != year || c.get(Calendar.MONTH) + 1 != month
-				|| c.get(Calendar.DATE) != day
-				|| c.get(Calendar.HOUR_OF_DAY) != hour
-				|| c.get(Calendar.MINUTE) != minute
-				|| c.get(Calendar.SECOND) != second
-				|| c.get(Calendar.MILLISECOND) != millisecond) {
+		if (year <= 0 || millisecond < 0 || millisecond > 999)
+			throw new IllegalArgumentException("Illegal WDate");
+
+		LocalDateTime local;
+		try {
+			local = LocalDateTime.of(year, month, day, hour, minute, second, millisecond * 1000000);
+		} catch (DateTimeException e) {
 			throw new IllegalArgumentException("Illegal WDate");
 		}
 
-		d = c.getTime();
+		ZonedDateTime t = ZonedDateTime.ofLocal(local, getZone(), null);
+		if (!t.toLocalDateTime().equals(local)) // in a daylight saving time gap
+			throw new IllegalArgumentException("Illegal WDate");
+
+		millis = t.toInstant().toEpochMilli();
+		fields = t;
 	}
 
-	private static Calendar createCalendar() {
-		if (timeZone != null)
-			return Calendar.getInstance(timeZone);
-		else
-			return Calendar.getInstance();
+	private static ZoneId getZone() {
+		ZoneId zone = zoneId;
+		return zone != null ? zone : ZoneId.systemDefault();
+	}
+
+	private static TimeZone getTimeZone() {
+		TimeZone zone = timeZone;
+		return zone != null ? zone : TimeZone.getDefault();
+	}
+
+	private ZonedDateTime getFields() {
+		ZoneId zone = getZone();
+		ZonedDateTime result = fields;
+		if (result == null || !result.getZone().equals(zone)) {
+			result = Instant.ofEpochMilli(millis).atZone(zone);
+			fields = result;
+		}
+		return result;
 	}
 
 	/**
@@ -239,10 +289,7 @@ public class WDate implements Comparable<WDate> {
 	 * many seconds earlier.
 	 */
 	public WDate addSeconds(int nSeconds) {
-		Calendar c = createCalendar();
-		c.setTime(d);
-		c.add(Calendar.SECOND, nSeconds);
-		return new WDate(c.getTime());
+		return new WDate(millis + nSeconds * 1000L);
 	}
 
 	/**
@@ -253,10 +300,7 @@ public class WDate implements Comparable<WDate> {
 	 * time that is as many seconds earlier.
 	 */
 	public WDate addMilliseconds(int nMilliseconds) {
-		Calendar c = createCalendar();
-		c.setTime(d);
-		c.add(Calendar.MILLISECOND, nMilliseconds);
-		return new WDate(c.getTime());
+		return new WDate(millis + nMilliseconds);
 	}
 
 	/**
@@ -269,10 +313,7 @@ public class WDate implements Comparable<WDate> {
 	 * @see #addYears(int)
 	 */
 	public WDate addDays(int ndays) {
-		Calendar c = createCalendar();
-		c.setTime(d);
-		c.add(Calendar.DATE, ndays);
-		return new WDate(c.getTime());
+		return new WDate(getFields().plusDays(ndays));
 	}
 
 	/**
@@ -286,10 +327,7 @@ public class WDate implements Comparable<WDate> {
 	 * @see #addYears(int)
 	 */
 	public WDate addMonths(int nmonths) {
-		Calendar c = createCalendar();
-		c.setTime(d);
-		c.add(Calendar.MONTH, nmonths);
-		return new WDate(c.getTime());
+		return new WDate(getFields().plusMonths(nmonths));
 	}
 
 	/**
@@ -303,73 +341,56 @@ public class WDate implements Comparable<WDate> {
 	 * @see #addMonths(int)
 	 */
 	public WDate addYears(int nyears) {
-		Calendar c = createCalendar();
-		c.setTime(d);
-		c.add(Calendar.YEAR, nyears);
-		return new WDate(c.getTime());
+		return new WDate(getFields().plusYears(nyears));
 	}
 
 	/**
 	 * Year
 	 */
 	public int getYear() {
-		Calendar c = createCalendar();
-		c.setTime(d);
-		return c.get(Calendar.YEAR);
+		return getFields().getYear();
 	}
 
 	/**
 	 * Month (1-12)
 	 */
 	public int getMonth() {
-		Calendar c = createCalendar();
-		c.setTime(d);
-		return c.get(Calendar.MONTH) + 1;
+		return getFields().getMonthValue();
 	}
 
 	/**
 	 * Day of month (1-31)
 	 */
 	public int getDay() {
-		Calendar c = createCalendar();
-		c.setTime(d);
-		return c.get(Calendar.DATE);
+		return getFields().getDayOfMonth();
 	}
 
 	/**
 	 * Hour (0-24)
 	 */
 	public int getHour() {
-		Calendar c = createCalendar();
-		c.setTime(d);
-		return c.get(Calendar.HOUR_OF_DAY);
+		return getFields().getHour();
 	}
 
 	/**
 	 * Minute (0-59)
 	 */
 	public int getMinute() {
-		Calendar c = createCalendar();
-		c.setTime(d);
-		return c.get(Calendar.MINUTE);
+		return getFields().getMinute();
 	}
 
 	/**
 	 * Second (0-59)
 	 */
 	public int getSecond() {
-		Calendar c = createCalendar();
-		c.setTime(d);
-		return c.get(Calendar.SECOND);
+		return getFields().getSecond();
 	}
 
 	/**
 	 * Millisecond (0-999)
 	 */
 	public int getMillisecond() {
-		Calendar c = createCalendar();
-		c.setTime(d);
-		return c.get(Calendar.MILLISECOND);
+		return getFields().getNano() / 1000000;
 	}
 
 	/**
@@ -383,23 +404,21 @@ public class WDate implements Comparable<WDate> {
 	 * Returns the difference between to time values (in milliseconds).
 	 */
 	public long getMillisecondsTo(WDate d) {
-		return d.d.getTime() - this.d.getTime();
+		return d.millis - this.millis;
 	}
 
 	/**
 	 * Day of week (1-7)
 	 */
 	public int getDayOfWeek() {
-		Calendar c = createCalendar();
-		c.setTime(d);
-		return c.get(Calendar.DAY_OF_WEEK);
+		return getFields().getDayOfWeek().getValue() % 7 + 1;
 	}
 
 	/**
 	 * Returns the number of days from this date to <i>date</i>.
 	 */
 	public int getDaysTo(WDate date) {
-		return (int) ((date.d.getTime() - d.getTime()) / 1000 / 3600 / 24);
+		return (int) ((date.millis - millis) / 1000 / 3600 / 24);
 	}
 
 	/**
@@ -474,7 +493,7 @@ public class WDate implements Comparable<WDate> {
 	 *         otherwise.
 	 */
 	public boolean before(WDate when) {
-		return d.before(when.d);
+		return millis < when.millis;
 	}
 
 	/**
@@ -487,7 +506,7 @@ public class WDate implements Comparable<WDate> {
 	 *         otherwise.
 	 */
 	public boolean after(WDate when) {
-		return d.after(when.d);
+		return millis > when.millis;
 	}
 
 	/**
@@ -500,7 +519,7 @@ public class WDate implements Comparable<WDate> {
 	public boolean equals(Object other) {
 		if (other instanceof WDate) {
 			WDate d2 = (WDate) other;
-			return this.d.equals(d2.d);
+			return this.millis == d2.millis;
 		} else
 			return false;
 	}
@@ -527,17 +546,8 @@ public class WDate implements Comparable<WDate> {
 	}
 	
 	private static WDate getUTCDate() {
-		// http://stackoverflow.com/a/2528480/1896048
-		SimpleDateFormat dateFormatGmt = new SimpleDateFormat("yyyy-MMM-dd HH:mm:ss");
-		dateFormatGmt.setTimeZone(TimeZone.getTimeZone("GMT"));
-		//Local time zone
-		SimpleDateFormat dateFormatLocal = new SimpleDateFormat("yyyy-MMM-dd HH:mm:ss");
-		
-		Date utcDate = new Date();
-		try { //Time in GMT
-			utcDate = dateFormatLocal.parse(dateFormatGmt.format(new Date()));
-		} catch (ParseException e) {}
-		return new WDate(utcDate);
+		// the UTC wall clock time, in the local time zone
+		return new WDate(LocalDateTime.now(ZoneOffset.UTC).withNano(0).atZone(ZoneId.systemDefault()));
 	}
 
 	/**
@@ -547,7 +557,7 @@ public class WDate implements Comparable<WDate> {
 	 * server.
 	 */
 	public static WDate getCurrentServerDate() {
-		return new WDate(createCalendar().getTime());
+		return new WDate(System.currentTimeMillis());
 	}
 
 	/**
@@ -699,14 +709,16 @@ public class WDate implements Comparable<WDate> {
 	 * @see #toString(String format)
 	 */
 	public static WDate fromString(String text, String format) {
-		SimpleDateFormat formatter = new SimpleDateFormat(format);
+		Locale locale = Locale.getDefault(Locale.Category.FORMAT);
+		SimpleDateFormat formatter = acquireFormat(format, locale);
 		try {
-			formatter.setLenient(false);
-			formatter.setCalendar(createCalendar());
+			formatter.setTimeZone(getTimeZone());
 			Date d = formatter.parse(text);
 			if (d != null && formatter.format(d).equals(text))
 				return new WDate(d);
 		} catch (ParseException e) {
+		} finally {
+			releaseFormat(format, locale, formatter);
 		}
 		
 		return null;
@@ -774,25 +786,81 @@ public class WDate implements Comparable<WDate> {
 	}
 	
 	public String toString(String format, boolean localized) {
-		SimpleDateFormat formatter = localized ? new SimpleDateFormat(format) : new SimpleDateFormat(format, Locale.ENGLISH);
-		return formatter.format(this.d);
+		Locale locale = localized ? Locale.getDefault(Locale.Category.FORMAT) : Locale.ENGLISH;
+		SimpleDateFormat formatter = acquireFormat(format, locale);
+		try {
+			formatter.setTimeZone(TimeZone.getDefault());
+			return formatter.format(getDate());
+		} finally {
+			releaseFormat(format, locale, formatter);
+		}
 	}
 
-	static WDate getPreviousWeekday(WDate d, int gw) {
-		Calendar c = createCalendar();
-		c.setTime(d.d);
-		
-		// FIXME we shouldn't need a loop here!
-		while (true) {
-			c.add(Calendar.DATE, -1);
-			if (c.get(Calendar.DAY_OF_WEEK) == (gw == 7 ? 1 : gw + 1))
-				break;
+	/*
+	 * Compiling a format (and looking up its locale data) is much more expensive
+	 * than formatting or parsing, but a SimpleDateFormat is not thread-safe: a
+	 * small pool of compiled formatters is kept per locale and format.
+	 */
+	private static SimpleDateFormat acquireFormat(String format, Locale locale) {
+		Map<String, ArrayBlockingQueue<SimpleDateFormat>> localeFormats = formats.get(locale);
+		if (localeFormats != null) {
+			ArrayBlockingQueue<SimpleDateFormat> pool = localeFormats.get(format);
+			if (pool != null) {
+				SimpleDateFormat result = pool.poll();
+				if (result != null)
+					return result;
+			}
 		}
-		
-		return new WDate(c.getTime());
+
+		// the fields use the proleptic Gregorian calendar of java.time
+		GregorianCalendar calendar = new GregorianCalendar(locale);
+		calendar.setGregorianChange(new Date(Long.MIN_VALUE));
+
+		SimpleDateFormat result = new SimpleDateFormat(format, locale);
+		result.setCalendar(calendar);
+		result.setLenient(false);
+		return result;
+	}
+
+	private static void releaseFormat(String format, Locale locale, SimpleDateFormat formatter) {
+		Map<String, ArrayBlockingQueue<SimpleDateFormat>> localeFormats = formats.get(locale);
+		if (localeFormats == null) {
+			localeFormats = new ConcurrentHashMap<String, ArrayBlockingQueue<SimpleDateFormat>>();
+			Map<String, ArrayBlockingQueue<SimpleDateFormat>> existing = formats.putIfAbsent(locale, localeFormats);
+			if (existing != null)
+				localeFormats = existing;
+		}
+
+		ArrayBlockingQueue<SimpleDateFormat> pool = localeFormats.get(format);
+		if (pool == null) {
+			if (localeFormats.size() >= FORMAT_CACHE_SIZE)
+				localeFormats.clear();
+			pool = new ArrayBlockingQueue<SimpleDateFormat>(FORMAT_POOL_SIZE);
+			ArrayBlockingQueue<SimpleDateFormat> existing = localeFormats.putIfAbsent(format, pool);
+			if (existing != null)
+				pool = existing;
+		}
+
+		pool.offer(formatter);
+	}
+
+	static WDate getPreviousWeekday(WDate d, int gw) {
+		return new WDate(d.getFields().with(TemporalAdjusters.previous(DayOfWeek.of(gw))));
 	}
 
 	static WDate.RegExpInfo formatToRegExp(String f) {
+		WDate.RegExpInfo result = regExps.get(f);
+		if (result == null) {
+			result = createRegExp(f);
+			if (regExps.size() >= FORMAT_CACHE_SIZE)
+				regExps.clear();
+			regExps.put(f, result);
+		}
+
+		return result;
+	}
+
+	private static WDate.RegExpInfo createRegExp(String f) {
 		WDate.RegExpInfo result = new WDate.RegExpInfo();
 
 		int currentGroup = 1;
@@ -979,17 +1047,17 @@ public class WDate implements Comparable<WDate> {
 	}
 
 	/**
-	 * Returns the internal Date object.
+	 * Returns the date as a Date object.
 	 */
 	public Date getDate() {
-		return d;
+		return new Date(millis);
 	}
 
 	/**
 	 * Returns a hash code value for the object.
 	 */
 	public int hashCode() {
-		return d.hashCode();
+		return Long.hashCode(millis);
 	}
 
 	/**
@@ -999,6 +1067,6 @@ public class WDate implements Comparable<WDate> {
 		if (o == null)
 			return 1;
 
-		return d.compareTo(o.d);
+		return Long.compare(millis, o.millis);
 	}
 }
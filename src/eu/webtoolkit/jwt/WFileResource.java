@@ -6,16 +6,15 @@
 package eu.webtoolkit.jwt;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import eu.webtoolkit.jwt.servlet.WebRequest;
 import eu.webtoolkit.jwt.servlet.WebResponse;
-import eu.webtoolkit.jwt.utils.StreamUtils;
 
 /**
  * A resource which streams data from a local file.
@@ -23,8 +22,12 @@ import eu.webtoolkit.jwt.utils.StreamUtils;
  * To update the resource, either use setFileName() to point it to a
  * new file, or trigger the {@link #dataChanged()} signal when only the
  * file contents has changed, but not the filename.
+ * <p>
+ * The resource supports conditional and range requests (see
+ * {@link WStreamResource}), which allows browsers to cache the file and media
+ * players to seek in it without downloading it entirely.
  */
-public class WFileResource extends WResource {
+public class WFileResource extends WStreamResource {
 	private static final Logger logger = LoggerFactory.getLogger(WFileResource.class);
 	
 	/**
@@ -34,7 +37,7 @@ public class WFileResource extends WResource {
 	 * @param fileName the file name.
 	 */
 	public WFileResource(String mimeType, String fileName) {
-		this.mimeType_ = mimeType;
+		super(mimeType);
 		this.fileName_ = fileName;
 	}
 	
@@ -63,49 +66,30 @@ public class WFileResource extends WResource {
 		return this.fileName_;
 	}
 
-	/**
-	 * Returns the mime type.
-	 * 
-	 * @return the mime type.
-	 */
-	public String getMimeType() {
-		return this.mimeType_;
-	}
-
-	/**
-	 * Changes the mime type.
-	 * <p>
-	 * This causes the resource to be refreshed in the browser by triggering {@link #dataChanged()}.
-	 * 
-	 * @param mimeType
-	 */
-	public void setMimeType(String mimeType) {
-		this.mimeType_ = mimeType;
-		
-		setChanged();
-	}
-
-	private String mimeType_;
 	private String fileName_;
 
 	@Override
 	public void handleRequest(WebRequest request, WebResponse response) {
-		response.setContentType(mimeType_);
+		File f = new File(fileName_);
+		FileChannel channel;
+		try {
+			channel = FileChannel.open(f.toPath(), StandardOpenOption.READ);
+		} catch (IOException e) {
+			logger.error("Could not open file: {}", fileName_);
+			response.setStatus(404);
+			return;
+		}
 
 		try {
-			File f = new File(fileName_);
-			FileInputStream fis = new FileInputStream(f);
+			handleRequestPiecewise(request, response, channel, f.lastModified());
+		} catch (IOException e) {
+			logger.info("IOException, {}", fileName_, e);
+		} finally {
 			try {
-				StreamUtils.copy(fis, response.getOutputStream());
-				response.getOutputStream().flush();
+				channel.close();
 			} catch (IOException e) {
 				logger.info("IOException, {}", fileName_, e);
-			} finally {
-				StreamUtils.closeQuietly(fis);
 			}
-		} catch (FileNotFoundException e) {
-			System.err.println("Could not find file: " + fileName_);
-			response.setStatus(404);
 		}
 	}
 }
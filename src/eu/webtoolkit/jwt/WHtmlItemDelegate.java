@@ -0,0 +1,40 @@
+/*
+ * Copyright (C) 2009 Emweb bv, Herent, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt;
+
+import java.util.*;
+
+/**
+ * Interface for rendering a view item directly as HTML.
+ *
+ * <p>Unlike a {@link WAbstractItemDelegate}, which creates or updates a widget for every rendered
+ * item, an HTML item delegate writes the markup for the contents of an item from the model data.
+ * No widget, signal or DOM element object is created for an item, which makes rendering and
+ * scrolling through a large table much cheaper.
+ *
+ * <p>The view wraps the contents in a cell element that carries the cell geometry, the selection
+ * style and the {@link ItemDataRole#StyleClass} of the item. Mouse events are handled by the view
+ * itself, which translates them to the model index at the event position and emits its usual
+ * signals (such as {@link WAbstractItemView#clicked()}).
+ *
+ * <p>The delegate must escape any text it writes: element content using {@link
+ * WWebWidget#escapeText(String text, boolean newlinestoo) WWebWidget#escapeText()}, and attribute
+ * values using {@link DomElement#htmlAttributeValue(StringBuilder out, String s)
+ * DomElement#htmlAttributeValue()}, which also escapes quotes.
+ *
+ * @see WTableView#setHtmlItemDelegate(WHtmlItemDelegate delegate)
+ * @see WHtmlTextItemDelegate
+ */
+public interface WHtmlItemDelegate {
+  /**
+   * Renders the contents of an item.
+   *
+   * <p>The <code>flags</code> indicate options for rendering, such as whether the item is
+   * selected.
+   */
+  public void renderCell(
+      final StringBuilder html, final WModelIndex index, EnumSet<ViewItemRenderFlag> flags);
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2009 Emweb bv, Herent, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt;
+
+import java.util.*;
+
+/**
+ * Standard HTML item delegate.
+ *
+ * <p>This delegate renders the {@link ItemDataRole#Display} data of an item as plain text, and
+ * its {@link ItemDataRole#ToolTip} data as a title. Check boxes, icons, links and editing, which
+ * are supported by {@link WItemDelegate}, are not rendered.
+ */
+public class WHtmlTextItemDelegate implements WHtmlItemDelegate {
+  /** Creates an HTML text delegate. */
+  public WHtmlTextItemDelegate() {
+    this.textFormat_ = "";
+  }
+
+  public void renderCell(
+      final StringBuilder html, final WModelIndex index, EnumSet<ViewItemRenderFlag> flags) {
+    WString tooltip = StringUtils.asString(index.getData(ItemDataRole.ToolTip));
+    boolean hasTooltip = tooltip.length() != 0;
+    if (hasTooltip) {
+      html.append("<span title=\"");
+      DomElement.htmlAttributeValue(html, tooltip.toString());
+      html.append("\">");
+    }
+    WString label = StringUtils.asString(index.getData(), this.textFormat_);
+    html.append(WWebWidget.escapeText(label.toString(), true));
+    if (hasTooltip) {
+      html.append("</span>");
+    }
+  }
+  /**
+   * Sets the text format string.
+   *
+   * <p>The {@link ItemDataRole#Display} data is converted to a string using {@link
+   * StringUtils#asString(Object)}, passing the given format. If the format is an empty string, this
+   * corresponds to {@link Object#toString()}.
+   *
+   * <p>The default value is &quot;&quot;.
+   */
+  public void setTextFormat(final String format) {
+    this.textFormat_ = format;
+  }
+  /**
+   * Returns the text format string.
+   *
+   * <p>
+   *
+   * @see WHtmlTextItemDelegate#setTextFormat(String format)
+   */
+  public String getTextFormat() {
+    return this.textFormat_;
+  }
+
+  private String textFormat_;
+}
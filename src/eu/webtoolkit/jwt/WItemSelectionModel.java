@@ -54,9 +54,15 @@ public class WItemSelectionModel extends WObject {
    *
    * <p>When selection operates on rows ({@link SelectionBehavior#Rows}), this method only returns
    * the model index of first column&apos;s element of the selected rows.
+   *
+   * <p>The selection is stored as ranges of rows, and the returned set is a live view on it: its
+   * model indexes are created while iterating, and thus a selection of many (consecutive) rows
+   * does not take memory proportional to its size. The subsets returned by {@link
+   * SortedSet#headSet(Object) headSet()}, {@link SortedSet#tailSet(Object) tailSet()} and {@link
+   * SortedSet#subSet(Object, Object) subSet()} are copies.
    */
   public SortedSet<WModelIndex> getSelectedIndexes() {
-    return this.selection_;
+    return this.selectedIndexes_;
   }
   /**
    * Returns wheter an item is selected.
@@ -69,19 +75,23 @@ public class WItemSelectionModel extends WObject {
    * @see WItemSelectionModel#getSelectedIndexes()
    */
   public boolean isSelected(final WModelIndex index) {
+    if (index == null) {
+      return false;
+    }
+    SortedMap<Integer, RowRanges> columns = this.ranges_.get(index.getParent());
+    if (columns == null) {
+      return false;
+    }
     if (this.selectionBehavior_ == SelectionBehavior.Rows) {
-      for (Iterator<WModelIndex> it_it = this.selection_.iterator(); it_it.hasNext(); ) {
-        WModelIndex it = it_it.next();
-        WModelIndex mi = it;
-        if (mi.getRow() == index.getRow()
-            && (mi.getParent() == index.getParent()
-                || (mi.getParent() != null && mi.getParent().equals(index.getParent())))) {
+      for (RowRanges rows : columns.values()) {
+        if (rows.contains(index.getRow())) {
           return true;
         }
       }
       return false;
     } else {
-      return this.selection_.contains(index) != false;
+      RowRanges rows = columns.get(index.getColumn());
+      return rows != null && rows.contains(index.getRow());
     }
   }
   /**
@@ -120,7 +130,7 @@ public class WItemSelectionModel extends WObject {
    */
   public String getMimeType() {
     String retval = "";
-    for (Iterator<WModelIndex> i_it = this.selection_.iterator(); i_it.hasNext(); ) {
+    for (Iterator<WModelIndex> i_it = this.selectedIndexes_.iterator(); i_it.hasNext(); ) {
       WModelIndex i = i_it.next();
       WModelIndex mi = i;
       if (!!EnumUtils.mask(mi.getFlags(), ItemFlag.DragEnabled).isEmpty()) {
@@ -141,35 +151,620 @@ public class WItemSelectionModel extends WObject {
       }
     }
     if (retval.length() == 0) {
-      return this.selection_.isEmpty() ? "" : this.model_.getMimeType();
+      return this.isEmpty() ? "" : this.model_.getMimeType();
     } else {
       return retval;
     }
   }
 
-  SortedSet<WModelIndex> selection_;
+  private Map<WModelIndex, SortedMap<Integer, RowRanges>> ranges_;
+  private int size_;
+  private SelectedIndexes selectedIndexes_;
+  private List<Object> rawSelection_;
   private WAbstractItemModel model_;
   private SelectionBehavior selectionBehavior_;
 
   WItemSelectionModel() {
-    super();
-    this.selection_ = new TreeSet<WModelIndex>();
-    this.model_ = null;
-    this.selectionBehavior_ = SelectionBehavior.Rows;
+    this((WAbstractItemModel) null);
   }
 
   WItemSelectionModel(final WAbstractItemModel model) {
     super();
-    this.selection_ = new TreeSet<WModelIndex>();
+    this.ranges_ = new HashMap<WModelIndex, SortedMap<Integer, RowRanges>>();
+    this.size_ = 0;
+    this.selectedIndexes_ = new SelectedIndexes();
+    this.rawSelection_ = null;
     this.model_ = model;
     this.selectionBehavior_ = SelectionBehavior.Rows;
   }
 
+  boolean isEmpty() {
+    return this.size_ == 0;
+  }
+
+  int size() {
+    return this.size_;
+  }
+
+  boolean select(final WModelIndex index) {
+    return this.select(index.getParent(), index.getColumn(), index.getRow(), index.getRow()) != 0;
+  }
+
+  int select(final WModelIndex parent, int column, int firstRow, int lastRow) {
+    SortedMap<Integer, RowRanges> columns = this.ranges_.get(parent);
+    if (columns == null) {
+      columns = new TreeMap<Integer, RowRanges>();
+      this.ranges_.put(parent, columns);
+    }
+    RowRanges rows = columns.get(column);
+    if (rows == null) {
+      rows = new RowRanges();
+      columns.put(column, rows);
+    }
+    int added = rows.add(firstRow, lastRow);
+    this.size_ += added;
+    return added;
+  }
+
+  boolean deselect(final WModelIndex index) {
+    WModelIndex parent = index.getParent();
+    SortedMap<Integer, RowRanges> columns = this.ranges_.get(parent);
+    if (columns == null) {
+      return false;
+    }
+    RowRanges rows = columns.get(index.getColumn());
+    if (rows == null) {
+      return false;
+    }
+    int removed = rows.remove(index.getRow(), index.getRow());
+    this.size_ -= removed;
+    this.prune(parent, columns, index.getColumn(), rows);
+    return removed != 0;
+  }
+
+  void clear() {
+    this.ranges_.clear();
+    this.size_ = 0;
+  }
+
+  boolean hasSelection(final WModelIndex parent, int fromRow, int fromColumn) {
+    SortedMap<Integer, RowRanges> columns = this.ranges_.get(parent);
+    if (columns == null) {
+      return false;
+    }
+    for (Map.Entry<Integer, RowRanges> c : columns.entrySet()) {
+      if (c.getKey() >= fromColumn && c.getValue().getLast() >= fromRow) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  int shiftRows(final WModelIndex parent, int start, int count) {
+    int removed = 0;
+    List<WModelIndex> shiftedKeys = new ArrayList<WModelIndex>();
+    List<WModelIndex> removedKeys = new ArrayList<WModelIndex>();
+    for (Iterator<WModelIndex> k_it = this.ranges_.keySet().iterator(); k_it.hasNext(); ) {
+      WModelIndex k = k_it.next();
+      WModelIndex a = k == null ? null : getChildAncestor(k, parent);
+      if (a == null || a.getRow() < start) {
+        continue;
+      }
+      if (a == k) {
+        shiftedKeys.add(k);
+      } else if (count < 0 && a.getRow() < start - count) {
+        removedKeys.add(k);
+      }
+    }
+    Map<WModelIndex, SortedMap<Integer, RowRanges>> shifted =
+        new HashMap<WModelIndex, SortedMap<Integer, RowRanges>>();
+    for (int i = 0; i < shiftedKeys.size(); ++i) {
+      WModelIndex k = shiftedKeys.get(i);
+      if (count < 0 && k.getRow() < start - count) {
+        removedKeys.add(k);
+      } else {
+        shifted.put(
+            this.model_.getIndex(k.getRow() + count, k.getColumn(), parent), this.ranges_.get(k));
+      }
+    }
+    if (!removedKeys.isEmpty()) {
+      for (Iterator<WModelIndex> k_it = this.ranges_.keySet().iterator(); k_it.hasNext(); ) {
+        WModelIndex k = k_it.next();
+        for (int i = 0; i < removedKeys.size(); ++i) {
+          if (k != null && (k.equals(removedKeys.get(i)) || isAncestor(k, removedKeys.get(i)))) {
+            removed += this.getCount(this.ranges_.get(k));
+            k_it.remove();
+            break;
+          }
+        }
+      }
+    }
+    for (int i = 0; i < shiftedKeys.size(); ++i) {
+      this.ranges_.remove(shiftedKeys.get(i));
+    }
+    this.ranges_.putAll(shifted);
+    SortedMap<Integer, RowRanges> columns = this.ranges_.get(parent);
+    if (columns != null) {
+      for (Iterator<RowRanges> c_it = columns.values().iterator(); c_it.hasNext(); ) {
+        RowRanges rows = c_it.next();
+        removed += rows.shift(start, count);
+        if (rows.isEmpty()) {
+          c_it.remove();
+        }
+      }
+      if (columns.isEmpty()) {
+        this.ranges_.remove(parent);
+      }
+    }
+    this.size_ -= removed;
+    return removed;
+  }
+
+  int shiftColumns(final WModelIndex parent, int start, int count) {
+    SortedMap<Integer, RowRanges> columns = this.ranges_.get(parent);
+    if (columns == null) {
+      return 0;
+    }
+    int removed = 0;
+    SortedMap<Integer, RowRanges> tail = columns.tailMap(start);
+    SortedMap<Integer, RowRanges> toShift = new TreeMap<Integer, RowRanges>(tail);
+    tail.clear();
+    for (Map.Entry<Integer, RowRanges> c : toShift.entrySet()) {
+      if (count < 0 && c.getKey() < start - count) {
+        removed += c.getValue().getSize();
+      } else {
+        columns.put(c.getKey() + count, c.getValue());
+      }
+    }
+    if (columns.isEmpty()) {
+      this.ranges_.remove(parent);
+    }
+    this.size_ -= removed;
+    return removed;
+  }
+
   void modelLayoutAboutToBeChanged() {
-    WModelIndex.encodeAsRawIndexes(this.selection_);
+    this.rawSelection_ = new ArrayList<Object>();
+    for (Map.Entry<WModelIndex, SortedMap<Integer, RowRanges>> p : this.ranges_.entrySet()) {
+      WModelIndex parent = p.getKey();
+      int rowCount = this.model_.getRowCount(parent);
+      for (Map.Entry<Integer, RowRanges> c : p.getValue().entrySet()) {
+        RowRanges rows = c.getValue();
+        if (rows.getSize() == rowCount && rows.getFirst() == 0) {
+          Object rawParent = parent == null ? null : this.model_.toRawIndex(parent);
+          if (parent == null || rawParent != null) {
+            this.rawSelection_.add(new RawRange(rawParent, c.getKey()));
+          }
+        } else {
+          for (Iterator<Integer> r_it = rows.iterator(); r_it.hasNext(); ) {
+            this.rawSelection_.add(
+                this.model_.toRawIndex(this.model_.getIndex(r_it.next(), c.getKey(), parent)));
+          }
+        }
+      }
+    }
   }
 
   void modelLayoutChanged() {
-    this.selection_ = WModelIndex.decodeFromRawIndexes(this.selection_);
+    this.clear();
+    if (this.rawSelection_ == null) {
+      return;
+    }
+    for (int i = 0; i < this.rawSelection_.size(); ++i) {
+      Object raw = this.rawSelection_.get(i);
+      if (raw instanceof RawRange) {
+        RawRange range = (RawRange) raw;
+        WModelIndex parent = null;
+        if (range.parent != null) {
+          parent = this.model_.fromRawIndex(range.parent);
+          if (parent == null) {
+            continue;
+          }
+        }
+        int rowCount = this.model_.getRowCount(parent);
+        if (rowCount > 0) {
+          this.select(parent, range.column, 0, rowCount - 1);
+        }
+      } else {
+        if (raw != null) {
+          WModelIndex index = this.model_.fromRawIndex(raw);
+          if (index != null) {
+            this.select(index);
+          }
+        }
+      }
+    }
+    this.rawSelection_ = null;
+  }
+
+  private void prune(
+      final WModelIndex parent,
+      SortedMap<Integer, RowRanges> columns,
+      int column,
+      final RowRanges rows) {
+    if (rows.isEmpty()) {
+      columns.remove(column);
+      if (columns.isEmpty()) {
+        this.ranges_.remove(parent);
+      }
+    }
+  }
+
+  private int getCount(SortedMap<Integer, RowRanges> columns) {
+    int result = 0;
+    for (RowRanges rows : columns.values()) {
+      result += rows.getSize();
+    }
+    return result;
+  }
+
+  private static WModelIndex getChildAncestor(final WModelIndex index, final WModelIndex parent) {
+    for (WModelIndex i = index; i != null; i = i.getParent()) {
+      WModelIndex p = i.getParent();
+      if (p == parent || (p != null && p.equals(parent))) {
+        return i;
+      }
+    }
+    return null;
+  }
+
+  private static boolean isAncestor(final WModelIndex i1, final WModelIndex i2) {
+    for (WModelIndex p = i1.getParent(); p != null; p = p.getParent()) {
+      if (p.equals(i2)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static class RawRange {
+    public RawRange(Object parent, int column) {
+      this.parent = parent;
+      this.column = column;
+    }
+
+    public Object parent;
+    public int column;
+  }
+  /**
+   * A set of rows, stored as disjoint ranges.
+   *
+   * <p>Ranges are keyed on their first row, and map to their last row (inclusive).
+   */
+  static class RowRanges {
+    public RowRanges() {
+      this.ranges_ = new TreeMap<Integer, Integer>();
+      this.size_ = 0;
+    }
+
+    public boolean contains(int row) {
+      Map.Entry<Integer, Integer> r = this.ranges_.floorEntry(row);
+      return r != null && r.getValue() >= row;
+    }
+
+    public int add(int first, int last) {
+      if (last < first) {
+        return 0;
+      }
+      int removed = 0;
+      Map.Entry<Integer, Integer> r = this.ranges_.floorEntry(first);
+      if (r != null && r.getValue() >= first - 1) {
+        first = r.getKey();
+        last = Math.max(last, r.getValue());
+      }
+      for (; ; ) {
+        r = this.ranges_.ceilingEntry(first);
+        if (r == null || r.getKey() > last + 1) {
+          break;
+        }
+        this.ranges_.remove(r.getKey());
+        removed += r.getValue() - r.getKey() + 1;
+        last = Math.max(last, r.getValue());
+      }
+      this.ranges_.put(first, last);
+      int added = last - first + 1 - removed;
+      this.size_ += added;
+      return added;
+    }
+
+    public int remove(int first, int last) {
+      if (last < first) {
+        return 0;
+      }
+      int removed = 0;
+      Map.Entry<Integer, Integer> r = this.ranges_.lowerEntry(first);
+      if (r != null && r.getValue() >= first) {
+        this.ranges_.put(r.getKey(), first - 1);
+        if (r.getValue() > last) {
+          this.ranges_.put(last + 1, r.getValue());
+          removed = last - first + 1;
+          this.size_ -= removed;
+          return removed;
+        }
+        removed += r.getValue() - first + 1;
+      }
+      for (; ; ) {
+        r = this.ranges_.ceilingEntry(first);
+        if (r == null || r.getKey() > last) {
+          break;
+        }
+        this.ranges_.remove(r.getKey());
+        if (r.getValue() > last) {
+          this.ranges_.put(last + 1, r.getValue());
+          removed += last - r.getKey() + 1;
+          break;
+        }
+        removed += r.getValue() - r.getKey() + 1;
+      }
+      this.size_ -= removed;
+      return removed;
+    }
+    /**
+     * Shifts the rows after an insertion (count &gt; 0) or before a removal (count &lt; 0) of rows
+     * at start, and returns the number of rows that were removed.
+     */
+    public int shift(int start, int count) {
+      int removed = 0;
+      if (count < 0) {
+        removed = this.remove(start, start - count - 1);
+      } else {
+        Map.Entry<Integer, Integer> r = this.ranges_.lowerEntry(start);
+        if (r != null && r.getValue() >= start) {
+          this.ranges_.put(r.getKey(), start - 1);
+          this.ranges_.put(start, r.getValue());
+        }
+      }
+      SortedMap<Integer, Integer> tail = this.ranges_.tailMap(start);
+      if (tail.isEmpty()) {
+        return removed;
+      }
+      SortedMap<Integer, Integer> toShift = new TreeMap<Integer, Integer>(tail);
+      tail.clear();
+      for (Map.Entry<Integer, Integer> s : toShift.entrySet()) {
+        this.ranges_.put(s.getKey() + count, s.getValue() + count);
+      }
+      if (count < 0 && start > 0) {
+        Map.Entry<Integer, Integer> before = this.ranges_.lowerEntry(start);
+        Integer after = this.ranges_.get(start);
+        if (before != null && after != null && before.getValue() == start - 1) {
+          this.ranges_.remove(start);
+          this.ranges_.put(before.getKey(), after);
+        }
+      }
+      return removed;
+    }
+
+    public boolean isEmpty() {
+      return this.size_ == 0;
+    }
+
+    public int getSize() {
+      return this.size_;
+    }
+
+    public int getFirst() {
+      return this.ranges_.firstKey();
+    }
+
+    public int getLast() {
+      return this.ranges_.isEmpty() ? -1 : this.ranges_.lastEntry().getValue();
+    }
+
+    /**
+     * Returns an iterator over the rows.
+     *
+     * <p>Rows that were already returned may be removed while iterating.
+     */
+    public Iterator<Integer> iterator() {
+      return new Iterator<Integer>() {
+        private Integer next = RowRanges.this.getNext(0);
+
+        public boolean hasNext() {
+          return this.next != null;
+        }
+
+        public Integer next() {
+          if (this.next == null) {
+            throw new NoSuchElementException();
+          }
+          int result = this.next;
+          this.next = result == Integer.MAX_VALUE ? null : RowRanges.this.getNext(result + 1);
+          return result;
+        }
+      };
+    }
+
+    private Integer getNext(int row) {
+      if (this.contains(row)) {
+        return row;
+      } else {
+        return this.ranges_.higherKey(row);
+      }
+    }
+
+    private TreeMap<Integer, Integer> ranges_;
+    private int size_;
+  }
+  /** A cursor on the selected rows of one column of one parent. */
+  private class Cursor {
+    public Cursor(final WModelIndex parent, int column, final RowRanges rows) {
+      this.parent = parent;
+      this.column = column;
+      this.rows = rows.iterator();
+      this.row = this.rows.next();
+      this.index = null;
+    }
+
+    public WModelIndex getIndex() {
+      if (this.index == null) {
+        this.index = model_.getIndex(this.row, this.column, this.parent);
+      }
+      return this.index;
+    }
+
+    public boolean advance() {
+      this.index = null;
+      if (this.rows.hasNext()) {
+        this.row = this.rows.next();
+        return true;
+      } else {
+        return false;
+      }
+    }
+
+    public int compareTo(final Cursor other) {
+      if (this.parent == other.parent
+          || (this.parent != null && this.parent.equals(other.parent))) {
+        if (this.row != other.row) {
+          return this.row < other.row ? -1 : 1;
+        } else {
+          return this.column - other.column;
+        }
+      } else {
+        return this.getIndex().compareTo(other.getIndex());
+      }
+    }
+
+    public WModelIndex parent;
+    public int column;
+    public Iterator<Integer> rows;
+    public int row;
+    private WModelIndex index;
+  }
+  /**
+   * A live, topologically ordered view on the selection, which merges the selected rows of all
+   * columns and parents while iterating.
+   */
+  private class SelectedIndexes extends AbstractSet<WModelIndex>
+      implements SortedSet<WModelIndex> {
+    public Iterator<WModelIndex> iterator() {
+      final PriorityQueue<Cursor> cursors =
+          new PriorityQueue<Cursor>(
+              Math.max(1, ranges_.size()),
+              new Comparator<Cursor>() {
+                public int compare(Cursor c1, Cursor c2) {
+                  return c1.compareTo(c2);
+                }
+              });
+      for (Map.Entry<WModelIndex, SortedMap<Integer, RowRanges>> p : ranges_.entrySet()) {
+        for (Map.Entry<Integer, RowRanges> c : p.getValue().entrySet()) {
+          if (!c.getValue().isEmpty()) {
+            cursors.add(new Cursor(p.getKey(), c.getKey(), c.getValue()));
+          }
+        }
+      }
+      return new Iterator<WModelIndex>() {
+        private WModelIndex last = null;
+
+        public boolean hasNext() {
+          return !cursors.isEmpty();
+        }
+
+        public WModelIndex next() {
+          Cursor c = cursors.poll();
+          if (c == null) {
+            throw new NoSuchElementException();
+          }
+          this.last = c.getIndex();
+          if (c.advance()) {
+            cursors.add(c);
+          }
+          return this.last;
+        }
+
+        public void remove() {
+          if (this.last == null) {
+            throw new IllegalStateException();
+          }
+          deselect(this.last);
+          this.last = null;
+        }
+      };
+    }
+
+    public int size() {
+      return size_;
+    }
+
+    public boolean isEmpty() {
+      return size_ == 0;
+    }
+
+    public boolean contains(Object o) {
+      if (!(o instanceof WModelIndex)) {
+        return false;
+      }
+      WModelIndex index = (WModelIndex) o;
+      SortedMap<Integer, RowRanges> columns = ranges_.get(index.getParent());
+      if (columns == null) {
+        return false;
+      }
+      RowRanges rows = columns.get(index.getColumn());
+      return rows != null && rows.contains(index.getRow());
+    }
+
+    public boolean add(WModelIndex index) {
+      return select(index);
+    }
+
+    public boolean remove(Object o) {
+      return o instanceof WModelIndex && deselect((WModelIndex) o);
+    }
+
+    public void clear() {
+      WItemSelectionModel.this.clear();
+    }
+
+    public Comparator<? super WModelIndex> comparator() {
+      return null;
+    }
+
+    public WModelIndex first() {
+      return this.iterator().next();
+    }
+
+    public WModelIndex last() {
+      WModelIndex result = null;
+      for (Map.Entry<WModelIndex, SortedMap<Integer, RowRanges>> p : ranges_.entrySet()) {
+        for (Map.Entry<Integer, RowRanges> c : p.getValue().entrySet()) {
+          if (!c.getValue().isEmpty()) {
+            WModelIndex i = model_.getIndex(c.getValue().getLast(), c.getKey(), p.getKey());
+            if (result == null || i.compareTo(result) > 0) {
+              result = i;
+            }
+          }
+        }
+      }
+      if (result == null) {
+        throw new NoSuchElementException();
+      }
+      return result;
+    }
+
+    public SortedSet<WModelIndex> headSet(WModelIndex toElement) {
+      return this.copy(null, toElement);
+    }
+
+    public SortedSet<WModelIndex> tailSet(WModelIndex fromElement) {
+      return this.copy(fromElement, null);
+    }
+
+    public SortedSet<WModelIndex> subSet(WModelIndex fromElement, WModelIndex toElement) {
+      return this.copy(fromElement, toElement);
+    }
+
+    private SortedSet<WModelIndex> copy(WModelIndex fromElement, WModelIndex toElement) {
+      SortedSet<WModelIndex> result = new TreeSet<WModelIndex>();
+      for (Iterator<WModelIndex> i_it = this.iterator(); i_it.hasNext(); ) {
+        WModelIndex i = i_it.next();
+        if (toElement != null && i.compareTo(toElement) >= 0) {
+          break;
+        }
+        if (fromElement == null || i.compareTo(fromElement) >= 0) {
+          result.add(i);
+        }
+      }
+      return result;
+    }
   }
 }
@@ -35,6 +35,10 @@ import org.slf4j.LoggerFactory;
  * ({@link LeafletMarker}) and widget markers ({@link WidgetMarker}). Using a widget marker, you can
  * place arbitrary widgets on the map.
  *
+ * <p>To show many markers, add them to a {@link WLeafletMarkerLayer} instead of to the map. The
+ * layer keeps the markers in a spatial index, adds only the markers in the viewport to the map, and
+ * clusters them at low zoom levels.
+ *
  * <p>If you need direct access to the leaflet map in your own custom JavaScript, you can use {@link
  * WLeafletMap#getMapJsRef() getMapJsRef()}.
  *
@@ -318,6 +322,7 @@ public class WLeafletMap extends WCompositeWidget {
     this.overlays_ = new ArrayList<WLeafletMap.Overlay>();
     this.renderedOverlaysSize_ = 0;
     this.markers_ = new ArrayList<WLeafletMap.MarkerEntry>();
+    this.markerLayers_ = new ArrayList<WLeafletMarkerLayer>();
     this.setup();
     if (parentContainer != null) parentContainer.addWidget(this);
   }
@@ -350,6 +355,7 @@ public class WLeafletMap extends WCompositeWidget {
     this.overlays_ = new ArrayList<WLeafletMap.Overlay>();
     this.renderedOverlaysSize_ = 0;
     this.markers_ = new ArrayList<WLeafletMap.MarkerEntry>();
+    this.markerLayers_ = new ArrayList<WLeafletMarkerLayer>();
     this.setup();
     if (parentContainer != null) parentContainer.addWidget(this);
   }
@@ -469,6 +475,7 @@ public class WLeafletMap extends WCompositeWidget {
   public void setZoomLevel(int level) {
     this.zoomLevel_ = level;
     this.flags_.set(BIT_ZOOM_CHANGED);
+    this.markerLayersChanged();
     this.scheduleRender();
   }
   /** Get the current zoom level. */
@@ -479,6 +486,7 @@ public class WLeafletMap extends WCompositeWidget {
   public void panTo(final WLeafletMap.Coordinate center) {
     this.position_ = center;
     this.flags_.set(BIT_PAN_CHANGED);
+    this.markerLayersChanged();
     this.scheduleRender();
   }
   /** Get the current position. */
@@ -531,6 +539,9 @@ public class WLeafletMap extends WCompositeWidget {
       this.overlays_.get(i).addJS(ss, this);
     }
     this.renderedOverlaysSize_ = this.overlays_.size();
+    for (int i = 0; i < this.markerLayers_.size(); ++i) {
+      this.markerLayers_.get(i).update(flags.contains(RenderFlag.Full));
+    }
     for (int i = 0; i < this.markers_.size(); ) {
       if (this.markers_.get(i).flags.get(MarkerEntry.BIT_REMOVED)) {
         if (!this.flags_.get(BIT_OPTIONS_CHANGED)) {
@@ -612,6 +623,7 @@ public class WLeafletMap extends WCompositeWidget {
   }
 
   private List<WLeafletMap.MarkerEntry> markers_;
+  private List<WLeafletMarkerLayer> markerLayers_;
 
   private void setup() {
     this.setImplementation(this.impl_ = new WLeafletMap.Impl());
@@ -747,6 +759,16 @@ public class WLeafletMap extends WCompositeWidget {
     ss.append("}");
   }
 
+  void addMarkerLayer(WLeafletMarkerLayer layer) {
+    this.markerLayers_.add(layer);
+  }
+
+  private void markerLayersChanged() {
+    for (int i = 0; i < this.markerLayers_.size(); ++i) {
+      this.markerLayers_.get(i).setChanged();
+    }
+  }
+
   private void handlePanChanged(double latitude, double longitude) {
     this.position_ = new WLeafletMap.Coordinate(latitude, longitude);
   }
@@ -0,0 +1,654 @@
+/*
+ * Copyright (C) 2020 Emweb bv, Herent, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import eu.webtoolkit.jwt.utils.MathUtils;
+
+/**
+ * A layer of (many) markers on a {@link WLeafletMap}.
+ * <p>
+ * Markers added with {@link WLeafletMap#addMarker(WLeafletMap.Marker)} are all
+ * sent to the browser. A marker layer instead keeps its markers in a spatial
+ * index on the server, and only adds the markers within the current viewport
+ * (and a margin around it, see {@link #setMargin(double)}) to the map. When
+ * the user pans or zooms (see {@link WLeafletMap#panChanged()} and
+ * {@link WLeafletMap#zoomLevelChanged()}), only the difference is sent: markers
+ * that are no longer visible are removed, and markers that became visible are
+ * added.
+ * <p>
+ * At zoom levels up to {@link #setMaxClusterZoomLevel(int)}, nearby markers are
+ * grouped in clusters, which are rendered as a single {@link ClusterMarker}
+ * showing the number of markers. Clustering uses a grid aligned with the
+ * spatial index, so that the cost of clustering depends on the number of
+ * clusters rather than on the number of markers.
+ * <p>
+ * The viewport is computed from the center and zoom level of the map, and the
+ * size of the map. If the map does not have a size in pixels, set the size
+ * using {@link #setViewportSize(int, int)}.
+ * <p>
+ * Markers of the layer should be moved using
+ * {@link #moveMarker(WLeafletMap.Marker, WLeafletMap.Coordinate)}, so that the
+ * index is updated.
+ */
+public class WLeafletMarkerLayer {
+	private static final Logger logger = LoggerFactory.getLogger(WLeafletMarkerLayer.class);
+
+	private static final String CLUSTER_RULENAME = "WLeafletMarkerLayer::cluster";
+	private static final int TILE_SIZE = 256;
+	private static final double MAX_LATITUDE = 85.0511287798;
+
+	/**
+	 * A marker that represents a cluster of markers.
+	 * <p>
+	 * The cluster is rendered as a circle showing the number of markers, with
+	 * style class "Wt-leaflet-cluster". Clicking the cluster zooms in on the
+	 * area it covers.
+	 */
+	public static class ClusterMarker extends WLeafletMap.Marker {
+		private final int count;
+		private final WLeafletMap.Coordinate southWest;
+		private final WLeafletMap.Coordinate northEast;
+
+		/**
+		 * Creates a cluster marker.
+		 * <p>
+		 * The marker is placed at <code>pos</code>, and represents
+		 * <code>count</code> markers within the area bounded by
+		 * <code>southWest</code> and <code>northEast</code>.
+		 */
+		public ClusterMarker(WLeafletMap.Coordinate pos, int count, WLeafletMap.Coordinate southWest,
+				WLeafletMap.Coordinate northEast) {
+			super(pos);
+			this.count = count;
+			this.southWest = southWest;
+			this.northEast = northEast;
+		}
+
+		/**
+		 * Returns the number of markers in the cluster.
+		 */
+		public int getCount() {
+			return count;
+		}
+
+		/**
+		 * Returns the south west corner of the area covered by the cluster.
+		 */
+		public WLeafletMap.Coordinate getSouthWest() {
+			return southWest;
+		}
+
+		/**
+		 * Returns the north east corner of the area covered by the cluster.
+		 */
+		public WLeafletMap.Coordinate getNorthEast() {
+			return northEast;
+		}
+
+		@Override
+		protected void createMarkerJS(StringBuilder ss, StringBuilder postJS) {
+			String size = count < 100 ? "small" : (count < 1000 ? "medium" : "large");
+			ss.append("(function(){");
+			ss.append("var m=L.marker([");
+			ss.append(MathUtils.roundJs(getPosition().getLatitude(), 16)).append(",");
+			ss.append(MathUtils.roundJs(getPosition().getLongitude(), 16)).append("],");
+			ss.append("{icon:L.divIcon({className:'Wt-leaflet-cluster Wt-leaflet-cluster-").append(size).append("',");
+			ss.append("iconSize:[40,40],html:'<div><span>").append(count).append("</span></div>'})});");
+			ss.append("m.on('click',function(){if(m._map){m._map.fitBounds([[");
+			ss.append(MathUtils.roundJs(southWest.getLatitude(), 16)).append(",");
+			ss.append(MathUtils.roundJs(southWest.getLongitude(), 16)).append("],[");
+			ss.append(MathUtils.roundJs(northEast.getLatitude(), 16)).append(",");
+			ss.append(MathUtils.roundJs(northEast.getLongitude(), 16)).append("]]);}});");
+			ss.append("return m;})()");
+		}
+	}
+
+	/*
+	 * A point region quadtree over the unit square, in which every node keeps
+	 * the number and the sum of the positions of the items below it.
+	 */
+	static class QuadTree<T> {
+		static final int LEAF_CAPACITY = 16;
+		static final int MAX_DEPTH = 30;
+
+		static class Item<T> {
+			final T value;
+			final double x;
+			final double y;
+
+			Item(T value, double x, double y) {
+				this.value = value;
+				this.x = x;
+				this.y = y;
+			}
+		}
+
+		/*
+		 * The items within a cell of the grid at a given depth.
+		 */
+		static class Cluster<T> {
+			final int depth;
+			final long cellX;
+			final long cellY;
+			int count;
+			double sumX;
+			double sumY;
+			T single;
+
+			Cluster(int depth, long cellX, long cellY) {
+				this.depth = depth;
+				this.cellX = cellX;
+				this.cellY = cellY;
+			}
+		}
+
+		private static class Node<T> {
+			final int depth;
+			final double x0;
+			final double y0;
+			final double size;
+			int count;
+			double sumX;
+			double sumY;
+			List<Item<T>> items;
+			List<Node<T>> children;
+
+			Node(int depth, double x0, double y0, double size) {
+				this.depth = depth;
+				this.x0 = x0;
+				this.y0 = y0;
+				this.size = size;
+				this.items = new ArrayList<Item<T>>();
+			}
+
+			int childIndex(double x, double y) {
+				double half = size / 2;
+				return (x >= x0 + half ? 1 : 0) + (y >= y0 + half ? 2 : 0);
+			}
+
+			boolean intersects(double qx0, double qy0, double qx1, double qy1) {
+				return x0 <= qx1 && x0 + size >= qx0 && y0 <= qy1 && y0 + size >= qy0;
+			}
+
+			void split() {
+				double half = size / 2;
+				children = new ArrayList<Node<T>>(4);
+				for (int i = 0; i < 4; ++i)
+					children.add(new Node<T>(depth + 1, x0 + (i % 2) * half, y0 + (i / 2) * half, half));
+				for (Item<T> item : items)
+					children.get(childIndex(item.x, item.y)).add(item);
+				items = null;
+			}
+
+			void add(Item<T> item) {
+				++count;
+				sumX += item.x;
+				sumY += item.y;
+				if (children != null)
+					children.get(childIndex(item.x, item.y)).add(item);
+				else {
+					items.add(item);
+					if (items.size() > LEAF_CAPACITY && depth < MAX_DEPTH)
+						split();
+				}
+			}
+
+			Item<T> remove(T value, double x, double y) {
+				Item<T> result = null;
+				if (children != null) {
+					result = children.get(childIndex(x, y)).remove(value, x, y);
+					if (result != null && count - 1 <= LEAF_CAPACITY)
+						merge();
+				} else {
+					for (Iterator<Item<T>> i = items.iterator(); i.hasNext();) {
+						Item<T> item = i.next();
+						if (item.value == value) {
+							i.remove();
+							result = item;
+							break;
+						}
+					}
+				}
+
+				if (result != null) {
+					--count;
+					sumX -= result.x;
+					sumY -= result.y;
+				}
+				return result;
+			}
+
+			void merge() {
+				List<Item<T>> all = new ArrayList<Item<T>>();
+				collect(all);
+				children = null;
+				items = all;
+			}
+
+			void collect(List<Item<T>> result) {
+				if (children != null) {
+					for (Node<T> child : children)
+						child.collect(result);
+				} else
+					result.addAll(items);
+			}
+
+			T first() {
+				if (children != null) {
+					for (Node<T> child : children)
+						if (child.count > 0)
+							return child.first();
+					return null;
+				} else
+					return items.isEmpty() ? null : items.get(0).value;
+			}
+		}
+
+		private Node<T> root;
+
+		QuadTree() {
+			clear();
+		}
+
+		void clear() {
+			root = new Node<T>(0, 0, 0, 1);
+		}
+
+		int size() {
+			return root.count;
+		}
+
+		void insert(T value, double x, double y) {
+			root.add(new Item<T>(value, clamp(x), clamp(y)));
+		}
+
+		boolean remove(T value, double x, double y) {
+			return root.remove(value, clamp(x), clamp(y)) != null;
+		}
+
+		/*
+		 * Adds the items within a rectangle to result.
+		 */
+		void query(double x0, double y0, double x1, double y1, List<Item<T>> result) {
+			query(root, x0, y0, x1, y1, result);
+		}
+
+		/*
+		 * Groups the items within a rectangle in the cells of a grid of 2^depth by
+		 * 2^depth cells. Nodes at or below the depth of the grid are aggregated
+		 * without visiting their items; such a node may include items that are
+		 * just outside the rectangle.
+		 */
+		void cluster(double x0, double y0, double x1, double y1, int depth, Map<Long, Cluster<T>> result) {
+			cluster(root, x0, y0, x1, y1, depth, result);
+		}
+
+		private static <T> void query(Node<T> n, double x0, double y0, double x1, double y1, List<Item<T>> result) {
+			if (n.count == 0 || !n.intersects(x0, y0, x1, y1))
+				return;
+
+			if (n.children != null) {
+				for (Node<T> child : n.children)
+					query(child, x0, y0, x1, y1, result);
+			} else {
+				for (Item<T> item : n.items)
+					if (item.x >= x0 && item.x <= x1 && item.y >= y0 && item.y <= y1)
+						result.add(item);
+			}
+		}
+
+		private static <T> void cluster(Node<T> n, double x0, double y0, double x1, double y1, int depth,
+				Map<Long, Cluster<T>> result) {
+			if (n.count == 0 || !n.intersects(x0, y0, x1, y1))
+				return;
+
+			if (n.depth >= depth) {
+				Cluster<T> c = getCluster(result, depth, n.x0 + n.size / 2, n.y0 + n.size / 2);
+				c.count += n.count;
+				c.sumX += n.sumX;
+				c.sumY += n.sumY;
+				if (n.count == 1)
+					c.single = n.first();
+			} else if (n.children != null) {
+				for (Node<T> child : n.children)
+					cluster(child, x0, y0, x1, y1, depth, result);
+			} else {
+				for (Item<T> item : n.items) {
+					if (item.x >= x0 && item.x <= x1 && item.y >= y0 && item.y <= y1) {
+						Cluster<T> c = getCluster(result, depth, item.x, item.y);
+						++c.count;
+						c.sumX += item.x;
+						c.sumY += item.y;
+						c.single = item.value;
+					}
+				}
+			}
+		}
+
+		private static <T> Cluster<T> getCluster(Map<Long, Cluster<T>> clusters, int depth, double x, double y) {
+			long cells = 1L << depth;
+			long cx = Math.min(cells - 1, (long) (x * cells));
+			long cy = Math.min(cells - 1, (long) (y * cells));
+			Long key = (cx << 32) | cy;
+			Cluster<T> result = clusters.get(key);
+			if (result == null) {
+				result = new Cluster<T>(depth, cx, cy);
+				clusters.put(key, result);
+			}
+			return result;
+		}
+
+		private static double clamp(double v) {
+			return Math.max(0, Math.min(Math.nextDown(1.0), v));
+		}
+	}
+
+	private final WLeafletMap map;
+	private final QuadTree<WLeafletMap.Marker> index;
+	private final Map<WLeafletMap.Marker, double[]> positions;
+	private Map<Object, WLeafletMap.Marker> shown;
+	private int maxClusterZoomLevel;
+	private int clusterSize;
+	private double margin;
+	private int viewportWidth;
+	private int viewportHeight;
+	private boolean changed;
+
+	/**
+	 * Creates a marker layer on a map.
+	 */
+	public WLeafletMarkerLayer(WLeafletMap map) {
+		this.map = map;
+		this.index = new QuadTree<WLeafletMap.Marker>();
+		this.positions = new IdentityHashMap<WLeafletMap.Marker, double[]>();
+		this.shown = new LinkedHashMap<Object, WLeafletMap.Marker>();
+		this.maxClusterZoomLevel = 14;
+		this.clusterSize = 64;
+		this.margin = 0.5;
+		this.viewportWidth = 1920;
+		this.viewportHeight = 1080;
+		this.changed = false;
+
+		map.zoomLevelChanged().addListener(map, (Integer zoom) -> setChanged());
+		map.panChanged().addListener(map, (Double latitude, Double longitude) -> setChanged());
+		map.addMarkerLayer(this);
+
+		WApplication app = WApplication.getInstance();
+		if (app != null && !app.getStyleSheet().isDefined(CLUSTER_RULENAME)) {
+			app.getStyleSheet().addRule(".Wt-leaflet-cluster",
+					"border-radius: 50%; background-color: rgba(49, 136, 255, 0.6); color: #fff;"
+							+ "font: bold 12px sans-serif; text-align: center; line-height: 40px;",
+					CLUSTER_RULENAME);
+		}
+	}
+
+	/**
+	 * Returns the map.
+	 */
+	public WLeafletMap getMap() {
+		return map;
+	}
+
+	/**
+	 * Adds a marker.
+	 */
+	public void addMarker(WLeafletMap.Marker marker) {
+		if (positions.containsKey(marker))
+			return;
+
+		double[] p = project(marker.getPosition());
+		positions.put(marker, p);
+		index.insert(marker, p[0], p[1]);
+		setChanged();
+	}
+
+	/**
+	 * Removes a marker.
+	 * <p>
+	 * Returns the marker, or <code>null</code> if it was not added to this layer.
+	 */
+	public WLeafletMap.Marker removeMarker(WLeafletMap.Marker marker) {
+		double[] p = positions.remove(marker);
+		if (p == null)
+			return null;
+
+		index.remove(marker, p[0], p[1]);
+		setChanged();
+		return marker;
+	}
+
+	/**
+	 * Moves a marker.
+	 *
+	 * @see WLeafletMap.Marker#move(WLeafletMap.Coordinate)
+	 */
+	public void moveMarker(WLeafletMap.Marker marker, WLeafletMap.Coordinate pos) {
+		double[] p = positions.get(marker);
+		if (p == null) {
+			marker.move(pos);
+			return;
+		}
+
+		index.remove(marker, p[0], p[1]);
+		marker.move(pos);
+		p = project(pos);
+		positions.put(marker, p);
+		index.insert(marker, p[0], p[1]);
+		setChanged();
+	}
+
+	/**
+	 * Removes all markers.
+	 */
+	public void clear() {
+		positions.clear();
+		index.clear();
+		setChanged();
+	}
+
+	/**
+	 * Returns the number of markers.
+	 */
+	public int getMarkerCount() {
+		return index.size();
+	}
+
+	/**
+	 * Returns the markers and clusters that are currently on the map.
+	 */
+	public List<WLeafletMap.Marker> getRenderedMarkers() {
+		return new ArrayList<WLeafletMap.Marker>(shown.values());
+	}
+
+	/**
+	 * Sets the highest zoom level at which markers are clustered.
+	 * <p>
+	 * Use -1 to disable clustering. The default is 14.
+	 */
+	public void setMaxClusterZoomLevel(int level) {
+		this.maxClusterZoomLevel = level;
+		setChanged();
+	}
+
+	/**
+	 * Returns the highest zoom level at which markers are clustered.
+	 *
+	 * @see #setMaxClusterZoomLevel(int)
+	 */
+	public int getMaxClusterZoomLevel() {
+		return maxClusterZoomLevel;
+	}
+
+	/**
+	 * Sets the size of the area covered by a cluster, in pixels.
+	 * <p>
+	 * The size is rounded down to a power of two, between 1 and 256. The default
+	 * size is 64.
+	 */
+	public void setClusterSize(int pixels) {
+		this.clusterSize = Integer.highestOneBit(Math.max(1, Math.min(TILE_SIZE, pixels)));
+		setChanged();
+	}
+
+	/**
+	 * Returns the size of the area covered by a cluster, in pixels.
+	 *
+	 * @see #setClusterSize(int)
+	 */
+	public int getClusterSize() {
+		return clusterSize;
+	}
+
+	/**
+	 * Sets the margin around the viewport, as a fraction of the viewport size.
+	 * <p>
+	 * Markers within the margin are also added to the map, so that they are
+	 * already present when the user pans a little. The default is 0.5.
+	 */
+	public void setMargin(double margin) {
+		this.margin = margin;
+		setChanged();
+	}
+
+	/**
+	 * Returns the margin around the viewport.
+	 *
+	 * @see #setMargin(double)
+	 */
+	public double getMargin() {
+		return margin;
+	}
+
+	/**
+	 * Sets the size of the viewport, in pixels.
+	 * <p>
+	 * This is only used when the size of the map is not specified in pixels.
+	 * The default is 1920 by 1080.
+	 */
+	public void setViewportSize(int width, int height) {
+		this.viewportWidth = width;
+		this.viewportHeight = height;
+		setChanged();
+	}
+
+	/**
+	 * Creates the marker for a cluster.
+	 * <p>
+	 * Override this to customize the rendering of clusters. The default
+	 * implementation returns a {@link ClusterMarker}.
+	 */
+	protected WLeafletMap.Marker createClusterMarker(WLeafletMap.Coordinate pos, int count,
+			WLeafletMap.Coordinate southWest, WLeafletMap.Coordinate northEast) {
+		return new ClusterMarker(pos, count, southWest, northEast);
+	}
+
+	void setChanged() {
+		if (!changed) {
+			changed = true;
+			map.scheduleRender();
+		}
+	}
+
+	/*
+	 * Called by the map before it renders its markers: brings the markers on the
+	 * map up to date with the viewport.
+	 */
+	void update(boolean all) {
+		if (!changed && !all)
+			return;
+		changed = false;
+
+		int zoom = map.getZoomLevel();
+		double world = (double) TILE_SIZE * Math.pow(2, zoom);
+		double[] center = project(map.getPosition());
+		double halfWidth = getViewportWidth() * (0.5 + margin) / world;
+		double halfHeight = getViewportHeight() * (0.5 + margin) / world;
+		double x0 = center[0] - halfWidth, x1 = center[0] + halfWidth;
+		double y0 = center[1] - halfHeight, y1 = center[1] + halfHeight;
+
+		Map<Object, WLeafletMap.Marker> visible = new LinkedHashMap<Object, WLeafletMap.Marker>();
+		if (zoom <= maxClusterZoomLevel) {
+			int depth = Math.min(QuadTree.MAX_DEPTH, zoom + Integer.numberOfTrailingZeros(TILE_SIZE / clusterSize));
+			Map<Long, QuadTree.Cluster<WLeafletMap.Marker>> clusters = new HashMap<Long, QuadTree.Cluster<WLeafletMap.Marker>>();
+			index.cluster(x0, y0, x1, y1, depth, clusters);
+			for (QuadTree.Cluster<WLeafletMap.Marker> c : clusters.values()) {
+				if (c.count == 1)
+					visible.put(c.single, c.single);
+				else {
+					String key = c.depth + "/" + c.cellX + "/" + c.cellY + "/" + c.count + "/" + c.sumX + "/" + c.sumY;
+					WLeafletMap.Marker cluster = shown.get(key);
+					if (cluster == null) {
+						double cellSize = 1.0 / (1L << c.depth);
+						cluster = createClusterMarker(unproject(c.sumX / c.count, c.sumY / c.count), c.count,
+								unproject(c.cellX * cellSize, (c.cellY + 1) * cellSize),
+								unproject((c.cellX + 1) * cellSize, c.cellY * cellSize));
+					}
+					visible.put(key, cluster);
+				}
+			}
+		} else {
+			List<QuadTree.Item<WLeafletMap.Marker>> items = new ArrayList<QuadTree.Item<WLeafletMap.Marker>>();
+			index.query(x0, y0, x1, y1, items);
+			for (QuadTree.Item<WLeafletMap.Marker> item : items)
+				visible.put(item.value, item.value);
+		}
+
+		int removed = 0, added = 0;
+		for (Map.Entry<Object, WLeafletMap.Marker> e : shown.entrySet()) {
+			if (visible.get(e.getKey()) != e.getValue()) {
+				map.removeMarker(e.getValue());
+				++removed;
+			}
+		}
+		for (Map.Entry<Object, WLeafletMap.Marker> e : visible.entrySet()) {
+			if (shown.get(e.getKey()) != e.getValue()) {
+				map.addMarker(e.getValue());
+				++added;
+			}
+		}
+		shown = visible;
+
+		logger.debug("zoom {}: {} markers on the map, {} added, {} removed", zoom, shown.size(), added, removed);
+	}
+
+	private int getViewportWidth() {
+		WLength w = map.getWidth();
+		return !w.isAuto() && w.getUnit() == LengthUnit.Pixel ? (int) w.getValue() : viewportWidth;
+	}
+
+	private int getViewportHeight() {
+		WLength h = map.getHeight();
+		return !h.isAuto() && h.getUnit() == LengthUnit.Pixel ? (int) h.getValue() : viewportHeight;
+	}
+
+	/*
+	 * Projects a coordinate to the unit square, using the Web Mercator
+	 * projection (the projection of the tiles).
+	 */
+	static double[] project(WLeafletMap.Coordinate c) {
+		double lat = Math.max(-MAX_LATITUDE, Math.min(MAX_LATITUDE, c.getLatitude()));
+		double sin = Math.sin(Math.toRadians(lat));
+		double x = (c.getLongitude() + 180) / 360;
+		double y = 0.5 - Math.log((1 + sin) / (1 - sin)) / (4 * Math.PI);
+		return new double[] { x, y };
+	}
+
+	static WLeafletMap.Coordinate unproject(double x, double y) {
+		double lat = Math.toDegrees(Math.atan(Math.sinh(Math.PI * (1 - 2 * y))));
+		return new WLeafletMap.Coordinate(lat, x * 360 - 180);
+	}
+}
@@ -99,6 +99,7 @@ public abstract class WPaintedWidget extends WInteractWidget {
         new JSlot("function() {var o=" + this.getObjJsRef() + ";if(o){o.repaint();}}", this);
     this.jsObjects_ = new WJavaScriptObjectStorage(this);
     this.jsDefined_ = false;
+    this.renderCacheKey_ = null;
     if (WApplication.getInstance() != null) {
       final WEnvironment env = WApplication.getInstance().getEnvironment();
       if (env.agentIsOpera() && env.getUserAgent().indexOf("Mac OS X") == -1) {
@@ -143,6 +144,34 @@ public abstract class WPaintedWidget extends WInteractWidget {
   public RenderMethod getPreferredMethod() {
     return this.preferredMethod_;
   }
+  /**
+   * Sets a key that identifies what the widget paints, enabling the render cache.
+   *
+   * <p>The output of {@link WPaintedWidget#paintEvent(WPaintDevice paintDevice) paintEvent()} is
+   * then stored in the JVM-wide {@link RenderCache}, and widgets in any session with the same key,
+   * size and rendering method use the cached output instead of painting. The key should therefore
+   * capture everything that the painting depends on, e.g. the version of the model data and a hash
+   * of the styling options. Use <code>null</code> (the default) to disable caching.
+   *
+   * <p>A widget is not cached when it has interactive areas or JavaScript-bound objects after
+   * painting, or for a {@link PaintFlag#Update} repaint.
+   *
+   * <p>
+   *
+   * <p><i><b>Note: </b>Image URLs are part of the cached output, and must be valid in all
+   * sessions.</i>
+   */
+  public void setRenderCacheKey(final String key) {
+    this.renderCacheKey_ = key;
+  }
+  /**
+   * Returns the render cache key.
+   *
+   * @see WPaintedWidget#setRenderCacheKey(String key)
+   */
+  public String getRenderCacheKey() {
+    return this.renderCacheKey_;
+  }
   /**
    * Lets the widget repaint itself.
    *
@@ -435,13 +464,15 @@ public abstract class WPaintedWidget extends WInteractWidget {
       canvas.setProperty(Property.StyleDisplay, "inline");
       canvas.setProperty(Property.Style, "zoom: 1;");
     }
+    RenderCache.Entry cached = null;
     if (this.renderWidth_ != 0 && this.renderHeight_ != 0) {
-      this.paintEvent(device);
-      if (device.getPainter() != null) {
-        device.getPainter().end();
-      }
+      cached = this.paint(device, false);
+    }
+    if (cached != null) {
+      this.painter_.createContents(canvas, cached);
+    } else {
+      this.painter_.createContents(canvas, device);
     }
-    this.painter_.createContents(canvas, device);
     this.needRepaint_ = false;
     wrap.addChild(canvas);
     if (wrap != result) {
@@ -457,22 +488,27 @@ public abstract class WPaintedWidget extends WInteractWidget {
     result.add(e);
     boolean createdNew = this.isCreatePainter();
     if (this.needRepaint_) {
-      WPaintDevice device =
-          this.painter_.getPaintDevice(
-              this.repaintFlags_.contains(PaintFlag.Update) && !createdNew);
+      boolean paintUpdate = this.repaintFlags_.contains(PaintFlag.Update) && !createdNew;
+      WPaintDevice device = this.painter_.getPaintDevice(paintUpdate);
+      RenderCache.Entry cached = null;
       if (this.renderWidth_ != 0 && this.renderHeight_ != 0) {
-        this.paintEvent(device);
-        if (device.getPainter() != null) {
-          device.getPainter().end();
-        }
+        cached = this.paint(device, paintUpdate);
       }
       if (createdNew) {
         DomElement canvas = DomElement.getForUpdate('p' + this.getId(), DomElementType.DIV);
         canvas.removeAllChildren();
-        this.painter_.createContents(canvas, device);
+        if (cached != null) {
+          this.painter_.createContents(canvas, cached);
+        } else {
+          this.painter_.createContents(canvas, device);
+        }
         result.add(canvas);
       } else {
-        this.painter_.updateContents(result, device);
+        if (cached != null) {
+          this.painter_.updateContents(result, cached);
+        } else {
+          this.painter_.updateContents(result, device);
+        }
       }
       this.needRepaint_ = false;
       this.repaintFlags_ = EnumSet.noneOf(PaintFlag.class);
@@ -560,6 +596,7 @@ public abstract class WPaintedWidget extends WInteractWidget {
   private JSlot repaintSlot_;
   WJavaScriptObjectStorage jsObjects_;
   private boolean jsDefined_;
+  private String renderCacheKey_;
 
   private void resizeCanvas(int width, int height) {
     if (this.renderWidth_ == width && this.renderHeight_ == height) {
@@ -574,6 +611,31 @@ public abstract class WPaintedWidget extends WInteractWidget {
     this.update();
   }
 
+  private RenderCache.Entry paint(WPaintDevice device, boolean paintUpdate) {
+    String key = this.getRenderCacheKey();
+    String type = key != null && !paintUpdate ? this.painter_.getRenderCacheType() : null;
+    if (type != null) {
+      key = type + ":" + this.renderWidth_ + "x" + this.renderHeight_ + ":" + key;
+      RenderCache.Entry cached = RenderCache.getInstance().get(key);
+      if (cached != null) {
+        return cached;
+      }
+    } else {
+      key = null;
+    }
+    long start = System.nanoTime();
+    this.paintEvent(device);
+    if (device.getPainter() != null) {
+      device.getPainter().end();
+    }
+    if (key != null
+        && this.jsObjects_.size() == 0
+        && (this.areaImage_ == null || this.areaImage_.getAreas().isEmpty())) {
+      this.painter_.putRendered(RenderCache.getInstance(), key, device, System.nanoTime() - start);
+    }
+    return null;
+  }
+
   private boolean isCreatePainter() {
     if (this.painter_ != null) {
       return false;
@@ -606,20 +606,20 @@ public class WPainter {
     if (cDevice != null) {
       cDevice.drawStencilAlongPath(stencil, path, softClipping);
     } else {
-      for (int i = 0; i < path.getSegments().size(); ++i) {
-        final WPainterPath.Segment seg = path.getSegments().get(i);
+      for (int i = 0; i < path.getSegmentCount(); ++i) {
+        WPointF p = new WPointF(path.getSegmentX(i), path.getSegmentY(i));
         if (softClipping
             && !this.getClipPath().isEmpty()
             && !this.getClipPathTransform()
                 .map(this.getClipPath())
-                .isPointInPath(this.getWorldTransform().map(new WPointF(seg.getX(), seg.getY())))) {
+                .isPointInPath(this.getWorldTransform().map(p))) {
           continue;
         }
-        if (seg.getType() == SegmentType.LineTo
-            || seg.getType() == SegmentType.MoveTo
-            || seg.getType() == SegmentType.CubicEnd
-            || seg.getType() == SegmentType.QuadEnd) {
-          WPointF p = new WPointF(seg.getX(), seg.getY());
+        SegmentType segType = path.getSegmentType(i);
+        if (segType == SegmentType.LineTo
+            || segType == SegmentType.MoveTo
+            || segType == SegmentType.CubicEnd
+            || segType == SegmentType.QuadEnd) {
           this.drawPath(new WTransform().translate(p).map(stencil));
         }
       }
@@ -922,20 +922,19 @@ public class WPainter {
           rect, alignmentFlags, text, transform, path, angle, lineHeight, softClipping);
     } else {
       WPainterPath tpath = transform.map(path);
-      for (int i = 0; i < path.getSegments().size(); ++i) {
+      for (int i = 0; i < path.getSegmentCount(); ++i) {
         if (i >= text.size()) {
           break;
         }
-        final WPainterPath.Segment seg = path.getSegments().get(i);
-        final WPainterPath.Segment tseg = tpath.getSegments().get(i);
+        SegmentType segType = path.getSegmentType(i);
         List<WString> splitText = splitLabel(text.get(i));
-        if (seg.getType() == SegmentType.MoveTo
-            || seg.getType() == SegmentType.LineTo
-            || seg.getType() == SegmentType.QuadEnd
-            || seg.getType() == SegmentType.CubicEnd) {
+        if (segType == SegmentType.MoveTo
+            || segType == SegmentType.LineTo
+            || segType == SegmentType.QuadEnd
+            || segType == SegmentType.CubicEnd) {
           this.save();
           this.setClipping(false);
-          this.translate(tseg.getX(), tseg.getY());
+          this.translate(tpath.getSegmentX(i), tpath.getSegmentY(i));
           this.rotate(-angle);
           for (int j = 0; j < splitText.size(); ++j) {
             double yOffset =
@@ -944,7 +943,7 @@ public class WPainter {
                     splitText.size(),
                     lineHeight,
                     EnumUtils.mask(alignmentFlags, AlignmentFlag.AlignVerticalMask));
-            WPointF p = new WPointF(tseg.getX(), tseg.getY());
+            WPointF p = new WPointF(tpath.getSegmentX(i), tpath.getSegmentY(i));
             this.drawText(
                 new WRectF(
                     rect.getLeft(), rect.getTop() + yOffset, rect.getWidth(), rect.getHeight()),
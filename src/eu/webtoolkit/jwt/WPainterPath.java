@@ -103,7 +103,9 @@ public class WPainterPath extends WJavaScriptExposableObject {
     super();
     this.isRect_ = false;
     this.openSubPathsEnabled_ = false;
-    this.segments_ = new ArrayList<WPainterPath.Segment>();
+    this.coords_ = EMPTY_COORDS;
+    this.types_ = EMPTY_TYPES;
+    this.size_ = 0;
   }
   /**
    * Construct a new path, and set the initial position.
@@ -114,7 +116,9 @@ public class WPainterPath extends WJavaScriptExposableObject {
     super();
     this.isRect_ = false;
     this.openSubPathsEnabled_ = false;
-    this.segments_ = new ArrayList<WPainterPath.Segment>();
+    this.coords_ = EMPTY_COORDS;
+    this.types_ = EMPTY_TYPES;
+    this.size_ = 0;
     this.moveTo(startPoint);
   }
   /** Copy constructor. */
@@ -122,15 +126,18 @@ public class WPainterPath extends WJavaScriptExposableObject {
     super(path);
     this.isRect_ = path.isRect_;
     this.openSubPathsEnabled_ = path.openSubPathsEnabled_;
-    this.segments_ = new ArrayList<WPainterPath.Segment>();
-    Utils.copyList(path.segments_, this.segments_);
+    this.coords_ = Arrays.copyOf(path.coords_, 2 * path.size_);
+    this.types_ = Arrays.copyOf(path.types_, path.size_);
+    this.size_ = path.size_;
   }
   /** Assignment method. */
   public WPainterPath assign(final WPainterPath path) {
     if (path.isJavaScriptBound()) {
       this.assignBinding(path);
     }
-    Utils.copyList(path.segments_, this.segments_);
+    this.coords_ = Arrays.copyOf(path.coords_, 2 * path.size_);
+    this.types_ = Arrays.copyOf(path.types_, path.size_);
+    this.size_ = path.size_;
     this.isRect_ = path.isRect_;
     return this;
   }
@@ -145,7 +152,7 @@ public class WPainterPath extends WJavaScriptExposableObject {
    * which well be the start point of the next draw operation.
    */
   public WPointF getCurrentPosition() {
-    return this.getPositionAtSegment(this.segments_.size());
+    return this.getPositionAtSegment(this.size_);
   }
   /**
    * Returns whether the path is empty.
@@ -154,8 +161,8 @@ public class WPainterPath extends WJavaScriptExposableObject {
    * operations are not considered drawing operations.
    */
   public boolean isEmpty() {
-    for (int i = 0; i < this.segments_.size(); ++i) {
-      if (this.segments_.get(i).getType() != SegmentType.MoveTo) {
+    for (int i = 0; i < this.size_; ++i) {
+      if (this.types_[i] != MOVE_TO) {
         return false;
       }
     }
@@ -167,11 +174,13 @@ public class WPainterPath extends WJavaScriptExposableObject {
    * <p>Returns <code>true</code> if the paths are exactly the same.
    */
   public boolean equals(final WPainterPath path) {
-    if (this.segments_.size() != path.segments_.size()) {
+    if (this.size_ != path.size_) {
       return false;
     }
-    for (int i = 0; i < this.segments_.size(); ++i) {
-      if (!this.segments_.get(i).equals(path.segments_.get(i))) {
+    for (int i = 0; i < this.size_; ++i) {
+      if (this.types_[i] != path.types_[i]
+          || this.coords_[2 * i] != path.coords_[2 * i]
+          || this.coords_[2 * i + 1] != path.coords_[2 * i + 1]) {
         return false;
       }
     }
@@ -226,15 +235,15 @@ public class WPainterPath extends WJavaScriptExposableObject {
   public void moveTo(double x, double y) {
     this.checkModifiable();
     if (!this.openSubPathsEnabled_
-        && !this.segments_.isEmpty()
-        && this.segments_.get(this.segments_.size() - 1).getType() != SegmentType.MoveTo) {
+        && this.size_ != 0
+        && this.types_[this.size_ - 1] != MOVE_TO) {
       WPointF startP = this.getSubPathStart();
       WPointF currentP = this.getCurrentPosition();
       if (!startP.equals(currentP)) {
         this.lineTo(startP.getX(), startP.getY());
       }
     }
-    this.segments_.add(new WPainterPath.Segment(x, y, SegmentType.MoveTo));
+    this.addSegment(x, y, SegmentType.MoveTo);
   }
   /**
    * Draws a straight line.
@@ -265,7 +274,33 @@ public class WPainterPath extends WJavaScriptExposableObject {
    */
   public void lineTo(double x, double y) {
     this.checkModifiable();
-    this.segments_.add(new WPainterPath.Segment(x, y, SegmentType.LineTo));
+    this.addSegment(x, y, SegmentType.LineTo);
+  }
+  /**
+   * Draws straight lines through a series of points.
+   *
+   * <p>Draws straight lines from the current position through the points (<code>x[i]</code>,
+   * <code>y[i]</code>) for <i>i</i> from <code>offset</code> to <code>offset + count - 1</code>.
+   * The last point becomes the new current position.
+   *
+   * <p>This is equivalent to calling {@link WPainterPath#lineTo(double x, double y) lineTo()} for
+   * each point, but avoids allocating a point for each of them.
+   *
+   * <p>
+   *
+   * @exception {@link WException} if the path {@link WJavaScriptExposableObject#isJavaScriptBound()
+   *     is JavaScript bound}
+   * @see WPainterPath#addPolygon(double[] x, double[] y, int offset, int count)
+   */
+  public void lineTo(final double[] x, final double[] y, int offset, int count) {
+    this.checkModifiable();
+    this.ensureCapacity(this.size_ + count);
+    for (int i = 0; i < count; ++i) {
+      this.coords_[2 * this.size_] = x[offset + i];
+      this.coords_[2 * this.size_ + 1] = y[offset + i];
+      this.types_[this.size_] = LINE_TO;
+      ++this.size_;
+    }
   }
   /**
    * Draws a cubic bezier curve.
@@ -298,9 +333,9 @@ public class WPainterPath extends WJavaScriptExposableObject {
   public void cubicTo(
       double c1x, double c1y, double c2x, double c2y, double endPointx, double endPointy) {
     this.checkModifiable();
-    this.segments_.add(new WPainterPath.Segment(c1x, c1y, SegmentType.CubicC1));
-    this.segments_.add(new WPainterPath.Segment(c2x, c2y, SegmentType.CubicC2));
-    this.segments_.add(new WPainterPath.Segment(endPointx, endPointy, SegmentType.CubicEnd));
+    this.addSegment(c1x, c1y, SegmentType.CubicC1);
+    this.addSegment(c2x, c2y, SegmentType.CubicC2);
+    this.addSegment(endPointx, endPointy, SegmentType.CubicEnd);
   }
   /**
    * Draws an arc.
@@ -386,8 +421,8 @@ public class WPainterPath extends WJavaScriptExposableObject {
    */
   public void quadTo(double cx, double cy, double endPointX, double endPointY) {
     this.checkModifiable();
-    this.segments_.add(new WPainterPath.Segment(cx, cy, SegmentType.QuadC));
-    this.segments_.add(new WPainterPath.Segment(endPointX, endPointY, SegmentType.QuadEnd));
+    this.addSegment(cx, cy, SegmentType.QuadC);
+    this.addSegment(endPointX, endPointY, SegmentType.QuadEnd);
   }
   /**
    * Draws an ellipse.
@@ -494,6 +529,42 @@ public class WPainterPath extends WJavaScriptExposableObject {
       }
     }
   }
+  /**
+   * Adds a polygon.
+   *
+   * <p>Adds the polygon through the points (<code>x[i]</code>, <code>y[i]</code>) for <i>i</i> from
+   * <code>offset</code> to <code>offset + count - 1</code>. If the first point is different from
+   * the current position, the last sub path is first closed, unless {@link
+   * WPainterPath#isOpenSubPathsEnabled() open subpaths are enabled}, otherwise the last sub path is
+   * extended with the polygon.
+   *
+   * <p>
+   *
+   * @exception {@link WException} if the path {@link WJavaScriptExposableObject#isJavaScriptBound()
+   *     is JavaScript bound}
+   * @see WPainterPath#addPolygon(List points)
+   * @see WPainterPath#lineTo(double[] x, double[] y, int offset, int count)
+   */
+  public void addPolygon(final double[] x, final double[] y, int offset, int count) {
+    this.checkModifiable();
+    if (count > 0) {
+      int i = 0;
+      if (!this.getCurrentPosition().equals(new WPointF(x[offset], y[offset]))) {
+        this.moveTo(x[offset], y[offset]);
+        ++i;
+      }
+      this.lineTo(x, y, offset + i, count - i);
+    }
+  }
+  /**
+   * Adds a polygon.
+   *
+   * <p>Calls {@link #addPolygon(double[] x, double[] y, int offset, int count) addPolygon(x, y, 0,
+   * x.length)}
+   */
+  public final void addPolygon(final double[] x, final double[] y) {
+    addPolygon(x, y, 0, x.length);
+  }
   /**
    * Adds a path.
    *
@@ -513,7 +584,11 @@ public class WPainterPath extends WJavaScriptExposableObject {
     if (!this.getCurrentPosition().equals(path.getBeginPosition())) {
       this.moveTo(path.getBeginPosition());
     }
-    this.segments_.addAll(path.segments_);
+    int count = path.size_;
+    this.ensureCapacity(this.size_ + count);
+    System.arraycopy(path.coords_, 0, this.coords_, 2 * this.size_, 2 * count);
+    System.arraycopy(path.types_, 0, this.types_, this.size_, count);
+    this.size_ += count;
   }
   /**
    * Adds a path, connecting.
@@ -579,28 +654,87 @@ public class WPainterPath extends WJavaScriptExposableObject {
     // private WPainterPath map(final WPainterPath path) ;
   }
 
+  /**
+   * Returns the segments.
+   *
+   * <p>The segments are stored in arrays of coordinates and types. This returns a read-only view,
+   * which creates a {@link WPainterPath.Segment} for every element that is accessed. Use {@link
+   * WPainterPath#getSegmentCount() getSegmentCount()}, {@link WPainterPath#getSegmentX(int index)
+   * getSegmentX()}, {@link WPainterPath#getSegmentY(int index) getSegmentY()} and {@link
+   * WPainterPath#getSegmentType(int index) getSegmentType()} to iterate over the segments without
+   * allocating.
+   */
   public List<WPainterPath.Segment> getSegments() {
-    return this.segments_;
+    return new AbstractList<WPainterPath.Segment>() {
+      public WPainterPath.Segment get(int index) {
+        if (index < 0 || index >= WPainterPath.this.size_) {
+          throw new IndexOutOfBoundsException(
+              "Index: " + index + ", Size: " + WPainterPath.this.size_);
+        }
+        return new WPainterPath.Segment(
+            getSegmentX(index), getSegmentY(index), getSegmentType(index));
+      }
+
+      public int size() {
+        return WPainterPath.this.size_;
+      }
+    };
+  }
+  /** Returns the number of segments. */
+  public int getSegmentCount() {
+    return this.size_;
+  }
+  /**
+   * Returns the x parameter of a segment.
+   *
+   * <p>The <code>index</code> must be smaller than {@link WPainterPath#getSegmentCount()
+   * getSegmentCount()}.
+   *
+   * @see WPainterPath.Segment#getX()
+   */
+  public double getSegmentX(int index) {
+    return this.coords_[2 * index];
+  }
+  /**
+   * Returns the y parameter of a segment.
+   *
+   * <p>The <code>index</code> must be smaller than {@link WPainterPath#getSegmentCount()
+   * getSegmentCount()}.
+   *
+   * @see WPainterPath.Segment#getY()
+   */
+  public double getSegmentY(int index) {
+    return this.coords_[2 * index + 1];
+  }
+  /**
+   * Returns the type of a segment.
+   *
+   * <p>The <code>index</code> must be smaller than {@link WPainterPath#getSegmentCount()
+   * getSegmentCount()}.
+   *
+   * @see WPainterPath.Segment#getType()
+   */
+  public SegmentType getSegmentType(int index) {
+    return SEGMENT_TYPES[this.types_[index]];
   }
 
   WPointF getPositionAtSegment(int index) {
     if (index > 0) {
-      final WPainterPath.Segment s = this.segments_.get(index - 1);
-      switch (s.getType()) {
+      switch (this.getSegmentType(index - 1)) {
         case MoveTo:
         case LineTo:
         case CubicEnd:
         case QuadEnd:
-          return new WPointF(s.getX(), s.getY());
+          return new WPointF(this.getSegmentX(index - 1), this.getSegmentY(index - 1));
         case ArcAngleSweep:
           {
-            int i = this.segments_.size() - 3;
-            double cx = this.segments_.get(i).getX();
-            double cy = this.segments_.get(i).getY();
-            double rx = this.segments_.get(i + 1).getX();
-            double ry = this.segments_.get(i + 1).getY();
-            double theta1 = this.segments_.get(i + 2).getX();
-            double deltaTheta = this.segments_.get(i + 2).getY();
+            int i = this.size_ - 3;
+            double cx = this.getSegmentX(i);
+            double cy = this.getSegmentY(i);
+            double rx = this.getSegmentX(i + 1);
+            double ry = this.getSegmentY(i + 1);
+            double theta1 = this.getSegmentX(i + 2);
+            double deltaTheta = this.getSegmentY(i + 2);
             return getArcPosition(cx, cy, rx, ry, theta1 + deltaTheta);
           }
         default:
@@ -612,18 +746,18 @@ public class WPainterPath extends WJavaScriptExposableObject {
 
   boolean asRect(final WRectF result) {
     if (this.isRect_) {
-      if (this.segments_.size() == 4) {
+      if (this.size_ == 4) {
         result.setX(0);
         result.setY(0);
-        result.setWidth(this.segments_.get(0).getX());
-        result.setHeight(this.segments_.get(1).getY());
+        result.setWidth(this.getSegmentX(0));
+        result.setHeight(this.getSegmentY(1));
         return true;
       } else {
-        if (this.segments_.size() == 5 && this.segments_.get(0).getType() == SegmentType.MoveTo) {
-          result.setX(this.segments_.get(0).getX());
-          result.setY(this.segments_.get(0).getY());
-          result.setWidth(this.segments_.get(1).getX() - this.segments_.get(0).getX());
-          result.setHeight(this.segments_.get(2).getY() - this.segments_.get(0).getY());
+        if (this.size_ == 5 && this.types_[0] == MOVE_TO) {
+          result.setX(this.getSegmentX(0));
+          result.setY(this.getSegmentY(0));
+          result.setWidth(this.getSegmentX(1) - this.getSegmentX(0));
+          result.setHeight(this.getSegmentY(2) - this.getSegmentY(0));
           return true;
         } else {
           return false;
@@ -652,9 +786,10 @@ public class WPainterPath extends WJavaScriptExposableObject {
       double maxY;
       minX = minY = Double.MAX_VALUE;
       maxX = maxY = Double.MIN_VALUE;
-      for (int i = 0; i < this.segments_.size(); ++i) {
-        final WPainterPath.Segment s = this.segments_.get(i);
-        switch (s.getType()) {
+      for (int i = 0; i < this.size_; ++i) {
+        double x = this.getSegmentX(i);
+        double y = this.getSegmentY(i);
+        switch (this.getSegmentType(i)) {
           case MoveTo:
           case LineTo:
           case CubicC1:
@@ -664,12 +799,12 @@ public class WPainterPath extends WJavaScriptExposableObject {
           case QuadEnd:
             {
               if (identity) {
-                minX = Math.min(s.getX(), minX);
-                minY = Math.min(s.getY(), minY);
-                maxX = Math.max(s.getX(), maxX);
-                maxY = Math.max(s.getY(), maxY);
+                minX = Math.min(x, minX);
+                minY = Math.min(y, minY);
+                maxX = Math.max(x, maxX);
+                maxY = Math.max(y, maxY);
               } else {
-                WPointF p = transform.map(new WPointF(s.getX(), s.getY()));
+                WPointF p = transform.map(new WPointF(x, y));
                 minX = Math.min(p.getX(), minX);
                 minY = Math.min(p.getY(), minY);
                 maxX = Math.max(p.getX(), maxX);
@@ -679,17 +814,16 @@ public class WPainterPath extends WJavaScriptExposableObject {
             }
           case ArcC:
             {
-              final WPainterPath.Segment s2 = this.segments_.get(i + 1);
+              double rx = this.getSegmentX(i + 1);
+              double ry = this.getSegmentY(i + 1);
               if (identity) {
-                WPointF tl = new WPointF(s.getX() - s2.getX(), s.getY() - s2.getY());
-                minX = Math.min(tl.getX(), minX);
-                minY = Math.min(tl.getY(), minY);
-                WPointF br = new WPointF(s.getX() + s2.getX(), s.getY() + s2.getY());
-                maxX = Math.max(br.getX(), maxX);
-                maxY = Math.max(br.getY(), maxY);
+                minX = Math.min(x - rx, minX);
+                minY = Math.min(y - ry, minY);
+                maxX = Math.max(x + rx, maxX);
+                maxY = Math.max(y + ry, maxY);
               } else {
-                WPointF p1 = transform.map(new WPointF(s.getX(), s.getY()));
-                WPointF p2 = transform.map(new WPointF(s2.getX(), s2.getY()));
+                WPointF p1 = transform.map(new WPointF(x, y));
+                WPointF p2 = transform.map(new WPointF(rx, ry));
                 WPointF tl = new WPointF(p1.getX() - p2.getX(), p1.getY() - p2.getY());
                 minX = Math.min(tl.getX(), minX);
                 minY = Math.min(tl.getY(), minY);
@@ -731,11 +865,11 @@ public class WPainterPath extends WJavaScriptExposableObject {
     if (this.isJavaScriptBound()) {
       result.assignBinding(this, "Wt4_10_0.gfxUtils.path_crisp(" + this.getJsRef() + ')');
     }
-    for (int i = 0; i < this.segments_.size(); ++i) {
-      final WPainterPath.Segment segment = this.segments_.get(i);
-      double hx = Math.floor(segment.getX()) + 0.5;
-      double hy = Math.floor(segment.getY()) + 0.5;
-      result.segments_.add(new WPainterPath.Segment(hx, hy, segment.getType()));
+    result.ensureCapacity(this.size_);
+    for (int i = 0; i < this.size_; ++i) {
+      double hx = Math.floor(this.getSegmentX(i)) + 0.5;
+      double hy = Math.floor(this.getSegmentY(i)) + 0.5;
+      result.addSegment(hx, hy, this.getSegmentType(i));
     }
     return result;
   }
@@ -780,38 +914,39 @@ public class WPainterPath extends WJavaScriptExposableObject {
     double ay = 0.0;
     double px = p.getX();
     double py = p.getY();
-    for (int i = 0; i < this.segments_.size(); ++i) {
+    for (int i = 0; i < this.size_; ++i) {
       double bx = ax;
       double by = ay;
-      if (this.segments_.get(i).getType() == SegmentType.ArcC) {
+      byte type = this.types_[i];
+      if (type == ARC_C) {
         WPointF arcPos =
             getArcPosition(
-                this.segments_.get(i).getX(),
-                this.segments_.get(i).getY(),
-                this.segments_.get(i + 1).getX(),
-                this.segments_.get(i + 1).getY(),
-                this.segments_.get(i + 2).getX());
+                this.getSegmentX(i),
+                this.getSegmentY(i),
+                this.getSegmentX(i + 1),
+                this.getSegmentY(i + 1),
+                this.getSegmentX(i + 2));
         bx = arcPos.getX();
         by = arcPos.getY();
       } else {
-        if (this.segments_.get(i).getType() == SegmentType.ArcAngleSweep) {
+        if (type == ARC_ANGLE_SWEEP) {
           WPointF arcPos =
               getArcPosition(
-                  this.segments_.get(i - 2).getX(),
-                  this.segments_.get(i - 2).getY(),
-                  this.segments_.get(i - 1).getX(),
-                  this.segments_.get(i - 1).getY(),
-                  this.segments_.get(i).getX() + this.segments_.get(i).getY());
+                  this.getSegmentX(i - 2),
+                  this.getSegmentY(i - 2),
+                  this.getSegmentX(i - 1),
+                  this.getSegmentY(i - 1),
+                  this.getSegmentX(i) + this.getSegmentY(i));
           bx = arcPos.getX();
           by = arcPos.getY();
         } else {
-          if (this.segments_.get(i).getType() != SegmentType.ArcR) {
-            bx = this.segments_.get(i).getX();
-            by = this.segments_.get(i).getY();
+          if (type != ARC_R) {
+            bx = this.getSegmentX(i);
+            by = this.getSegmentY(i);
           }
         }
       }
-      if (this.segments_.get(i).getType() != SegmentType.MoveTo) {
+      if (type != MOVE_TO) {
         if (ay > py != by > py && px < (bx - ax) * (py - ay) / (by - ay) + ax) {
           res = !res;
         }
@@ -826,15 +961,14 @@ public class WPainterPath extends WJavaScriptExposableObject {
     char[] buf = new char[30];
     StringBuilder ss = new StringBuilder();
     ss.append('[');
-    for (int i = 0; i < this.segments_.size(); ++i) {
-      final WPainterPath.Segment s = this.segments_.get(i);
+    for (int i = 0; i < this.size_; ++i) {
       if (i != 0) {
         ss.append(',');
       }
       ss.append('[');
-      ss.append(MathUtils.roundJs(s.getX(), 3)).append(',');
-      ss.append(MathUtils.roundJs(s.getY(), 3)).append(',');
-      ss.append((int) s.getType().getValue()).append(']');
+      ss.append(MathUtils.roundJs(this.getSegmentX(i), 3)).append(',');
+      ss.append(MathUtils.roundJs(this.getSegmentY(i), 3)).append(',');
+      ss.append((int) this.types_[i]).append(']');
     }
     ss.append(']');
     return ss.toString();
@@ -844,12 +978,38 @@ public class WPainterPath extends WJavaScriptExposableObject {
 
   private boolean isRect_;
   private boolean openSubPathsEnabled_;
-  List<WPainterPath.Segment> segments_;
+  private double[] coords_;
+  private byte[] types_;
+  private int size_;
+  private static final double[] EMPTY_COORDS = new double[0];
+  private static final byte[] EMPTY_TYPES = new byte[0];
+  private static final SegmentType[] SEGMENT_TYPES = SegmentType.values();
+  private static final byte MOVE_TO = (byte) SegmentType.MoveTo.getValue();
+  private static final byte LINE_TO = (byte) SegmentType.LineTo.getValue();
+  private static final byte ARC_C = (byte) SegmentType.ArcC.getValue();
+  private static final byte ARC_R = (byte) SegmentType.ArcR.getValue();
+  private static final byte ARC_ANGLE_SWEEP = (byte) SegmentType.ArcAngleSweep.getValue();
+
+  void addSegment(double x, double y, SegmentType type) {
+    this.ensureCapacity(this.size_ + 1);
+    this.coords_[2 * this.size_] = x;
+    this.coords_[2 * this.size_ + 1] = y;
+    this.types_[this.size_] = (byte) type.getValue();
+    ++this.size_;
+  }
+
+  void ensureCapacity(int size) {
+    if (size > this.types_.length) {
+      int capacity = Math.max(Math.max(8, size), this.types_.length + (this.types_.length >> 1));
+      this.coords_ = Arrays.copyOf(this.coords_, 2 * capacity);
+      this.types_ = Arrays.copyOf(this.types_, capacity);
+    }
+  }
 
   private WPointF getSubPathStart() {
-    for (int i = this.segments_.size() - 1; i >= 0; --i) {
-      if (this.segments_.get(i).getType() == SegmentType.MoveTo) {
-        return new WPointF(this.segments_.get(i).getX(), this.segments_.get(i).getY());
+    for (int i = this.size_ - 1; i >= 0; --i) {
+      if (this.types_[i] == MOVE_TO) {
+        return new WPointF(this.getSegmentX(i), this.getSegmentY(i));
       }
     }
     return new WPointF(0, 0);
@@ -857,10 +1017,8 @@ public class WPainterPath extends WJavaScriptExposableObject {
 
   private WPointF getBeginPosition() {
     WPointF result = new WPointF(0, 0);
-    for (int i = 0;
-        i < this.segments_.size() && this.segments_.get(i).getType() == SegmentType.MoveTo;
-        ++i) {
-      result = new WPointF(this.segments_.get(i).getX(), this.segments_.get(i).getY());
+    for (int i = 0; i < this.size_ && this.types_[i] == MOVE_TO; ++i) {
+      result = new WPointF(this.getSegmentX(i), this.getSegmentY(i));
     }
     return result;
   }
@@ -873,10 +1031,9 @@ public class WPainterPath extends WJavaScriptExposableObject {
   void arcTo(
       double x, double y, double width, double height, double startAngle, double sweepLength) {
     this.checkModifiable();
-    this.segments_.add(new WPainterPath.Segment(x + width / 2, y + height / 2, SegmentType.ArcC));
-    this.segments_.add(new WPainterPath.Segment(width / 2, height / 2, SegmentType.ArcR));
-    this.segments_.add(
-        new WPainterPath.Segment(startAngle, sweepLength, SegmentType.ArcAngleSweep));
+    this.addSegment(x + width / 2, y + height / 2, SegmentType.ArcC);
+    this.addSegment(width / 2, height / 2, SegmentType.ArcR);
+    this.addSegment(startAngle, sweepLength, SegmentType.ArcAngleSweep);
   }
   // private WPainterPath map(final WPainterPath path) ;
   static double degreesToRadians(double r) {
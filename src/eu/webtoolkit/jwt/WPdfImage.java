@@ -1,16 +1,16 @@
 package eu.webtoolkit.jwt;
 
-import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -36,6 +36,8 @@ public class WPdfImage extends WResource implements WPaintDevice {
 	private static final Logger logger = LoggerFactory.getLogger(WPdfImage.class);
 	
 	private static Constructor<?> fontConstructor;	
+	private static final Map<PDF, Map<String, Font>> pdfFonts = new WeakHashMap<PDF, Map<String, Font>>();
+	private static final Map<PDF, Map<ImageCache.Entry, Image>> pdfImages = new WeakHashMap<PDF, Map<ImageCache.Entry, Image>>();
 	
 	static {
 		for (Constructor<?> c : Font.class.getConstructors()) {
@@ -208,43 +210,13 @@ public class WPdfImage extends WResource implements WPaintDevice {
 	public void drawImage(WRectF rect, String imgUrl, int imgWidth, int imgHeight, WRectF sourceRect) {
 		processChangeFlags();
 		
-		Image image = null;
-		
-		if (DataUri.isDataUri(imgUrl)) {
-			DataUri uri = new DataUri(imgUrl);
-			try {
-				byte[] b = new byte[uri.data.size()];
-				for (int i = 0; i < uri.data.size(); ++i)
-					b[i] = uri.data.get(i);
-				
-				if ("image/png".equals(uri.mimeType))
-					image = new Image(this.pdf, new ByteArrayInputStream(b), ImageType.PNG);
-				else if ("image/jpeg".equals(uri.mimeType))
-					image = new Image(this.pdf, new ByteArrayInputStream(b), ImageType.JPG);
-				else if ("image/bmp".equals(uri.mimeType))
-					image = new Image(this.pdf, new ByteArrayInputStream(b), ImageType.BMP);
-			} catch (Exception e) {
-				logger.info("Error converting data URI to image", e);
-				logger.trace("Data URI is {}", imgUrl, e);
-			}
-		} else {
-			String mimeType = ImageUtils.identifyMimeType(imgUrl);
-			try {
-				if ("image/png".equals(mimeType))
-					image = new Image(this.pdf, new BufferedInputStream(FileUtils.getResourceAsStream(imgUrl)), ImageType.PNG);
-				else if ("image/jpeg".equals(mimeType))
-					image = new Image(this.pdf, new BufferedInputStream(FileUtils.getResourceAsStream(imgUrl)), ImageType.JPG);
-				else if ("image/bmp".equals(mimeType))
-					image = new Image(this.pdf, new BufferedInputStream(FileUtils.getResourceAsStream(imgUrl)), ImageType.BMP);
-			} catch (Exception e) {
-				logger.info("Error creating image from {}", imgUrl, e);
-			}
-		}
+		Image image = getImage(this.pdf, imgUrl);
 		
 		if (image != null) {
 			WPointF p = currentTransform.map(new WPointF(rect.getX(), rect.getY()));
 	        image.setPosition(p.getX(), p.getY());
 	        
+			// the image may have been scaled by a previous draw
 	        double w = image.getWidth();
 	        double h = image.getHeight();
 	        
@@ -308,29 +280,25 @@ public class WPdfImage extends WResource implements WPaintDevice {
 	}
 	
 	private void drawPlainPath(WPainterPath path) {
-		List<WPainterPath.Segment> segments = path.getSegments();
-
-		if (segments.size() > 0
-				&& segments.get(0).getType() != SegmentType.MoveTo)
+		if (path.getSegmentCount() > 0
+				&& path.getSegmentType(0) != SegmentType.MoveTo)
 			_moveTo(0, 0);
 
-		for (int i = 0; i < segments.size(); ++i) {
-			WPainterPath.Segment s = segments.get(i);
-
-			switch (s.getType()) {
+		for (int i = 0; i < path.getSegmentCount(); ++i) {
+			switch (path.getSegmentType(i)) {
 			case MoveTo:
-				_moveTo(s.getX(), s.getY());
+				_moveTo(path.getSegmentX(i), path.getSegmentY(i));
 				break;
 			case LineTo:
-				_lineTo(s.getX(), s.getY());
+				_lineTo(path.getSegmentX(i), path.getSegmentY(i));
 				break;
 			case CubicC1: {
-				final double x1 = s.getX();
-				final double y1 = s.getY();
-				final double x2 = segments.get(i + 1).getX();
-				final double y2 = segments.get(i + 1).getY();
-				final double x3 = segments.get(i + 2).getX();
-				final double y3 = segments.get(i + 2).getY();
+				final double x1 = path.getSegmentX(i);
+				final double y1 = path.getSegmentY(i);
+				final double x2 = path.getSegmentX(i + 1);
+				final double y2 = path.getSegmentY(i + 1);
+				final double x3 = path.getSegmentX(i + 2);
+				final double y3 = path.getSegmentY(i + 2);
 
 				WPointF current = path.getPositionAtSegment(i);
 				_cubicBezierCurveTo(x1, y1, x2, y2, x3, y3);
@@ -342,11 +310,11 @@ public class WPdfImage extends WResource implements WPaintDevice {
 			case CubicEnd:
 				assert (false);
 			case ArcC: {
-				final double x = s.getX();
-				final double y = s.getY();
-				final double radius = segments.get(i + 1).getX();
-				double ang1 = segments.get(i + 2).getX();
-				double ang2 = ang1 + segments.get(i + 2).getY();
+				final double x = path.getSegmentX(i);
+				final double y = path.getSegmentY(i);
+				final double radius = path.getSegmentX(i + 1);
+				double ang1 = path.getSegmentX(i + 2);
+				double ang2 = ang1 + path.getSegmentY(i + 2);
 
 				_drawArc(x, y, radius, ang1 + 90, ang2 + 90);
 
@@ -362,10 +330,10 @@ public class WPdfImage extends WResource implements WPaintDevice {
 				 * it using a cubic bezier curve.
 				 */
 				WPointF current = path.getPositionAtSegment(i);
-				final double cpx = s.getX();
-				final double cpy = s.getY();
-				final double x = segments.get(i + 1).getX();
-				final double y = segments.get(i + 1).getY();
+				final double cpx = path.getSegmentX(i);
+				final double cpy = path.getSegmentY(i);
+				final double x = path.getSegmentX(i + 1);
+				final double y = path.getSegmentY(i + 1);
 
 				final double cp1x = current.getX() + 2.0 / 3.0 * (cpx - current.getX());
 				final double cp1y = current.getY() + 2.0 / 3.0 * (cpy - current.getY());
@@ -721,13 +689,26 @@ public class WPdfImage extends WResource implements WPaintDevice {
 		changeFlags.clear();
 	}
 
+	/*
+	 * Fonts are created once for every PDF document (for a true type font, the font file is
+	 * embedded in the document), and shared by all pages and images in the document. The size
+	 * is a property of the current font, and is set whenever the font is selected.
+	 */
 	private Font createFont(WFont font) {
+		Map<String, Font> fonts = getFonts(pdf);
 		if (fontConstructor != null) {
 			FontMatch fm = trueTypeFonts.matchFont(font);
 			if (fm.isMatched()) {
+				Font f = fonts.get(fm.getFileName());
+				if (f != null) {
+					f.setSize(font.getSizeLength().toPixels());
+					return f;
+				}
+
 				try {
-					FileInputStream fis = new FileInputStream(fm.getFileName());
-					Font f = (Font)fontConstructor.newInstance(pdf, fis, CodePage.UNICODE, Embed.YES);
+					ByteArrayInputStream fis = new ByteArrayInputStream(FontSupport.getFontData(fm.getFileName()));
+					f = (Font)fontConstructor.newInstance(pdf, fis, CodePage.UNICODE, Embed.YES);
+					fonts.put(fm.getFileName(), f);
 					f.setSize(font.getSizeLength().toPixels());
 					return f;
 				} catch (IllegalArgumentException e) {
@@ -738,15 +719,19 @@ public class WPdfImage extends WResource implements WPaintDevice {
 					logger.error("IllegalAccessException while creating font {}", font.getCssText(), e);
 				} catch (InvocationTargetException e) {
 					logger.error("InvocationTargetException while creating font {}", font.getCssText(), e);
-				} catch (FileNotFoundException e) {
-					logger.info("FileNotFoundException while creating font {}", font.getCssText(), e);
+				} catch (IOException e) {
+					logger.info("IOException while creating font {}", font.getCssText(), e);
 				}
 			} 
 		}
 
 		String name = PdfUtils.toBase14Font(font);
 		try {
-			Font f = new Font(pdf, name);
+			Font f = fonts.get(name);
+			if (f == null) {
+				f = new Font(pdf, name);
+				fonts.put(name, f);
+			}
 			f.setSize(font.getSizeLength().toPixels());
 			return f;
 		} catch (Exception e) {
@@ -754,6 +739,54 @@ public class WPdfImage extends WResource implements WPaintDevice {
 			return null;
 		}
 	}
+
+	/*
+	 * An image is embedded in a PDF only once, and the contents are read and
+	 * decoded only once using the ImageCache.
+	 */
+	private static Image getImage(PDF pdf, String imgUrl) {
+		ImageCache.Entry entry = ImageCache.getInstance().get(imgUrl);
+		if (entry == null)
+			return null;
+
+		Map<ImageCache.Entry, Image> images;
+		synchronized (pdfImages) {
+			images = pdfImages.get(pdf);
+			if (images == null) {
+				images = new HashMap<ImageCache.Entry, Image>();
+				pdfImages.put(pdf, images);
+			}
+		}
+
+		Image image = images.get(entry);
+		if (image == null && !images.containsKey(entry)) {
+			String mimeType = entry.getMimeType();
+			try {
+				if ("image/png".equals(mimeType))
+					image = new Image(pdf, new ByteArrayInputStream(entry.getData()), ImageType.PNG);
+				else if ("image/jpeg".equals(mimeType))
+					image = new Image(pdf, new ByteArrayInputStream(entry.getData()), ImageType.JPG);
+				else if ("image/bmp".equals(mimeType))
+					image = new Image(pdf, new ByteArrayInputStream(entry.getData()), ImageType.BMP);
+			} catch (Exception e) {
+				logger.info("Error creating image from {}", imgUrl, e);
+			}
+			images.put(entry, image);
+		}
+
+		return image;
+	}
+
+	private static Map<String, Font> getFonts(PDF pdf) {
+		synchronized (pdfFonts) {
+			Map<String, Font> result = pdfFonts.get(pdf);
+			if (result == null) {
+				result = new HashMap<String, Font>();
+				pdfFonts.put(pdf, result);
+			}
+			return result;
+		}
+	}
 	
 	public void setDeviceTransform(WTransform transform) {
 		this.deviceTransform = new WTransform();
@@ -18,19 +18,16 @@ import java.awt.geom.Line2D;
 import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayOutputStream;
-import java.io.File;
 import java.io.IOException;
 import java.text.AttributedCharacterIterator;
 import java.text.AttributedString;
 import java.util.EnumSet;
-import java.util.Iterator;
 
 import javax.imageio.ImageIO;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import eu.webtoolkit.jwt.WPainterPath.Segment;
 import eu.webtoolkit.jwt.servlet.WebRequest;
 import eu.webtoolkit.jwt.servlet.WebResponse;
 import eu.webtoolkit.jwt.utils.EnumUtils;
@@ -75,6 +72,14 @@ public class WRasterPaintDevice extends WResource implements WPaintDevice {
 			out.writeTo(response.getOutputStream());
 	}
 
+	/*
+	 * Returns the PNG image written by done(), or null.
+	 */
+	byte[] getImageData() {
+		ByteArrayOutputStream out = output;
+		return out != null ? out.toByteArray() : null;
+	}
+
 	@Override
 	public void done() {
 		if (image == null)
@@ -98,16 +103,17 @@ public class WRasterPaintDevice extends WResource implements WPaintDevice {
 	
 	public void drawImage(WRectF rect, String imageUri, int imgWidth, int imgHeight, WRectF sourceRect) {
 		processChangeFlags();
-		try {
-			BufferedImage image = ImageIO.read(new File(imageUri));
-			BufferedImage subImg = image.getSubimage((int)sourceRect.getLeft(), (int)sourceRect.getTop(), (int)sourceRect.getWidth(), (int)sourceRect.getHeight());
-			float xScale = (float)(rect.getWidth() / sourceRect.getWidth());
-			float yScale = (float)(rect.getHeight() / sourceRect.getHeight());
-			AffineTransform t = new AffineTransform(xScale, 0f, 0f, yScale, rect.getLeft(), rect.getTop());
-			g2.drawImage(subImg, t, null);
-		} catch (IOException e) {
-			logger.error("IOException when reading image: " + imageUri, e);
+		ImageCache.Entry entry = ImageCache.getInstance().get(imageUri);
+		BufferedImage image = entry != null ? entry.getImage() : null;
+		if (image == null) {
+			logger.error("Could not read image: " + imageUri);
+			return;
 		}
+		BufferedImage subImg = image.getSubimage((int)sourceRect.getLeft(), (int)sourceRect.getTop(), (int)sourceRect.getWidth(), (int)sourceRect.getHeight());
+		float xScale = (float)(rect.getWidth() / sourceRect.getWidth());
+		float yScale = (float)(rect.getHeight() / sourceRect.getHeight());
+		AffineTransform t = new AffineTransform(xScale, 0f, 0f, yScale, rect.getLeft(), rect.getTop());
+		g2.drawImage(subImg, t, null);
 	}
 
 	
@@ -133,42 +139,36 @@ public class WRasterPaintDevice extends WResource implements WPaintDevice {
 	public static Shape createShape(WPainterPath path) {
 		GeneralPath p = new GeneralPath();
 
-		for (Iterator<Segment> i = path.getSegments().iterator(); i.hasNext();) {
-			Segment s = i.next();
-			switch (s.getType()) {
+		int count = path.getSegmentCount();
+		for (int i = 0; i < count; ++i) {
+			double x = path.getSegmentX(i);
+			double y = path.getSegmentY(i);
+			switch (path.getSegmentType(i)) {
 			case MoveTo:
-				p.moveTo((float)s.getX(), (float)s.getY());
+				p.moveTo((float)x, (float)y);
 				break;
 			case LineTo:
-				p.lineTo((float)s.getX(), (float)s.getY());
+				p.lineTo((float)x, (float)y);
 				break;
 			case QuadC:
-				double x1 = s.getX();
-				double y1 = s.getY();
-				s = i.next();
-				p.quadTo((float)x1, (float)y1, (float)s.getX(), (float)s.getY());
+				++i;
+				p.quadTo((float)x, (float)y, (float)path.getSegmentX(i), (float)path.getSegmentY(i));
 				break;
 			case CubicC1:
-				x1 = s.getX();
-				y1 = s.getY();
-				s = i.next();
-				double x2 = s.getX();
-				double y2 = s.getY();
-				s = i.next();
-				p.curveTo((float)x1, (float)y1, (float)x2, (float)y2, (float)s.getX(), (float)s.getY());
+				double x2 = path.getSegmentX(i + 1);
+				double y2 = path.getSegmentY(i + 1);
+				i += 2;
+				p.curveTo((float)x, (float)y, (float)x2, (float)y2, (float)path.getSegmentX(i), (float)path.getSegmentY(i));
 				break;
 			case ArcC:
-				double cx = s.getX();
-				double cy = s.getY();
-				s = i.next();
-				double rx = s.getX();
-				double ry = s.getY();
-				s = i.next();
-				Arc2D arc = new Arc2D.Double((float)(cx - rx), (float)(cy - ry), (float)(rx * 2), (float)(ry * 2), (float)s.getX(), (float)s.getY(), Arc2D.OPEN);
+				double rx = path.getSegmentX(i + 1);
+				double ry = path.getSegmentY(i + 1);
+				i += 2;
+				Arc2D arc = new Arc2D.Double((float)(x - rx), (float)(y - ry), (float)(rx * 2), (float)(ry * 2), (float)path.getSegmentX(i), (float)path.getSegmentY(i), Arc2D.OPEN);
 				p.append(arc, true);
 				break;
 			default:
-				throw new RuntimeException("Unexpected segment type: " + s.getType());
+				throw new RuntimeException("Unexpected segment type: " + path.getSegmentType(i));
 			}
 		}
 		return p;
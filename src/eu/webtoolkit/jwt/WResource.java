@@ -12,6 +12,7 @@ import java.util.List;
 import java.util.Map;
 
 import eu.webtoolkit.jwt.WebSession.Handler;
+import eu.webtoolkit.jwt.servlet.ResponseContinuation;
 import eu.webtoolkit.jwt.servlet.UploadedFile;
 import eu.webtoolkit.jwt.servlet.WebRequest;
 import eu.webtoolkit.jwt.servlet.WebResponse;
@@ -132,6 +133,13 @@ public abstract class WResource extends WObject {
 	 * parameters and whether the request is a continuation request. In the
 	 * <i>response</i> object, you should set the mime type and stream the
 	 * output data.
+	 * <p>
+	 * A large response may be written in parts: after writing a part, call
+	 * {@link WebResponse#createContinuation()} and return. The method is then
+	 * called again, with {@link WebRequest#getContinuation()} returning the
+	 * continuation, when the client is ready for the next part. This does not
+	 * occupy a thread while waiting for a slow client. See
+	 * {@link ResponseContinuation}.
 	 * 
 	 * @param request
 	 *            The request information
@@ -198,8 +206,49 @@ public abstract class WResource extends WObject {
 			}
 		}
 
+		MetricsSink metrics = getMetricsSink(handler);
+		long start = metrics != null ? System.nanoTime() : 0;
+
 		handleRequest(request, response);
-		response.flush();
+		if (!continueRequest(request, response))
+			response.flush();
+
+		if (metrics != null) {
+			metrics.recordLatency(MetricsSink.RequestType.Resource, MetricsSink.Stage.Resource, System.nanoTime() - start);
+			if (handler == null)
+				metrics.recordResponseSize(MetricsSink.RequestType.Resource, response.getBytesWritten());
+		}
+	}
+
+	/*
+	 * Streams the remainder of the response if the resource created a continuation.
+	 * Continuations are handled within the application lock if the resource takes
+	 * the update lock.
+	 */
+	private boolean continueRequest(WebRequest request, WebResponse response) {
+		ResponseContinuation continuation = response.getContinuation();
+		if (continuation == null)
+			return false;
+
+		final WApplication app = takesUpdateLock() ? WApplication.getInstance() : null;
+		continuation.start(request, (req, resp) -> {
+			if (app != null) {
+				WApplication.UpdateLock lock = app.getUpdateLock();
+				try {
+					handleRequest(req, resp);
+				} finally {
+					lock.release();
+				}
+			} else
+				handleRequest(req, resp);
+		});
+
+		return true;
+	}
+
+	private static MetricsSink getMetricsSink(Handler handler) {
+		WtServlet servlet = handler != null ? handler.getSession().getController() : WtServlet.getInstance();
+		return servlet != null ? servlet.getConfiguration().getMetricsSink() : null;
 	}
 
 	/**
@@ -237,7 +286,8 @@ public abstract class WResource extends WObject {
 		WebRequest request = new WebRequest(parameterMap, uploadedFiles);
 		WebResponse response = new WebResponse(out);
 		handleRequest(request, response);
-		response.flush();
+		if (!continueRequest(request, response))
+			response.flush();
 	}
 	
 	/**
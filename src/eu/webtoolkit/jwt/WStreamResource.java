@@ -0,0 +1,353 @@
+/*
+ * Copyright (C) 2020 Emweb bv, Herent, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import eu.webtoolkit.jwt.servlet.WebRequest;
+import eu.webtoolkit.jwt.servlet.WebResponse;
+import eu.webtoolkit.jwt.utils.MathUtils;
+
+/**
+ * An abstract resource which streams data from a seekable channel.
+ * <p>
+ * This class implements the HTTP features that allow a browser to cache the
+ * resource and to download only part of it:
+ * <ul>
+ * <li>validators: an ETag and Last-Modified header, and a 304 (Not Modified)
+ * response to a conditional request (If-None-Match, If-Modified-Since)</li>
+ * <li>range requests: a 206 (Partial Content) response to a request for one or
+ * more byte ranges, a 416 (Range Not Satisfiable) response to an invalid range,
+ * and support for If-Range</li>
+ * </ul>
+ * <p>
+ * A specialized resource implements {@link #handleRequest(WebRequest, WebResponse)}
+ * by opening a channel on its data and passing it to
+ * {@link #handleRequestPiecewise(WebRequest, WebResponse, SeekableByteChannel, long)}.
+ * Only the requested ranges are read from the channel, and they are copied to the
+ * response through a buffer of {@link #getBufferSize()} bytes.
+ *
+ * @see WFileResource
+ */
+public abstract class WStreamResource extends WResource {
+	/**
+	 * The maximum number of ranges in a range request.
+	 * <p>
+	 * Overlapping and adjacent ranges are merged first; a request with more
+	 * ranges is answered with the entire resource.
+	 */
+	public static final int MAX_RANGES = 64;
+
+	/**
+	 * Creates a new resource.
+	 *
+	 * @param mimeType the mime type of the data.
+	 */
+	public WStreamResource(String mimeType) {
+		this.mimeType_ = mimeType;
+		this.bufferSize_ = 8192;
+	}
+
+	/**
+	 * Creates a new resource with mime type "text/plain".
+	 */
+	public WStreamResource() {
+		this("text/plain");
+	}
+
+	/**
+	 * Returns the mime type.
+	 *
+	 * @return the mime type.
+	 */
+	public String getMimeType() {
+		return this.mimeType_;
+	}
+
+	/**
+	 * Changes the mime type.
+	 * <p>
+	 * This causes the resource to be refreshed in the browser by triggering {@link #dataChanged()}.
+	 *
+	 * @param mimeType
+	 */
+	public void setMimeType(String mimeType) {
+		this.mimeType_ = mimeType;
+
+		setChanged();
+	}
+
+	/**
+	 * Sets the buffer size.
+	 * <p>
+	 * This is the size of the buffer used to copy data from the channel to the
+	 * response. The default size is 8192 bytes.
+	 */
+	public void setBufferSize(int bufferSize) {
+		this.bufferSize_ = bufferSize;
+	}
+
+	/**
+	 * Returns the buffer size.
+	 *
+	 * @see #setBufferSize(int)
+	 */
+	public int getBufferSize() {
+		return this.bufferSize_;
+	}
+
+	/**
+	 * Handles a request by streaming data from a channel.
+	 * <p>
+	 * The content length is the size of the channel. The last modification time
+	 * (in milliseconds since the epoch) is used for the Last-Modified and ETag
+	 * headers; if it is not known (0), the response has no validators and
+	 * conditional requests are not answered with 304.
+	 * <p>
+	 * The channel is not closed.
+	 */
+	protected void handleRequestPiecewise(WebRequest request, WebResponse response, SeekableByteChannel input,
+			long lastModified) throws IOException {
+		long size = input.size();
+		String method = request.getMethod();
+		boolean head = "HEAD".equals(method);
+		boolean get = method == null || head || "GET".equals(method);
+
+		response.setContentType(mimeType_);
+		response.setHeader("Accept-Ranges", "bytes");
+
+		String etag = null;
+		if (lastModified > 0) {
+			etag = getETag(size, lastModified);
+			response.setHeader("ETag", etag);
+			response.setDateHeader("Last-Modified", lastModified);
+		}
+
+		if (get && etag != null && isNotModified(request, etag, lastModified)) {
+			response.setStatus(304);
+			return;
+		}
+
+		List<long[]> ranges = null;
+		if (get && isRangeValid(request, etag, lastModified))
+			ranges = parseRanges(request.getHeaderValue("Range"), size);
+
+		if (ranges == null) {
+			response.setContentLengthLong(size);
+			if (!head)
+				transfer(input, 0, size, response.getOutputStream());
+		} else if (ranges.isEmpty()) {
+			response.setStatus(416);
+			response.setHeader("Content-Range", "bytes */" + size);
+			response.setContentLength(0);
+		} else if (ranges.size() == 1) {
+			long[] r = ranges.get(0);
+			response.setStatus(206);
+			response.setHeader("Content-Range", contentRange(r, size));
+			response.setContentLengthLong(r[1] - r[0] + 1);
+			if (!head)
+				transfer(input, r[0], r[1] - r[0] + 1, response.getOutputStream());
+		} else {
+			String boundary = MathUtils.randomId(24);
+			List<byte[]> headers = new ArrayList<byte[]>();
+			long length = 0;
+			for (long[] r : ranges) {
+				byte[] h = ("\r\n--" + boundary + "\r\nContent-Type: " + mimeType_ + "\r\nContent-Range: "
+						+ contentRange(r, size) + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+				headers.add(h);
+				length += h.length + r[1] - r[0] + 1;
+			}
+			byte[] trailer = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+			length += trailer.length;
+
+			response.setStatus(206);
+			response.setContentType("multipart/byteranges; boundary=" + boundary);
+			response.setContentLengthLong(length);
+			if (!head) {
+				OutputStream out = response.getOutputStream();
+				for (int i = 0; i < ranges.size(); ++i) {
+					long[] r = ranges.get(i);
+					out.write(headers.get(i));
+					transfer(input, r[0], r[1] - r[0] + 1, out);
+				}
+				out.write(trailer);
+			}
+		}
+	}
+
+	/**
+	 * Returns the entity tag for the data.
+	 * <p>
+	 * The default implementation derives the tag from the size and the last
+	 * modification time. The tag is weak if the data was modified less than one
+	 * second ago, since it may still be changing within the resolution of the
+	 * modification time.
+	 */
+	protected String getETag(long size, long lastModified) {
+		String tag = "\"" + Long.toHexString(size) + "-" + Long.toHexString(lastModified) + "\"";
+		if (System.currentTimeMillis() - lastModified < 1000)
+			return "W/" + tag;
+		else
+			return tag;
+	}
+
+	/**
+	 * Parses the value of a Range header.
+	 * <p>
+	 * Returns the sorted and merged list of satisfiable ranges as inclusive
+	 * {first, last} byte positions, an empty list if none of the ranges is
+	 * satisfiable, or <code>null</code> if the header is absent, malformed, or has
+	 * too many ranges (in which case the entire resource should be sent).
+	 */
+	static List<long[]> parseRanges(String header, long size) {
+		if (header == null)
+			return null;
+
+		header = header.trim();
+		if (!header.startsWith("bytes="))
+			return null;
+
+		List<long[]> result = new ArrayList<long[]>();
+		for (String spec : header.substring(6).split(",")) {
+			spec = spec.trim();
+			if (spec.isEmpty())
+				continue;
+
+			int dash = spec.indexOf('-');
+			if (dash < 0)
+				return null;
+
+			long first, last;
+			try {
+				String f = spec.substring(0, dash).trim();
+				String l = spec.substring(dash + 1).trim();
+				if (f.isEmpty()) {
+					long suffix = Long.parseLong(l);
+					if (suffix < 0)
+						return null;
+					if (suffix == 0 || size == 0)
+						continue;
+					first = Math.max(0, size - suffix);
+					last = size - 1;
+				} else {
+					first = Long.parseLong(f);
+					last = l.isEmpty() ? Long.MAX_VALUE : Long.parseLong(l);
+					if (first < 0 || last < first)
+						return null;
+					if (first >= size)
+						continue;
+					last = Math.min(last, size - 1);
+				}
+			} catch (NumberFormatException e) {
+				return null;
+			}
+
+			result.add(new long[] { first, last });
+		}
+
+		Collections.sort(result, (a, b) -> Long.compare(a[0], b[0]));
+		List<long[]> merged = new ArrayList<long[]>();
+		for (long[] r : result) {
+			long[] previous = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+			if (previous != null && r[0] <= previous[1] + 1)
+				previous[1] = Math.max(previous[1], r[1]);
+			else
+				merged.add(r);
+		}
+
+		if (merged.size() > MAX_RANGES)
+			return null;
+
+		return merged;
+	}
+
+	private static boolean isNotModified(WebRequest request, String etag, long lastModified) {
+		String ifNoneMatch = request.getHeaderValue("If-None-Match");
+		if (ifNoneMatch != null)
+			return matchesETag(ifNoneMatch, etag, false);
+
+		long ifModifiedSince = getDateHeader(request, "If-Modified-Since");
+		return ifModifiedSince >= 0 && lastModified / 1000 <= ifModifiedSince / 1000;
+	}
+
+	private static boolean isRangeValid(WebRequest request, String etag, long lastModified) {
+		String ifRange = request.getHeaderValue("If-Range");
+		if (ifRange == null)
+			return true;
+		if (etag == null)
+			return false;
+
+		ifRange = ifRange.trim();
+		if (ifRange.startsWith("\"") || ifRange.startsWith("W/"))
+			return matchesETag(ifRange, etag, true);
+
+		long date = getDateHeader(request, "If-Range");
+		return date >= 0 && date / 1000 == lastModified / 1000;
+	}
+
+	/*
+	 * Matches an entity tag against a list of tags. The weak comparison ignores the
+	 * W/ prefix, while the strong comparison never matches a weak tag.
+	 */
+	static boolean matchesETag(String list, String etag, boolean strong) {
+		if (strong && etag.startsWith("W/"))
+			return false;
+
+		String opaque = etag.startsWith("W/") ? etag.substring(2) : etag;
+		for (String tag : list.split(",")) {
+			tag = tag.trim();
+			if (tag.equals("*") && !strong)
+				return true;
+			if (tag.startsWith("W/")) {
+				if (strong)
+					continue;
+				tag = tag.substring(2);
+			}
+			if (tag.equals(opaque))
+				return true;
+		}
+
+		return false;
+	}
+
+	private static long getDateHeader(WebRequest request, String name) {
+		try {
+			return request.getDateHeader(name);
+		} catch (IllegalArgumentException e) {
+			return -1;
+		}
+	}
+
+	private static String contentRange(long[] range, long size) {
+		return "bytes " + range[0] + "-" + range[1] + "/" + size;
+	}
+
+	private void transfer(SeekableByteChannel input, long position, long count, OutputStream out) throws IOException {
+		input.position(position);
+		ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(bufferSize_, Math.max(1, count)));
+		while (count > 0) {
+			buffer.clear();
+			if (buffer.remaining() > count)
+				buffer.limit((int) count);
+			int n = input.read(buffer);
+			if (n < 0)
+				throw new IOException("Unexpected end of data");
+			out.write(buffer.array(), 0, n);
+			count -= n;
+		}
+		out.flush();
+	}
+
+	private String mimeType_;
+	private int bufferSize_;
+}
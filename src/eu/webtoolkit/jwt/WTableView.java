@@ -115,6 +115,7 @@ public class WTableView extends WAbstractItemView {
     this.scrollToRow_ = -1;
     this.scrollToHint_ = ScrollHint.EnsureVisible;
     this.columnResizeConnected_ = false;
+    this.htmlItemDelegate_ = null;
     this.preloadMargin_[0] =
         this.preloadMargin_[1] = this.preloadMargin_[2] = this.preloadMargin_[3] = new WLength();
     this.setSelectable(false);
@@ -150,6 +151,9 @@ public class WTableView extends WAbstractItemView {
       }
       if (this.isAjaxMode()) {
         WTableView.ColumnWidget column = this.columnContainer(renderedCol);
+        if (column.isHtmlRendered()) {
+          return null;
+        }
         return column.getWidget(renderedRow);
       } else {
         return this.plainTable_.getElementAt(renderedRow + 1, renderedCol);
@@ -159,6 +163,46 @@ public class WTableView extends WAbstractItemView {
     }
   }
 
+  /**
+   * Sets an HTML item delegate.
+   *
+   * <p>When an HTML item delegate is set, the table renders the items of all columns as HTML
+   * written by the delegate, instead of creating a widget for every item using the item delegate
+   * (see {@link WAbstractItemView#setItemDelegate(WAbstractItemDelegate delegate)
+   * WAbstractItemView#setItemDelegate()}). This avoids creating widgets, signals and DOM element
+   * objects for every cell that scrolls into view, which greatly reduces the cost of rendering a
+   * large table.
+   *
+   * <p>Mouse events are handled by the table, and are translated to the model index at the event
+   * position, so that the {@link WAbstractItemView#clicked() clicked()}, {@link
+   * WAbstractItemView#doubleClicked() doubleClicked()}, {@link WAbstractItemView#mouseWentDown()
+   * mouseWentDown()} and {@link WAbstractItemView#mouseWentUp() mouseWentUp()} signals and
+   * selection work as before. Items cannot be edited, and {@link
+   * WTableView#itemWidget(WModelIndex index) itemWidget()} returns <code>null</code>.
+   *
+   * <p>This is only used when JavaScript is available. The default value is <code>null</code>,
+   * which renders items using the item delegates.
+   *
+   * @see WHtmlTextItemDelegate
+   */
+  public void setHtmlItemDelegate(WHtmlItemDelegate delegate) {
+    if (delegate == this.htmlItemDelegate_) {
+      return;
+    }
+    this.htmlItemDelegate_ = delegate;
+    this.scheduleRerender(WAbstractItemView.RenderState.NeedRerender);
+  }
+  /**
+   * Returns the HTML item delegate.
+   *
+   * <p>
+   *
+   * @see WTableView#setHtmlItemDelegate(WHtmlItemDelegate delegate)
+   */
+  public WHtmlItemDelegate getHtmlItemDelegate() {
+    return this.htmlItemDelegate_;
+  }
+
   public void setModel(final WAbstractItemModel model) {
     super.setModel(model);
     this.modelConnections_.add(
@@ -783,6 +827,9 @@ public class WTableView extends WAbstractItemView {
     assert this.isAjaxMode();
     WTableView.ColumnWidget result = new WTableView.ColumnWidget(column, (WContainerWidget) null);
     WTableView.ColumnWidget columnWidget = result;
+    if (this.htmlItemDelegate_ != null) {
+      columnWidget.setHtmlRendered();
+    }
     final WAbstractItemView.ColumnInfo ci = this.columnInfo(column);
     columnWidget.setStyleClass(ci.getStyleClass());
     columnWidget.setPositionScheme(PositionScheme.Absolute);
@@ -818,7 +865,60 @@ public class WTableView extends WAbstractItemView {
       this(column, (WContainerWidget) null);
     }
 
+    boolean isHtmlRendered() {
+      return this.cells_ != null;
+    }
+
+    int getCellCount() {
+      return this.cells_ != null ? this.cells_.size() : this.getCount();
+    }
+
+    void insertCell(int index, final String html) {
+      this.cells_.add(index, html);
+      this.cellsChanged();
+    }
+
+    void setCell(int index, final String html) {
+      if (!html.equals(this.cells_.get(index))) {
+        this.cells_.set(index, html);
+        this.cellsChanged();
+      }
+    }
+
+    void removeCell(int index) {
+      this.cells_.remove(index);
+      this.cellsChanged();
+    }
+
+    void updateDom(final DomElement element, boolean all) {
+      if (this.cells_ != null && (this.cellsChanged_ || all)) {
+        StringBuilder html = new StringBuilder();
+        for (String cell : this.cells_) {
+          html.append(cell);
+        }
+        element.setProperty(Property.InnerHTML, html.toString());
+        this.cellsChanged_ = false;
+      }
+      super.updateDom(element, all);
+    }
+
+    void propagateRenderOk(boolean deep) {
+      this.cellsChanged_ = false;
+      super.propagateRenderOk(deep);
+    }
+
+    private void setHtmlRendered() {
+      this.cells_ = new ArrayList<String>();
+    }
+
+    private void cellsChanged() {
+      this.cellsChanged_ = true;
+      this.repaint();
+    }
+
     private int column_;
+    private List<String> cells_;
+    private boolean cellsChanged_;
     // private WTableView.ColumnWidget  createColumnWidget(int column) ;
   }
 
@@ -853,6 +953,7 @@ public class WTableView extends WAbstractItemView {
   private int scrollToRow_;
   private ScrollHint scrollToHint_;
   private boolean columnResizeConnected_;
+  private WHtmlItemDelegate htmlItemDelegate_;
 
   private void updateTableBackground() {
     if (this.isAjaxMode()) {
@@ -1007,7 +1108,9 @@ public class WTableView extends WAbstractItemView {
       for (int i = 0; i < this.getRenderedColumnsCount(); ++i) {
         WTableView.ColumnWidget column = this.columnContainer(i);
         for (int j = 0; j < overlapMiddle; ++j) {
-          {
+          if (column.isHtmlRendered()) {
+            column.removeCell(first);
+          } else {
             WWidget toRemove = column.getWidget(first).removeFromParent();
             if (toRemove != null) toRemove.remove();
           }
@@ -1069,6 +1172,36 @@ public class WTableView extends WAbstractItemView {
     this.resetGeometry();
   }
 
+  private void insertCell(WTableView.ColumnWidget w, int i, final WModelIndex index) {
+    if (w.isHtmlRendered()) {
+      w.insertCell(i, this.renderCell(index));
+    } else {
+      w.insertWidget(i, this.renderWidget((WWidget) null, index));
+    }
+  }
+
+  private String renderCell(final WModelIndex index) {
+    EnumSet<ViewItemRenderFlag> renderFlags = EnumSet.noneOf(ViewItemRenderFlag.class);
+    StringBuilder html = new StringBuilder();
+    html.append("<div class=\"Wt-tv-c");
+    if (this.isSelected(index)) {
+      renderFlags.add(ViewItemRenderFlag.Selected);
+      html.append(' ').append(WApplication.getInstance().getTheme().getActiveClass());
+    }
+    if (!this.isValid(index)) {
+      renderFlags.add(ViewItemRenderFlag.Invalid);
+    }
+    Object styleClass = index.getData(ItemDataRole.StyleClass);
+    if ((styleClass != null)) {
+      html.append(' ');
+      DomElement.htmlAttributeValue(html, StringUtils.asString(styleClass).toString());
+    }
+    html.append("\" style=\"height:").append(this.getRowHeight().getCssText()).append("\">");
+    this.htmlItemDelegate_.renderCell(html, index, renderFlags);
+    html.append("</div>");
+    return html.toString();
+  }
+
   private WWidget renderWidget(WWidget widget, final WModelIndex index) {
     WAbstractItemDelegate itemDelegate = this.getItemDelegate(index.getColumn());
     EnumSet<ViewItemRenderFlag> renderFlags = EnumSet.noneOf(ViewItemRenderFlag.class);
@@ -1202,6 +1335,9 @@ public class WTableView extends WAbstractItemView {
       topRowsToAdd = this.getFirstRow() - fr;
       bottomRowsToAdd = lr - this.getLastRow();
     }
+    if (this.prefetch_ != null) {
+      this.prefetch_.rendered(Math.max(0, topRowsToAdd) + Math.max(0, bottomRowsToAdd));
+    }
     int oldFirstCol = this.getFirstColumn();
     int oldLastCol = this.getLastColumn();
     int leftColsToAdd = 0;
@@ -1237,17 +1373,11 @@ public class WTableView extends WAbstractItemView {
       int row = fr + i;
       for (int col = 0; col < this.getRowHeaderCount(); ++col) {
         WTableView.ColumnWidget w = this.columnContainer(col);
-        w.insertWidget(
-            i,
-            this.renderWidget(
-                (WWidget) null, this.getModel().getIndex(row, col, this.getRootIndex())));
+        this.insertCell(w, i, this.getModel().getIndex(row, col, this.getRootIndex()));
       }
       for (int col = fc; col <= lc; ++col) {
         WTableView.ColumnWidget w = this.columnContainer(col - fc + this.getRowHeaderCount());
-        w.insertWidget(
-            i,
-            this.renderWidget(
-                (WWidget) null, this.getModel().getIndex(row, col, this.getRootIndex())));
+        this.insertCell(w, i, this.getModel().getIndex(row, col, this.getRootIndex()));
       }
       this.addSection(Side.Top);
     }
@@ -1257,16 +1387,14 @@ public class WTableView extends WAbstractItemView {
           int col = fc + j;
           int renderCol = this.getRowHeaderCount() + j;
           WTableView.ColumnWidget w = this.columnContainer(renderCol);
-          w.addWidget(
-              this.renderWidget(
-                  (WWidget) null, this.getModel().getIndex(row, col, this.getRootIndex())));
+          this.insertCell(
+              w, w.getCellCount(), this.getModel().getIndex(row, col, this.getRootIndex()));
         }
         for (int j = 0; j < rightColsToAdd; ++j) {
           int col = lc - rightColsToAdd + 1 + j;
           WTableView.ColumnWidget w = this.columnContainer(col - fc + this.getRowHeaderCount());
-          w.addWidget(
-              this.renderWidget(
-                  (WWidget) null, this.getModel().getIndex(row, col, this.getRootIndex())));
+          this.insertCell(
+              w, w.getCellCount(), this.getModel().getIndex(row, col, this.getRootIndex()));
         }
       }
     }
@@ -1274,15 +1402,13 @@ public class WTableView extends WAbstractItemView {
       int row = oldLastRow == -1 ? fr + i : oldLastRow + 1 + i;
       for (int col = 0; col < this.getRowHeaderCount(); ++col) {
         WTableView.ColumnWidget w = this.columnContainer(col);
-        w.addWidget(
-            this.renderWidget(
-                (WWidget) null, this.getModel().getIndex(row, col, this.getRootIndex())));
+        this.insertCell(
+            w, w.getCellCount(), this.getModel().getIndex(row, col, this.getRootIndex()));
       }
       for (int col = fc; col <= lc; ++col) {
         WTableView.ColumnWidget w = this.columnContainer(col - fc + this.getRowHeaderCount());
-        w.addWidget(
-            this.renderWidget(
-                (WWidget) null, this.getModel().getIndex(row, col, this.getRootIndex())));
+        this.insertCell(
+            w, w.getCellCount(), this.getModel().getIndex(row, col, this.getRootIndex()));
       }
       this.addSection(Side.Bottom);
     }
@@ -1311,8 +1437,16 @@ public class WTableView extends WAbstractItemView {
             / 2;
     final double scrollX1 = Math.round(Math.max(0.0, this.viewportLeft_ - marginLeft));
     final double scrollX2 = Math.round(this.viewportLeft_ + marginRight);
-    final double scrollY1 = Math.round(Math.max(0.0, this.viewportTop_ - marginTop));
-    final double scrollY2 = Math.round(this.viewportTop_ + marginBottom);
+    double scrollY1 = Math.round(Math.max(0.0, this.viewportTop_ - marginTop));
+    double scrollY2 = Math.round(this.viewportTop_ + marginBottom);
+    if (this.isAdaptivePrefetchRows()) {
+      final double rh = this.getRowHeight().toPixels();
+      scrollY1 = Math.round(Math.max(0.0, this.viewportTop_ - (this.viewportTop_ - fr * rh) / 2));
+      scrollY2 =
+          Math.round(
+              this.viewportTop_
+                  + Math.max(0.0, (lr + 1) * rh - this.viewportTop_ - this.viewportHeight_) / 2);
+    }
     StringBuilder s = new StringBuilder();
     char[] buf = new char[30];
     s.append(this.getJsRef()).append(".wtObj.scrolled(");
@@ -1371,7 +1505,7 @@ public class WTableView extends WAbstractItemView {
         this.setSpannerCount(side, this.getSpannerCount(side) + 1);
         for (int i = 0; i < this.getRenderedColumnsCount(); ++i) {
           WTableView.ColumnWidget w = this.columnContainer(i);
-          this.deleteItem(row, col + i, w.getWidget(0));
+          this.deleteCell(row, col + i, w, 0);
         }
         break;
       case Bottom:
@@ -1379,7 +1513,7 @@ public class WTableView extends WAbstractItemView {
         this.setSpannerCount(side, this.getSpannerCount(side) + 1);
         for (int i = 0; i < this.getRenderedColumnsCount(); ++i) {
           WTableView.ColumnWidget w = this.columnContainer(i);
-          this.deleteItem(row, col + i, w.getWidget(w.getCount() - 1));
+          this.deleteCell(row, col + i, w, w.getCellCount() - 1);
         }
         break;
       case Left:
@@ -1394,8 +1528,8 @@ public class WTableView extends WAbstractItemView {
                 EnumSet.of(Side.Left));
           }
           ++this.firstColumn_;
-          for (int i = w.getCount() - 1; i >= 0; --i) {
-            this.deleteItem(row + i, col, w.getWidget(i));
+          for (int i = w.getCellCount() - 1; i >= 0; --i) {
+            this.deleteCell(row + i, col, w, i);
           }
           {
             WWidget toRemove = w.removeFromParent();
@@ -1409,8 +1543,8 @@ public class WTableView extends WAbstractItemView {
           WTableView.ColumnWidget w = this.columnContainer(-1);
           col = w.getColumn();
           --this.lastColumn_;
-          for (int i = w.getCount() - 1; i >= 0; --i) {
-            this.deleteItem(row + i, col, w.getWidget(i));
+          for (int i = w.getCellCount() - 1; i >= 0; --i) {
+            this.deleteCell(row + i, col, w, i);
           }
           {
             WWidget toRemove = w.removeFromParent();
@@ -1750,24 +1884,36 @@ public class WTableView extends WAbstractItemView {
         final int top = Math.min(this.viewportTop_, (int) this.canvas_.getHeight().toPixels());
         final int height =
             Math.min(this.viewportHeight_, (int) this.canvas_.getHeight().toPixels());
-        final double renderedRows = height / this.getRowHeight().toPixels();
-        final double renderedRowsAbove =
-            this.getPreloadMargin(Side.Top).isAuto()
-                ? renderedRows + borderRows
-                : this.getPreloadMargin(Side.Top).toPixels() / this.getRowHeight().toPixels();
-        final double renderedRowsBelow =
-            this.getPreloadMargin(Side.Bottom).isAuto()
-                ? renderedRows + borderRows
-                : this.getPreloadMargin(Side.Bottom).toPixels() / this.getRowHeight().toPixels();
-        this.renderedFirstRow_ = (int) Math.floor(top / this.getRowHeight().toPixels());
-        this.renderedLastRow_ =
-            (int)
-                Math.ceil(
-                    Math.min(
-                        this.renderedFirstRow_ + renderedRows + renderedRowsBelow,
-                        modelHeight - 1.0));
-        this.renderedFirstRow_ =
-            (int) Math.floor(Math.max(this.renderedFirstRow_ - renderedRowsAbove, 0.0));
+        if (this.isAdaptivePrefetchRows()) {
+          final double rh = this.getRowHeight().toPixels();
+          int topRow = (int) Math.floor(top / rh);
+          int pageRows = (int) Math.ceil(height / rh);
+          boolean rendered = this.getModel() != null && this.getLastRow() >= this.getFirstRow();
+          this.renderedFirstRow_ =
+              this.prefetch_.getFirstRow(rendered ? this.getFirstRow() : -1, topRow, pageRows);
+          this.renderedLastRow_ =
+              this.prefetch_.getLastRow(
+                  rendered ? this.getLastRow() : -1, topRow, pageRows, modelHeight);
+        } else {
+          final double renderedRows = height / this.getRowHeight().toPixels();
+          final double renderedRowsAbove =
+              this.getPreloadMargin(Side.Top).isAuto()
+                  ? renderedRows + borderRows
+                  : this.getPreloadMargin(Side.Top).toPixels() / this.getRowHeight().toPixels();
+          final double renderedRowsBelow =
+              this.getPreloadMargin(Side.Bottom).isAuto()
+                  ? renderedRows + borderRows
+                  : this.getPreloadMargin(Side.Bottom).toPixels() / this.getRowHeight().toPixels();
+          this.renderedFirstRow_ = (int) Math.floor(top / this.getRowHeight().toPixels());
+          this.renderedLastRow_ =
+              (int)
+                  Math.ceil(
+                      Math.min(
+                          this.renderedFirstRow_ + renderedRows + renderedRowsBelow,
+                          modelHeight - 1.0));
+          this.renderedFirstRow_ =
+              (int) Math.floor(Math.max(this.renderedFirstRow_ - renderedRowsAbove, 0.0));
+        }
       } else {
         this.renderedFirstRow_ = 0;
         this.renderedLastRow_ = modelHeight - 1;
@@ -1858,6 +2004,9 @@ public class WTableView extends WAbstractItemView {
     this.viewportWidth_ = width;
     this.viewportTop_ = top;
     this.viewportHeight_ = height;
+    if (this.prefetch_ != null) {
+      this.prefetch_.scrolled((int) (top / this.getRowHeight().toPixels()));
+    }
     if (this.scrollToRow_ != -1) {
       WModelIndex index = this.getModel().getIndex(this.scrollToRow_, 0, this.getRootIndex());
       this.scrollToRow_ = -1;
@@ -2011,7 +2160,12 @@ public class WTableView extends WAbstractItemView {
     WContainerWidget parentWidget;
     int wIndex;
     if (this.isAjaxMode()) {
-      parentWidget = this.columnContainer(renderedColumn);
+      WTableView.ColumnWidget column = this.columnContainer(renderedColumn);
+      if (column.isHtmlRendered()) {
+        column.setCell(renderedRow, this.renderCell(index));
+        return;
+      }
+      parentWidget = column;
       wIndex = renderedRow;
     } else {
       parentWidget = this.plainTable_.getElementAt(renderedRow + 1, renderedColumn);
@@ -2060,85 +2214,72 @@ public class WTableView extends WAbstractItemView {
   }
 
   void selectRange(final WModelIndex first, final WModelIndex last) {
+    if (this.getSelectionMode() == SelectionMode.None) {
+      return;
+    }
+    List<WModelIndex> rendered = this.getRenderedIndexes();
+    boolean[] selected = this.getSelectedState(rendered);
     for (int c = first.getColumn(); c <= last.getColumn(); ++c) {
-      for (int r = first.getRow(); r <= last.getRow(); ++r) {
-        this.internalSelect(
-            this.getModel().getIndex(r, c, this.getRootIndex()), SelectionFlag.Select);
+      int rangeStart = -1;
+      for (int r = first.getRow(); r <= last.getRow() + 1; ++r) {
+        boolean selectable =
+            r <= last.getRow()
+                && !EnumUtils.mask(
+                        this.getModel().getIndex(r, c, this.getRootIndex()).getFlags(),
+                        ItemFlag.Selectable)
+                    .isEmpty();
+        if (selectable && rangeStart == -1) {
+          rangeStart = r;
+        } else {
+          if (!selectable && rangeStart != -1) {
+            this.getSelectionModel().select(this.getRootIndex(), c, rangeStart, r - 1);
+            rangeStart = -1;
+          }
+        }
       }
     }
+    this.renderSelectionChanges(rendered, selected);
   }
 
-  private void shiftModelIndexRows(int start, int count) {
-    final SortedSet<WModelIndex> set = this.getSelectionModel().selection_;
-    List<WModelIndex> toShift = new ArrayList<WModelIndex>();
-    List<WModelIndex> toErase = new ArrayList<WModelIndex>();
-    for (Iterator<WModelIndex> it_it =
-            set.tailSet(this.getModel().getIndex(start, 0, this.getRootIndex())).iterator();
-        it_it.hasNext(); ) {
-      WModelIndex it = it_it.next();
-      if (count < 0) {
-        if (it.getRow() < start - count) {
-          toErase.add(it);
-          continue;
+  List<WModelIndex> getRenderedIndexes() {
+    List<WModelIndex> result = new ArrayList<WModelIndex>();
+    if (this.getModel() == null) {
+      return result;
+    }
+    int lastRow = Math.min(this.getLastRow(), this.getModel().getRowCount(this.getRootIndex()) - 1);
+    for (int r = Math.max(0, this.getFirstRow()); r <= lastRow; ++r) {
+      if (this.getSelectionBehavior() == SelectionBehavior.Rows) {
+        result.add(this.getModel().getIndex(r, 0, this.getRootIndex()));
+      } else {
+        for (int c = 0; c < this.getColumnCount(); ++c) {
+          if (c < this.getRowHeaderCount() || this.isColumnRendered(c)) {
+            result.add(this.getModel().getIndex(r, c, this.getRootIndex()));
+          }
         }
       }
-      toShift.add(it);
-      toErase.add(it);
-    }
-    for (int i = 0; i < toErase.size(); ++i) {
-      set.remove(toErase.get(i));
-    }
-    for (int i = 0; i < toShift.size(); ++i) {
-      WModelIndex newIndex =
-          this.getModel()
-              .getIndex(
-                  toShift.get(i).getRow() + count,
-                  toShift.get(i).getColumn(),
-                  toShift.get(i).getParent());
-      set.add(newIndex);
     }
+    return result;
+  }
+
+  private void shiftModelIndexRows(int start, int count) {
+    boolean changed = this.getSelectionModel().hasSelection(this.getRootIndex(), start, 0);
+    this.getSelectionModel().shiftRows(this.getRootIndex(), start, count);
     this.shiftEditorRows(this.getRootIndex(), start, count, true);
-    if (!toErase.isEmpty()) {
+    if (changed) {
       this.selectionChanged().trigger();
     }
   }
 
   private void shiftModelIndexColumns(int start, int count) {
-    final SortedSet<WModelIndex> set = this.getSelectionModel().selection_;
-    List<WModelIndex> toShift = new ArrayList<WModelIndex>();
-    List<WModelIndex> toErase = new ArrayList<WModelIndex>();
-    for (Iterator<WModelIndex> it_it = set.iterator(); it_it.hasNext(); ) {
-      WModelIndex it = it_it.next();
-      if (count < 0) {
-        if (it.getColumn() < start - count) {
-          toErase.add(it);
-          continue;
-        }
-      }
-      if (it.getColumn() >= start) {
-        toShift.add(it);
-        toErase.add(it);
-      }
-    }
-    for (int i = 0; i < toErase.size(); ++i) {
-      set.remove(toErase.get(i));
-    }
-    for (int i = 0; i < toShift.size(); ++i) {
-      WModelIndex newIndex =
-          this.getModel()
-              .getIndex(
-                  toShift.get(i).getRow(),
-                  toShift.get(i).getColumn() + count,
-                  toShift.get(i).getParent());
-      set.add(newIndex);
-    }
+    boolean changed = this.getSelectionModel().hasSelection(this.getRootIndex(), 0, start);
+    this.getSelectionModel().shiftColumns(this.getRootIndex(), start, count);
     this.shiftEditorColumns(this.getRootIndex(), start, count, true);
-    if (!toShift.isEmpty() || !toErase.isEmpty()) {
+    if (changed) {
       this.selectionChanged().trigger();
     }
   }
 
-  private void renderSelected(boolean selected, final WModelIndex index) {
+  void renderSelected(boolean selected, final WModelIndex index) {
     String cl = WApplication.getInstance().getTheme().getActiveClass();
     if (this.getSelectionBehavior() == SelectionBehavior.Rows) {
       if (this.isRowRendered(index.getRow())) {
@@ -2146,8 +2287,16 @@ public class WTableView extends WAbstractItemView {
         if (this.isAjaxMode()) {
           for (int i = 0; i < this.getRenderedColumnsCount(); ++i) {
             WTableView.ColumnWidget column = this.columnContainer(i);
-            WWidget w = column.getWidget(renderedRow);
-            w.toggleStyleClass(cl, selected);
+            if (column.isHtmlRendered()) {
+              column.setCell(
+                  renderedRow,
+                  this.renderCell(
+                      this.getModel()
+                          .getIndex(index.getRow(), column.getColumn(), this.getRootIndex())));
+            } else {
+              WWidget w = column.getWidget(renderedRow);
+              w.toggleStyleClass(cl, selected);
+            }
           }
         } else {
           WTableRow row = this.plainTable_.getRowAt(renderedRow + 1);
@@ -2155,6 +2304,10 @@ public class WTableView extends WAbstractItemView {
         }
       }
     } else {
+      if (this.isAjaxMode() && this.htmlItemDelegate_ != null) {
+        this.modelDataChanged(index, index);
+        return;
+      }
       WWidget w = this.itemWidget(index);
       if (w != null) {
         w.toggleStyleClass(cl, selected);
@@ -2322,7 +2475,12 @@ public class WTableView extends WAbstractItemView {
     WContainerWidget parentWidget;
     int wIndex;
     if (this.isAjaxMode()) {
-      parentWidget = this.columnContainer(renderedColumn);
+      WTableView.ColumnWidget column = this.columnContainer(renderedColumn);
+      if (column.isHtmlRendered()) {
+        column.setCell(renderedRow, this.renderCell(index));
+        return;
+      }
+      parentWidget = column;
       wIndex = renderedRow;
     } else {
       parentWidget = this.plainTable_.getElementAt(renderedRow + 1, renderedColumn);
@@ -2363,6 +2521,14 @@ public class WTableView extends WAbstractItemView {
     this.dropEvent(e, index, side.equals("top") ? Side.Top : Side.Bottom);
   }
 
+  private void deleteCell(int row, int col, WTableView.ColumnWidget w, int i) {
+    if (w.isHtmlRendered()) {
+      w.removeCell(i);
+    } else {
+      this.deleteItem(row, col, w.getWidget(i));
+    }
+  }
+
   private void deleteItem(int row, int col, WWidget w) {
     this.persistEditor(this.getModel().getIndex(row, col, this.getRootIndex()));
     {
@@ -2375,6 +2541,12 @@ public class WTableView extends WAbstractItemView {
     return this.table_ != null;
   }
 
+  private boolean isAdaptivePrefetchRows() {
+    return this.prefetch_ != null
+        && this.getPreloadMargin(Side.Top).isAuto()
+        && this.getPreloadMargin(Side.Bottom).isAuto();
+  }
+
   private double getCanvasHeight() {
     return Math.max(
         1.0, this.getModel().getRowCount(this.getRootIndex()) * this.getRowHeight().toPixels());
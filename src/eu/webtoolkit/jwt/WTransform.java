@@ -343,24 +343,20 @@ public class WTransform extends WJavaScriptExposableObject {
       result.assignBinding(
           o, "Wt4_10_0.gfxUtils.transform_apply(" + this.getJsRef() + ',' + path.getJsRef() + ')');
     }
-    final List<WPainterPath.Segment> sourceSegments = path.getSegments();
-    for (int i = 0; i < sourceSegments.size(); ++i) {
+    int count = path.getSegmentCount();
+    result.ensureCapacity(count);
+    for (int i = 0; i < count; ++i) {
       double tx;
       double ty;
-      if (sourceSegments.get(i).getType() == SegmentType.ArcR
-          || sourceSegments.get(i).getType() == SegmentType.ArcAngleSweep) {
-        result.segments_.add(sourceSegments.get(i));
+      SegmentType type = path.getSegmentType(i);
+      double x = path.getSegmentX(i);
+      double y = path.getSegmentY(i);
+      if (type == SegmentType.ArcR || type == SegmentType.ArcAngleSweep) {
+        result.addSegment(x, y, type);
       } else {
-        tx =
-            this.m_[M11] * sourceSegments.get(i).getX()
-                + this.m_[M12] * sourceSegments.get(i).getY()
-                + this.m_[M13];
-        ty =
-            this.m_[M21] * sourceSegments.get(i).getX()
-                + this.m_[M22] * sourceSegments.get(i).getY()
-                + this.m_[M23];
-        ;
-        result.segments_.add(new WPainterPath.Segment(tx, ty, sourceSegments.get(i).getType()));
+        tx = this.m_[M11] * x + this.m_[M12] * y + this.m_[M13];
+        ty = this.m_[M21] * x + this.m_[M22] * y + this.m_[M23];
+        result.addSegment(tx, ty, type);
       }
     }
     return result;
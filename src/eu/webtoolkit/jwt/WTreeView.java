@@ -100,6 +100,7 @@ public class WTreeView extends WAbstractItemView {
     super();
     this.skipNextMouseEvent_ = false;
     this.expandedSet_ = new HashSet<WModelIndex>();
+    this.heights_ = new TreeHeightIndex(this);
     this.renderedNodes_ = new HashMap<WModelIndex, WTreeViewNode>();
     this.renderedNodesAdded_ = false;
     this.rootNode_ = null;
@@ -193,7 +194,7 @@ public class WTreeView extends WAbstractItemView {
       } else {
         int height = this.subTreeHeight(index);
         if (expanded) {
-          this.expandedSet_.add(index);
+          this.addExpanded(index);
         } else {
           this.setCollapsed(index);
         }
@@ -455,6 +456,7 @@ public class WTreeView extends WAbstractItemView {
                   WTreeView.this.modelReset();
                 }));
     this.expandedSet_.clear();
+    this.heights_.clear();
     WApplication app = WApplication.getInstance();
     while ((int) this.columns_.size() > model.getColumnCount()) {
       app.getStyleSheet().removeRule(this.columns_.get(this.columns_.size() - 1).styleRule);
@@ -502,6 +504,11 @@ public class WTreeView extends WAbstractItemView {
     }
   }
 
+  public void setRootIndex(final WModelIndex rootIndex) {
+    super.setRootIndex(rootIndex);
+    this.heights_.clear();
+  }
+
   public void setAlternatingRowColors(boolean enable) {
     super.setAlternatingRowColors(enable);
     this.setRootNodeStyle();
@@ -801,6 +808,7 @@ public class WTreeView extends WAbstractItemView {
 
   private boolean skipNextMouseEvent_;
   HashSet<WModelIndex> expandedSet_;
+  private TreeHeightIndex heights_;
   private HashMap<WModelIndex, WTreeViewNode> renderedNodes_;
   private boolean renderedNodesAdded_;
   private WTreeViewNode rootNode_;
@@ -1124,6 +1132,7 @@ public class WTreeView extends WAbstractItemView {
 
   private void modelRowsInserted(final WModelIndex parent, int start, int end) {
     int count = end - start + 1;
+    this.heights_.rowsChanged(parent, start, 0);
     this.shiftModelIndexes(parent, start, count);
     if (this.renderState_ == WAbstractItemView.RenderState.NeedRerender
         || this.renderState_ == WAbstractItemView.RenderState.NeedRerenderData) {
@@ -1316,11 +1325,13 @@ public class WTreeView extends WAbstractItemView {
         }
       }
     }
+    this.heights_.rowsChanged(parent, start, count);
     this.shiftModelIndexes(parent, start, -count);
   }
 
   private void modelRowsRemoved(final WModelIndex parent, int start, int end) {
     int count = end - start + 1;
+    this.heights_.rowsChanged(parent, start, 0);
     if (this.renderState_ != WAbstractItemView.RenderState.NeedRerender
         && this.renderState_ != WAbstractItemView.RenderState.NeedRerenderData) {
       WWidget parentWidget = this.widgetForIndex(parent);
@@ -1384,12 +1395,16 @@ public class WTreeView extends WAbstractItemView {
   void modelLayoutChanged() {
     super.modelLayoutChanged();
     this.expandedSet_ = WModelIndex.decodeFromRawIndexes(this.expandedSet_);
+    this.heights_.clear();
     this.renderedNodes_.clear();
     this.pageChanged().trigger();
   }
 
   private void onViewportChange(WScrollEvent e) {
     this.viewportTop_ = (int) Math.floor(e.getScrollY() / this.getRowHeight().toPixels());
+    if (this.prefetch_ != null) {
+      this.prefetch_.scrolled(this.viewportTop_);
+    }
     this.contentsSizeChanged(0, e.getViewportHeight());
   }
 
@@ -1523,11 +1538,22 @@ public class WTreeView extends WAbstractItemView {
   }
 
   void setCollapsed(final WModelIndex index) {
-    this.expandedSet_.remove(index);
+    if (this.expandedSet_.remove(index)) {
+      this.heights_.collapsed(index);
+    }
+  }
+
+  void addExpanded(final WModelIndex index) {
+    if (this.expandedSet_.add(index)) {
+      this.heights_.expanded(index);
+    }
   }
 
   private int getCalcOptimalFirstRenderedRow() {
     if (WApplication.getInstance().getEnvironment().hasAjax()) {
+      if (this.prefetch_ != null) {
+        return this.prefetch_.getFirstRow(-1, this.viewportTop_, this.viewportHeight_);
+      }
       return Math.max(0, this.viewportTop_ - this.viewportHeight_ - this.viewportHeight_ / 2);
     } else {
       return this.viewportTop_;
@@ -1536,6 +1562,12 @@ public class WTreeView extends WAbstractItemView {
 
   private int getCalcOptimalRenderedRowCount() {
     if (WApplication.getInstance().getEnvironment().hasAjax()) {
+      if (this.prefetch_ != null) {
+        return this.prefetch_.getLastRow(
+                -1, this.viewportTop_, this.viewportHeight_, Integer.MAX_VALUE)
+            - this.getCalcOptimalFirstRenderedRow()
+            + 1;
+      }
       return 4 * this.viewportHeight_;
     } else {
       return this.viewportHeight_ + 5;
@@ -1544,65 +1576,13 @@ public class WTreeView extends WAbstractItemView {
 
   private void shiftModelIndexes(final WModelIndex parent, int start, int count) {
     shiftModelIndexes(parent, start, count, this.getModel(), this.expandedSet_);
-    int removed =
-        shiftModelIndexes(
-            parent, start, count, this.getModel(), this.getSelectionModel().selection_);
+    int removed = this.getSelectionModel().shiftRows(parent, start, count);
     this.shiftEditorRows(parent, start, count, false);
     if (removed != 0) {
       this.selectionChanged().trigger();
     }
   }
 
-  private static int shiftModelIndexes(
-      final WModelIndex parent,
-      int start,
-      int count,
-      final WAbstractItemModel model,
-      final SortedSet<WModelIndex> set) {
-    List<WModelIndex> toShift = new ArrayList<WModelIndex>();
-    List<WModelIndex> toErase = new ArrayList<WModelIndex>();
-    for (Iterator<WModelIndex> it_it = set.tailSet(model.getIndex(start, 0, parent)).iterator();
-        it_it.hasNext(); ) {
-      WModelIndex it = it_it.next();
-      WModelIndex i = it;
-      WModelIndex p = i.getParent();
-      if (!(p == parent || (p != null && p.equals(parent))) && !WModelIndex.isAncestor(p, parent)) {
-        break;
-      }
-      if ((p == parent || (p != null && p.equals(parent)))) {
-        toShift.add(i);
-        toErase.add(i);
-      } else {
-        if (count < 0) {
-          do {
-            if ((p.getParent() == parent || (p.getParent() != null && p.getParent().equals(parent)))
-                && p.getRow() >= start
-                && p.getRow() < start - count) {
-              toErase.add(i);
-              break;
-            } else {
-              p = p.getParent();
-            }
-          } while (!(p == parent || (p != null && p.equals(parent))));
-        }
-      }
-    }
-    for (int i = 0; i < toErase.size(); ++i) {
-      set.remove(toErase.get(i));
-    }
-    int removed = 0;
-    for (int i = 0; i < toShift.size(); ++i) {
-      if (toShift.get(i).getRow() + count >= start) {
-        WModelIndex newIndex =
-            model.getIndex(toShift.get(i).getRow() + count, toShift.get(i).getColumn(), parent);
-        set.add(newIndex);
-      } else {
-        ++removed;
-      }
-    }
-    return removed;
-  }
-
   private static int shiftModelIndexes(
       final WModelIndex parent,
       int start,
@@ -1663,9 +1643,15 @@ public class WTreeView extends WAbstractItemView {
     int viewportBottom =
         Math.min(this.rootNode_.getRenderedHeight(), this.viewportTop_ + this.viewportHeight_);
     int lastValidRow = this.firstRenderedRow_ + this.validRowCount_;
+    int marginAbove = this.viewportHeight_;
+    int marginBelow = this.viewportHeight_;
+    if (this.prefetch_ != null && WApplication.getInstance().getEnvironment().hasAjax()) {
+      marginAbove = this.prefetch_.getRowsBefore(this.viewportHeight_) / 2;
+      marginBelow = this.prefetch_.getRowsAfter(this.viewportHeight_) / 2;
+    }
     boolean renderMore =
-        Math.max(0, this.viewportTop_ - this.viewportHeight_) < this.firstRenderedRow_
-            || Math.min(this.rootNode_.getRenderedHeight(), viewportBottom + this.viewportHeight_)
+        Math.max(0, this.viewportTop_ - marginAbove) < this.firstRenderedRow_
+            || Math.min(this.rootNode_.getRenderedHeight(), viewportBottom + marginBelow)
                 > lastValidRow;
     boolean pruneFirst = false;
     if (renderMore) {
@@ -1682,27 +1668,45 @@ public class WTreeView extends WAbstractItemView {
           Math.max(0, this.firstRenderedRow_ - newFirstRenderedRow)
               + Math.max(0, newLastValidRow - lastValidRow);
       final int pruneFactor = WApplication.getInstance().getEnvironment().hasAjax() ? 9 : 1;
-      if (this.nodeLoad_ + newRows > pruneFactor * this.viewportHeight_) {
+      if (this.nodeLoad_ + newRows > this.getMaxNodeLoad(pruneFactor)) {
         pruneFirst = true;
       } else {
         if (newFirstRenderedRow < this.firstRenderedRow_ || newLastValidRow > lastValidRow) {
           this.firstRenderedRow_ = newFirstRenderedRow;
           this.validRowCount_ = newValidRowCount;
-          this.adjustRenderedNode(this.rootNode_, 0);
+          this.renderNodes();
         }
       }
     }
     final int pruneFactor = WApplication.getInstance().getEnvironment().hasAjax() ? 5 : 1;
-    if (pruneFirst || this.nodeLoad_ > pruneFactor * this.viewportHeight_) {
+    if (pruneFirst || this.nodeLoad_ > this.getMaxNodeLoad(pruneFactor)) {
       this.firstRenderedRow_ = this.getCalcOptimalFirstRenderedRow();
       this.validRowCount_ = this.getCalcOptimalRenderedRowCount();
       this.pruneNodes(this.rootNode_, 0);
       if (pruneFirst && this.nodeLoad_ < this.getCalcOptimalRenderedRowCount()) {
-        this.adjustRenderedNode(this.rootNode_, 0);
+        this.renderNodes();
       }
     }
   }
 
+  private int getMaxNodeLoad(int pruneFactor) {
+    if (this.prefetch_ != null && WApplication.getInstance().getEnvironment().hasAjax()) {
+      return Math.max(
+          pruneFactor * this.viewportHeight_,
+          this.prefetch_.getMaxRenderedRows(this.viewportHeight_));
+    } else {
+      return pruneFactor * this.viewportHeight_;
+    }
+  }
+
+  private void renderNodes() {
+    int nodeLoad = this.nodeLoad_;
+    this.adjustRenderedNode(this.rootNode_, 0);
+    if (this.prefetch_ != null) {
+      this.prefetch_.rendered(this.nodeLoad_ - nodeLoad);
+    }
+  }
+
   private final void adjustToViewport() {
     adjustToViewport((WTreeViewNode) null);
   }
@@ -1800,8 +1804,16 @@ public class WTreeView extends WAbstractItemView {
           && nodeRow < this.firstRenderedRow_ + this.validRowCount_) {
         int childCount = this.getModel().getRowCount(index);
         boolean firstNode = true;
-        int rowStubs = 0;
-        for (int i = 0; i < childCount; ++i) {
+        int firstChild = this.heights_.findChild(index, this.firstRenderedRow_ - nodeRow);
+        int rowStubs = this.heights_.getRowOffset(index, firstChild);
+        nodeRow += rowStubs;
+        for (int i = firstChild; i < childCount; ++i) {
+          if (nodeRow > this.firstRenderedRow_ + this.validRowCount_) {
+            int rest = this.heights_.getChildrenHeight(index) - (nodeRow - theNodeRow);
+            rowStubs += rest;
+            nodeRow += rest;
+            break;
+          }
           WModelIndex childIndex = this.getModel().getIndex(i, 0, index);
           int childHeight = this.subTreeHeight(childIndex);
           if (nodeRow <= this.firstRenderedRow_ + this.validRowCount_
@@ -1935,22 +1947,16 @@ public class WTreeView extends WAbstractItemView {
     if (!(index == this.getRootIndex() || (index != null && index.equals(this.getRootIndex())))) {
       ++result;
     }
-    if (result >= upperBound) {
-      return result;
-    }
     if (this.getModel() != null && this.isExpanded(index)) {
-      int childCount = this.getModel().getRowCount(index);
-      for (int i = 0; i < childCount; ++i) {
-        WModelIndex childIndex = this.getModel().getIndex(i, 0, index);
-        result += this.subTreeHeight(childIndex, upperBound - result);
-        if (result >= upperBound) {
-          return result;
-        }
-      }
+      result += this.heights_.getChildrenHeight(index);
     }
     return result;
   }
 
+  int getChildrenHeight(final WModelIndex index) {
+    return this.heights_.getChildrenHeight(index);
+  }
+
   final int subTreeHeight(final WModelIndex index) {
     return subTreeHeight(index, 0, Integer.MAX_VALUE);
   }
@@ -1994,14 +2000,7 @@ public class WTreeView extends WAbstractItemView {
       return 0;
     } else {
       WModelIndex parent = child.getParent();
-      int result = 0;
-      for (int r = 0; r < child.getRow(); ++r) {
-        result +=
-            this.subTreeHeight(this.getModel().getIndex(r, 0, parent), 0, upperBound - result);
-        if (result >= upperBound) {
-          return result;
-        }
-      }
+      int result = this.heights_.getRowOffset(parent, child.getRow());
       if (!(parent == ancestor || (parent != null && parent.equals(ancestor)))) {
         return result
             + 1
@@ -2059,16 +2058,38 @@ public class WTreeView extends WAbstractItemView {
           this.getModel().getIndex(index.getRow(), 0, index.getParent()), option);
     }
     if (super.internalSelect(index, option)) {
-      WTreeViewNode node = this.nodeForIndex(index);
-      if (node != null) {
-        node.renderSelected(this.isSelected(index), index.getColumn());
-      }
+      this.renderSelected(this.isSelected(index), index);
       return true;
     } else {
       return false;
     }
   }
 
+  List<WModelIndex> getRenderedIndexes() {
+    List<WModelIndex> result = new ArrayList<WModelIndex>();
+    for (Iterator<WModelIndex> i_it = this.renderedNodes_.keySet().iterator(); i_it.hasNext(); ) {
+      WModelIndex i = i_it.next();
+      if (i == null || (i == this.getRootIndex() || i.equals(this.getRootIndex()))) {
+        continue;
+      }
+      if (this.getSelectionBehavior() == SelectionBehavior.Rows) {
+        result.add(i);
+      } else {
+        for (int c = 0; c < this.getColumnCount(); ++c) {
+          result.add(this.getModel().getIndex(i.getRow(), c, i.getParent()));
+        }
+      }
+    }
+    return result;
+  }
+
+  void renderSelected(boolean selected, final WModelIndex index) {
+    WTreeViewNode node = this.nodeForIndex(index);
+    if (node != null) {
+      node.renderSelected(selected, index.getColumn());
+    }
+  }
+
   void selectRange(final WModelIndex first, final WModelIndex last) {
     WModelIndex index = first;
     for (; ; ) {
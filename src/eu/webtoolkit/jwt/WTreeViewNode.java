@@ -563,7 +563,7 @@ class WTreeViewNode extends WContainerWidget {
     if (expandButton != null) {
       expandButton.setState(1);
     }
-    this.view_.expandedSet_.add(this.index_);
+    this.view_.addExpanded(this.index_);
     this.getChildContainer().show();
     if (this.getParentNode() != null) {
       this.getParentNode().adjustChildrenHeight(this.childrenHeight_);
@@ -613,9 +613,7 @@ class WTreeViewNode extends WContainerWidget {
   private void loadChildren() {
     if (!this.childrenLoaded_) {
       this.childrenLoaded_ = true;
-      this.view_.expandedSet_.add(this.index_);
-      this.childrenHeight_ = this.view_.subTreeHeight(this.index_) - 1;
-      this.view_.expandedSet_.remove(this.index_);
+      this.childrenHeight_ = this.view_.getChildrenHeight(this.index_);
       if (this.childrenHeight_ > 0) {
         this.setTopSpacerHeight(this.childrenHeight_);
       }
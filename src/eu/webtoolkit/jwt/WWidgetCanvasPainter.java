@@ -23,6 +23,7 @@ class WWidgetCanvasPainter extends WWidgetPainter {
 
   public WWidgetCanvasPainter(WPaintedWidget widget) {
     super(widget);
+    this.textMethod_ = null;
   }
 
   public WPaintDevice createPaintDevice(boolean paintUpdate) {
@@ -127,4 +128,40 @@ class WWidgetCanvasPainter extends WWidgetPainter {
   public WWidgetPainter.RenderType getRenderType() {
     return WWidgetPainter.RenderType.HtmlCanvas;
   }
+
+  String getRenderCacheType() {
+    if (this.textMethod_ == null) {
+      WCanvasPaintDevice device =
+          ObjectUtils.cast(this.createPaintDevice(false), WCanvasPaintDevice.class);
+      this.textMethod_ = device.getTextMethod();
+    }
+    if (this.textMethod_ == WCanvasPaintDevice.TextMethod.DomText) {
+      return null;
+    }
+    return this.getRenderType() + "-" + this.textMethod_;
+  }
+
+  RenderCache.Entry putRendered(
+      RenderCache cache, final String key, WPaintDevice device, long renderTime) {
+    WCanvasPaintDevice canvasDevice = ObjectUtils.cast(device, WCanvasPaintDevice.class);
+    return cache.put(
+        key, canvasDevice.getPaintCommands(), canvasDevice.getImages(), null, renderTime);
+  }
+
+  void createContents(DomElement result, RenderCache.Entry entry) {
+    this.createContents(result, this.createCachedDevice(entry));
+  }
+
+  void updateContents(final List<DomElement> result, RenderCache.Entry entry) {
+    this.updateContents(result, this.createCachedDevice(entry));
+  }
+
+  private WPaintDevice createCachedDevice(RenderCache.Entry entry) {
+    WCanvasPaintDevice device =
+        ObjectUtils.cast(this.createPaintDevice(false), WCanvasPaintDevice.class);
+    device.setPaintCommands(entry.getText(), entry.getImages());
+    return device;
+  }
+
+  private WCanvasPaintDevice.TextMethod textMethod_;
 }
@@ -43,6 +43,17 @@ abstract class WWidgetPainter {
 
   public abstract WWidgetPainter.RenderType getRenderType();
 
+  String getRenderCacheType() {
+    return this.getRenderType().toString();
+  }
+
+  abstract RenderCache.Entry putRendered(
+      RenderCache cache, final String key, WPaintDevice device, long renderTime);
+
+  abstract void createContents(DomElement element, RenderCache.Entry entry);
+
+  abstract void updateContents(final List<DomElement> result, RenderCache.Entry entry);
+
   protected WWidgetPainter(WPaintedWidget widget) {
     this.widget_ = widget;
   }
@@ -24,6 +24,7 @@ class WWidgetRasterPainter extends WWidgetPainter {
   public WWidgetRasterPainter(WPaintedWidget widget) {
     super(widget);
     this.device_ = null;
+    this.cachedImage_ = null;
   }
 
   public WPaintDevice createPaintDevice(boolean paintUpdate) {
@@ -42,6 +43,42 @@ class WWidgetRasterPainter extends WWidgetPainter {
   }
 
   public void createContents(DomElement result, WPaintDevice device) {
+    WResource resource = ObjectUtils.cast(device, WResource.class);
+    this.createImage(result, resource.generateUrl());
+    this.device_ = device;
+  }
+
+  public void updateContents(final List<DomElement> result, WPaintDevice device) {
+    WResource resource = ObjectUtils.cast(device, WResource.class);
+    this.updateImage(result, resource.generateUrl());
+    this.device_ = device;
+  }
+
+  public WWidgetPainter.RenderType getRenderType() {
+    return WWidgetPainter.RenderType.PngImage;
+  }
+
+  RenderCache.Entry putRendered(
+      RenderCache cache, final String key, WPaintDevice device, long renderTime) {
+    byte[] data = (ObjectUtils.cast(device, WRasterPaintDevice.class)).getImageData();
+    if (data == null) {
+      return null;
+    }
+    return cache.put(key, null, null, data, renderTime);
+  }
+
+  void createContents(DomElement result, RenderCache.Entry entry) {
+    this.createImage(result, this.getImageUrl(entry));
+  }
+
+  void updateContents(final List<DomElement> result, RenderCache.Entry entry) {
+    this.updateImage(result, this.getImageUrl(entry));
+  }
+
+  private WPaintDevice device_;
+  private WMemoryResource cachedImage_;
+
+  private void createImage(DomElement result, final String url) {
     String wstr = String.valueOf(this.widget_.renderWidth_);
     String hstr = String.valueOf(this.widget_.renderHeight_);
     DomElement img = DomElement.createNew(DomElementType.IMG);
@@ -52,28 +89,30 @@ class WWidgetRasterPainter extends WWidgetPainter {
     img.setAttribute("unselectable", "on");
     img.setAttribute("onselectstart", "return false;");
     img.setAttribute("onmousedown", "return false;");
-    WResource resource = ObjectUtils.cast(device, WResource.class);
-    img.setAttribute("src", resource.generateUrl());
+    img.setAttribute("src", url);
     result.addChild(img);
-    this.device_ = device;
   }
 
-  public void updateContents(final List<DomElement> result, WPaintDevice device) {
-    WResource resource = ObjectUtils.cast(device, WResource.class);
+  private void updateImage(final List<DomElement> result, final String url) {
     DomElement img = DomElement.getForUpdate('i' + this.widget_.getId(), DomElementType.IMG);
     if (this.widget_.sizeChanged_) {
       img.setAttribute("width", String.valueOf(this.widget_.renderWidth_));
       img.setAttribute("height", String.valueOf(this.widget_.renderHeight_));
       this.widget_.sizeChanged_ = false;
     }
-    img.setAttribute("src", resource.generateUrl());
+    img.setAttribute("src", url);
     result.add(img);
-    this.device_ = device;
   }
 
-  public WWidgetPainter.RenderType getRenderType() {
-    return WWidgetPainter.RenderType.PngImage;
+  private String getImageUrl(RenderCache.Entry entry) {
+    String url = RenderCache.getUrl(entry);
+    if (url != null) {
+      return url;
+    }
+    if (!(this.cachedImage_ != null)) {
+      this.cachedImage_ = new WMemoryResource("image/png");
+    }
+    this.cachedImage_.setData(entry.getData());
+    return this.cachedImage_.generateUrl();
   }
-
-  private WPaintDevice device_;
 }
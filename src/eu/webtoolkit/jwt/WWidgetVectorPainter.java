@@ -74,5 +74,22 @@ class WWidgetVectorPainter extends WWidgetPainter {
     return this.renderType_;
   }
 
+  RenderCache.Entry putRendered(
+      RenderCache cache, final String key, WPaintDevice device, long renderTime) {
+    WVectorImage vectorDevice = ObjectUtils.cast(device, WVectorImage.class);
+    return cache.put(key, vectorDevice.getRendered(), null, null, renderTime);
+  }
+
+  void createContents(DomElement canvas, RenderCache.Entry entry) {
+    canvas.setProperty(Property.InnerHTML, entry.getText());
+  }
+
+  void updateContents(final List<DomElement> result, RenderCache.Entry entry) {
+    DomElement canvas = DomElement.getForUpdate('p' + this.widget_.getId(), DomElementType.DIV);
+    canvas.setProperty(Property.InnerHTML, entry.getText());
+    result.add(canvas);
+    this.widget_.sizeChanged_ = false;
+  }
+
   private WWidgetPainter.RenderType renderType_;
 }
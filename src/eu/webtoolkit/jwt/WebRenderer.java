@@ -42,6 +42,7 @@ class WebRenderer implements SlotLearnerInterface {
     this.updateLayout_ = false;
     this.wsRequestsToHandle_ = new ArrayList<Integer>();
     this.cookieUpdateNeeded_ = false;
+    this.metricsRequestType_ = MetricsSink.RequestType.Page;
     this.collectedJS1_ = new StringBuilder();
     this.collectedJS2_ = new StringBuilder();
     this.invisibleJS_ = new StringBuilder();
@@ -69,21 +70,25 @@ class WebRenderer implements SlotLearnerInterface {
 
   public void setRendered(boolean how) {
     if (this.rendered_ != how) {
-      logger.debug(
-          new StringWriter().append("setRendered: ").append(String.valueOf(how)).toString());
+      if (logger.isDebugEnabled()) {
+        logger.debug(
+            new StringWriter().append("setRendered: ").append(String.valueOf(how)).toString());
+      }
       this.rendered_ = how;
     }
   }
 
   public void needUpdate(WWidget w, boolean laterOnly) {
-    logger.debug(
-        new StringWriter()
-            .append("needUpdate: ")
-            .append(w.getId())
-            .append(" (")
-            .append("(fixme)")
-            .append(")")
-            .toString());
+    if (logger.isDebugEnabled()) {
+      logger.debug(
+          new StringWriter()
+              .append("needUpdate: ")
+              .append(w.getId())
+              .append(" (")
+              .append("(fixme)")
+              .append(")")
+              .toString());
+    }
     this.updateMap_.add(w);
     if (!laterOnly) {
       this.moreUpdates_ = true;
@@ -91,14 +96,16 @@ class WebRenderer implements SlotLearnerInterface {
   }
 
   public void doneUpdate(WWidget w) {
-    logger.debug(
-        new StringWriter()
-            .append("doneUpdate: ")
-            .append(w.getId())
-            .append(" (")
-            .append("(fixme)")
-            .append(")")
-            .toString());
+    if (logger.isDebugEnabled()) {
+      logger.debug(
+          new StringWriter()
+              .append("doneUpdate: ")
+              .append(w.getId())
+              .append(" (")
+              .append("(fixme)")
+              .append(")")
+              .toString());
+    }
     this.updateMap_.remove(w);
   }
 
@@ -177,6 +184,30 @@ class WebRenderer implements SlotLearnerInterface {
   }
 
   public void serveResponse(final WebResponse response) throws IOException {
+    MetricsSink metrics = this.session_.getController().getConfiguration().getMetricsSink();
+    if (metrics == null) {
+      this.doServeResponse(response);
+      return;
+    }
+    if (response.isWebSocketMessage()) {
+      this.metricsRequestType_ = MetricsSink.RequestType.WebSocket;
+    } else {
+      if (response.getResponseType() == WebRequest.ResponseType.Update) {
+        this.metricsRequestType_ = MetricsSink.RequestType.JsUpdate;
+      } else {
+        this.metricsRequestType_ = MetricsSink.RequestType.Page;
+      }
+    }
+    long start = System.nanoTime();
+    try {
+      this.doServeResponse(response);
+    } finally {
+      metrics.recordLatency(
+          this.metricsRequestType_, MetricsSink.Stage.ServeResponse, System.nanoTime() - start);
+    }
+  }
+
+  private void doServeResponse(final WebResponse response) throws IOException {
     this.session_.setTriggerUpdate(false);
     switch (response.getResponseType()) {
       case Update:
@@ -294,17 +325,22 @@ class WebRenderer implements SlotLearnerInterface {
   }
 
   public WebRenderer.AckState ackUpdate(int updateId) {
-    logger.debug(
-        new StringWriter()
-            .append("ackUpdate: expecting ")
-            .append(String.valueOf(this.expectedAckId_))
-            .append(", received ")
-            .append(String.valueOf(updateId))
-            .toString());
+    if (logger.isDebugEnabled()) {
+      logger.debug(
+          new StringWriter()
+              .append("ackUpdate: expecting ")
+              .append(String.valueOf(this.expectedAckId_))
+              .append(", received ")
+              .append(String.valueOf(updateId))
+              .toString());
+    }
     if (updateId == this.expectedAckId_) {
-      logger.debug(new StringWriter().append("jsSynced(false) after ackUpdate okay").toString());
+      if (logger.isDebugEnabled()) {
+        logger.debug(new StringWriter().append("jsSynced(false) after ackUpdate okay").toString());
+      }
       this.setJSSynced(false);
       this.ackErrs_ = 0;
+      this.session_.pushAcknowledged();
       return WebRenderer.AckState.CorrectAck;
     } else {
       if (this.expectedAckId_ - updateId < 5) {
@@ -391,8 +427,10 @@ class WebRenderer implements SlotLearnerInterface {
   }
 
   public void setJSSynced(boolean invisibleToo) {
-    logger.debug(
-        new StringWriter().append("setJSSynced: ").append(String.valueOf(invisibleToo)).toString());
+    if (logger.isDebugEnabled()) {
+      logger.debug(
+          new StringWriter().append("setJSSynced: ").append(String.valueOf(invisibleToo)).toString());
+    }
     this.collectedJS1_.setLength(0);
     this.collectedJS2_.setLength(0);
     if (!invisibleToo) {
@@ -424,6 +462,7 @@ class WebRenderer implements SlotLearnerInterface {
   private boolean updateLayout_;
   private List<Integer> wsRequestsToHandle_;
   private boolean cookieUpdateNeeded_;
+  private MetricsSink.RequestType metricsRequestType_;
 
   private void setHeaders(final WebResponse response, final String mimeType) {
     for (javax.servlet.http.Cookie cookie : this.cookiesToSet_) {
@@ -459,20 +498,24 @@ class WebRenderer implements SlotLearnerInterface {
       this.collectJavaScript();
       this.addResponseAckPuzzle(out);
       this.renderSetServerPush(out);
-      logger.debug(
-          new StringWriter()
-              .append("js: ")
-              .append(this.collectedJS1_.toString())
-              .append(this.collectedJS2_.toString())
-              .toString());
+      if (logger.isDebugEnabled()) {
+        logger.debug(
+            new StringWriter()
+                .append("js: ")
+                .append(this.collectedJS1_.toString())
+                .append(this.collectedJS2_.toString())
+                .toString());
+      }
       out.append(this.collectedJS1_.toString()).append(this.collectedJS2_.toString());
       if (response.isWebSocketMessage()) {
         this.renderCookieUpdate(out);
         this.renderWsRequestsDone(out);
-        logger.debug(
-            new StringWriter()
-                .append("jsSynced(false) after rendering websocket message")
-                .toString());
+        if (logger.isDebugEnabled()) {
+          logger.debug(
+              new StringWriter()
+                  .append("jsSynced(false) after rendering websocket message")
+                  .toString());
+        }
         this.setJSSynced(false);
       }
     }
@@ -602,12 +645,14 @@ class WebRenderer implements SlotLearnerInterface {
         this.currentFormObjectsList_ = "";
         this.collectJavaScript();
         this.updateLoadIndicator(this.collectedJS1_, app, true);
-        logger.debug(
-            new StringWriter()
-                .append("js: ")
-                .append(this.collectedJS1_.toString())
-                .append(this.collectedJS2_.toString())
-                .toString());
+        if (logger.isDebugEnabled()) {
+          logger.debug(
+              new StringWriter()
+                  .append("js: ")
+                  .append(this.collectedJS1_.toString())
+                  .append(this.collectedJS2_.toString())
+                  .toString());
+        }
         out.append(this.collectedJS1_.toString());
         this.addResponseAckPuzzle(out);
         out.append(app.getJavaScriptClass())
@@ -860,7 +905,9 @@ class WebRenderer implements SlotLearnerInterface {
     if (widgetset) {
       app.domRoot2_.rootAsJavaScript(app, s, true);
     }
-    logger.debug(new StringWriter().append("js: ").append(s.toString()).toString());
+    if (logger.isDebugEnabled()) {
+      logger.debug(new StringWriter().append("js: ").append(s.toString()).toString());
+    }
     out.append(s.toString());
     this.currentFormObjectsList_ = this.createFormObjectsList(app);
     out.append(app.getJavaScriptClass())
@@ -885,8 +932,10 @@ class WebRenderer implements SlotLearnerInterface {
         }
       }
     }
-    logger.debug(
-        new StringWriter().append("js: ").append(this.collectedJS1_.toString()).toString());
+    if (logger.isDebugEnabled()) {
+      logger.debug(
+          new StringWriter().append("js: ").append(this.collectedJS1_.toString()).toString());
+    }
     out.append(this.collectedJS1_.toString());
     this.collectedJS1_.setLength(0);
     this.updateLoadIndicator(out, app, true);
@@ -920,13 +969,30 @@ class WebRenderer implements SlotLearnerInterface {
   }
   // private void serveWidgetSet(final WebResponse request) ;
   private void collectJavaScript() throws IOException {
+    MetricsSink metrics = this.session_.getController().getConfiguration().getMetricsSink();
+    if (metrics == null) {
+      this.doCollectJavaScript();
+      return;
+    }
+    long start = System.nanoTime();
+    try {
+      this.doCollectJavaScript();
+    } finally {
+      metrics.recordLatency(
+          this.metricsRequestType_, MetricsSink.Stage.CollectJavaScript, System.nanoTime() - start);
+    }
+  }
+
+  private void doCollectJavaScript() throws IOException {
     WApplication app = this.session_.getApp();
     final Configuration conf = this.session_.getController().getConfiguration();
-    logger.debug(
-        new StringWriter()
-            .append("Rendering invisible: ")
-            .append(this.invisibleJS_.toString())
-            .toString());
+    if (logger.isDebugEnabled()) {
+      logger.debug(
+          new StringWriter()
+              .append("Rendering invisible: ")
+              .append(this.invisibleJS_.toString())
+              .toString());
+    }
     this.collectedJS1_.append(this.invisibleJS_.toString());
     this.invisibleJS_.setLength(0);
     int librariesLoaded = this.loadScriptLibraries(this.collectedJS1_, app);
@@ -1007,18 +1073,20 @@ class WebRenderer implements SlotLearnerInterface {
           w = w.getParent();
         }
         if (w != app.domRoot_ && w != app.domRoot2_) {
-          logger.debug(
-              new StringWriter()
-                  .append("ignoring: ")
-                  .append(ww.getId())
-                  .append(" (")
-                  .append("(fixme)")
-                  .append(") ")
-                  .append(w.getId())
-                  .append(" (")
-                  .append("(fixme)")
-                  .append(")")
-                  .toString());
+          if (logger.isDebugEnabled()) {
+            logger.debug(
+                new StringWriter()
+                    .append("ignoring: ")
+                    .append(ww.getId())
+                    .append(" (")
+                    .append("(fixme)")
+                    .append(") ")
+                    .append(w.getId())
+                    .append(" (")
+                    .append("(fixme)")
+                    .append(")")
+                    .toString());
+          }
           depth = 0;
         }
         depthOrder.put(depth, ww);
@@ -1033,19 +1101,23 @@ class WebRenderer implements SlotLearnerInterface {
             w.getWebWidget().propagateRenderOk();
             continue;
           }
-          logger.debug(
-              new StringWriter()
-                  .append("updating: ")
-                  .append(w.getId())
-                  .append(" (")
-                  .append("(fixme)")
-                  .append(")")
-                  .toString());
+          if (logger.isDebugEnabled()) {
+            logger.debug(
+                new StringWriter()
+                    .append("updating: ")
+                    .append(w.getId())
+                    .append(" (")
+                    .append("(fixme)")
+                    .append(")")
+                    .toString());
+          }
           if (!this.learning_ && this.visibleOnly_) {
             if (w.isRendered()) {
               w.getSDomChanges(changes, app);
             } else {
-              logger.debug(new StringWriter().append("Ignoring: ").append(w.getId()).toString());
+              if (logger.isDebugEnabled()) {
+                logger.debug(new StringWriter().append("Ignoring: ").append(w.getId()).toString());
+              }
             }
           } else {
             w.getSDomChanges(changes, app);
@@ -1247,6 +1319,14 @@ class WebRenderer implements SlotLearnerInterface {
     this.statelessJS_.setLength(0);
   }
 
+  int getJavaScriptBufferSize() {
+    return this.collectedJS1_.length()
+        + this.collectedJS2_.length()
+        + this.invisibleJS_.length()
+        + this.statelessJS_.length()
+        + this.beforeLoadJS_.length();
+  }
+
   private StringBuilder collectedJS1_;
   private StringBuilder collectedJS2_;
   private StringBuilder invisibleJS_;
@@ -1422,11 +1502,13 @@ class WebRenderer implements SlotLearnerInterface {
       }
     }
     ++this.expectedAckId_;
-    logger.debug(
-        new StringWriter()
-            .append("addResponseAckPuzzle: incremented expectedAckId to ")
-            .append(String.valueOf(this.expectedAckId_))
-            .toString());
+    if (logger.isDebugEnabled()) {
+      logger.debug(
+          new StringWriter()
+              .append("addResponseAckPuzzle: incremented expectedAckId to ")
+              .append(String.valueOf(this.expectedAckId_))
+              .toString());
+    }
     out.append(this.session_.getApp().getJavaScriptClass())
         .append("._p_.response(")
         .append(this.expectedAckId_);
@@ -1683,7 +1765,9 @@ class WebRenderer implements SlotLearnerInterface {
     StringBuilder js = new StringBuilder();
     this.collectJS(js);
     String result = js.toString();
-    logger.debug(new StringWriter().append("learned: ").append(result).toString());
+    if (logger.isDebugEnabled()) {
+      logger.debug(new StringWriter().append("learned: ").append(result).toString());
+    }
     if (slot.getType() == SlotType.PreLearnStateless) {
       slot.undoTrigger();
       this.collectJS((StringBuilder) null);
@@ -12,6 +12,8 @@ import java.io.*;
 import java.lang.ref.*;
 import java.time.*;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.regex.*;
 import javax.servlet.*;
@@ -42,7 +44,7 @@ class WebSession {
       final String favicon,
       WebRequest request,
       WEnvironment env) {
-    this.mutex_ = new ReentrantLock();
+    this.mutex_ = new ReentrantLock(true);
     this.eventQueueMutex_ = new ReentrantLock();
     this.eventQueue_ = new LinkedList<ApplicationEvent>();
     this.type_ = type;
@@ -81,11 +83,15 @@ class WebSession {
     this.updatesPendingEvent_ = this.mutex_.newCondition();
     this.updatesPending_ = false;
     this.triggerUpdate_ = false;
+    this.appStarted_ = this.mutex_.newCondition();
+    this.queuedRequests_ = new AtomicInteger(0);
+    this.pushScheduler_ = new PushScheduler(this);
     this.embeddedEnv_ = new WEnvironment(this);
     this.app_ = null;
     this.debug_ = this.controller_.getConfiguration().debug();
     this.handlers_ = new ArrayList<WebSession.Handler>();
     this.recursiveEventHandler_ = null;
+    this.memoryStats_ = null;
     this.env_ = env != null ? env : this.embeddedEnv_;
     if (request != null) {
       this.env_.updateUrlScheme(request);
@@ -499,10 +505,12 @@ class WebSession {
               if (signalE.equals("poll")
                   && ackState != WebRenderer.AckState.CorrectAck
                   && this.renderer_.isJsSynced()) {
-                logger.debug(
-                    new StringWriter()
-                        .append("Ignoring poll with incorrect ack -- was rescheduled in browser?")
-                        .toString());
+                if (logger.isDebugEnabled()) {
+                  logger.debug(
+                      new StringWriter()
+                          .append("Ignoring poll with incorrect ack -- was rescheduled in browser?")
+                          .toString());
+                }
                 handler.flushResponse();
                 return;
               }
@@ -539,12 +547,14 @@ class WebSession {
                     handler.setRequest((WebRequest) null, (WebResponse) null);
                   } else {
                     ++this.pollRequestsIgnored_;
-                    logger.debug(
-                        new StringWriter()
-                            .append("ignored poll request (#")
-                            .append(String.valueOf(this.pollRequestsIgnored_))
-                            .append(")")
-                            .toString());
+                    if (logger.isDebugEnabled()) {
+                      logger.debug(
+                          new StringWriter()
+                              .append("ignored poll request (#")
+                              .append(String.valueOf(this.pollRequestsIgnored_))
+                              .append(")")
+                              .toString());
+                    }
                   }
                 } else {
                   this.pollRequestsIgnored_ = 0;
@@ -556,7 +566,9 @@ class WebSession {
                 }
               }
               if (handler.getRequest() != null) {
-                logger.debug(new StringWriter().append("signal: ").append(signalE).toString());
+                if (logger.isDebugEnabled()) {
+                  logger.debug(new StringWriter().append("signal: ").append(signalE).toString());
+                }
                 try {
                   handler.nextSignal = -1;
                   this.notifySignal(event);
@@ -714,6 +726,7 @@ class WebSession {
 
   public void kill() {
     this.state_ = WebSession.State.Dead;
+    this.pushScheduler_.cancel();
     this.isUnlockRecursiveEventLoop();
   }
 
@@ -1100,12 +1113,14 @@ class WebSession {
   public void setState(WebSession.State state, int timeout) {
     if (this.state_ != WebSession.State.Dead) {
       this.state_ = state;
-      logger.debug(
-          new StringWriter()
-              .append("Setting to expire in ")
-              .append(String.valueOf(timeout))
-              .append("s")
-              .toString());
+      if (logger.isDebugEnabled()) {
+        logger.debug(
+            new StringWriter()
+                .append("Setting to expire in ")
+                .append(String.valueOf(timeout))
+                .append("s")
+                .toString());
+      }
     }
   }
 
@@ -1142,7 +1157,15 @@ class WebSession {
       this.request_ = request;
       this.response_ = response;
       this.killed_ = false;
-      session.getMutex().lock();
+      MetricsSink metrics = session.getController().getConfiguration().getMetricsSink();
+      if (metrics != null && request != null) {
+        long start = System.nanoTime();
+        session.getMutex().lock();
+        metrics.recordLatency(
+            getMetricsRequestType(request), MetricsSink.Stage.LockWait, System.nanoTime() - start);
+      } else {
+        session.getMutex().lock();
+      }
       this.init();
     }
 
@@ -1180,12 +1203,18 @@ class WebSession {
     }
 
     public void release() {
-      if (this.isHaveLock()) {
+      while (this.isHaveLock()) {
         this.session_.processQueuedEvents(this);
+        this.session_.updateMemoryStats();
         if (this.session_.triggerUpdate_) {
           this.session_.pushUpdates();
         }
         this.session_.getMutex().unlock();
+        if (this.isHaveLock()
+            || this.session_.getPendingEventCount() == 0
+            || !this.session_.getMutex().tryLock()) {
+          break;
+        }
       }
       attachThreadToHandler(this.prevHandler_);
     }
@@ -1381,15 +1410,17 @@ class WebSession {
               && (requestE.equals("jsupdate")
                   || requestE.equals("jserror")
                   || requestE.equals("resource")))) {
-        logger.debug(
-            new StringWriter()
-                .append("CSRF: ")
-                .append(wtdE != null ? wtdE : "no wtd")
-                .append(" != ")
-                .append(this.sessionId_)
-                .append(", requestE: ")
-                .append(requestE != null ? requestE : "none")
-                .toString());
+        if (logger.isDebugEnabled()) {
+          logger.debug(
+              new StringWriter()
+                  .append("CSRF: ")
+                  .append(wtdE != null ? wtdE : "no wtd")
+                  .append(" != ")
+                  .append(this.sessionId_)
+                  .append(", requestE: ")
+                  .append(requestE != null ? requestE : "none")
+                  .toString());
+        }
         logger.warn(
             new StringWriter().append("secure:").append("CSRF prevention kicked in.").toString());
         this.serveError(403, handler, "Forbidden");
@@ -1553,15 +1584,11 @@ class WebSession {
                           handler.getResponse().setContentType("text/css");
                           handler.flushResponse();
                         } else {
-                          int i = 0;
-                          final int MAX_TRIES = 1000;
-                          while (!(this.app_ != null) && i < MAX_TRIES) {
-                            this.mutex_.unlock();
-                            ThreadUtils.sleep(Duration.ofMillis(5));
-                            this.mutex_.lock();
-                            ++i;
+                          long remaining = TimeUnit.SECONDS.toNanos(5);
+                          while (!(this.app_ != null) && remaining > 0) {
+                            remaining = this.appStarted_.awaitNanos(remaining);
                           }
-                          if (i < MAX_TRIES) {
+                          if (this.app_ != null) {
                             this.renderer_.serveLinkedCss(handler.getResponse());
                           }
                           handler.flushResponse();
@@ -1710,14 +1737,97 @@ class WebSession {
   public void queueEvent(final ApplicationEvent event) {
     this.eventQueueMutex_.lock();
     this.eventQueue_.addLast(event);
-    logger.debug(
-        new StringWriter()
-            .append("queueEvent(): ")
-            .append(String.valueOf(this.eventQueue_.size()))
-            .toString());
+    if (logger.isDebugEnabled()) {
+      logger.debug(
+          new StringWriter()
+              .append("queueEvent(): ")
+              .append(String.valueOf(this.eventQueue_.size()))
+              .toString());
+    }
     this.eventQueueMutex_.unlock();
   }
 
+  static MetricsSink.RequestType getMetricsRequestType(final WebRequest request) {
+    if (request.isWebSocketMessage() || request.isWebSocketRequest()) {
+      return MetricsSink.RequestType.WebSocket;
+    }
+    String requestE = request.getParameter("request");
+    if (requestE == null) {
+      return MetricsSink.RequestType.Page;
+    } else {
+      if (requestE.equals("jsupdate") || requestE.equals("jserror")) {
+        return MetricsSink.RequestType.JsUpdate;
+      } else {
+        if (requestE.equals("resource")) {
+          return MetricsSink.RequestType.Resource;
+        } else {
+          return MetricsSink.RequestType.Page;
+        }
+      }
+    }
+  }
+
+  boolean enterRequestQueue() {
+    int max = this.controller_.getConfiguration().getMaxQueuedRequests();
+    for (; ; ) {
+      int queued = this.queuedRequests_.get();
+      if (max > 0 && queued >= max) {
+        return false;
+      }
+      if (this.queuedRequests_.compareAndSet(queued, queued + 1)) {
+        return true;
+      }
+    }
+  }
+
+  void leaveRequestQueue() {
+    this.queuedRequests_.decrementAndGet();
+  }
+
+  int getQueuedRequestCount() {
+    return this.queuedRequests_.get();
+  }
+
+  int getPendingEventCount() {
+    this.eventQueueMutex_.lock();
+    try {
+      return this.eventQueue_.size();
+    } finally {
+      this.eventQueueMutex_.unlock();
+    }
+  }
+
+  void pushAcknowledged() {
+    this.pushScheduler_.acknowledged(
+        this.controller_.getConfiguration().getServerPushInterval());
+  }
+
+  SessionMemoryStats getMemoryStats() {
+    return this.memoryStats_;
+  }
+
+  void updateMemoryStats() {
+    final Configuration conf = this.controller_.getConfiguration();
+    int interval = conf.getSessionMemoryAccountingInterval();
+    if (interval < 0 || this.app_ == null || this.isDead()) {
+      return;
+    }
+    long now = System.currentTimeMillis();
+    if (this.memoryStats_ != null && now - this.memoryStats_.getTimestamp() < interval * 1000L) {
+      return;
+    }
+    this.memoryStats_ = SessionMemoryStats.compute(this);
+    long budget = conf.getSessionMemoryBudget();
+    if (budget > 0 && this.memoryStats_.getEstimatedSize() > budget && !this.app_.hasQuit()) {
+      logger.warn(
+          new StringWriter()
+              .append("session memory budget exceeded: ")
+              .append(this.memoryStats_.toString())
+              .toString());
+      this.controller_.sessionMemoryBudgetExceeded(this.app_, this.memoryStats_);
+    }
+  }
+
   public void handleWebSocketMessage(final WebSession.Handler handler) throws IOException {
     WebRequest message = handler.getRequest();
     boolean closing = message.getContentLength() == 0;
@@ -1735,7 +1845,9 @@ class WebSession {
       }
       String signalE = message.getParameter("signal");
       if (signalE != null && signalE.equals("ping")) {
-        logger.debug(new StringWriter().append("ws: handle ping").toString());
+        if (logger.isDebugEnabled()) {
+          logger.debug(new StringWriter().append("ws: handle ping").toString());
+        }
         if (this.canWriteWebSocket_) {
           this.webSocket_.out().append("{}");
           this.webSocket_.flushBuffer();
@@ -1847,13 +1959,28 @@ class WebSession {
   private boolean debug_;
   private List<WebSession.Handler> handlers_;
   private WebSession.Handler recursiveEventHandler_;
+  private volatile SessionMemoryStats memoryStats_;
+  private java.util.concurrent.locks.Condition appStarted_;
+  private AtomicInteger queuedRequests_;
+  private PushScheduler pushScheduler_;
 
   void pushUpdates() {
     try {
-      logger.debug(new StringWriter().append("pushUpdates()").toString());
+      if (logger.isDebugEnabled()) {
+        logger.debug(new StringWriter().append("pushUpdates()").toString());
+      }
       this.triggerUpdate_ = false;
       if (!(this.app_ != null) || !this.renderer_.isDirty()) {
-        logger.debug(new StringWriter().append("pushUpdates(): nothing to do").toString());
+        if (logger.isDebugEnabled()) {
+          logger.debug(new StringWriter().append("pushUpdates(): nothing to do").toString());
+        }
+        return;
+      }
+      int pushInterval = this.controller_.getConfiguration().getServerPushInterval();
+      if (pushInterval > 0 && !this.pushScheduler_.isFlushDue(pushInterval)) {
+        if (logger.isDebugEnabled()) {
+          logger.debug(new StringWriter().append("pushUpdates(): deferred").toString());
+        }
         return;
       }
       this.updatesPending_ = true;
@@ -1866,8 +1993,13 @@ class WebSession {
       } else {
         if (this.webSocket_ != null && this.webSocketConnected_) {
           if (this.webSocket_.isWebSocketMessagePending()) {
-            logger.debug(
-                new StringWriter().append("pushUpdates(): web socket message pending").toString());
+            if (logger.isDebugEnabled()) {
+              logger.debug(
+                  new StringWriter().append("pushUpdates(): web socket message pending").toString());
+            }
+            if (pushInterval > 0) {
+              this.pushScheduler_.flushed(false);
+            }
             return;
           }
           if (this.canWriteWebSocket_) {
@@ -1878,8 +2010,13 @@ class WebSession {
           }
         }
       }
+      if (pushInterval > 0) {
+        this.pushScheduler_.flushed(!this.updatesPending_);
+      }
       if (this.updatesPending_) {
-        logger.debug(new StringWriter().append("pushUpdates(): cannot write now").toString());
+        if (logger.isDebugEnabled()) {
+          logger.debug(new StringWriter().append("pushUpdates(): cannot write now").toString());
+        }
         this.updatesPendingEvent_.signal();
       }
     } catch (IOException ioe) {
@@ -1921,7 +2058,9 @@ class WebSession {
   }
 
   private void render(final WebSession.Handler handler) throws IOException {
-    logger.debug(new StringWriter().append("render()").toString());
+    if (logger.isDebugEnabled()) {
+      logger.debug(new StringWriter().append("render()").toString());
+    }
     try {
       if (!this.env_.hasAjax()) {
         try {
@@ -1965,12 +2104,9 @@ class WebSession {
       }
     }
     if (!handler.getRequest().isWebSocketMessage()) {
-      if (handler.getResponse().getResponseType() == WebRequest.ResponseType.Script) {
+      if (handler.getResponse().getResponseType() == WebRequest.ResponseType.Script
+          && this.mutex_.hasQueuedThreads()) {
         this.mutex_.unlock();
-        try {
-          ThreadUtils.sleep(Duration.ofMillis(1));
-        } catch (final InterruptedException e) {
-        }
         this.mutex_.lock();
       }
       this.renderer_.serveResponse(handler.getResponse());
@@ -2052,6 +2188,21 @@ class WebSession {
   }
 
   private void notifySignal(final WEvent e) throws IOException {
+    MetricsSink metrics = this.controller_.getConfiguration().getMetricsSink();
+    if (metrics == null || e.impl_.handler.getRequest() == null) {
+      this.doNotifySignal(e);
+      return;
+    }
+    MetricsSink.RequestType type = getMetricsRequestType(e.impl_.handler.getRequest());
+    long start = System.nanoTime();
+    try {
+      this.doNotifySignal(e);
+    } finally {
+      metrics.recordLatency(type, MetricsSink.Stage.NotifySignal, System.nanoTime() - start);
+    }
+  }
+
+  private void doNotifySignal(final WEvent e) throws IOException {
     final WebSession.Handler handler = e.impl_.handler;
     if (handler.nextSignal == -1) {
       Utils.copyList(this.getSignalProcessingOrder(e), handler.signalOrder);
@@ -2068,7 +2219,9 @@ class WebSession {
       if (!(signalE != null)) {
         return;
       }
-      logger.debug(new StringWriter().append("signal: ").append(signalE).toString());
+      if (logger.isDebugEnabled()) {
+        logger.debug(new StringWriter().append("signal: ").append(signalE).toString());
+      }
       if (this.getType() != EntryPointType.WidgetSet
           || !signalE.equals("none") && !signalE.equals("load")) {
         this.renderer_.setRendered(true);
@@ -2243,6 +2396,7 @@ class WebSession {
     try {
       this.app_ = this.controller_.doCreateApplication(this);
       if (this.app_ != null) {
+        this.appStarted_.signalAll();
         if (!this.app_.internalPathValid_) {
           if (response.getResponseType() == WebRequest.ResponseType.Page) {
             response.setStatus(404);
@@ -2311,11 +2465,13 @@ class WebSession {
   private ApplicationEvent getPopQueuedEvent() {
     this.eventQueueMutex_.lock();
     ApplicationEvent result = null;
-    logger.debug(
-        new StringWriter()
-            .append("popQueuedEvent(): ")
-            .append(String.valueOf(this.eventQueue_.size()))
-            .toString());
+    if (logger.isDebugEnabled()) {
+      logger.debug(
+          new StringWriter()
+              .append("popQueuedEvent(): ")
+              .append(String.valueOf(this.eventQueue_.size()))
+              .toString());
+    }
     if (!this.eventQueue_.isEmpty()) {
       result = this.eventQueue_.getFirst();
       this.eventQueue_.removeFirst();
@@ -88,6 +88,9 @@ public class WebSocketSupport {
 			logger.info("WebSocket message discarded: could not retrieve web session");
 			return;
 		}
+		MetricsSink metrics = webSession.getController().getConfiguration().getMetricsSink();
+		long start = metrics != null ? System.nanoTime() : 0;
+
 		WebSocketMessage message = new WebSocketMessage(contents, connection);
 		Handler handler = new Handler(webSession, message, connection);
 		try {
@@ -96,6 +99,9 @@ public class WebSocketSupport {
 			connection.flushBuffer();
 			handler.release();
 		}
+
+		if (metrics != null)
+			metrics.recordLatency(MetricsSink.RequestType.WebSocket, MetricsSink.Stage.HandleRequest, System.nanoTime() - start);
 	}
 	
     /**
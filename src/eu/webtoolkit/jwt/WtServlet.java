@@ -84,6 +84,7 @@ public abstract class WtServlet extends HttpServlet {
 	private Configuration configuration;
 	private ProgressListener progressListener;
 	private Set<String> uploadProgressUrls_ = new HashSet<String>();
+	private Map<String, UploadProgress> uploadProgress_ = new HashMap<String, UploadProgress>();
 	private int ajaxSessions = 0;
 	private Map<String,WebSession> sessions = new HashMap<String,WebSession>();
 
@@ -223,7 +224,7 @@ public abstract class WtServlet extends HttpServlet {
 		}
 
 		if (pathInfo != null && (pathInfo.startsWith(resourcePath) || pathInfo.equals(configuration.getFavicon()))) {
-			logger.debug("serving static file: " + pathInfo);
+			logger.debug("serving static file: {}", pathInfo);
 
 			String fileName = "wt-resources/";
 
@@ -370,14 +371,34 @@ public abstract class WtServlet extends HttpServlet {
 				jsession.setAttribute(WtServlet.WT_WEBSESSION_ID, new BoundSession(wsession));
 			}
 	
-			logger.debug("Handling: (" + jsession.getId() + "): " + request.getRequestURI() + " " + request.getMethod() + " " + request.getScriptName() + " " + request.getPathInfo() + " " + request.getQueryString());
+			if (logger.isDebugEnabled())
+				logger.debug("Handling: (" + jsession.getId() + "): " + request.getRequestURI() + " " + request.getMethod() + " " + request.getScriptName() + " " + request.getPathInfo() + " " + request.getQueryString());
 			
+			if (!wsession.enterRequestQueue()) {
+				logger.warn("Refusing request for session {}: {} requests queued", jsession.getId(), wsession.getQueuedRequestCount());
+				response.setStatus(503);
+				response.addHeader("Retry-After", "1");
+				response.flush();
+				return;
+			}
+
+			MetricsSink metrics = getConfiguration().getMetricsSink();
+			long start = metrics != null ? System.nanoTime() : 0;
+
 			WebSession.Handler handler = null;
 			try {
 				handler = new WebSession.Handler(wsession, request, response);
 				wsession.handleRequest(handler);
 			} finally {
-				handler.release();
+				if (handler != null)
+					handler.release();
+				wsession.leaveRequestQueue();
+			}
+
+			if (metrics != null) {
+				MetricsSink.RequestType type = WebSession.getMetricsRequestType(request);
+				metrics.recordLatency(type, MetricsSink.Stage.HandleRequest, System.nanoTime() - start);
+				metrics.recordResponseSize(type, response.getBytesWritten());
 			}
 
 			if (handler != null && handler.getSession().isDead()) {
@@ -405,6 +426,14 @@ public abstract class WtServlet extends HttpServlet {
 		}
 	}
 	
+	/*
+	 * The latest progress of an upload, for which an event is queued in the session.
+	 */
+	private static class UploadProgress {
+		long current;
+		long total;
+	}
+
 	boolean requestDataReceived(WebRequest request, long current, long total) {
 		boolean found = false;
 
@@ -426,31 +455,63 @@ public abstract class WtServlet extends HttpServlet {
 				wsession = bsession.getSession();
 
 			if (wsession != null) {
-				WebSession.Handler handler = null;
-				
-				try {
-					handler = new WebSession.Handler(wsession, null, null);
+				final String requestE = request.getParameter("request");
+				final String pathInfo = request.getPathInfo();
+				final String resourceE = request.getParameter("resource");
+
+				/*
+				 * Do not block the upload on the session lock: the progress is delivered
+				 * by whichever thread holds (or next acquires) the session. At most one
+				 * event is queued per upload: later progress updates the pending event.
+				 */
+				final String key = wsession.getSessionId() + "?" + request.getQueryString();
+				synchronized (uploadProgress_) {
+					UploadProgress progress = uploadProgress_.get(key);
+					boolean pending = progress != null;
+					if (!pending) {
+						progress = new UploadProgress();
+						uploadProgress_.put(key, progress);
+					}
+					progress.current = current;
+					progress.total = total;
+					if (pending)
+						return true;
+				}
+
+				wsession.queueEvent(new ApplicationEvent(wsession.getSessionId(), new Runnable() {
+					@Override
+					public void run() {
+						UploadProgress progress;
+						synchronized (uploadProgress_) {
+							progress = uploadProgress_.remove(key);
+						}
 
-					if (!wsession.isDead() && wsession.getApp() != null) {
-						String requestE = request.getParameter("request");
+						WApplication app = WApplication.getInstance();
+						if (app == null || progress == null)
+							return;
 
 						WResource resource = null;
-						if (requestE == null && request.getPathInfo().length() != 0)
-							resource = wsession.getApp().
-								decodeExposedResource("/path/" + request.getPathInfo());
-
-						if (resource == null) {
-							String resourceE = request.getParameter("resource");
-							resource = wsession.getApp().
-								decodeExposedResource(resourceE);
-						}
+						if (requestE == null && pathInfo.length() != 0)
+							resource = app.decodeExposedResource("/path/" + pathInfo);
+
+						if (resource == null && resourceE != null)
+							resource = app.decodeExposedResource(resourceE);
 
-						if (resource != null) {
-							// FIXME, we should do this within app.notify()
-							resource.dataReceived().trigger(current, total);
+						if (resource != null)
+							resource.dataReceived().trigger(progress.current, progress.total);
+					}
+				}, new Runnable() {
+					@Override
+					public void run() {
+						synchronized (uploadProgress_) {
+							uploadProgress_.remove(key);
 						}
 					}
-					
+				}));
+
+				WebSession.Handler handler = null;
+				try {
+					handler = new WebSession.Handler(wsession, WebSession.Handler.LockOption.TryLock);
 				} finally {
 					handler.release();
 				}
@@ -521,6 +582,44 @@ public abstract class WtServlet extends HttpServlet {
 		}
 	}
 
+	/**
+	 * Returns the most recent memory statistics of all sessions.
+	 * <p>
+	 * Only sessions for which statistics have already been computed are included. This
+	 * requires session memory accounting to be enabled using
+	 * {@link Configuration#setSessionMemoryAccountingInterval(int)}.
+	 *
+	 * @return a map of session id to the memory statistics of that session.
+	 */
+	public synchronized Map<String, SessionMemoryStats> getSessionMemoryStats() {
+		Map<String, SessionMemoryStats> result = new HashMap<String, SessionMemoryStats>();
+		for (WebSession session : sessions.values()) {
+			SessionMemoryStats stats = session.getMemoryStats();
+			if (stats != null)
+				result.put(session.getSessionId(), stats);
+		}
+		return result;
+	}
+
+	/**
+	 * Handles a session that exceeds its memory budget.
+	 * <p>
+	 * This method is called from within the session (holding the session lock) when the
+	 * estimated memory usage of the session exceeds the configured budget. You may want to
+	 * specialize this method to degrade the application instead, for example by clearing
+	 * large models.
+	 * <p>
+	 * The default implementation quits the application.
+	 *
+	 * @param app the application that exceeds its budget
+	 * @param stats the memory statistics of the session
+	 *
+	 * @see Configuration#setSessionMemoryBudget(long)
+	 */
+	protected void sessionMemoryBudgetExceeded(WApplication app, SessionMemoryStats stats) {
+		app.quit();
+	}
+
     boolean limitPlainHtmlSessions() {
     	return false; // FIXME
 	}
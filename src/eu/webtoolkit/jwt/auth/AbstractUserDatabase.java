@@ -366,6 +366,10 @@ public abstract class AbstractUserDatabase {
    *
    * <p>Deletes an authentication token previously added with {@link
    * AbstractUserDatabase#addAuthToken(User user, Token token) addAuthToken()}
+   *
+   * <p>When tokens are cached (see {@link AuthService#setAuthTokenCacheTimeout(int seconds)}), you
+   * should remove a token using {@link User#removeAuthToken(String token)}, which also removes it
+   * from the cache.
    */
   public void removeAuthToken(final User user, final String hash) {
     logger.error(
@@ -388,6 +392,18 @@ public abstract class AbstractUserDatabase {
             .toString());
     return new User();
   }
+  /**
+   * Returns the expiration time of an authentication token.
+   *
+   * <p>This is used to limit the time during which a token is cached when tokens are not updated
+   * (see {@link AuthService#setAuthTokenCacheTimeout(int seconds)}).
+   *
+   * <p>The default implementation returns <code>null</code> (unknown), in which case such tokens are
+   * not cached.
+   */
+  public WDate getAuthTokenExpirationTime(final User user, final String hash) {
+    return null;
+  }
   /**
    * Updates the authentication token with a new hash.
    *
@@ -252,13 +252,15 @@ public class AuthModel extends FormBaseModel {
   /**
    * Logs the user out.
    *
-   * <p>This also removes the remember-me cookie for the user.
+   * <p>This also removes the remember-me cookie for the user, and the user&apos;s cached
+   * authentication tokens.
    */
   public void logout(final Login login) {
     if (login.isLoggedIn()) {
       if (this.getBaseAuth().isAuthTokensEnabled()) {
         WApplication app = WApplication.getInstance();
         app.removeCookie(this.getBaseAuth().getAuthTokenCookieName());
+        this.getBaseAuth().removeCachedAuthTokens(login.getUser());
       }
       login.logout();
     }
@@ -76,6 +76,9 @@ public class AuthService {
     this.authTokenValidity_ = 14 * 24 * 60;
     this.authTokenCookieName_ = "";
     this.authTokenCookieDomain_ = "";
+    this.authTokenCacheTimeout_ = 0;
+    this.authTokenCacheSize_ = 10000;
+    this.authTokenCache_ = null;
     this.redirectInternalPath_ = "/auth/mail/";
   }
   /**
@@ -342,8 +345,38 @@ public class AuthService {
    * @see AbstractUserDatabase#updateAuthToken(User user, String hash, String newHash)
    */
   public AuthTokenResult processAuthToken(final String token, final AbstractUserDatabase users) {
-    try (AbstractUserDatabase.Transaction t = users.startTransaction(); ) {
-      String hash = this.getTokenHashFunction().compute(token, "");
+    String hash = this.getTokenHashFunction().compute(token, "");
+    AuthTokenCache cache = this.authTokenCacheTimeout_ > 0 ? this.getAuthTokenCache() : null;
+    if (cache != null) {
+      String userId = cache.get(hash);
+      if (userId != null) {
+        User user = new User(userId, users);
+        if (!this.authTokenUpdateEnabled_) {
+          return new AuthTokenResult(AuthTokenState.Valid, user);
+        }
+        String newToken = MathUtils.randomId(this.tokenLength_);
+        String newHash = this.getTokenHashFunction().compute(newToken, "");
+        int validity;
+        AbstractUserDatabase.Transaction t = users.startTransaction();
+        try {
+          validity = user.updateAuthToken(hash, newHash);
+          if (t != null) {
+            t.commit();
+          }
+        } catch (RuntimeException e) {
+          if (t != null) {
+            t.rollback();
+          }
+          throw e;
+        }
+        if (validity > 0) {
+          cache.put(newHash, userId, Math.min(validity, this.authTokenCacheTimeout_));
+          return new AuthTokenResult(AuthTokenState.Valid, user, newToken, validity);
+        }
+      }
+    }
+    AbstractUserDatabase.Transaction t = users.startTransaction();
+    try {
       User user = users.findWithAuthToken(hash);
       if (user.isValid()) {
         if (this.authTokenUpdateEnabled_) {
@@ -354,12 +387,24 @@ public class AuthService {
             user.removeAuthToken(hash);
             newToken = this.createAuthToken(user);
             validity = this.authTokenValidity_ * 60;
+          } else {
+            if (cache != null) {
+              cache.put(newHash, user.getId(), Math.min(validity, this.authTokenCacheTimeout_));
+            }
           }
           if (t != null) {
             t.commit();
           }
           return new AuthTokenResult(AuthTokenState.Valid, user, newToken, validity);
         } else {
+          WDate expires = cache != null ? users.getAuthTokenExpirationTime(user, hash) : null;
+          if (t != null) {
+            t.commit();
+          }
+          if (expires != null) {
+            int validity = WDate.getCurrentServerDate().getSecondsTo(expires);
+            cache.put(hash, user.getId(), Math.min(validity, this.authTokenCacheTimeout_));
+          }
           return new AuthTokenResult(AuthTokenState.Valid, user);
         }
       } else {
@@ -369,9 +414,83 @@ public class AuthService {
         return new AuthTokenResult(AuthTokenState.Invalid);
       }
     } catch (RuntimeException e) {
+      if (t != null) {
+        t.rollback();
+      }
       throw e;
-    } catch (Exception e) {
-      throw new RuntimeException(e);
+    }
+  }
+  /**
+   * Configures caching of validated authentication tokens.
+   *
+   * <p>When enabled, {@link AuthService#processAuthToken(String token, AbstractUserDatabase users)
+   * processAuthToken()} remembers which user a token belongs to for the given number of seconds, so
+   * that a returning user is identified without looking up the token in the database. A token that
+   * is removed or updated using {@link User#removeAuthToken(String token)} or {@link
+   * User#updateAuthToken(String hash, String newHash)} is removed from the cache, and a user&apos;s
+   * tokens are removed from the cache when the user logs out with {@link AuthModel#logout(Login
+   * login)}. Tokens that are removed from the database by other means may still be accepted until
+   * the cache entry expires.
+   *
+   * <p>A token is never cached beyond its expiration time. When authentication token update is
+   * disabled, this requires {@link AbstractUserDatabase#getAuthTokenExpirationTime(User user, String
+   * hash) AbstractUserDatabase#getAuthTokenExpirationTime()}: tokens of a database that does not
+   * implement it are not cached.
+   *
+   * <p>The cache is kept by the service and is shared by all user database instances (such as a
+   * database per session). It holds at most {@link AuthService#getAuthTokenCacheSize()} tokens.
+   * Expired entries are removed in the background.
+   *
+   * <p>The default value is 0 (tokens are not cached).
+   */
+  public void setAuthTokenCacheTimeout(int seconds) {
+    this.authTokenCacheTimeout_ = seconds;
+  }
+  /**
+   * Returns the authentication token cache timeout.
+   *
+   * <p>
+   *
+   * @see AuthService#setAuthTokenCacheTimeout(int seconds)
+   */
+  public int getAuthTokenCacheTimeout() {
+    return this.authTokenCacheTimeout_;
+  }
+  /**
+   * Configures the maximum number of cached authentication tokens.
+   *
+   * <p>This takes effect when the cache is created, which is when the first token is processed.
+   *
+   * <p>The default value is 10000.
+   *
+   * <p>
+   *
+   * @see AuthService#setAuthTokenCacheTimeout(int seconds)
+   */
+  public void setAuthTokenCacheSize(int size) {
+    this.authTokenCacheSize_ = size;
+  }
+  /**
+   * Returns the maximum number of cached authentication tokens.
+   *
+   * <p>
+   *
+   * @see AuthService#setAuthTokenCacheSize(int size)
+   */
+  public int getAuthTokenCacheSize() {
+    return this.authTokenCacheSize_;
+  }
+  /**
+   * Removes the cached authentication tokens of a user.
+   *
+   * <p>
+   *
+   * @see AuthService#setAuthTokenCacheTimeout(int seconds)
+   */
+  public void removeCachedAuthTokens(final User user) {
+    AuthTokenCache cache = this.authTokenCache_;
+    if (cache != null && user.isValid()) {
+      cache.removeUser(user.getId());
     }
   }
   /**
@@ -739,4 +858,20 @@ public class AuthService {
   private int authTokenValidity_;
   private String authTokenCookieName_;
   private String authTokenCookieDomain_;
+  private int authTokenCacheTimeout_;
+  private int authTokenCacheSize_;
+  private volatile AuthTokenCache authTokenCache_;
+
+  AuthTokenCache getAuthTokenCache() {
+    AuthTokenCache result = this.authTokenCache_;
+    if (result == null) {
+      synchronized (this) {
+        result = this.authTokenCache_;
+        if (result == null) {
+          result = this.authTokenCache_ = new AuthTokenCache(this.authTokenCacheSize_);
+        }
+      }
+    }
+    return result;
+  }
 }
@@ -0,0 +1,187 @@
+/*
+ * Copyright (C) 2020 Emweb bv, Herent, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt.auth;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A cache of validated authentication token hashes.
+ * <p>
+ * This maps the hash of an authentication token that was found in the user
+ * database to the id of its user, for a limited time. It is kept by an
+ * {@link AuthService}, and shared by all user database instances. Entries are
+ * removed from every cache when the token is removed or updated through
+ * {@link User}. Expired entries are removed periodically by a background
+ * thread.
+ *
+ * @see AuthService#setAuthTokenCacheTimeout(int)
+ */
+final class AuthTokenCache {
+	private static final int CLEANUP_INTERVAL_SECONDS = 60;
+
+	private static ScheduledExecutorService timer;
+	private static final Set<AuthTokenCache> caches = Collections.newSetFromMap(new WeakHashMap<AuthTokenCache, Boolean>());
+
+	private static class Entry {
+		final String userId;
+		final long expires;
+
+		Entry(String userId, long expires) {
+			this.userId = userId;
+			this.expires = expires;
+		}
+	}
+
+	private final Map<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+	private final int maxSize;
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	AuthTokenCache(int maxSize) {
+		this.maxSize = maxSize;
+		scheduleCleanup(this);
+		synchronized (caches) {
+			caches.add(this);
+		}
+	}
+
+	/**
+	 * Removes a token hash from all caches.
+	 */
+	static void removeFromAll(String hash) {
+		for (AuthTokenCache cache : getCaches())
+			cache.remove(hash);
+	}
+
+	private static List<AuthTokenCache> getCaches() {
+		synchronized (caches) {
+			return new ArrayList<AuthTokenCache>(caches);
+		}
+	}
+
+	/**
+	 * Returns the id of the user with the given token hash, or null if not cached.
+	 */
+	String get(String hash) {
+		Entry e = entries.get(hash);
+		if (e != null && e.expires <= System.currentTimeMillis()) {
+			entries.remove(hash, e);
+			e = null;
+		}
+
+		if (e == null) {
+			misses.incrementAndGet();
+			return null;
+		} else {
+			hits.incrementAndGet();
+			return e.userId;
+		}
+	}
+
+	/**
+	 * Caches a validated token hash for the given number of seconds.
+	 */
+	void put(String hash, String userId, int seconds) {
+		if (seconds <= 0)
+			return;
+
+		if (entries.size() >= maxSize)
+			shrink();
+
+		entries.put(hash, new Entry(userId, System.currentTimeMillis() + seconds * 1000L));
+	}
+
+	/**
+	 * Returns the time (in milliseconds since the epoch) at which a cached token hash
+	 * expires, or 0 if not cached.
+	 */
+	long getExpires(String hash) {
+		Entry e = entries.get(hash);
+		return e != null ? e.expires : 0;
+	}
+
+	void remove(String hash) {
+		entries.remove(hash);
+	}
+
+	void removeUser(String userId) {
+		entries.values().removeIf(e -> e.userId.equals(userId));
+	}
+
+	int removeExpired() {
+		long now = System.currentTimeMillis();
+		int result = 0;
+		for (Iterator<Entry> i = entries.values().iterator(); i.hasNext();)
+			if (i.next().expires <= now) {
+				i.remove();
+				++result;
+			}
+
+		return result;
+	}
+
+	int size() {
+		return entries.size();
+	}
+
+	long getHits() {
+		return hits.get();
+	}
+
+	long getMisses() {
+		return misses.get();
+	}
+
+	private void shrink() {
+		removeExpired();
+
+		int target = maxSize - Math.max(1, maxSize / 10);
+		for (Iterator<Entry> i = entries.values().iterator(); i.hasNext() && entries.size() > target;) {
+			i.next();
+			i.remove();
+		}
+	}
+
+	private static void scheduleCleanup(AuthTokenCache cache) {
+		final WeakReference<AuthTokenCache> ref = new WeakReference<AuthTokenCache>(cache);
+		final ScheduledFuture<?>[] future = new ScheduledFuture<?>[1];
+		synchronized (future) {
+			future[0] = getTimer().scheduleWithFixedDelay(() -> {
+				AuthTokenCache c = ref.get();
+				if (c != null)
+					c.removeExpired();
+				else
+					synchronized (future) {
+						future[0].cancel(false);
+					}
+			}, CLEANUP_INTERVAL_SECONDS, CLEANUP_INTERVAL_SECONDS, TimeUnit.SECONDS);
+		}
+	}
+
+	private static synchronized ScheduledExecutorService getTimer() {
+		if (timer == null)
+			timer = Executors.newSingleThreadScheduledExecutor(r -> {
+				Thread t = new Thread(r, "jwt-auth-token-cache");
+				t.setDaemon(true);
+				return t;
+			});
+
+		return timer;
+	}
+}
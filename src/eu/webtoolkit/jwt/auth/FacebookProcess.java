@@ -38,6 +38,7 @@ final class FacebookProcess extends OAuthProcess {
             (Exception event1, HttpMessage event2) -> {
               FacebookProcess.this.handleMe(event1, event2);
             });
+    WApplication.getInstance().enableUpdates(true);
     this.httpClient_.get(
         "https://graph.facebook.com/me?fields=name,id,email&access_token=" + token.getValue());
   }
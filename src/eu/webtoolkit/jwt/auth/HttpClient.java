@@ -1,106 +1,382 @@
 package eu.webtoolkit.jwt.auth;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.ArrayDeque;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
 
 import org.apache.http.Header;
-import org.apache.http.HttpResponse;
-import org.apache.http.client.ClientProtocolException;
-import org.apache.http.client.methods.HttpGet;
-import org.apache.http.client.methods.HttpPost;
-import org.apache.http.entity.StringEntity;
-import org.apache.http.params.HttpConnectionParams;
-import org.apache.http.params.HttpParams;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import eu.webtoolkit.jwt.Signal2;
-import eu.webtoolkit.jwt.WObject;
+import eu.webtoolkit.jwt.WApplication;
+import eu.webtoolkit.jwt.WtServlet;
 
+/*
+ * An asynchronous HTTP client.
+ *
+ * Requests are sent with a shared, non-blocking client that keeps connections
+ * alive and reuses them per host. The number of concurrent requests per host is
+ * limited (configuration property "auth-http-max-connections-per-host", default 8);
+ * further requests wait for a request to the same host to complete. The connect
+ * timeout is read from "auth-http-connect-timeout" (in seconds, default 10).
+ *
+ * done() is emitted within the session of the application that sent the request,
+ * using WtServlet#post(), so that the session is not locked while waiting for the
+ * response. Outside of an application, it is emitted on a client thread. A caller
+ * that needs the response before it can continue uses await(), which emits done()
+ * in the calling thread instead.
+ *
+ * The response body is read up to the maximum response size: a larger response
+ * is aborted and reported as an error.
+ */
 class HttpClient {
 	private static Logger logger = LoggerFactory.getLogger(HttpClient.class);
-	
-	private org.apache.http.impl.client.DefaultHttpClient httpClient = new org.apache.http.impl.client.DefaultHttpClient();
-	
+
+	private static final int DEFAULT_MAX_CONNECTIONS_PER_HOST = 8;
+	private static final int DEFAULT_CONNECT_TIMEOUT = 10;
+
+	private static java.net.http.HttpClient client;
+	private static int maxConnectionsPerHost = DEFAULT_MAX_CONNECTIONS_PER_HOST;
+	private static final Map<String, HostQueue> hosts = new ConcurrentHashMap<String, HostQueue>();
+
 	private Signal2<Exception, HttpMessage> done = new Signal2<Exception, HttpMessage>();
-	
+	private Duration timeout;
+	private int maximumResponseSize;
+	private Exchange last;
+
+	/*
+	 * Limits the number of concurrent requests to one host.
+	 */
+	static class HostQueue {
+		private final ArrayDeque<Runnable> waiting = new ArrayDeque<Runnable>();
+		private int active;
+
+		void submit(Runnable request) {
+			synchronized (this) {
+				if (active >= maxConnectionsPerHost) {
+					waiting.add(request);
+					return;
+				}
+				++active;
+			}
+			request.run();
+		}
+
+		void release() {
+			Runnable next;
+			synchronized (this) {
+				next = waiting.poll();
+				if (next == null)
+					--active;
+			}
+			if (next != null)
+				next.run();
+		}
+
+		synchronized int getActive() {
+			return active;
+		}
+
+		synchronized int getWaiting() {
+			return waiting.size();
+		}
+	}
+
+	/*
+	 * A request, and the emission of done() for its response, which happens
+	 * only once.
+	 */
+	static class Exchange {
+		private final CountDownLatch arrived = new CountDownLatch(1);
+		private Runnable completion;
+
+		void complete(Runnable completion) {
+			synchronized (this) {
+				this.completion = completion;
+			}
+			arrived.countDown();
+		}
+
+		void deliver() {
+			Runnable r;
+			synchronized (this) {
+				r = completion;
+				completion = null;
+			}
+			if (r != null)
+				r.run();
+		}
+	}
+
+	/*
+	 * Collects a response body as a string, and aborts the response once it
+	 * exceeds a maximum size.
+	 */
+	static class LimitedBodySubscriber implements HttpResponse.BodySubscriber<String> {
+		private final CompletableFuture<String> body = new CompletableFuture<String>();
+		private final ByteArrayOutputStream data = new ByteArrayOutputStream();
+		private final int maximumSize;
+		private final Charset charset;
+		private Flow.Subscription subscription;
+
+		LimitedBodySubscriber(int maximumSize, Charset charset) {
+			this.maximumSize = maximumSize;
+			this.charset = charset;
+		}
+
+		@Override
+		public CompletionStage<String> getBody() {
+			return body;
+		}
+
+		@Override
+		public void onSubscribe(Flow.Subscription subscription) {
+			this.subscription = subscription;
+			subscription.request(Long.MAX_VALUE);
+		}
+
+		@Override
+		public void onNext(List<ByteBuffer> buffers) {
+			if (body.isDone())
+				return;
+
+			for (ByteBuffer b : buffers) {
+				if (data.size() + b.remaining() > maximumSize) {
+					subscription.cancel();
+					body.completeExceptionally(new IOException("Response exceeds maximum size of " + maximumSize));
+					return;
+				}
+				byte[] bytes = new byte[b.remaining()];
+				b.get(bytes);
+				data.write(bytes, 0, bytes.length);
+			}
+		}
+
+		@Override
+		public void onError(Throwable error) {
+			body.completeExceptionally(error);
+		}
+
+		@Override
+		public void onComplete() {
+			body.complete(new String(data.toByteArray(), charset));
+		}
+	}
+
 	public HttpClient() {
-		
+		timeout = null;
+		maximumResponseSize = 0;
 	}
 
 	public void get(String url) {
-		HttpGet get = new HttpGet(url);
-		get(get);
+		get(url, null);
 	}
-	
+
 	public void get(String url, List<Header> headers) {
-		HttpGet get = new HttpGet(url);
-		Header[] headersArray = new Header[headers.size()];
-		headers.toArray(headersArray);
-		get.setHeaders(headersArray);
-		get(get);
-	}
-	
-	private void get(HttpGet get) {
+		HttpRequest.Builder request;
 		try {
-			HttpResponse response = httpClient.execute(get);
-			
-			done.trigger(null, new HttpMessage(response));
-		} catch (ClientProtocolException e) {
-			logger.info("Exception in get({})", get.getURI().toString(), e);
-			done.trigger(e, null);
-		} catch (IOException e) {
-			logger.info("Exception in get({})", get.getURI().toString(), e);
+			request = createRequest(url, headers);
+		} catch (IllegalArgumentException e) {
+			logger.info("Exception in get({})", url, e);
 			done.trigger(e, null);
+			return;
 		}
+
+		send(request.GET().build());
 	}
-	
+
 	public void post(String url, HttpMessage message) {
-		HttpPost post = new HttpPost(url);
+		HttpRequest.Builder request;
 		try {
-			for (Header h : message.getHeaders())
-				post.addHeader(h);
-			post.setEntity(new StringEntity(message.getBody()));
-
-			HttpResponse answer = httpClient.execute(post);
-			done.trigger(null, new HttpMessage(answer));
-		} catch (ClientProtocolException e) {
-			logger.info("Exception in post({})", url, e);
-			done.trigger(e, null);
-		} catch (IOException e) {
+			request = createRequest(url, message.getHeaders());
+		} catch (IllegalArgumentException e) {
 			logger.info("Exception in post({})", url, e);
 			done.trigger(e, null);
+			return;
 		}
+
+		send(request.POST(HttpRequest.BodyPublishers.ofString(message.getBody())).build());
 	}
 
 	public void setTimeout(Duration timeout) {
-		HttpParams params = httpClient.getParams();
-		HttpConnectionParams.setConnectionTimeout(params, (int)timeout.toMillis());
+		this.timeout = timeout;
 	}
 
-	public void setMaximumResponseSize(int i) {
-
+	public void setMaximumResponseSize(int size) {
+		this.maximumResponseSize = size;
 	}
-	
+
 	public Signal2<Exception, HttpMessage> done() {
 		return done;
 	}
 
+	/*
+	 * Waits until the response of the last request has arrived, and emits done()
+	 * in the calling thread, if it was not yet emitted.
+	 */
+	public void await() throws InterruptedException {
+		Exchange exchange;
+		synchronized (this) {
+			exchange = last;
+		}
+		if (exchange == null)
+			return;
+
+		exchange.arrived.await();
+		exchange.deliver();
+	}
+
 	public static boolean parseUrl(String urlString, URL parsedUrl) {
 		try {
 			java.net.URL url = new java.net.URL(urlString);
-			
+
 			parsedUrl.host = url.getHost();
 			parsedUrl.path = url.getPath();
 			parsedUrl.port = url.getPort();
 			parsedUrl.protocol = url.getProtocol();
-			
+
 			return true;
 		} catch (MalformedURLException e) {
 			logger.error("Illegally formed URL: " + urlString);
 			return false;
 		}
 	}
+
+	static HostQueue getHostQueue(URI uri) {
+		String key = uri.getScheme() + "://" + uri.getHost() + ":" + uri.getPort();
+		HostQueue result = hosts.get(key);
+		if (result == null) {
+			result = new HostQueue();
+			HostQueue existing = hosts.putIfAbsent(key, result);
+			if (existing != null)
+				result = existing;
+		}
+		return result;
+	}
+
+	private HttpRequest.Builder createRequest(String url, List<Header> headers) {
+		HttpRequest.Builder result = HttpRequest.newBuilder(URI.create(url));
+		if (timeout != null)
+			result.timeout(timeout);
+
+		if (headers != null)
+			for (Header h : headers) {
+				try {
+					result.header(h.getName(), h.getValue());
+				} catch (IllegalArgumentException e) {
+					// a header that is managed by the client, such as Host or Content-Length
+					logger.debug("Ignoring header {}", h.getName());
+				}
+			}
+
+		return result;
+	}
+
+	private void send(final HttpRequest request) {
+		final WApplication app = WApplication.getInstance();
+		final java.net.http.HttpClient c = getClient();
+		final HostQueue host = getHostQueue(request.uri());
+		final HttpResponse.BodyHandler<String> bodyHandler = createBodyHandler();
+		final Exchange exchange = new Exchange();
+		synchronized (this) {
+			last = exchange;
+		}
+		host.submit(() -> {
+			CompletableFuture<HttpResponse<String>> future;
+			try {
+				future = c.sendAsync(request, bodyHandler);
+			} catch (RuntimeException e) {
+				host.release();
+				complete(app, exchange, request, null, e);
+				return;
+			}
+			future.whenComplete((response, error) -> {
+				host.release();
+				complete(app, exchange, request, response, error);
+			});
+		});
+	}
+
+	private HttpResponse.BodyHandler<String> createBodyHandler() {
+		final int maximumSize = maximumResponseSize;
+		if (maximumSize <= 0)
+			return HttpResponse.BodyHandlers.ofString();
+		else
+			return info -> new LimitedBodySubscriber(maximumSize, getCharset(info.headers()));
+	}
+
+	private static Charset getCharset(HttpHeaders headers) {
+		String type = headers.firstValue("Content-Type").orElse("");
+		int i = type.toLowerCase().indexOf("charset=");
+		if (i != -1) {
+			String name = type.substring(i + 8).split(";")[0].trim().replace("\"", "");
+			try {
+				return Charset.forName(name);
+			} catch (IllegalArgumentException e) {
+				logger.debug("Unknown charset {}", name);
+			}
+		}
+		return StandardCharsets.UTF_8;
+	}
+
+	private void complete(WApplication app, Exchange exchange, HttpRequest request, HttpResponse<String> response, Throwable error) {
+		Exception err = null;
+		HttpMessage message = null;
+		if (error != null) {
+			if (error instanceof CompletionException && error.getCause() != null)
+				error = error.getCause();
+			err = error instanceof Exception ? (Exception) error : new IOException(error);
+			logger.info("Exception in {}({})", request.method().toLowerCase(), request.uri(), err);
+		} else
+			message = new HttpMessage(response);
+
+		final Exception e = err;
+		final HttpMessage m = message;
+		exchange.complete(() -> done.trigger(e, m));
+
+		WtServlet server = WtServlet.getInstance();
+		if (app != null && server != null)
+			server.post(app, exchange::deliver, null);
+		else
+			exchange.deliver();
+	}
+
+	private static synchronized java.net.http.HttpClient getClient() {
+		if (client == null) {
+			int connectTimeout = DEFAULT_CONNECT_TIMEOUT;
+			try {
+				maxConnectionsPerHost = Integer.parseInt(WApplication.readConfigurationProperty(
+						"auth-http-max-connections-per-host", String.valueOf(DEFAULT_MAX_CONNECTIONS_PER_HOST)));
+				connectTimeout = Integer.parseInt(WApplication.readConfigurationProperty(
+						"auth-http-connect-timeout", String.valueOf(DEFAULT_CONNECT_TIMEOUT)));
+			} catch (NumberFormatException e) {
+				logger.error("Invalid auth-http configuration property", e);
+			}
+
+			client = java.net.http.HttpClient.newBuilder()
+					.connectTimeout(Duration.ofSeconds(connectTimeout))
+					.followRedirects(java.net.http.HttpClient.Redirect.NORMAL)
+					.build();
+		}
+
+		return client;
+	}
 }
@@ -5,6 +5,7 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.http.Header;
 import org.apache.http.HttpResponse;
@@ -44,6 +45,18 @@ class HttpMessage {
 		}
 	}
 
+	HttpMessage(java.net.http.HttpResponse<String> response) {
+		headers_ = new ArrayList<Header>();
+		for (Map.Entry<String, List<String>> h : response.headers().map().entrySet())
+			for (String value : h.getValue())
+				headers_.add(new BasicHeader(h.getKey(), value));
+		status_ = response.statusCode();
+
+		// like HttpMessage(HttpResponse), which concatenates the lines of the body
+		for (String line : response.body().split("\r\n|\r|\n"))
+			addBodyText(line);
+	}
+
 	void setStatus(int status) {
 		status_ = status;
 	}
@@ -73,7 +86,7 @@ class HttpMessage {
 
 	String getHeader(String name) {
 		for (Header h : headers_) {
-			if (h.getName().equals(name))
+			if (h.getName().equalsIgnoreCase(name))
 				return h.getValue();
 		}
 		return null;
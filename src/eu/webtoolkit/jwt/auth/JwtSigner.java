@@ -0,0 +1,257 @@
+/*
+ * Copyright (C) 2020 Emweb bv, Herent, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt.auth;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.util.Base64;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/**
+ * Signs and verifies JSON Web Tokens.
+ * <p>
+ * A signer creates compact JWS tokens (<a
+ * href="https://tools.ietf.org/html/rfc7519">RFC 7519</a>) with one of the
+ * HS256 (HMAC with SHA-256), RS256 (RSA with SHA-256) or ES256 (ECDSA with
+ * P-256 and SHA-256) algorithms, and verifies tokens that were signed with the
+ * same key.
+ * <p>
+ * The key material and the encoded token header are prepared once. Every
+ * thread keeps its own {@link Mac} or {@link Signature} instance, so that
+ * signing and verification do not allocate a new one, and a signer can be
+ * shared by all sessions.
+ *
+ * @see OAuthTokenEndpoint#setTokenSigner(JwtSigner)
+ * @see OidcUserInfoEndpoint#setTokenSigner(JwtSigner)
+ */
+public class JwtSigner {
+	/**
+	 * Enumeration of the signature algorithms.
+	 */
+	public enum Algorithm {
+		/** HMAC with SHA-256. */
+		HS256("HmacSHA256"),
+		/** RSASSA-PKCS1-v1_5 with SHA-256. */
+		RS256("SHA256withRSA"),
+		/** ECDSA with P-256 and SHA-256. */
+		ES256("SHA256withECDSAinP1363Format");
+
+		private final String jcaName;
+
+		private Algorithm(String jcaName) {
+			this.jcaName = jcaName;
+		}
+	}
+
+	private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+	private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+	private final Algorithm algorithm;
+	private final SecretKeySpec secret;
+	private final PrivateKey privateKey;
+	private final PublicKey publicKey;
+	private final String header;
+	private final ThreadLocal<Mac> macs;
+	private final ThreadLocal<Signature> signers;
+	private final ThreadLocal<Signature> verifiers;
+
+	/**
+	 * Creates a HS256 signer with a shared secret.
+	 * <p>
+	 * The secret should be at least 32 random bytes.
+	 */
+	public static JwtSigner hs256(byte[] secret, String keyId) {
+		return new JwtSigner(Algorithm.HS256, secret, null, null, keyId);
+	}
+
+	/**
+	 * Creates a RS256 signer with an RSA key pair.
+	 * <p>
+	 * The private key may be <code>null</code> for a signer that only verifies
+	 * tokens.
+	 */
+	public static JwtSigner rs256(PrivateKey privateKey, PublicKey publicKey, String keyId) {
+		return new JwtSigner(Algorithm.RS256, null, privateKey, publicKey, keyId);
+	}
+
+	/**
+	 * Creates an ES256 signer with an EC key pair on the P-256 curve.
+	 * <p>
+	 * The private key may be <code>null</code> for a signer that only verifies
+	 * tokens.
+	 */
+	public static JwtSigner es256(PrivateKey privateKey, PublicKey publicKey, String keyId) {
+		return new JwtSigner(Algorithm.ES256, null, privateKey, publicKey, keyId);
+	}
+
+	private JwtSigner(Algorithm algorithm, byte[] secret, PrivateKey privateKey, PublicKey publicKey,
+			String keyId) {
+		this.algorithm = algorithm;
+		this.secret = secret != null ? new SecretKeySpec(secret, algorithm.jcaName) : null;
+		this.privateKey = privateKey;
+		this.publicKey = publicKey;
+
+		JsonObject h = new JsonObject();
+		h.addProperty("alg", algorithm.name());
+		h.addProperty("typ", "JWT");
+		if (keyId != null)
+			h.addProperty("kid", keyId);
+		this.header = encode(h.toString().getBytes(StandardCharsets.UTF_8));
+
+		if (algorithm == Algorithm.HS256) {
+			macs = ThreadLocal.withInitial(() -> {
+				try {
+					Mac mac = Mac.getInstance(algorithm.jcaName);
+					mac.init(this.secret);
+					return mac;
+				} catch (GeneralSecurityException e) {
+					throw new RuntimeException(e);
+				}
+			});
+			signers = verifiers = null;
+		} else {
+			macs = null;
+			signers = ThreadLocal.withInitial(() -> {
+				try {
+					Signature s = Signature.getInstance(algorithm.jcaName);
+					s.initSign(this.privateKey);
+					return s;
+				} catch (GeneralSecurityException e) {
+					throw new RuntimeException(e);
+				}
+			});
+			verifiers = ThreadLocal.withInitial(() -> {
+				try {
+					Signature s = Signature.getInstance(algorithm.jcaName);
+					s.initVerify(this.publicKey);
+					return s;
+				} catch (GeneralSecurityException e) {
+					throw new RuntimeException(e);
+				}
+			});
+		}
+	}
+
+	/**
+	 * Returns the signature algorithm.
+	 */
+	public Algorithm getAlgorithm() {
+		return algorithm;
+	}
+
+	/**
+	 * Signs a set of claims.
+	 * <p>
+	 * Returns the token in JWS compact serialization.
+	 */
+	public String sign(JsonObject claims) {
+		StringBuilder result = new StringBuilder(256);
+		result.append(header).append('.').append(encode(claims.toString().getBytes(StandardCharsets.UTF_8)));
+		byte[] input = result.toString().getBytes(StandardCharsets.US_ASCII);
+
+		byte[] signature;
+		try {
+			if (macs != null)
+				signature = macs.get().doFinal(input);
+			else {
+				if (privateKey == null)
+					throw new IllegalStateException("JwtSigner: no private key to sign with");
+				Signature s = signers.get();
+				s.update(input);
+				signature = s.sign();
+			}
+		} catch (GeneralSecurityException e) {
+			throw new RuntimeException(e);
+		}
+
+		return result.append('.').append(encode(signature)).toString();
+	}
+
+	/**
+	 * Verifies a token.
+	 * <p>
+	 * Returns the claims of the token if it was signed by this signer and has not
+	 * expired (according to its &quot;exp&quot; claim, in seconds), or
+	 * <code>null</code> otherwise.
+	 */
+	public JsonObject verify(String token) {
+		int dot1 = token.indexOf('.');
+		int dot2 = dot1 < 0 ? -1 : token.indexOf('.', dot1 + 1);
+		if (dot2 < 0 || token.indexOf('.', dot2 + 1) >= 0)
+			return null;
+
+		try {
+			if (!token.regionMatches(0, header, 0, dot1) || dot1 != header.length()) {
+				JsonObject h = parse(DECODER.decode(token.substring(0, dot1)));
+				JsonElement alg = h == null ? null : h.get("alg");
+				if (alg == null || !alg.isJsonPrimitive() || !algorithm.name().equals(alg.getAsString()))
+					return null;
+			}
+
+			byte[] input = token.substring(0, dot2).getBytes(StandardCharsets.US_ASCII);
+			byte[] signature = DECODER.decode(token.substring(dot2 + 1));
+			boolean valid;
+			if (macs != null)
+				valid = MessageDigest.isEqual(macs.get().doFinal(input), signature);
+			else {
+				Signature s = verifiers.get();
+				s.update(input);
+				valid = s.verify(signature);
+			}
+			if (!valid)
+				return null;
+
+			JsonObject claims = parse(DECODER.decode(token.substring(dot1 + 1, dot2)));
+			if (claims == null)
+				return null;
+
+			JsonElement exp = claims.get("exp");
+			if (exp != null && (!exp.isJsonPrimitive() || exp.getAsLong() <= System.currentTimeMillis() / 1000))
+				return null;
+
+			return claims;
+		} catch (IllegalArgumentException e) {
+			// malformed base64 or numbers
+			return null;
+		} catch (GeneralSecurityException e) {
+			// a verifier is left in a defined state after an exception only when re-initialized
+			if (verifiers != null)
+				verifiers.remove();
+			return null;
+		}
+	}
+
+	/**
+	 * Returns whether a token value has the form of a signed JSON Web Token.
+	 */
+	public static boolean isJwt(String token) {
+		int dot1 = token.indexOf('.');
+		return dot1 > 0 && token.indexOf('.', dot1 + 1) > dot1;
+	}
+
+	private static String encode(byte[] data) {
+		return ENCODER.encodeToString(data);
+	}
+
+	private static JsonObject parse(byte[] json) {
+		try {
+			JsonElement result = new JsonParser().parse(new String(json, StandardCharsets.UTF_8));
+			return result.isJsonObject() ? result.getAsJsonObject() : null;
+		} catch (RuntimeException e) {
+			return null;
+		}
+	}
+}
@@ -250,6 +250,8 @@ public class OAuthProcess extends WObject {
     this.redirectEndpoint_ = null;
     this.httpClient_ = null;
     this.doneCallbackConnection_ = new AbstractSignal.Connection();
+    this.tokenPending_ = false;
+    this.doneRequested_ = false;
     this.redirectEndpoint_ = new OAuthRedirectEndpoint(this);
     WApplication app = WApplication.getInstance();
     PopupWindow.loadJavaScript(app);
@@ -352,6 +354,8 @@ public class OAuthProcess extends WObject {
   private OAuthRedirectEndpoint redirectEndpoint_;
   private HttpClient httpClient_;
   AbstractSignal.Connection doneCallbackConnection_;
+  private boolean tokenPending_;
+  private boolean doneRequested_;
 
   void requestToken(final String authorizationCode) {
     try {
@@ -391,6 +395,7 @@ public class OAuthProcess extends WObject {
         }
         boolean hasQuery = url.indexOf('?') != -1;
         url += (hasQuery ? '&' : '?') + ss.toString();
+        this.startTokenRequest();
         this.httpClient_.get(url, headers);
       } else {
         HttpMessage post = new HttpMessage();
@@ -407,6 +412,7 @@ public class OAuthProcess extends WObject {
           }
         }
         post.addBodyText(ss.toString());
+        this.startTokenRequest();
         this.httpClient_.post(url, post);
       }
     } catch (Exception e) {
@@ -414,7 +420,23 @@ public class OAuthProcess extends WObject {
     }
   }
 
+  void waitForToken() {
+    if (this.tokenPending_ && this.httpClient_ != null) {
+      try {
+        this.httpClient_.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  private void startTokenRequest() {
+    this.tokenPending_ = true;
+    WApplication.getInstance().enableUpdates(true);
+  }
+
   private void handleToken(Exception err, final HttpMessage response) {
+    this.tokenPending_ = false;
     if (err == null) {
       this.doParseTokenResponse(response);
     } else {
@@ -424,9 +446,14 @@ public class OAuthProcess extends WObject {
     }
     WApplication app = WApplication.getInstance();
     if (app.getEnvironment().hasAjax()) {
+      if (this.doneRequested_) {
+        this.onOAuthDone();
+      }
     } else {
       this.onOAuthDone();
     }
+    app.triggerUpdate();
+    app.enableUpdates(false);
   }
 
   private OAuthAccessToken parseUrlEncodedToken(final HttpMessage response) {
@@ -522,6 +549,11 @@ public class OAuthProcess extends WObject {
   }
 
   void onOAuthDone() {
+    if (this.tokenPending_) {
+      this.doneRequested_ = true;
+      return;
+    }
+    this.doneRequested_ = false;
     boolean success = (this.error_.length() == 0);
     this.authorized().trigger(success ? this.token_ : OAuthAccessToken.Invalid);
     if (success && this.authenticate_) {
@@ -74,6 +74,9 @@ final class OAuthRedirectEndpoint extends WResource {
     final boolean usePopup =
         app.getEnvironment().hasAjax() && this.process_.service_.isPopupEnabled();
     if (!usePopup) {
+      if (!app.getEnvironment().hasAjax()) {
+        this.process_.waitForToken();
+      }
       this.process_.doneCallbackConnection_ =
           app.unsuspended()
               .addListener(
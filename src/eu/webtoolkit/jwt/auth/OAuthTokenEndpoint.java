@@ -37,6 +37,11 @@ import org.slf4j.LoggerFactory;
  * <p>When the scope includes &quot;openid&quot; an ID {@link Token} will be included as specified
  * by the OpenID Connect standard.
  *
+ * <p>By default, access tokens are random values that are stored in the database, and the ID token
+ * is not signed. When a {@link JwtSigner} is configured, both are issued as signed JSON Web Tokens,
+ * and access tokens are no longer stored (see {@link OAuthTokenEndpoint#setTokenSigner(JwtSigner
+ * signer) setTokenSigner()}).
+ *
  * <p>This class relies on a correct implementation of several function in the {@link
  * AbstractUserDatabase}. Namely {@link AbstractUserDatabase#idpClientFindWithId(String clientId)
  * AbstractUserDatabase#idpClientFindWithId()}, {@link
@@ -73,6 +78,7 @@ public class OAuthTokenEndpoint extends WResource {
     this.accessExpSecs_ = 3600;
     this.idExpSecs_ = 3600;
     this.iss_ = issuer;
+    this.tokenSigner_ = null;
   }
 
   public void handleRequest(final WebRequest request, final WebResponse response) {
@@ -199,19 +205,25 @@ public class OAuthTokenEndpoint extends WResource {
                 .toString());
         return;
       }
-      String accessTokenValue = MathUtils.randomId();
-      WDate expirationTime = WDate.getCurrentServerDate().addSeconds(this.accessExpSecs_);
       final User user = authCode.getUser();
       final OAuthClient authClient = authCode.getAuthClient();
       final String scope = authCode.getScope();
-      this.db_.idpTokenAdd(
-          accessTokenValue,
-          expirationTime,
-          "access_token",
-          scope,
-          authCode.getRedirectUri(),
-          user,
-          authClient);
+      String accessTokenValue;
+      if (this.tokenSigner_ != null) {
+        accessTokenValue =
+            this.tokenSigner_.sign(this.accessTokenClaims(authClient.getClientId(), scope, user));
+      } else {
+        accessTokenValue = MathUtils.randomId();
+        WDate expirationTime = WDate.getCurrentServerDate().addSeconds(this.accessExpSecs_);
+        this.db_.idpTokenAdd(
+            accessTokenValue,
+            expirationTime,
+            "access_token",
+            scope,
+            authCode.getRedirectUri(),
+            user,
+            authClient);
+      }
       this.db_.idpTokenRemove(authCode);
       response.setStatus(200);
       com.google.gson.JsonObject root = new com.google.gson.JsonObject();
@@ -219,15 +231,24 @@ public class OAuthTokenEndpoint extends WResource {
       root.add("token_type", (new com.google.gson.JsonPrimitive("Bearer")));
       root.add("expires_in", (new com.google.gson.JsonPrimitive(this.accessExpSecs_)));
       if (authCode.getScope().indexOf("openid") != -1) {
-        String header = "";
-        String signature = "";
-        String payload =
-            Utils.base64Encode(this.idTokenPayload(authClient.getClientId(), scope, user), false);
-        header = Utils.base64Encode("{\n\"typ\": \"JWT\",\n\"alg\": \"none\"\n}", false);
-        signature = Utils.base64Encode("", false);
-        root.add(
-            "id_token",
-            (new com.google.gson.JsonPrimitive(header + "." + payload + "." + signature)));
+        if (this.tokenSigner_ != null) {
+          root.add(
+              "id_token",
+              (new com.google.gson.JsonPrimitive(
+                  this.tokenSigner_.sign(
+                      this.idTokenClaims(authClient.getClientId(), scope, user, true)))));
+        } else {
+          String header = "";
+          String signature = "";
+          String payload =
+              Utils.base64Encode(
+                  this.idTokenPayload(authClient.getClientId(), scope, user), false);
+          header = Utils.base64Encode("{\n\"typ\": \"JWT\",\n\"alg\": \"none\"\n}", false);
+          signature = Utils.base64Encode("", false);
+          root.add(
+              "id_token",
+              (new com.google.gson.JsonPrimitive(header + "." + payload + "." + signature)));
+        }
       }
       response.out().append(root.toString());
       logger.info(
@@ -259,29 +280,90 @@ public class OAuthTokenEndpoint extends WResource {
   public void setIdExpSecs(int seconds) {
     this.idExpSecs_ = seconds;
   }
+  /**
+   * Sets a signer for issued tokens.
+   *
+   * <p>When a signer is set, access tokens and ID tokens are issued as JSON Web Tokens signed with
+   * it. An access token then carries the user, client, scope and expiration time, and is not stored
+   * in the database: an {@link OidcUserInfoEndpoint} that uses the same signer validates it without
+   * a database lookup. Use a {@link TokenRevocationList} to invalidate tokens before they expire.
+   *
+   * <p>The default value is <code>null</code>: access tokens are stored in the database and the ID
+   * token is not signed.
+   *
+   * <p>
+   *
+   * @see OidcUserInfoEndpoint#setTokenSigner(JwtSigner signer)
+   */
+  public void setTokenSigner(JwtSigner signer) {
+    this.tokenSigner_ = signer;
+  }
+  /**
+   * Returns the signer for issued tokens.
+   *
+   * <p>
+   *
+   * @see OAuthTokenEndpoint#setTokenSigner(JwtSigner signer)
+   */
+  public JwtSigner getTokenSigner() {
+    return this.tokenSigner_;
+  }
   /** Is only called when scope contains openid. Generates a JSON Web {@link Token}. */
   private String idTokenPayload(final String clientId, final String scope, final User user) {
+    return this.idTokenClaims(clientId, scope, user, false).toString();
+  }
+  /**
+   * Returns the claims of an ID token.
+   *
+   * <p>Signed tokens express times in seconds, as required by the JSON Web Token specification;
+   * unsigned tokens keep using milliseconds.
+   */
+  private com.google.gson.JsonObject idTokenClaims(
+      final String clientId, final String scope, final User user, boolean signed) {
     com.google.gson.JsonObject root = new com.google.gson.JsonObject();
     root.add("iss", (new com.google.gson.JsonPrimitive(this.iss_)));
     root.add("sub", (new com.google.gson.JsonPrimitive(user.getId())));
     root.add("aud", (new com.google.gson.JsonPrimitive(clientId)));
     WDate curTime = WDate.getCurrentServerDate();
+    long unit = signed ? 1000 : 1;
     root.add(
         "exp",
         (new com.google.gson.JsonPrimitive(
-            (long) curTime.addSeconds(this.idExpSecs_).getDate().getTime())));
-    root.add("iat", (new com.google.gson.JsonPrimitive((long) curTime.getDate().getTime())));
-    root.add(
-        "auth_time",
-        (new com.google.gson.JsonPrimitive(
-            String.valueOf(user.getLastLoginAttempt().getDate().getTime()))));
-    return root.toString();
+            (long) curTime.addSeconds(this.idExpSecs_).getDate().getTime() / unit)));
+    root.add("iat", (new com.google.gson.JsonPrimitive((long) curTime.getDate().getTime() / unit)));
+    long authTime = user.getLastLoginAttempt().getDate().getTime();
+    if (signed) {
+      root.add("auth_time", (new com.google.gson.JsonPrimitive(authTime / unit)));
+    } else {
+      root.add("auth_time", (new com.google.gson.JsonPrimitive(String.valueOf(authTime))));
+    }
+    return root;
+  }
+  /**
+   * Returns the claims of a signed access token.
+   *
+   * <p>The &quot;client_id&quot; and &quot;scope&quot; claims distinguish an access token from an
+   * ID token signed with the same key.
+   */
+  private com.google.gson.JsonObject accessTokenClaims(
+      final String clientId, final String scope, final User user) {
+    com.google.gson.JsonObject root = new com.google.gson.JsonObject();
+    long now = WDate.getCurrentServerDate().getDate().getTime() / 1000;
+    root.add("iss", (new com.google.gson.JsonPrimitive(this.iss_)));
+    root.add("sub", (new com.google.gson.JsonPrimitive(user.getId())));
+    root.add("client_id", (new com.google.gson.JsonPrimitive(clientId)));
+    root.add("scope", (new com.google.gson.JsonPrimitive(scope)));
+    root.add("iat", (new com.google.gson.JsonPrimitive(now)));
+    root.add("exp", (new com.google.gson.JsonPrimitive(now + this.accessExpSecs_)));
+    root.add("jti", (new com.google.gson.JsonPrimitive(MathUtils.randomId())));
+    return root;
   }
 
   private AbstractUserDatabase db_;
   private int accessExpSecs_;
   private int idExpSecs_;
   private String iss_;
+  private JwtSigner tokenSigner_;
 
   private static String methodToString(ClientSecretMethod method) {
     switch (method) {
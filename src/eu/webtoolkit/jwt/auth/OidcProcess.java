@@ -89,6 +89,7 @@ public class OidcProcess extends OAuthProcess {
     List<org.apache.http.Header> headers = new ArrayList<org.apache.http.Header>();
     headers.add(
         new org.apache.http.message.BasicHeader("Authorization", "Bearer " + token.getValue()));
+    WApplication.getInstance().enableUpdates(true);
     this.httpClient_.get(this.getService().getUserInfoEndpoint(), headers);
   }
 
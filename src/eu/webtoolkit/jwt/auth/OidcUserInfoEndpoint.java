@@ -47,6 +47,9 @@ import org.slf4j.LoggerFactory;
  * {@link AbstractUserDatabase#idpTokenScope(IssuedToken token)
  * AbstractUserDatabase#idpTokenScope()}.
  *
+ * <p>When access tokens are signed (see {@link OidcUserInfoEndpoint#setTokenSigner(JwtSigner
+ * signer) setTokenSigner()}), they are validated without looking them up in the database.
+ *
  * <p>Must be deployed using TLS.
  *
  * <p>
@@ -69,6 +72,8 @@ public class OidcUserInfoEndpoint extends WResource {
     s2.add("email");
     s2.add("email_verified");
     this.setScopeToken("email", s2);
+    this.tokenSigner_ = null;
+    this.revocations_ = null;
   }
 
   public void handleRequest(final WebRequest request, final WebResponse response) {
@@ -83,9 +88,28 @@ public class OidcUserInfoEndpoint extends WResource {
       return;
     }
     String tokenValue = authHeader.substring(AUTH_TYPE.length());
-    IssuedToken accessToken = this.db_.idpTokenFindWithValue("access_token", tokenValue);
-    if (!accessToken.isCheckValid()
-        || WDate.getCurrentServerDate().after(accessToken.getExpirationTime())) {
+    User user = null;
+    String scope = null;
+    boolean signed = this.tokenSigner_ != null && JwtSigner.isJwt(tokenValue);
+    if (signed) {
+      com.google.gson.JsonObject claims = this.tokenSigner_.verify(tokenValue);
+      if (claims != null
+          && claims.has("client_id")
+          && claims.has("scope")
+          && claims.has("sub")
+          && (this.revocations_ == null || !this.revocations_.isRevoked(claims))) {
+        user = new User(claims.get("sub").getAsString(), this.db_);
+        scope = claims.get("scope").getAsString();
+      }
+    } else {
+      IssuedToken accessToken = this.db_.idpTokenFindWithValue("access_token", tokenValue);
+      if (accessToken.isCheckValid()
+          && !WDate.getCurrentServerDate().after(accessToken.getExpirationTime())) {
+        user = accessToken.getUser();
+        scope = accessToken.getScope();
+      }
+    }
+    if (user == null) {
       response.setStatus(401);
       response.addHeader("WWW-Authenticate", "error=\"invalid_token\"");
       logger.info(
@@ -94,8 +118,6 @@ public class OidcUserInfoEndpoint extends WResource {
     }
     response.setContentType("application/json");
     response.setStatus(200);
-    User user = accessToken.getUser();
-    String scope = accessToken.getScope();
     Set<String> scopeSet = new HashSet<String>();
     StringUtils.split(scopeSet, scope, " ", false);
     try {
@@ -105,7 +127,7 @@ public class OidcUserInfoEndpoint extends WResource {
               .append("Response sent for ")
               .append(user.getId())
               .append("(")
-              .append(this.db_.getEmail(user))
+              .append(signed ? "signed token" : this.db_.getEmail(user))
               .append(")")
               .toString());
     } catch (IOException ioe) {
@@ -131,6 +153,52 @@ public class OidcUserInfoEndpoint extends WResource {
   public void setScopeToken(final String scopeToken, final Set<String> claims) {
     this.claimMap_.put(scopeToken, claims);
   }
+  /**
+   * Sets the signer of access tokens.
+   *
+   * <p>Access tokens that are JSON Web Tokens are verified with this signer, and their user and
+   * scope are taken from the token, without a database lookup. Other access tokens are still looked
+   * up in the database.
+   *
+   * <p>This should be the signer that is configured for the {@link OAuthTokenEndpoint}, or a signer
+   * with the public key only.
+   *
+   * <p>
+   *
+   * @see OAuthTokenEndpoint#setTokenSigner(JwtSigner signer)
+   */
+  public void setTokenSigner(JwtSigner signer) {
+    this.tokenSigner_ = signer;
+  }
+  /**
+   * Returns the signer of access tokens.
+   *
+   * <p>
+   *
+   * @see OidcUserInfoEndpoint#setTokenSigner(JwtSigner signer)
+   */
+  public JwtSigner getTokenSigner() {
+    return this.tokenSigner_;
+  }
+  /**
+   * Sets a list of revoked tokens.
+   *
+   * <p>Signed access tokens that are revoked in this list are refused, even when they have not yet
+   * expired.
+   */
+  public void setRevocationList(TokenRevocationList revocations) {
+    this.revocations_ = revocations;
+  }
+  /**
+   * Returns the list of revoked tokens.
+   *
+   * <p>
+   *
+   * @see OidcUserInfoEndpoint#setRevocationList(TokenRevocationList revocations)
+   */
+  public TokenRevocationList getRevocationList() {
+    return this.revocations_;
+  }
   /** Retrieves the set of claims that has been mapped to the given scope token. */
   public Map<String, Set<String>> getScopeTokens() {
     return this.claimMap_;
@@ -174,5 +242,7 @@ public class OidcUserInfoEndpoint extends WResource {
 
   private AbstractUserDatabase db_;
   private Map<String, Set<String>> claimMap_;
+  private JwtSigner tokenSigner_;
+  private TokenRevocationList revocations_;
   private static final String AUTH_TYPE = "Bearer ";
 }
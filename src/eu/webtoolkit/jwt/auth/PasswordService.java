@@ -13,6 +13,8 @@ import java.io.*;
 import java.lang.ref.*;
 import java.time.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
 import java.util.regex.*;
 import javax.servlet.*;
 import javax.servlet.http.*;
@@ -37,6 +39,10 @@ import org.slf4j.LoggerFactory;
  *
  * <p>Password strength validation of a new user-chosen password may be implemented by setting an
  * AbstractStrengthValidator.
+ *
+ * <p>Computing a password hash is deliberately slow. {@link PasswordService#verifyPassword(User
+ * user, String password, Signal1.Listener callback)} verifies a password asynchronously, outside
+ * of the session, on a thread pool that is sized to the number of processors.
  */
 public class PasswordService implements AbstractPasswordService {
   private static Logger logger = LoggerFactory.getLogger(PasswordService.class);
@@ -86,6 +92,9 @@ public class PasswordService implements AbstractPasswordService {
     this.verifier_ = null;
     this.validator_ = null;
     this.attemptThrottling_ = false;
+    this.maxPendingVerifications_ = 16 * Runtime.getRuntime().availableProcessors();
+    this.pendingVerifications_ = new AtomicInteger();
+    this.executor_ = null;
   }
 
   public AuthService getBaseAuth() {
@@ -231,6 +240,113 @@ public class PasswordService implements AbstractPasswordService {
       throw new RuntimeException(e);
     }
   }
+  /**
+   * Verifies a password for a given user, asynchronously.
+   *
+   * <p>This verifies the password like {@link PasswordService#verifyPassword(User user, String
+   * password) verifyPassword()}, but computes the hash on a separate thread pool, so that the
+   * session (and its lock) is not kept busy during the computation. A database transaction is only
+   * started to read the user&apos;s credentials, and later to record the result.
+   *
+   * <p>The <code>callback</code> is called with the result within the session of the current
+   * application, using {@link WtServlet#post(WApplication app, Runnable function, Runnable
+   * fallBackFunction) WtServlet#post()}. You will want to enable server push ({@link
+   * WApplication#enableUpdates(boolean enabled) WApplication#enableUpdates()}) to show the result
+   * to the user. If the application has quit when the verification completes, the result is still
+   * recorded in the database but the callback is not called.
+   *
+   * <p>When more than {@link PasswordService#getMaxPendingVerifications()} verifications are
+   * pending, the attempt is refused immediately with {@link PasswordResult#LoginThrottling}.
+   */
+  public void verifyPassword(
+      final User user, final String password, final Signal1.Listener<PasswordResult> callback) {
+    PasswordHash hash;
+    AbstractUserDatabase.Transaction t = user.getDatabase().startTransaction();
+    try {
+      if (this.delayForNextAttempt(user) > 0) {
+        hash = null;
+      } else {
+        hash = user.getPassword();
+      }
+      if (t != null) {
+        t.commit();
+      }
+    } catch (RuntimeException e) {
+      if (t != null) {
+        t.rollback();
+      }
+      throw e;
+    }
+    if (hash == null) {
+      callback.trigger(PasswordResult.LoginThrottling);
+      return;
+    }
+    if (this.pendingVerifications_.incrementAndGet() > this.maxPendingVerifications_) {
+      this.pendingVerifications_.decrementAndGet();
+      logger.warn(
+          new StringWriter()
+              .append("secure:")
+              .append("password verification queue full, refusing attempt for ")
+              .append(user.getId())
+              .toString());
+      callback.trigger(PasswordResult.LoginThrottling);
+      return;
+    }
+    final WApplication app = WApplication.getInstance();
+    final PasswordHash currentHash = hash;
+    final PasswordService.AbstractVerifier verifier = this.verifier_;
+    try {
+      this.getExecutor()
+          .execute(
+              () -> {
+                boolean valid = false;
+                PasswordHash newHash = null;
+                try {
+                  valid = verifier.verify(password, currentHash);
+                  if (valid && verifier.needsUpdate(currentHash)) {
+                    newHash = verifier.hashPassword(password);
+                  }
+                } catch (RuntimeException e) {
+                  logger.error("password verification failed", e);
+                } finally {
+                  this.pendingVerifications_.decrementAndGet();
+                }
+                this.deliverVerification(app, user, valid, newHash, callback);
+              });
+    } catch (RejectedExecutionException e) {
+      this.pendingVerifications_.decrementAndGet();
+      callback.trigger(PasswordResult.LoginThrottling);
+    }
+  }
+  /**
+   * Sets the maximum number of pending asynchronous password verifications.
+   *
+   * <p>This limits the work that is queued during a burst of login attempts: when the limit is
+   * reached, further attempts are refused until pending verifications have completed.
+   *
+   * <p>The default value is 16 times the number of processors.
+   *
+   * <p>
+   *
+   * @see PasswordService#verifyPassword(User user, String password, Signal1.Listener callback)
+   */
+  public void setMaxPendingVerifications(int count) {
+    this.maxPendingVerifications_ = count;
+  }
+  /**
+   * Returns the maximum number of pending asynchronous password verifications.
+   *
+   * <p>
+   *
+   * @see PasswordService#setMaxPendingVerifications(int count)
+   */
+  public int getMaxPendingVerifications() {
+    return this.maxPendingVerifications_;
+  }
+  /** Returns the number of asynchronous password verifications that are pending. */
+  public int getPendingVerifications() {
+    return this.pendingVerifications_.get();
+  }
 
   public void updatePassword(final User user, final String password) {
     PasswordHash pwd = this.verifier_.hashPassword(password);
@@ -266,9 +382,76 @@ public class PasswordService implements AbstractPasswordService {
         return 25;
     }
   }
+  private void deliverVerification(
+      WApplication app,
+      final User user,
+      final boolean valid,
+      final PasswordHash newHash,
+      final Signal1.Listener<PasswordResult> callback) {
+    final PasswordResult result =
+        valid ? PasswordResult.PasswordValid : PasswordResult.PasswordInvalid;
+    Runnable record =
+        () -> {
+          AbstractUserDatabase.Transaction t = user.getDatabase().startTransaction();
+          try {
+            if (this.attemptThrottling_) {
+              user.setAuthenticated(valid);
+            }
+            if (newHash != null) {
+              user.setPassword(newHash);
+            }
+            if (t != null) {
+              t.commit();
+            }
+          } catch (RuntimeException e) {
+            if (t != null) {
+              t.rollback();
+            }
+            throw e;
+          }
+        };
+    WtServlet server = WtServlet.getInstance();
+    if (app != null && server != null) {
+      server.post(
+          app,
+          () -> {
+            record.run();
+            callback.trigger(result);
+          },
+          record);
+    } else {
+      record.run();
+      callback.trigger(result);
+    }
+  }
+
+  private synchronized Executor getExecutor() {
+    if (this.executor_ == null) {
+      int threads = Runtime.getRuntime().availableProcessors();
+      final AtomicInteger count = new AtomicInteger();
+      ThreadPoolExecutor executor =
+          new ThreadPoolExecutor(
+              threads,
+              threads,
+              60,
+              TimeUnit.SECONDS,
+              new LinkedBlockingQueue<Runnable>(),
+              r -> {
+                Thread thread = new Thread(r, "jwt-password-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+              });
+      executor.allowCoreThreadTimeOut(true);
+      this.executor_ = executor;
+    }
+    return this.executor_;
+  }
   // private  PasswordService(final PasswordService anon1) ;
   private final AuthService baseAuth_;
   private PasswordService.AbstractVerifier verifier_;
   private AbstractPasswordService.AbstractStrengthValidator validator_;
   private boolean attemptThrottling_;
+  private int maxPendingVerifications_;
+  private final AtomicInteger pendingVerifications_;
+  private ThreadPoolExecutor executor_;
 }
@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2020 Emweb bv, Herent, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt.auth;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+/**
+ * A list of revoked signed tokens.
+ * <p>
+ * A signed token is valid until it expires, without being stored. This list
+ * allows to invalidate tokens earlier: either a single token by its
+ * &quot;jti&quot; (token id) claim, or all tokens of a subject (user) that
+ * were issued before the revocation.
+ * <p>
+ * A revocation is only kept until the tokens it applies to would have expired.
+ *
+ * @see OidcUserInfoEndpoint#setRevocationList(TokenRevocationList)
+ */
+public class TokenRevocationList {
+	private static class Revocation {
+		final long issuedBefore;
+		final long expires;
+
+		Revocation(long issuedBefore, long expires) {
+			this.issuedBefore = issuedBefore;
+			this.expires = expires;
+		}
+	}
+
+	private final Map<String, Revocation> tokens = new ConcurrentHashMap<String, Revocation>();
+	private final Map<String, Revocation> subjects = new ConcurrentHashMap<String, Revocation>();
+	private final int maxTokenLifetime;
+	private long nextPurge;
+
+	/**
+	 * Creates a revocation list.
+	 * <p>
+	 * The <code>maxTokenLifetime</code> (in seconds) is the longest time for
+	 * which issued tokens are valid: this is how long a revocation of a subject
+	 * is kept.
+	 */
+	public TokenRevocationList(int maxTokenLifetime) {
+		this.maxTokenLifetime = maxTokenLifetime;
+	}
+
+	/**
+	 * Revokes a single token.
+	 * <p>
+	 * The <code>expires</code> time is the &quot;exp&quot; claim of the token, in
+	 * seconds since the epoch.
+	 */
+	public void revokeToken(String tokenId, long expires) {
+		tokens.put(tokenId, new Revocation(Long.MAX_VALUE, expires));
+		purge();
+	}
+
+	/**
+	 * Revokes all tokens of a subject that were issued until now.
+	 */
+	public void revokeSubject(String subject) {
+		long now = now();
+		subjects.put(subject, new Revocation(now, now + maxTokenLifetime));
+		purge();
+	}
+
+	/**
+	 * Returns whether the token with the given claims is revoked.
+	 */
+	public boolean isRevoked(JsonObject claims) {
+		if (!tokens.isEmpty()) {
+			String jti = getString(claims, "jti");
+			if (jti != null && tokens.containsKey(jti))
+				return true;
+		}
+
+		if (!subjects.isEmpty()) {
+			String sub = getString(claims, "sub");
+			Revocation r = sub != null ? subjects.get(sub) : null;
+			if (r != null) {
+				JsonElement iat = claims.get("iat");
+				if (iat == null || !iat.isJsonPrimitive() || iat.getAsLong() <= r.issuedBefore)
+					return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Returns the number of revocations in the list.
+	 */
+	public int size() {
+		return tokens.size() + subjects.size();
+	}
+
+	private void purge() {
+		long now = now();
+		synchronized (this) {
+			if (now < nextPurge)
+				return;
+			nextPurge = now + 60;
+		}
+
+		purge(tokens, now);
+		purge(subjects, now);
+	}
+
+	private static void purge(Map<String, Revocation> revocations, long now) {
+		for (Iterator<Revocation> i = revocations.values().iterator(); i.hasNext();)
+			if (i.next().expires <= now)
+				i.remove();
+	}
+
+	private static String getString(JsonObject claims, String name) {
+		JsonElement e = claims.get(name);
+		return e != null && e.isJsonPrimitive() ? e.getAsString() : null;
+	}
+
+	private static long now() {
+		return System.currentTimeMillis() / 1000;
+	}
+}
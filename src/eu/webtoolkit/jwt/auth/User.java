@@ -294,6 +294,7 @@ public class User {
   public void removeAuthToken(final String token) {
     this.checkValid();
     this.db_.removeAuthToken(this, token);
+    AuthTokenCache.removeFromAll(token);
   }
   /**
    * Updates an authentication token.
@@ -304,6 +305,7 @@ public class User {
    */
   public int updateAuthToken(final String hash, final String newHash) {
     this.checkValid();
+    AuthTokenCache.removeFromAll(hash);
     return this.db_.updateAuthToken(this, hash, newHash);
   }
   /**
@@ -303,6 +303,23 @@ public class UserDatabase extends AbstractUserDatabase {
 			return new User();
 	}
 
+	@Override
+	public WDate getAuthTokenExpirationTime(User user, String hash) {
+		String q = "select a_token from AuthToken a_token"
+				+ "	where a_token.authInfo.id = :user_id"
+				+ "		and a_token.value = :hash";
+
+		Query query = entityManager_.createQuery(q);
+		query.setParameter("user_id", Long.parseLong(user.getId()));
+		query.setParameter("hash", hash);
+		List<AuthToken> tokens = (List<AuthToken>) query.getResultList();
+
+		if (tokens.size() == 1)
+			return new WDate(tokens.get(0).getExpiryDate());
+		else
+			return null;
+	}
+
 	@Override
 	public void setFailedLoginAttempts(User user, int count) {
 		AuthInfo ai = findAuthInfo(user.getId());
@@ -1932,7 +1932,7 @@ public class WAxis {
             textPens.get(level - 1));
         WPen oldPen = painter.getPen();
         painter.setPen(pens.get(level - 1));
-        if (shortTicksPath.getSegments().size() != 0) {
+        if (shortTicksPath.getSegmentCount() != 0) {
           WPainterPath stencil = new WPainterPath();
           if (vertical) {
             stencil.moveTo(tickStart / 2, 0);
@@ -1943,7 +1943,7 @@ public class WAxis {
           }
           painter.drawStencilAlongPath(stencil, transform.map(shortTicksPath).getCrisp(), false);
         }
-        if (longTicksPath.getSegments().size() != 0) {
+        if (longTicksPath.getSegmentCount() != 0) {
           WPainterPath stencil = new WPainterPath();
           if (vertical) {
             stencil.moveTo(tickStart, 0);
@@ -3008,7 +3008,7 @@ public class WAxis {
       int margin,
       final WTransform transform,
       final WPen pen) {
-    if (path.getSegments().size() == 0) {
+    if (path.getSegmentCount() == 0) {
       return;
     }
     AlignmentFlag horizontalAlign =
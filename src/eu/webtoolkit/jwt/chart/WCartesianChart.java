@@ -5621,12 +5621,12 @@ public class WCartesianChart extends WAbstractChart {
         WPointF p = transform.getInverted().map(new WPointF(x, y));
         WPainterPath path = this.pathForSeries(series);
         WTransform t = this.curveTransform(series);
-        for (int j = 0; j < path.getSegments().size(); ++j) {
-          final WPainterPath.Segment seg = path.getSegments().get(j);
-          if (seg.getType() != SegmentType.CubicC1
-              && seg.getType() != SegmentType.CubicC2
-              && seg.getType() != SegmentType.QuadC) {
-            WPointF segP = t.map(new WPointF(seg.getX(), seg.getY()));
+        for (int j = 0; j < path.getSegmentCount(); ++j) {
+          SegmentType segType = path.getSegmentType(j);
+          if (segType != SegmentType.CubicC1
+              && segType != SegmentType.CubicC2
+              && segType != SegmentType.QuadC) {
+            WPointF segP = t.map(new WPointF(path.getSegmentX(j), path.getSegmentY(j)));
             double dx = p.getX() - segP.getX();
             double dy = p.getY() - segP.getY();
             double d2 = dx * dx + dy * dy;
@@ -5634,7 +5634,8 @@ public class WCartesianChart extends WAbstractChart {
               smallestSqDistance = d2;
               closestSeries = series;
               closestPointPx = segP;
-              closestPointBeforeSeriesTransform = new WPointF(seg.getX(), seg.getY());
+              closestPointBeforeSeriesTransform =
+                  new WPointF(path.getSegmentX(j), path.getSegmentY(j));
             }
           }
         }
@@ -37,9 +37,10 @@ class Block {
     this.currentTheadBlock_ = null;
     this.currentWidth_ = 0;
     this.contentsHeight_ = 0;
-    this.css_ = new HashMap<String, Block.PropertyValue>();
+    this.css_ = null;
     this.font_ = new WFont();
-    this.styleSheet_ = null;
+    this.styleIndex_ = null;
+    this.matchKey_ = -1;
     this.noPropertyCache_ = new HashSet<Property>();
     if (node != null) {
       if (RenderUtils.isXmlElement(node)) {
@@ -609,12 +610,60 @@ class Block {
   }
 
   public void setStyleSheet(StyleSheet styleSheet) {
-    this.styleSheet_ = styleSheet;
-    this.css_.clear();
-    this.noPropertyCache_.clear();
-    for (int i = 0; i < this.children_.size(); ++i) {
-      this.children_.get(i).setStyleSheet(styleSheet);
+    this.setStyleIndex(new StyleIndex(styleSheet));
+  }
+
+  static Block createAnonymous(Block parent, final List<Block> children) {
+    Block result = new Block((net.n3.nanoxml.XMLElement) null, parent);
+    result.inline_ = false;
+    result.children_.addAll(children);
+    return result;
+  }
+
+  void startSections(final PageState ps) {
+    this.blockLayout.clear();
+    this.blockLayout.add(new BlockBox());
+    final BlockBox box = this.blockLayout.get(0);
+    box.page = ps.page;
+    box.x = ps.minX;
+    box.width = ps.maxX - ps.minX;
+    box.y = ps.y;
+    box.height = 0;
+  }
+
+  double layoutSection(
+      Block c,
+      final PageState ps,
+      final WTextRenderer renderer,
+      double collapseMarginTop,
+      double collapseMarginBottom) {
+    if (c.isFloat()) {
+      ps.maxX =
+          c.layoutFloat(ps.y, ps.page, ps.floats, ps.minX, 0, ps.minX, ps.maxX, false, renderer);
+    } else {
+      if (c.isPositionedAbsolutely()) {
+        if (!(c.offsetParent_ != null)) {
+          c.setOffsetParent();
+        }
+        PageState absolutePs = new PageState();
+        absolutePs.y = ps.y;
+        absolutePs.page = ps.page;
+        absolutePs.minX = ps.minX;
+        absolutePs.maxX = ps.maxX;
+        Utils.copyList(ps.floats, absolutePs.floats);
+        c.layoutBlock(absolutePs, false, renderer, 0, 0);
+      } else {
+        double minX = ps.minX;
+        collapseMarginBottom =
+            c.layoutBlock(ps, false, renderer, collapseMarginTop, collapseMarginBottom);
+        ps.minX = minX;
+      }
     }
+    for (int i = 0; i < this.offsetChildren_.size(); ++i) {
+      this.offsetChildren_.get(i).layoutAbsolute(renderer);
+    }
+    this.offsetChildren_.clear();
+    return collapseMarginBottom;
   }
 
   public void actualRender(
@@ -801,17 +850,8 @@ class Block {
     if (this.noPropertyCache_.contains(property) != false) {
       return "";
     }
-    if (this.css_.isEmpty()) {
-      if (this.styleSheet_ != null) {
-        for (int i = 0; i < this.styleSheet_.getRulesetSize(); ++i) {
-          Specificity s = Match.isMatch(this, this.styleSheet_.rulesetAt(i).getSelector());
-          if (s.isValid()) {
-            this.fillinStyle(
-                this.styleSheet_.rulesetAt(i).getDeclarationBlock().getDeclarationString(), s);
-          }
-        }
-      }
-      this.fillinStyle(this.attributeValue("style"), new Specificity(1, 0, 0, 0));
+    if (this.css_ == null) {
+      this.computeStyle();
     }
     Block.PropertyValue i = this.css_.get(DomElement.cssName(property));
     if (i != null) {
@@ -923,7 +963,8 @@ class Block {
   private double contentsHeight_;
   private Map<String, Block.PropertyValue> css_;
   private WFont font_;
-  private StyleSheet styleSheet_;
+  private StyleIndex styleIndex_;
+  private int matchKey_;
   private Set<Property> noPropertyCache_;
   private int tableRowCount_;
   private int tableColCount_;
@@ -947,75 +988,58 @@ class Block {
     }
   }
 
-  private void fillinStyle(final String style, final Specificity specificity) {
-    if (style.length() == 0) {
+  private void fillinStyle(final List<Declaration> declarations, final Specificity specificity) {
+    for (int i = 0; i < declarations.size(); ++i) {
+      final Declaration d = declarations.get(i);
+      this.updateAggregateProperty(d.getProperty(), "", specificity, d.getValue());
+    }
+  }
+
+  void setStyleIndex(StyleIndex styleIndex) {
+    this.styleIndex_ = styleIndex;
+    this.css_ = null;
+    this.matchKey_ = -1;
+    this.noPropertyCache_.clear();
+    for (int i = 0; i < this.children_.size(); ++i) {
+      this.children_.get(i).setStyleIndex(styleIndex);
+    }
+  }
+
+  private int getMatchKey() {
+    if (this.matchKey_ < 0) {
+      int parentKey = this.parent_ != null ? this.parent_.getMatchKey() : 0;
+      this.matchKey_ =
+          this.styleIndex_.getMatchKey(parentKey, this.type_, this.getId(), this.classes_);
+    }
+    return this.matchKey_;
+  }
+
+  private void computeStyle() {
+    String style = this.attributeValue("style");
+    if (!(this.styleIndex_ != null)) {
+      this.css_ = new HashMap<String, Block.PropertyValue>();
+      this.fillinStyle(Declaration.parse(style), new Specificity(1, 0, 0, 0));
       return;
     }
-    List<String> values = new ArrayList<String>();
-    StringUtils.split(values, style, ";", false);
-    for (int i = 0; i < values.size(); ++i) {
-      List<String> namevalue = new ArrayList<String>();
-      StringUtils.split(namevalue, values.get(i), ":", false);
-      if (namevalue.size() == 2) {
-        String n = namevalue.get(0);
-        String v = namevalue.get(1);
-        n = n.trim();
-        v = v.trim();
-        this.updateAggregateProperty(n, "", specificity, v);
-        if (isAggregate(n)) {
-          List<String> allvalues = new ArrayList<String>();
-          StringUtils.split(allvalues, v, " ", false);
-          int count = 0;
-          for (int j = 0; j < allvalues.size(); ++j) {
-            String vj = allvalues.get(j);
-            if (vj.charAt(0) < '0' || vj.charAt(0) > '9') {
-              break;
-            }
-            ++count;
-          }
-          if (count == 0) {
-            count = allvalues.size();
-          }
-          if (count == 1) {
-            this.updateAggregateProperty(n, "-top", specificity, v);
-            this.updateAggregateProperty(n, "-right", specificity, v);
-            this.updateAggregateProperty(n, "-bottom", specificity, v);
-            this.updateAggregateProperty(n, "-left", specificity, v);
-          } else {
-            if (count == 2) {
-              String v1 = allvalues.get(0);
-              this.updateAggregateProperty(n, "-top", specificity, v1);
-              this.updateAggregateProperty(n, "-bottom", specificity, v1);
-              String v2 = allvalues.get(1);
-              this.updateAggregateProperty(n, "-right", specificity, v2);
-              this.updateAggregateProperty(n, "-left", specificity, v2);
-            } else {
-              if (count == 3) {
-                String v1 = allvalues.get(0);
-                this.updateAggregateProperty(n, "-top", specificity, v1);
-                String v2 = allvalues.get(1);
-                this.updateAggregateProperty(n, "-right", specificity, v2);
-                this.updateAggregateProperty(n, "-left", specificity, v2);
-                String v3 = allvalues.get(2);
-                this.updateAggregateProperty(n, "-bottom", specificity, v3);
-              } else {
-                String v1 = allvalues.get(0);
-                this.updateAggregateProperty(n, "-top", specificity, v1);
-                String v2 = allvalues.get(1);
-                this.updateAggregateProperty(n, "-right", specificity, v2);
-                String v3 = allvalues.get(2);
-                this.updateAggregateProperty(n, "-bottom", specificity, v3);
-                String v4 = allvalues.get(3);
-                this.updateAggregateProperty(n, "-left", specificity, v4);
-              }
-            }
-          }
-        }
+    int key = this.getMatchKey();
+    this.css_ = this.styleIndex_.getStyle(key, style);
+    if (this.css_ != null) {
+      return;
+    }
+    this.css_ = new HashMap<String, Block.PropertyValue>();
+    List<Integer> candidates = this.styleIndex_.getCandidates(this);
+    for (int i = 0; i < candidates.size(); ++i) {
+      Ruleset ruleset = this.styleIndex_.rulesetAt(candidates.get(i));
+      Specificity s = Match.isMatch(this, ruleset.getSelector());
+      if (s.isValid()) {
+        this.fillinStyle(ruleset.getDeclarationBlock().getDeclarations(), s);
       }
     }
+    this.fillinStyle(this.styleIndex_.getDeclarations(style), new Specificity(1, 0, 0, 0));
+    this.styleIndex_.putStyle(key, style, this.css_);
   }
 
-  private boolean isPositionedAbsolutely() {
+  boolean isPositionedAbsolutely() {
     String pos = this.cssProperty(Property.StylePosition);
     return pos.equals("absolute") || pos.equals("fixed");
   }
@@ -3213,7 +3237,7 @@ class Block {
     return -1;
   }
 
-  private int getLastLayoutPage() {
+  int getLastLayoutPage() {
     if (!this.inlineLayout.isEmpty()) {
       return this.inlineLayout.get(this.inlineLayout.size() - 1).page;
     }
@@ -3322,14 +3346,6 @@ class Block {
             .toString());
   }
 
-  private static boolean isAggregate(final String cssProperty) {
-    return cssProperty.equals("margin")
-        || cssProperty.equals("border")
-        || cssProperty.equals("padding")
-        || cssProperty.equals("border-color")
-        || cssProperty.equals("border-width");
-  }
-
   private static double maxBorderWidth(
       Block b1,
       Side s1,
@@ -2,7 +2,10 @@ package eu.webtoolkit.jwt.render;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.antlr.v4.runtime.CharStream;
 import org.antlr.v4.runtime.CharStreams;
@@ -17,6 +20,21 @@ import org.slf4j.LoggerFactory;
 public class CssParser {
 	private static final Logger logger = LoggerFactory.getLogger(CssParser.class);
 
+	/**
+	 * The maximum number of style sheets kept by {@link #parseCached(CharSequence)}.
+	 */
+	public static final int CACHE_SIZE = 64;
+
+	private static final Map<String, StyleSheet> cache_ = Collections
+			.synchronizedMap(new LinkedHashMap<String, StyleSheet>(16, 0.75f, true) {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<String, StyleSheet> eldest) {
+					return size() > CACHE_SIZE;
+				}
+			});
+
 	private ErrorListener errorListener_ = new ErrorListener();
 
 	static final class Listener extends Css22BaseListener {
@@ -63,9 +81,12 @@ public class CssParser {
 
 		@Override
 		public void exitDeclarationBlock(Css22Parser.DeclarationBlockContext ctx) {
+			String declarationString = ctx.getText();
+			List<Declaration> declarations = Declaration.parse(declarationString);
 			for (SelectorImpl selector : currentSelectorList) {
 				RulesetImpl r = new RulesetImpl();
-				r.block_.declarationString_ = ctx.getText();
+				r.block_.declarationString_ = declarationString;
+				r.block_.declarations_ = declarations;
 				r.selector_ = selector;
 				currentStylesheet.rulesetArray_.add(r);
 			}
@@ -122,6 +143,27 @@ public class CssParser {
 		return result;
 	}
 
+	/**
+	 * Parses style sheet contents, reusing the result of an earlier parse of the
+	 * same contents.
+	 * <p>
+	 * A parsed style sheet is not modified while rendering, and is shared by all
+	 * threads. Contents that fail to parse are not cached.
+	 */
+	public StyleSheet parseCached(CharSequence stylesheetContents) {
+		String key = stylesheetContents.toString();
+		StyleSheet result = cache_.get(key);
+		if (result != null) {
+			errorListener_.reset();
+			return result;
+		}
+
+		result = parse(key);
+		if (result != null)
+			cache_.put(key, result);
+		return result;
+	}
+
 	private StyleSheet parse(CharStream stream) throws RecognitionException, ParseCancellationException {
 		errorListener_.reset();
 
@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2020 Emweb bv, Herent, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt.render;
+
+import eu.webtoolkit.jwt.*;
+import eu.webtoolkit.jwt.chart.*;
+import eu.webtoolkit.jwt.servlet.*;
+import eu.webtoolkit.jwt.utils.*;
+import java.io.*;
+import java.lang.ref.*;
+import java.time.*;
+import java.util.*;
+import java.util.regex.*;
+import javax.servlet.*;
+import javax.servlet.http.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+final class Declaration {
+  private static Logger logger = LoggerFactory.getLogger(Declaration.class);
+
+  public Declaration(final String property, final String value) {
+    super();
+    this.property_ = property;
+    this.value_ = value;
+  }
+
+  public String getProperty() {
+    return this.property_;
+  }
+
+  public String getValue() {
+    return this.value_;
+  }
+
+  /**
+   * Parses a declaration string into property/value pairs.
+   *
+   * <p>Aggregate properties (such as <code>margin</code>) are followed by the properties for each
+   * side that they imply, so that the result can be applied in order without parsing it again.
+   */
+  public static List<Declaration> parse(final String style) {
+    List<Declaration> result = new ArrayList<Declaration>();
+    if (style.length() == 0) {
+      return result;
+    }
+    List<String> values = new ArrayList<String>();
+    StringUtils.split(values, style, ";", false);
+    for (int i = 0; i < values.size(); ++i) {
+      List<String> namevalue = new ArrayList<String>();
+      StringUtils.split(namevalue, values.get(i), ":", false);
+      if (namevalue.size() == 2) {
+        String n = namevalue.get(0);
+        String v = namevalue.get(1);
+        n = n.trim();
+        v = v.trim();
+        result.add(new Declaration(n, v));
+        if (isAggregate(n)) {
+          List<String> allvalues = new ArrayList<String>();
+          StringUtils.split(allvalues, v, " ", false);
+          int count = 0;
+          for (int j = 0; j < allvalues.size(); ++j) {
+            String vj = allvalues.get(j);
+            if (vj.length() == 0 || vj.charAt(0) < '0' || vj.charAt(0) > '9') {
+              break;
+            }
+            ++count;
+          }
+          if (count == 0) {
+            count = allvalues.size();
+          }
+          if (count == 1) {
+            result.add(new Declaration(n + "-top", v));
+            result.add(new Declaration(n + "-right", v));
+            result.add(new Declaration(n + "-bottom", v));
+            result.add(new Declaration(n + "-left", v));
+          } else {
+            if (count == 2) {
+              String v1 = allvalues.get(0);
+              result.add(new Declaration(n + "-top", v1));
+              result.add(new Declaration(n + "-bottom", v1));
+              String v2 = allvalues.get(1);
+              result.add(new Declaration(n + "-right", v2));
+              result.add(new Declaration(n + "-left", v2));
+            } else {
+              if (count == 3) {
+                String v1 = allvalues.get(0);
+                result.add(new Declaration(n + "-top", v1));
+                String v2 = allvalues.get(1);
+                result.add(new Declaration(n + "-right", v2));
+                result.add(new Declaration(n + "-left", v2));
+                String v3 = allvalues.get(2);
+                result.add(new Declaration(n + "-bottom", v3));
+              } else {
+                String v1 = allvalues.get(0);
+                result.add(new Declaration(n + "-top", v1));
+                String v2 = allvalues.get(1);
+                result.add(new Declaration(n + "-right", v2));
+                String v3 = allvalues.get(2);
+                result.add(new Declaration(n + "-bottom", v3));
+                String v4 = allvalues.get(3);
+                result.add(new Declaration(n + "-left", v4));
+              }
+            }
+          }
+        }
+      }
+    }
+    return result;
+  }
+
+  private String property_;
+  private String value_;
+
+  private static boolean isAggregate(final String cssProperty) {
+    return cssProperty.equals("margin")
+        || cssProperty.equals("border")
+        || cssProperty.equals("padding")
+        || cssProperty.equals("border-color")
+        || cssProperty.equals("border-width");
+  }
+}
@@ -21,4 +21,6 @@ interface DeclarationBlock {
   public Term value(final String property);
 
   public String getDeclarationString();
+
+  public List<Declaration> getDeclarations();
 }
@@ -26,6 +26,7 @@ class DeclarationBlockImpl implements DeclarationBlock {
     super();
     this.properties_ = new HashMap<String, Term>();
     this.declarationString_ = "";
+    this.declarations_ = null;
   }
 
   public Term value(final String property) {
@@ -37,6 +38,16 @@ class DeclarationBlockImpl implements DeclarationBlock {
     return this.declarationString_;
   }
 
+  public List<Declaration> getDeclarations() {
+    List<Declaration> result = this.declarations_;
+    if (result == null) {
+      result = Declaration.parse(this.declarationString_);
+      this.declarations_ = result;
+    }
+    return result;
+  }
+
   public Map<String, Term> properties_;
   public String declarationString_;
+  public volatile List<Declaration> declarations_;
 }
@@ -1,6 +1,8 @@
 package eu.webtoolkit.jwt.render;
 
+import java.util.Enumeration;
 import java.util.List;
+import java.util.Map;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -12,6 +14,8 @@ import net.n3.nanoxml.StdXMLReader;
 import net.n3.nanoxml.XMLElement;
 import net.n3.nanoxml.XMLException;
 import net.n3.nanoxml.XMLParserFactory;
+import eu.webtoolkit.jwt.DomElement;
+import eu.webtoolkit.jwt.DomElementType;
 import eu.webtoolkit.jwt.XHtmlFilter;
 
 public class RenderUtils {
@@ -62,6 +66,68 @@ public class RenderUtils {
 		return result;
 	}
 
+	/*
+	 * Removes the <style> elements from a document, collecting their contents.
+	 */
+	static void extractStyles(XMLElement e, StringBuilder ss) {
+		for (int i = 0; i < e.getChildrenCount(); ++i) {
+			XMLElement c = (XMLElement) e.getChildAtIndex(i);
+			if (isXmlElement(c) && DomElement.parseTagName(c.getName()) == DomElementType.STYLE) {
+				ss.append(nodeValueToString(c));
+				e.removeChildAtIndex(i);
+				--i;
+			} else
+				extractStyles(c, ss);
+		}
+	}
+
+	/*
+	 * Copies a document, substituting ${name} placeholders in text nodes with data.
+	 */
+	static XMLElement copy(XMLElement e, Map<String, ?> data) {
+		if (e == null)
+			return null;
+
+		XMLElement result = (XMLElement) e.createElement(e.getFullName());
+		for (Enumeration<?> names = e.enumerateAttributeNames(); names.hasMoreElements();) {
+			String name = (String) names.nextElement();
+			result.setAttribute(name, e.getAttribute(name, null));
+		}
+		String content = e.getContent();
+		if (content != null)
+			result.setContent(isXmlElement(e) ? content : substitute(content, data));
+		for (Object o : e.getChildren())
+			result.addChild(copy((XMLElement) o, data));
+
+		return result;
+	}
+
+	static String substitute(String text, Map<String, ?> data) {
+		int start = text.indexOf("${");
+		if (start == -1)
+			return text;
+
+		StringBuilder result = new StringBuilder(text.length());
+		int pos = 0;
+		while (start != -1) {
+			int end = text.indexOf('}', start + 2);
+			if (end == -1)
+				break;
+			String name = text.substring(start + 2, end);
+			Object value = data.get(name);
+			result.append(text, pos, start);
+			if (value != null)
+				result.append(value.toString());
+			else
+				result.append(text, start, end + 1);
+			pos = end + 1;
+			start = text.indexOf("${", pos);
+		}
+		result.append(text, pos, text.length());
+
+		return result.toString();
+	}
+
 	private static void extractTextNodes(XMLElement e) {
 		for (Object o : e.getChildren()) {
 			XMLElement c = ((XMLElement)o);
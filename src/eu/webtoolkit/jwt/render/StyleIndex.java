@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 2020 Emweb bv, Herent, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt.render;
+
+import eu.webtoolkit.jwt.*;
+import eu.webtoolkit.jwt.chart.*;
+import eu.webtoolkit.jwt.servlet.*;
+import eu.webtoolkit.jwt.utils.*;
+import java.io.*;
+import java.lang.ref.*;
+import java.time.*;
+import java.util.*;
+import java.util.regex.*;
+import javax.servlet.*;
+import javax.servlet.http.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An index of the rulesets of a style sheet, and a cache of the styles computed with them.
+ *
+ * <p>Rulesets are bucketed by the rightmost simple selector of their selector: by its id, else its
+ * first class, else its element type. Only the rulesets in the buckets of a block (and the
+ * rulesets with a universal rightmost selector) can match it.
+ *
+ * <p>Whether a selector matches a block depends only on the element type, id and classes of the
+ * block and its ancestors. Blocks for which these are the same, and which have the same inline
+ * style, share their computed style.
+ */
+final class StyleIndex {
+  private static Logger logger = LoggerFactory.getLogger(StyleIndex.class);
+
+  public StyleIndex(StyleSheet styleSheet) {
+    super();
+    this.rulesets_ = new ArrayList<Ruleset>();
+    this.byId_ = new HashMap<String, List<Integer>>();
+    this.byClass_ = new HashMap<String, List<Integer>>();
+    this.byType_ = new EnumMap<DomElementType, List<Integer>>(DomElementType.class);
+    this.universal_ = new ArrayList<Integer>();
+    this.ids_ = new HashSet<String>();
+    this.classes_ = new HashSet<String>();
+    this.matchKeys_ = new HashMap<String, Integer>();
+    this.styles_ = new HashMap<String, Map<String, Block.PropertyValue>>();
+    this.inlineDeclarations_ = new HashMap<String, List<Declaration>>();
+    if (styleSheet != null) {
+      int size = styleSheet.getRulesetSize();
+      for (int i = 0; i < size; ++i) {
+        this.add(styleSheet.rulesetAt(i));
+      }
+    }
+  }
+
+  public Ruleset rulesetAt(int i) {
+    return this.rulesets_.get(i);
+  }
+
+  /**
+   * Returns the rulesets that may match a block, as indexes in style sheet order.
+   */
+  public List<Integer> getCandidates(Block block) {
+    List<Integer> result = new ArrayList<Integer>();
+    String id = block.getId();
+    if (id.length() != 0) {
+      addAll(result, this.byId_.get(id));
+    }
+    List<String> classes = block.getClasses();
+    for (int i = 0; i < classes.size(); ++i) {
+      if (classes.indexOf(classes.get(i)) == i) {
+        addAll(result, this.byClass_.get(classes.get(i)));
+      }
+    }
+    addAll(result, this.byType_.get(block.getType()));
+    addAll(result, this.universal_);
+    Collections.sort(result);
+    return result;
+  }
+
+  /**
+   * Returns a key for the element type, id and classes of a block and its ancestors.
+   *
+   * <p>Ids and classes which do not occur in any selector do not affect the key.
+   */
+  public int getMatchKey(
+      int parentKey, DomElementType type, final String id, final List<String> classes) {
+    StringBuilder key = new StringBuilder();
+    key.append(parentKey).append('/').append(type.ordinal());
+    if (this.ids_.contains(id)) {
+      key.append('#').append(id);
+    }
+    for (int i = 0; i < classes.size(); ++i) {
+      if (this.classes_.contains(classes.get(i))) {
+        key.append('.').append(classes.get(i));
+      }
+    }
+    String s = key.toString();
+    Integer result = this.matchKeys_.get(s);
+    if (result == null) {
+      result = this.matchKeys_.size() + 1;
+      this.matchKeys_.put(s, result);
+    }
+    return result;
+  }
+
+  /**
+   * Returns the computed style for a match key and inline style, or <code>null</code>.
+   */
+  public Map<String, Block.PropertyValue> getStyle(int matchKey, final String style) {
+    return this.styles_.get(matchKey + "{" + style);
+  }
+
+  public void putStyle(int matchKey, final String style, Map<String, Block.PropertyValue> css) {
+    this.styles_.put(matchKey + "{" + style, css);
+  }
+
+  /**
+   * Returns the parsed declarations of an inline style.
+   */
+  public List<Declaration> getDeclarations(final String style) {
+    List<Declaration> result = this.inlineDeclarations_.get(style);
+    if (result == null) {
+      result = Declaration.parse(style);
+      this.inlineDeclarations_.put(style, result);
+    }
+    return result;
+  }
+
+  private List<Ruleset> rulesets_;
+  private Map<String, List<Integer>> byId_;
+  private Map<String, List<Integer>> byClass_;
+  private Map<DomElementType, List<Integer>> byType_;
+  private List<Integer> universal_;
+  private Set<String> ids_;
+  private Set<String> classes_;
+  private Map<String, Integer> matchKeys_;
+  private Map<String, Map<String, Block.PropertyValue>> styles_;
+  private Map<String, List<Declaration>> inlineDeclarations_;
+
+  private void add(Ruleset ruleset) {
+    int index = this.rulesets_.size();
+    this.rulesets_.add(ruleset);
+    final Selector selector = ruleset.getSelector();
+    for (int i = 0; i < selector.getSize(); ++i) {
+      SimpleSelector s = selector.at(i);
+      if (s.getHashId().length() != 0) {
+        this.ids_.add(s.getHashId());
+      }
+      this.classes_.addAll(s.getClasses());
+    }
+    if (selector.getSize() == 0) {
+      return;
+    }
+    SimpleSelector last = selector.at(selector.getSize() - 1);
+    if (last.getHashId().length() != 0) {
+      bucket(this.byId_, last.getHashId()).add(index);
+    } else {
+      if (!last.getClasses().isEmpty()) {
+        bucket(this.byClass_, last.getClasses().get(0)).add(index);
+      } else {
+        if (last.getElementName().length() != 0 && !last.getElementName().equals("*")) {
+          bucket(this.byType_, last.getElementType()).add(index);
+        } else {
+          this.universal_.add(index);
+        }
+      }
+    }
+  }
+
+  private static <K> List<Integer> bucket(Map<K, List<Integer>> buckets, K key) {
+    List<Integer> result = buckets.get(key);
+    if (result == null) {
+      result = new ArrayList<Integer>();
+      buckets.put(key, result);
+    }
+    return result;
+  }
+
+  private static void addAll(List<Integer> result, List<Integer> bucket) {
+    if (bucket != null) {
+      result.addAll(bucket);
+    }
+  }
+}
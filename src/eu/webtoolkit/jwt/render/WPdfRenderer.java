@@ -37,6 +37,12 @@ import org.slf4j.LoggerFactory;
  * <p>Font information is embedded in the PDF. Fonts supported are native PostScript fonts (Base-14)
  * (only ASCII-7), or true type fonts (Unicode). See {@link WPdfRenderer#addFontCollection(String
  * directory, boolean recursive) addFontCollection()} for more information on how fonts are located.
+ *
+ * <p>To render a large document with bounded memory, enable {@link
+ * WTextRenderer#setStreaming(boolean enabled) streaming} and create the PDF on the output stream
+ * of the response (or of a file): PDFJet writes the contents of a page to its output stream when
+ * the next page is created, so that pages are sent while the rest of the document is being laid
+ * out.
  */
 public class WPdfRenderer extends WTextRenderer {
   private static Logger logger = LoggerFactory.getLogger(WPdfRenderer.class);
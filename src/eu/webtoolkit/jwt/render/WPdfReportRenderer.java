@@ -0,0 +1,346 @@
+/*
+ * Copyright (C) 2020 Emweb bv, Herent, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt.render;
+
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.pdfjet.A4;
+import com.pdfjet.PDF;
+import com.pdfjet.Page;
+
+import eu.webtoolkit.jwt.Side;
+
+/**
+ * A service which renders XHTML documents to PDF on a pool of worker threads.
+ * <p>
+ * Each document is rendered by its own {@link WPdfRenderer} to its own PDF, on
+ * one of the worker threads, so that independent documents (e.g. a batch of
+ * invoices) are rendered concurrently. What can be shared between documents is
+ * shared safely between the workers: the font directory indexes and font files
+ * (see {@link WPdfImage#addFontCollection(String, boolean)}), the parsed style
+ * sheets (see {@link CssParser#parseCached(CharSequence)}) and parsed
+ * {@link WTextRenderer.Template templates}.
+ * <p>
+ * The rendering options (page size, margins, resolution, fonts and style sheet)
+ * apply to every document, and should be configured before submitting
+ * documents. For other customizations (such as headers and footers), override
+ * {@link #createRenderer(PDF, Page)}.
+ * <p>
+ * Every document yields a {@link Result}, which reports the number of pages, the
+ * time the document waited for a worker, and the time it took to render it.
+ * Rendering is done outside of any application: resources (such as images) are
+ * resolved relative to the working directory.
+ */
+public class WPdfReportRenderer {
+	private static final Logger logger = LoggerFactory.getLogger(WPdfReportRenderer.class);
+
+	/**
+	 * The result of rendering a document.
+	 */
+	public static class Result {
+		private final int pageCount;
+		private final long waitTime;
+		private final long renderTime;
+		private final Exception error;
+
+		Result(int pageCount, long waitTime, long renderTime, Exception error) {
+			this.pageCount = pageCount;
+			this.waitTime = waitTime;
+			this.renderTime = renderTime;
+			this.error = error;
+		}
+
+		/**
+		 * Returns the number of pages.
+		 */
+		public int getPageCount() {
+			return pageCount;
+		}
+
+		/**
+		 * Returns the time the document waited for a worker, in nanoseconds.
+		 */
+		public long getWaitTime() {
+			return waitTime;
+		}
+
+		/**
+		 * Returns the time it took to render the document, in nanoseconds.
+		 * <p>
+		 * This includes writing the PDF to the output stream.
+		 */
+		public long getRenderTime() {
+			return renderTime;
+		}
+
+		/**
+		 * Returns the error that prevented the document from being rendered, or
+		 * <code>null</code>.
+		 */
+		public Exception getError() {
+			return error;
+		}
+
+		/**
+		 * Returns whether the document was rendered.
+		 */
+		public boolean isSuccess() {
+			return error == null;
+		}
+	}
+
+	private static class CountingPdf extends PDF {
+		CountingPdf(OutputStream os) throws Exception {
+			super(os);
+		}
+
+		int getPageCount() {
+			return pages.size();
+		}
+	}
+
+	private final ExecutorService executor;
+	private final int threadCount;
+	private float[] pageSize;
+	private double[] margin;
+	private int dpi;
+	private String styleSheetText;
+	private boolean streaming;
+	private final List<WPdfRenderer.FontCollection> fontCollections;
+
+	/**
+	 * Creates a renderer with a given number of worker threads.
+	 */
+	public WPdfReportRenderer(int threadCount) {
+		final AtomicInteger threadNumber = new AtomicInteger();
+		this.executor = Executors.newFixedThreadPool(threadCount, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "jwt-report-" + threadNumber.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		this.threadCount = threadCount;
+		this.pageSize = A4.PORTRAIT;
+		this.margin = new double[4];
+		this.dpi = 72;
+		this.styleSheetText = "";
+		this.streaming = false;
+		this.fontCollections = new ArrayList<WPdfRenderer.FontCollection>();
+	}
+
+	/**
+	 * Creates a renderer with a worker thread per processor.
+	 */
+	public WPdfReportRenderer() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Returns the number of worker threads.
+	 */
+	public int getThreadCount() {
+		return threadCount;
+	}
+
+	/**
+	 * Sets the page size, in points.
+	 * <p>
+	 * The default page size is {@link A4#PORTRAIT}.
+	 */
+	public void setPageSize(float[] pageSize) {
+		this.pageSize = pageSize;
+	}
+
+	/**
+	 * Sets the page margins, in <code>cm</code>.
+	 *
+	 * @see WPdfRenderer#setMargin(double, EnumSet)
+	 */
+	public void setMargin(double margin, EnumSet<Side> sides) {
+		if (sides.contains(Side.Top))
+			this.margin[0] = margin;
+		if (sides.contains(Side.Right))
+			this.margin[1] = margin;
+		if (sides.contains(Side.Bottom))
+			this.margin[2] = margin;
+		if (sides.contains(Side.Left))
+			this.margin[3] = margin;
+	}
+
+	/**
+	 * Sets the page margins, in <code>cm</code>, for all sides.
+	 */
+	public void setMargin(double margin) {
+		setMargin(margin, Side.AllSides);
+	}
+
+	/**
+	 * Sets the resolution.
+	 *
+	 * @see WPdfRenderer#setDpi(int)
+	 */
+	public void setDpi(int dpi) {
+		this.dpi = dpi;
+	}
+
+	/**
+	 * Adds a font collection.
+	 *
+	 * @see WPdfRenderer#addFontCollection(String, boolean)
+	 */
+	public void addFontCollection(String directory, boolean recursive) {
+		WPdfRenderer.FontCollection c = new WPdfRenderer.FontCollection();
+		c.directory = directory;
+		c.recursive = recursive;
+		this.fontCollections.add(c);
+	}
+
+	/**
+	 * Sets the contents of a style sheet used for every document.
+	 * <p>
+	 * Returns whether the style sheet could be parsed. It is parsed only once, and
+	 * shared by all documents.
+	 *
+	 * @see WTextRenderer#setStyleSheetText(CharSequence)
+	 */
+	public boolean setStyleSheetText(CharSequence styleSheetContents) {
+		String text = styleSheetContents.toString();
+		if (!text.isEmpty() && new CssParser().parseCached(text) == null)
+			return false;
+
+		this.styleSheetText = text;
+		return true;
+	}
+
+	/**
+	 * Sets whether documents are rendered in streaming mode.
+	 *
+	 * @see WTextRenderer#setStreaming(boolean)
+	 */
+	public void setStreaming(boolean enabled) {
+		this.streaming = enabled;
+	}
+
+	/**
+	 * Renders an XHTML document.
+	 * <p>
+	 * The PDF is written to <code>out</code>, which is flushed but not closed.
+	 */
+	public Future<Result> submit(CharSequence xhtml, OutputStream out) {
+		final String text = xhtml.toString();
+		return submit(renderer -> renderer.render(text), out);
+	}
+
+	/**
+	 * Renders a template.
+	 * <p>
+	 * The PDF is written to <code>out</code>, which is flushed but not closed.
+	 *
+	 * @see WTextRenderer#render(WTextRenderer.Template, Map)
+	 */
+	public Future<Result> submit(final WTextRenderer.Template template, final Map<String, ?> data,
+			OutputStream out) {
+		return submit(renderer -> renderer.render(template, data), out);
+	}
+
+	/**
+	 * Renders a batch of XHTML documents.
+	 * <p>
+	 * The PDF for document <i>i</i> is written to <code>outputs.apply(i)</code>.
+	 * This waits until all documents are rendered, and returns their results in
+	 * the order of the documents.
+	 */
+	public List<Result> renderAll(List<? extends CharSequence> documents, IntFunction<OutputStream> outputs)
+			throws InterruptedException {
+		List<Future<Result>> futures = new ArrayList<Future<Result>>();
+		for (int i = 0; i < documents.size(); ++i)
+			futures.add(submit(documents.get(i), outputs.apply(i)));
+
+		List<Result> results = new ArrayList<Result>();
+		for (Future<Result> f : futures) {
+			try {
+				results.add(f.get());
+			} catch (ExecutionException e) {
+				results.add(new Result(0, 0, 0, e));
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * Stops accepting documents.
+	 * <p>
+	 * Documents that were already submitted are still rendered.
+	 */
+	public void shutdown() {
+		executor.shutdown();
+	}
+
+	/**
+	 * Waits until all submitted documents are rendered, after {@link #shutdown()}.
+	 */
+	public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+		return executor.awaitTermination(timeout, unit);
+	}
+
+	/**
+	 * Creates the renderer for a document.
+	 * <p>
+	 * This is called on a worker thread. The default implementation creates a
+	 * {@link WPdfRenderer} configured with the options of this service.
+	 */
+	protected WPdfRenderer createRenderer(PDF pdf, Page page) {
+		WPdfRenderer renderer = new WPdfRenderer(pdf, page);
+		renderer.setMargin(margin[0], Side.Top);
+		renderer.setMargin(margin[1], Side.Right);
+		renderer.setMargin(margin[2], Side.Bottom);
+		renderer.setMargin(margin[3], Side.Left);
+		renderer.setDpi(dpi);
+		for (WPdfRenderer.FontCollection c : fontCollections)
+			renderer.addFontCollection(c.directory, c.recursive);
+		renderer.setStyleSheetText(styleSheetText);
+		renderer.setStreaming(streaming);
+		return renderer;
+	}
+
+	private Future<Result> submit(final Consumer<WPdfRenderer> render, final OutputStream out) {
+		final long queued = System.nanoTime();
+		return executor.submit(() -> {
+			long start = System.nanoTime();
+			int pageCount = 0;
+			Exception error = null;
+			try {
+				CountingPdf pdf = new CountingPdf(out);
+				Page page = new Page(pdf, pageSize);
+				render.accept(createRenderer(pdf, page));
+				pdf.flush();
+				pageCount = pdf.getPageCount();
+			} catch (Exception e) {
+				logger.error("Error rendering report", e);
+				error = e;
+			}
+			return new Result(pageCount, start - queued, System.nanoTime() - start, error);
+		});
+	}
+}
@@ -164,6 +164,38 @@ public abstract class WTextRenderer {
       return this.lb_;
     }
   }
+  /**
+   * A parsed XHTML template.
+   *
+   * <p>A template is parsed once, and may then be rendered many times, with different data, using
+   * {@link WTextRenderer#render(WTextRenderer.Template template, Map data, double y) render()}. A
+   * placeholder <code>${name}</code> in the text of the template is substituted with the value for
+   * <code>name</code> in the data (a placeholder without a value is rendered as is). Placeholders
+   * in attribute values are not substituted.
+   *
+   * <p>The in-document &lt;style&gt; of the template is parsed once as well. A template is not
+   * modified by rendering it, and may be shared between threads.
+   */
+  public static class Template {
+    private static Logger logger = LoggerFactory.getLogger(Template.class);
+
+    /** Creates a template from an XHTML fragment. */
+    public Template(final CharSequence text) {
+      this.doc_ = RenderUtils.parseXHTML(WString.toWString(text).toXhtml());
+      StyleSheet styleSheet = null;
+      if (this.doc_ != null) {
+        StringBuilder ss = new StringBuilder();
+        RenderUtils.extractStyles(this.doc_, ss);
+        if (!(ss.length() == 0)) {
+          styleSheet = parseDocumentStyles(ss.toString());
+        }
+      }
+      this.styleSheet_ = styleSheet;
+    }
+
+    final net.n3.nanoxml.XMLElement doc_;
+    final StyleSheet styleSheet_;
+  }
   /**
    * Renders an XHTML fragment.
    *
@@ -184,28 +216,84 @@ public abstract class WTextRenderer {
    */
   public double render(final CharSequence text, double y) {
     String xhtml = WString.toWString(text).toXhtml();
-    try {
-      net.n3.nanoxml.XMLElement doc = RenderUtils.parseXHTML(xhtml);
-      Block docBlock = new Block(doc, (Block) null);
-      CombinedStyleSheet styles = new CombinedStyleSheet();
-      if (this.styleSheet_ != null) {
-        styles.use(this.styleSheet_);
-      }
+    net.n3.nanoxml.XMLElement doc = RenderUtils.parseXHTML(xhtml);
+    StyleSheet docStyles = null;
+    if (doc != null) {
       StringBuilder ss = new StringBuilder();
-      docBlock.collectStyles(ss);
+      RenderUtils.extractStyles(doc, ss);
       if (!(ss.length() == 0)) {
-        CssParser parser = new CssParser();
-        StyleSheet docStyles = parser.parse(ss.toString());
-        if (docStyles != null) {
-          styles.use(docStyles);
-        } else {
-          logger.error(
-              new StringWriter()
-                  .append("Error parsing style sheet: ")
-                  .append(parser.getLastError())
-                  .toString());
-        }
+        docStyles = parseDocumentStyles(ss.toString());
       }
+    }
+    return this.render(doc, docStyles, y);
+  }
+  /**
+   * Renders a template.
+   *
+   * <p>This renders the template with its placeholders substituted with the values in <code>data
+   * </code>, like {@link WTextRenderer#render(CharSequence text, double y) render()}. Since the
+   * template was parsed when it was created, this only lays out and paints the contents.
+   */
+  public double render(final WTextRenderer.Template template, final Map<String, ?> data, double y) {
+    net.n3.nanoxml.XMLElement doc = RenderUtils.copy(template.doc_, data);
+    return this.render(doc, template.styleSheet_, y);
+  }
+  /**
+   * Renders a template.
+   *
+   * <p>Returns {@link #render(WTextRenderer.Template template, Map data, double y)
+   * render(template, data, 0)}
+   */
+  public final double render(final WTextRenderer.Template template, final Map<String, ?> data) {
+    return render(template, data, 0);
+  }
+
+  /**
+   * Sets whether pages are rendered as soon as their layout is complete.
+   *
+   * <p>By default, the whole document is laid out before the first page is painted, and the layout
+   * of the whole document is kept in memory until the last page has been painted.
+   *
+   * <p>In streaming mode, the top-level elements of the document are created, laid out and painted
+   * one after another: a page is painted (and {@link WTextRenderer#endPage(WPaintDevice device)
+   * endPage()} is called) as soon as the layout reaches the next page, after which the elements
+   * that are entirely on painted pages are released. The memory used is thus bounded by the
+   * largest top-level element rather than by the document.
+   *
+   * <p>Because the layout is not repeated, contents that are too wide for the page are not
+   * accommodated by widening the layout. The borders, padding and margins of the document itself
+   * (to which a <code>div</code> selector applies) are not rendered, and absolutely positioned
+   * elements cannot be positioned on a page that has already been painted.
+   *
+   * <p>The default value is <code>false</code>.
+   */
+  public void setStreaming(boolean enabled) {
+    this.streaming_ = enabled;
+  }
+  /**
+   * Returns whether pages are rendered as soon as their layout is complete.
+   *
+   * <p>
+   *
+   * @see WTextRenderer#setStreaming(boolean enabled)
+   */
+  public boolean isStreaming() {
+    return this.streaming_;
+  }
+
+  private double render(net.n3.nanoxml.XMLElement doc, StyleSheet docStyles, double y) {
+    CombinedStyleSheet styles = new CombinedStyleSheet();
+    if (this.styleSheet_ != null) {
+      styles.use(this.styleSheet_);
+    }
+    if (docStyles != null) {
+      styles.use(docStyles);
+    }
+    if (this.streaming_ && doc != null) {
+      return this.renderSections(doc, new StyleIndex(styles), y);
+    }
+    try {
+      Block docBlock = new Block(doc, (Block) null);
       docBlock.setStyleSheet(styles);
       docBlock.determineDisplay();
       docBlock.normalizeWhitespace(false, doc);
@@ -262,6 +350,111 @@ public abstract class WTextRenderer {
       throw e;
     }
   }
+
+  private double renderSections(net.n3.nanoxml.XMLElement doc, StyleIndex styles, double y) {
+    LinkedList<net.n3.nanoxml.XMLElement> nodes = new LinkedList<net.n3.nanoxml.XMLElement>();
+    for (Object o : doc.getChildren()) {
+      nodes.add((net.n3.nanoxml.XMLElement) o);
+    }
+    doc.getChildren().clear();
+    Block docBlock = new Block(doc, (Block) null);
+    docBlock.setStyleIndex(styles);
+    docBlock.determineDisplay();
+    PageState ps = new PageState();
+    ps.y = y;
+    ps.page = 0;
+    ps.minX = 0;
+    ps.maxX = this.textWidth(ps.page);
+    double maxX = ps.maxX;
+    docBlock.startSections(ps);
+    this.device_ = this.startPage(ps.page);
+    this.painter_ = this.getPainter(this.device_);
+    WFont defaultFont = new WFont();
+    defaultFont.setFamily(FontFamily.SansSerif);
+    this.painter_.setFont(defaultFont);
+    List<Block> sections = docBlock.getChildren();
+    List<Block> inlineRun = new ArrayList<Block>();
+    Block next = null;
+    boolean haveWhitespace = true;
+    double collapseMarginTop = Double.MAX_VALUE;
+    double collapseMarginBottom = 0;
+    boolean tooWide = false;
+    int page = 0;
+    for (; ; ) {
+      if (next == null && !nodes.isEmpty()) {
+        next = new Block(nodes.removeFirst(), docBlock);
+        next.setStyleIndex(styles);
+        next.determineDisplay();
+      }
+      Block section = null;
+      if (next != null && (next.isInline() || next.isFloat() && !inlineRun.isEmpty())) {
+        inlineRun.add(next);
+        next = null;
+        continue;
+      } else {
+        if (!inlineRun.isEmpty()) {
+          section = Block.createAnonymous(docBlock, inlineRun);
+          inlineRun.clear();
+        } else {
+          if (next != null) {
+            section = next;
+            next = null;
+          } else {
+            break;
+          }
+        }
+      }
+      sections.add(section);
+      haveWhitespace = section.normalizeWhitespace(haveWhitespace, doc);
+      double collapseMargin =
+          docBlock.layoutSection(section, ps, this, collapseMarginTop, collapseMarginBottom);
+      if (!section.isFloat() && !section.isPositionedAbsolutely()) {
+        collapseMarginBottom = collapseMargin;
+        collapseMarginTop = collapseMargin;
+      }
+      if (isEpsilonMore(ps.maxX, maxX) && !tooWide) {
+        logger.warn(
+            new StringWriter()
+                .append("contents too wide for page. (")
+                .append(String.valueOf(ps.maxX))
+                .append(" > ")
+                .append(String.valueOf(maxX))
+                .append(")")
+                .toString());
+        tooWide = true;
+      }
+      for (; page < ps.page; ++page) {
+        this.renderSectionsPage(sections, page);
+        this.device_ = this.startPage(page + 1);
+        this.painter_ = this.getPainter(this.device_);
+        this.painter_.setFont(defaultFont);
+      }
+    }
+    Block.clearFloats(ps, maxX);
+    for (; page <= ps.page; ++page) {
+      if (page > 0 && this.device_ == null) {
+        this.device_ = this.startPage(page);
+        this.painter_ = this.getPainter(this.device_);
+        this.painter_.setFont(defaultFont);
+      }
+      this.renderSectionsPage(sections, page);
+      this.device_ = null;
+    }
+    return ps.y;
+  }
+
+  private void renderSectionsPage(final List<Block> sections, int page) {
+    for (int i = 0; i < sections.size(); ++i) {
+      sections.get(i).render(this, this.painter_, page);
+    }
+    this.endPage(this.device_);
+    for (int i = 0; i < sections.size(); ++i) {
+      if (sections.get(i).getLastLayoutPage() <= page) {
+        sections.remove(i);
+        --i;
+      }
+    }
+  }
   /**
    * Renders an XHTML fragment.
    *
@@ -306,7 +499,7 @@ public abstract class WTextRenderer {
       return true;
     } else {
       CssParser parser = new CssParser();
-      StyleSheet styleSheet = parser.parse(styleSheetContents);
+      StyleSheet styleSheet = parser.parseCached(styleSheetContents);
       if (!(styleSheet != null)) {
         this.error_ = parser.getLastError();
         return false;
@@ -480,6 +673,7 @@ public abstract class WTextRenderer {
     this.styleSheetText_ = new WString();
     this.styleSheet_ = (StyleSheet) null;
     this.error_ = "";
+    this.streaming_ = false;
   }
 
   private WPainter painter_;
@@ -488,6 +682,7 @@ public abstract class WTextRenderer {
   private WString styleSheetText_;
   private StyleSheet styleSheet_;
   private String error_;
+  private boolean streaming_;
 
   WPainter getPainter() {
     return this.painter_;
@@ -498,4 +693,17 @@ public abstract class WTextRenderer {
   static boolean isEpsilonMore(double x, double limit) {
     return x - EPSILON > limit;
   }
+
+  static StyleSheet parseDocumentStyles(final String styles) {
+    CssParser parser = new CssParser();
+    StyleSheet result = parser.parseCached(styles);
+    if (!(result != null)) {
+      logger.error(
+          new StringWriter()
+              .append("Error parsing style sheet: ")
+              .append(parser.getLastError())
+              .toString());
+    }
+    return result;
+  }
 }
@@ -0,0 +1,392 @@
+/*
+ * Copyright (C) 2020 Emweb bv, Herent, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt.servlet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import eu.webtoolkit.jwt.WResource;
+import eu.webtoolkit.jwt.utils.StreamUtils;
+
+/**
+ * A continuation of a resource response.
+ * <p>
+ * A resource that streams a large response may do so in chunks. In
+ * {@link WResource#handleRequest(WebRequest request, WebResponse response)}, it
+ * writes a first chunk and calls {@link WebResponse#createContinuation()} before
+ * returning. The resource is then called again with the same request and
+ * response, for which {@link WebRequest#getContinuation()} returns the
+ * continuation, to write the next chunk. This repeats until the resource returns
+ * without creating a continuation. The continuation may carry data, such as the
+ * position in the data, from one call to the next (see {@link #setData(Object)}).
+ * <p>
+ * When the servlet container supports asynchronous requests, the response is
+ * written using a non-blocking (Servlet 3.1) {@link WriteListener}: the resource
+ * is called for the next chunk only when the previous chunk has been passed to
+ * the connection, and no thread is used while waiting for a slow client. While
+ * being continued, the output of the resource is collected in a buffer which
+ * holds at most one chunk: its output stream's
+ * {@link ServletOutputStream#isReady() isReady()} returns false once
+ * {@link #getBufferSize()} bytes have been written, which is a good moment for
+ * the resource to yield.
+ * <p>
+ * A resource that has no data available yet (for example, while waiting for
+ * another service) calls {@link #waitForMoreData()} before returning, and
+ * {@link #haveMoreData()} when it may be called again.
+ */
+public class ResponseContinuation {
+	private static final Logger logger = LoggerFactory.getLogger(ResponseContinuation.class);
+
+	/**
+	 * A handler which writes the next chunk of a response.
+	 * <p>
+	 * This is an internal JWt interface.
+	 */
+	public interface Handler {
+		/**
+		 * Writes the next chunk.
+		 */
+		public void handle(WebRequest request, WebResponse response) throws IOException;
+	}
+
+	private class Buffer extends ServletOutputStream {
+		private final ByteArrayOutputStream data = new ByteArrayOutputStream();
+
+		@Override
+		public void write(int b) {
+			data.write(b);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			data.write(b, off, len);
+		}
+
+		@Override
+		public boolean isReady() {
+			return data.size() < bufferSize;
+		}
+
+		@Override
+		public void setWriteListener(WriteListener listener) {
+		}
+	}
+
+	private final WebResponse response;
+	private WebRequest request;
+	private Handler handler;
+	private ServletOutputStream connection;
+	private Buffer buffer;
+	private Object data;
+	private int bufferSize;
+	private boolean async;
+
+	private boolean continued;
+	private boolean done;
+	private byte[] pending;
+	private boolean failed;
+
+	private boolean waiting;
+	private boolean running;
+	private boolean rerun;
+	private boolean finished;
+
+	ResponseContinuation(WebResponse response) {
+		this.response = response;
+		this.bufferSize = 64 * 1024;
+	}
+
+	/**
+	 * Sets data associated with the continuation.
+	 */
+	public void setData(Object data) {
+		this.data = data;
+	}
+
+	/**
+	 * Returns the data associated with the continuation.
+	 *
+	 * @see #setData(Object)
+	 */
+	public Object getData() {
+		return data;
+	}
+
+	/**
+	 * Sets the size of the buffer.
+	 * <p>
+	 * The default size is 64 kB.
+	 */
+	public void setBufferSize(int bufferSize) {
+		this.bufferSize = bufferSize;
+	}
+
+	/**
+	 * Returns the size of the buffer.
+	 *
+	 * @see #setBufferSize(int)
+	 */
+	public int getBufferSize() {
+		return bufferSize;
+	}
+
+	/**
+	 * Indicates that the resource has no data available.
+	 * <p>
+	 * The resource is not called again until {@link #haveMoreData()} is called.
+	 */
+	public synchronized void waitForMoreData() {
+		waiting = true;
+	}
+
+	/**
+	 * Returns whether the continuation is waiting for data.
+	 *
+	 * @see #waitForMoreData()
+	 */
+	public synchronized boolean isWaitingForMoreData() {
+		return waiting;
+	}
+
+	/**
+	 * Indicates that more data is available.
+	 * <p>
+	 * This resumes a continuation that is waiting for data. It may be called from
+	 * any thread.
+	 */
+	public void haveMoreData() {
+		synchronized (this) {
+			if (!waiting)
+				return;
+			waiting = false;
+			notifyAll();
+		}
+
+		if (async)
+			request.getAsyncContext().start(this::pump);
+	}
+
+	/**
+	 * Returns whether the response has been completed.
+	 */
+	public synchronized boolean isFinished() {
+		return finished;
+	}
+
+	/**
+	 * Starts streaming the remainder of the response.
+	 * <p>
+	 * This is an internal JWt method, called after the first chunk was written.
+	 */
+	public void start(WebRequest request, Handler handler) {
+		this.request = request;
+		this.handler = handler;
+		request.setContinuation(this);
+
+		try {
+			response.out().flush();
+		} catch (IOException e) {
+			logger.info("IOException in flush", e);
+		}
+		connection = response.getOutputStream();
+		buffer = new Buffer();
+		response.setOutputStream(buffer);
+
+		if (request.isAsyncSupported()) {
+			async = true;
+			if (!request.isAsyncStarted())
+				request.startAsync();
+			try {
+				// the response completes when the client has read it
+				request.getAsyncContext().setTimeout(0);
+			} catch (IllegalStateException e) {
+				logger.debug("Could not change async timeout", e);
+			}
+			connection.setWriteListener(new WriteListener() {
+				@Override
+				public void onWritePossible() {
+					pump();
+				}
+
+				@Override
+				public void onError(Throwable t) {
+					logger.info("Error while streaming response", t);
+					finish();
+				}
+			});
+		} else {
+			flushConnection();
+			run();
+		}
+	}
+
+	/*
+	 * Writes the response in the current thread, with blocking I/O.
+	 */
+	private void run() {
+		while (!done && isConnected()) {
+			synchronized (this) {
+				try {
+					while (waiting)
+						wait();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					break;
+				}
+			}
+
+			next();
+			if (pending != null) {
+				send(pending);
+				flushConnection();
+				pending = null;
+			}
+		}
+
+		finish();
+	}
+
+	/*
+	 * Writes the response without blocking: called when the connection may accept
+	 * more data, and when more data is available.
+	 */
+	private void pump() {
+		synchronized (this) {
+			if (finished)
+				return;
+			if (running) {
+				rerun = true;
+				return;
+			}
+			running = true;
+		}
+
+		boolean complete;
+		for (;;) {
+			try {
+				complete = write();
+			} catch (RuntimeException e) {
+				logger.error("Exception while streaming response", e);
+				complete = true;
+			}
+
+			synchronized (this) {
+				if (!complete && rerun) {
+					rerun = false;
+					continue;
+				}
+				running = false;
+				rerun = false;
+			}
+			break;
+		}
+
+		if (complete)
+			finish();
+	}
+
+	/*
+	 * Writes while the connection accepts data, and returns whether the response
+	 * is complete.
+	 */
+	private boolean write() {
+		while (isConnected() && connection.isReady()) {
+			if (pending != null) {
+				byte[] chunk = pending;
+				pending = null;
+				send(chunk);
+			} else if (done)
+				return true;
+			else if (isWaitingForMoreData())
+				return false;
+			else
+				next();
+		}
+
+		return !isConnected();
+	}
+
+	/*
+	 * Calls the resource for the next chunk.
+	 */
+	private void next() {
+		buffer.data.reset();
+		continued = false;
+		try {
+			handler.handle(request, response);
+			response.out().flush();
+		} catch (IOException e) {
+			logger.info("IOException while streaming response", e);
+			continued = false;
+		} catch (RuntimeException e) {
+			logger.error("Exception while streaming response", e);
+			continued = false;
+		}
+
+		if (buffer.data.size() > 0)
+			pending = buffer.data.toByteArray();
+		if (!continued)
+			done = true;
+	}
+
+	private void send(byte[] chunk) {
+		try {
+			connection.write(chunk, 0, chunk.length);
+		} catch (IOException e) {
+			logger.info("IOException while streaming response", e);
+			failed = true;
+		}
+	}
+
+	private void flushConnection() {
+		try {
+			connection.flush();
+		} catch (IOException e) {
+			logger.info("IOException in flush", e);
+			failed = true;
+		}
+	}
+
+	private boolean isConnected() {
+		if (connection instanceof StreamUtils.ErrorSuppressingOutputStream)
+			return !failed && ((StreamUtils.ErrorSuppressingOutputStream) connection).isValid();
+		else
+			return !failed;
+	}
+
+	private void finish() {
+		synchronized (this) {
+			if (finished)
+				return;
+			finished = true;
+			notifyAll();
+		}
+
+		if (!async)
+			flushConnection();
+		else if (request.isAsyncStarted()) {
+			try {
+				request.getAsyncContext().complete();
+			} catch (IllegalStateException e) {
+				logger.info("IllegalStateException when completing async context: {}", e.getMessage());
+			}
+		}
+	}
+
+	boolean isContinued() {
+		return continued;
+	}
+
+	void setContinued() {
+		continued = true;
+	}
+}
@@ -88,6 +88,7 @@ public class WebRequest extends HttpServletRequestWrapper {
 	private Map<String, List<UploadedFile>> files_;
 	private String scriptName;
 	private String pathInfo;
+	private ResponseContinuation continuation;
 
 	public static String computeScriptName(HttpServletRequest request, Configuration configuration) {
 		String scriptName = request.getServletPath();
@@ -219,6 +220,23 @@ public class WebRequest extends HttpServletRequestWrapper {
 		files_ = files;
 	}
 	
+	/**
+	 * Returns the continuation.
+	 * <p>
+	 * Returns the continuation if this request is being continued, or
+	 * <code>null</code> for the first call to
+	 * {@link WResource#handleRequest(WebRequest request, WebResponse response)}.
+	 *
+	 * @see WebResponse#createContinuation()
+	 */
+	public ResponseContinuation getContinuation() {
+		return continuation;
+	}
+
+	void setContinuation(ResponseContinuation continuation) {
+		this.continuation = continuation;
+	}
+
 	/**
 	 * Returns the request method.
 	 */
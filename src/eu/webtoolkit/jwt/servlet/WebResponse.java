@@ -9,6 +9,7 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
 
 import javax.servlet.ServletOutputStream;
@@ -44,6 +45,7 @@ public class WebResponse extends HttpServletResponseWrapper {
 	private int id;
 	private ServletOutputStream outputStream;
 	private ResponseType responseType;
+	private ResponseContinuation continuation;
 
 	/**
 	 * Constructor which wraps a HttpServletResponse.
@@ -128,6 +130,42 @@ public class WebResponse extends HttpServletResponseWrapper {
 		}
 	}
 
+	/**
+	 * Replaces the output stream.
+	 * <p>
+	 * This is an internal JWt method, used to buffer the output of a
+	 * {@link ResponseContinuation}.
+	 */
+	public void setOutputStream(ServletOutputStream outputStream) {
+		this.outputStream = outputStream;
+		this.outWriter = new OutputStreamWriter(outputStream, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Creates a continuation.
+	 * <p>
+	 * Call this from within {@link WResource#handleRequest(WebRequest request, WebResponse response)}
+	 * to have the resource called again to write the next part of the response. Calling this
+	 * again while handling the continuation returns the same continuation.
+	 *
+	 * @see ResponseContinuation
+	 */
+	public ResponseContinuation createContinuation() {
+		if (continuation == null)
+			continuation = new ResponseContinuation(this);
+		continuation.setContinued();
+		return continuation;
+	}
+
+	/**
+	 * Returns the continuation created while handling the request.
+	 * <p>
+	 * Returns <code>null</code> if {@link #createContinuation()} was not called.
+	 */
+	public ResponseContinuation getContinuation() {
+		return continuation != null && continuation.isContinued() ? continuation : null;
+	}
+
 	/**
 	 * Returns a text writer.
 	 * <p>
@@ -140,6 +178,19 @@ public class WebResponse extends HttpServletResponseWrapper {
 		return this.outWriter;
 	}
 
+	/**
+	 * Returns the number of bytes written to the output stream.
+	 * <p>
+	 * Data that is still buffered in the text writer (see {@link #out()}) is only counted
+	 * after the response has been flushed.
+	 */
+	public long getBytesWritten() {
+		if (outputStream instanceof StreamUtils.ErrorSuppressingOutputStream)
+			return ((StreamUtils.ErrorSuppressingOutputStream) outputStream).getBytesWritten();
+		else
+			return 0;
+	}
+
 	/**
 	 * Sets an ID to the WebResponse (used by JWt).
 	 * 
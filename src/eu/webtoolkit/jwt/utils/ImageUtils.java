@@ -5,11 +5,11 @@
  */
 package eu.webtoolkit.jwt.utils;
 
+import eu.webtoolkit.jwt.ImageCache;
 import eu.webtoolkit.jwt.WPoint;
 
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
-import java.io.File;
 import java.util.Iterator;
 import java.util.List;
 
@@ -35,13 +35,12 @@ public class ImageUtils {
 	}
 
 	public static WPoint getSize(final String fileName) {
-		try {
-			BufferedImage image = ImageIO.read(new File(fileName));
-			return new WPoint(image.getWidth(), image.getHeight());
-		} catch (java.io.IOException e) {
+		ImageCache.Entry entry = ImageCache.getInstance().get(fileName);
+		if (entry == null) {
 			logger.error("An error occurred while attempting to get the size of image '" +
-					fileName + "'", e);
+					fileName + "'");
 			return new WPoint();
 		}
+		return entry.getSize();
 	}
 }
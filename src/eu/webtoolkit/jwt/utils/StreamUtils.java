@@ -74,6 +74,7 @@ public class StreamUtils {
 				return;
 			try {
 				stream.write(b);
+				++bytesWritten;
 			} catch (IOException e) {
 				if (logger.isDebugEnabled()) {
 					logger.debug("IOException occurred while writing to ServletOutputStream", e);
@@ -91,6 +92,7 @@ public class StreamUtils {
 				return;
 			try {
 				stream.write(b);
+				bytesWritten += b.length;
 			} catch (IOException e) {
 				if (logger.isDebugEnabled()) {
 					logger.debug("IOException occurred while writing to ServletOutputStream", e);
@@ -108,6 +110,7 @@ public class StreamUtils {
 				return;
 			try {
 				stream.write(b, off, len);
+				bytesWritten += len;
 			} catch (IOException e) {
 				if (logger.isDebugEnabled()) {
 					logger.debug("IOException occurred while writing to ServletOutputStream", e);
@@ -170,7 +173,22 @@ public class StreamUtils {
 			}
 		}
 
+		/**
+		 * Returns whether no error has occurred while writing.
+		 */
+		public boolean isValid() {
+			return valid;
+		}
+
+		/**
+		 * Returns the number of bytes that were written successfully.
+		 */
+		public long getBytesWritten() {
+			return bytesWritten;
+		}
+
 		private boolean valid = true;
+		private long bytesWritten = 0;
 		private ServletOutputStream stream;
 		private Logger logger;
 	}
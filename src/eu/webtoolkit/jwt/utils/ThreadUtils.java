@@ -6,9 +6,29 @@
 package eu.webtoolkit.jwt.utils;
 
 import java.time.Duration;
+import java.util.concurrent.ExecutorService;
 
 public class ThreadUtils {
 	public static void sleep(Duration d) throws InterruptedException {
 		Thread.sleep(d.getSeconds() * 1000L, (int)(d.toNanos() % 1000000L));
 	}
+
+	/**
+	 * Creates an executor that starts a new virtual thread for each task.
+	 * <p>
+	 * Virtual threads are available from Java 21 on. The executor is looked up reflectively,
+	 * so that JWt can still be built for and run on older Java versions.
+	 *
+	 * @return the executor, or <code>null</code> if virtual threads are not supported by this JVM.
+	 */
+	public static ExecutorService newVirtualThreadPerTaskExecutor() {
+		try {
+			return (ExecutorService) java.util.concurrent.Executors.class
+				.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException e) {
+			return null;
+		} catch (UnsupportedOperationException e) {
+			return null;
+		}
+	}
 }
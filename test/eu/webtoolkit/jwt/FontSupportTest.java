@@ -0,0 +1,76 @@
+package eu.webtoolkit.jwt;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class FontSupportTest {
+	private Path dir;
+
+	private static void touch(Path dir, String name) throws Exception {
+		Files.write(dir.resolve(name), name.getBytes("UTF-8"));
+	}
+
+	private static WFont sansSerif(FontWeight weight, FontStyle style) {
+		WFont result = new WFont(FontFamily.SansSerif);
+		result.setFamily(FontFamily.SansSerif, "'DejaVu Sans', Verdana");
+		result.setWeight(weight);
+		result.setStyle(style);
+		return result;
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		if (dir == null)
+			return;
+
+		try (Stream<Path> paths = Files.walk(dir)) {
+			for (Path p : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator)
+				Files.delete(p);
+		}
+	}
+
+	@Test
+	public void testMatchFont() throws Exception {
+		dir = Files.createTempDirectory("jwt-fonts");
+		Path sub = Files.createDirectory(dir.resolve("sub"));
+		touch(dir, "Arial.ttf");
+		touch(sub, "ArialBold.ttf");
+		touch(sub, "DejaVu Sans Italic.ttf");
+		touch(dir, "readme.txt");
+
+		FontSupport fonts = new FontSupport(null);
+		fonts.addFontCollection(dir.toString(), true);
+
+		FontSupport.FontMatch m = fonts.matchFont(sansSerif(FontWeight.Normal, FontStyle.Normal));
+		assertTrue(m.isMatched());
+		assertEquals(dir.resolve("Arial.ttf").toString(), new File(m.getFileName()).getPath());
+		assertEquals(0.6, m.getQuality(), 1E-9);
+
+		m = fonts.matchFont(sansSerif(FontWeight.Bold, FontStyle.Normal));
+		assertEquals("ArialBold.ttf", new File(m.getFileName()).getName());
+
+		m = fonts.matchFont(sansSerif(FontWeight.Normal, FontStyle.Italic));
+		assertEquals("DejaVu Sans Italic.ttf", new File(m.getFileName()).getName());
+		assertEquals(1.0, m.getQuality(), 1E-9);
+
+		// the directory is indexed once, and shared by all instances
+		Map<String, String> index = FontSupport.getFontIndex(dir.toString(), true);
+		assertSame(index, FontSupport.getFontIndex(dir.toString(), true));
+		assertEquals(3, index.size());
+		assertEquals(1, FontSupport.getFontIndex(dir.toString(), false).size());
+		assertNull(FontSupport.getFontIndex(dir.resolve("missing").toString(), true));
+
+		byte[] data = FontSupport.getFontData(m.getFileName());
+		assertSame(data, FontSupport.getFontData(m.getFileName()));
+		assertEquals("DejaVu Sans Italic.ttf", new String(data, "UTF-8"));
+	}
+}
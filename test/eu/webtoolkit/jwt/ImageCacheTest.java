@@ -0,0 +1,96 @@
+package eu.webtoolkit.jwt;
+
+import static org.junit.Assert.*;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.Base64;
+
+import javax.imageio.ImageIO;
+
+import org.junit.Test;
+
+public class ImageCacheTest {
+	private static File createImage(int width, int height) throws Exception {
+		File result = File.createTempFile("jwt-image", ".png");
+		result.deleteOnExit();
+		ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB), "png", result);
+		return result;
+	}
+
+	private static void assertSize(int width, int height, ImageCache.Entry e) {
+		assertEquals(width, e.getSize().getX());
+		assertEquals(height, e.getSize().getY());
+	}
+
+	@Test
+	public void testCache() throws Exception {
+		ImageCache cache = new ImageCache(ImageCache.DEFAULT_MAX_SIZE);
+		File f = createImage(20, 10);
+
+		ImageCache.Entry e = cache.get(f.getPath());
+		assertNotNull(e);
+		assertEquals("image/png", e.getMimeType());
+		assertSize(20, 10, e);
+		assertSame(e, cache.get(f.getPath()));
+		assertEquals(1, cache.getMissCount());
+		assertEquals(1, cache.getHitCount());
+
+		BufferedImage image = e.getImage();
+		assertEquals(20, image.getWidth());
+		assertSame(image, cache.get(f.getPath()).getImage());
+		assertEquals(e.getData().length + 2 * f.getPath().length() + 20 * 10 * 4, cache.getSize());
+
+		assertNull(cache.get(new File(f.getParentFile(), "does-not-exist.png").getPath()));
+	}
+
+	@Test
+	public void testModified() throws Exception {
+		ImageCache cache = new ImageCache(ImageCache.DEFAULT_MAX_SIZE);
+		File f = createImage(20, 10);
+		ImageCache.Entry e = cache.get(f.getPath());
+
+		ImageIO.write(new BufferedImage(30, 15, BufferedImage.TYPE_INT_ARGB), "png", f);
+		assertTrue(f.setLastModified(e.getLastModified() + 2000));
+
+		ImageCache.Entry modified = cache.get(f.getPath());
+		assertNotSame(e, modified);
+		assertSize(30, 15, modified);
+		assertEquals(modified.getData().length + 2 * f.getPath().length(), cache.getSize());
+	}
+
+	@Test
+	public void testEviction() throws Exception {
+		File a = createImage(100, 100);
+		File b = createImage(100, 100);
+		// room for the contents of both images, but for only one decoded image
+		ImageCache cache = new ImageCache(60000);
+
+		ImageCache.Entry ea = cache.get(a.getPath());
+		ImageCache.Entry eb = cache.get(b.getPath());
+		assertSame(ea, cache.get(a.getPath()));
+		assertSame(eb, cache.get(b.getPath()));
+
+		ea.getImage();
+		eb.getImage();
+		assertTrue(cache.getSize() <= 60000);
+		assertSame(eb, cache.get(b.getPath()));
+		assertNotSame(ea, cache.get(a.getPath()));
+
+		cache.setMaxSize(0);
+		assertEquals(0, cache.getSize());
+	}
+
+	@Test
+	public void testDataUri() throws Exception {
+		ByteArrayOutputStream png = new ByteArrayOutputStream();
+		ImageIO.write(new BufferedImage(4, 3, BufferedImage.TYPE_INT_RGB), "png", png);
+		String uri = "data:image/png;base64," + Base64.getEncoder().encodeToString(png.toByteArray());
+
+		ImageCache cache = new ImageCache(ImageCache.DEFAULT_MAX_SIZE);
+		ImageCache.Entry e = cache.get(uri);
+		assertSize(4, 3, e);
+		assertSame(e, cache.get(uri));
+	}
+}
@@ -0,0 +1,52 @@
+package eu.webtoolkit.jwt;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class MetricsHistogramTest {
+	@Test
+	public void testBuckets() {
+		long previous = -1;
+		for (int i = 0; i < MetricsHistogram.BUCKET_COUNT; ++i) {
+			long upper = MetricsHistogram.bucketUpperBound(i);
+			assertTrue(upper > previous);
+			assertEquals(i, MetricsHistogram.bucketIndex(upper));
+			assertEquals(i, MetricsHistogram.bucketIndex(previous + 1));
+			previous = upper;
+		}
+		assertEquals(Long.MAX_VALUE, previous);
+	}
+
+	@Test
+	public void testPercentiles() {
+		MetricsHistogram h = new MetricsHistogram();
+		for (int i = 1; i <= 10000; ++i)
+			h.record(i);
+
+		assertEquals(10000, h.getCount());
+		assertEquals(10000, h.getMax());
+		assertEquals(5000.5, h.getMean(), 1E-9);
+
+		long p50 = h.getValueAtPercentile(50);
+		assertTrue(p50 >= 5000 && p50 <= 5000 * 1.07);
+		long p99 = h.getValueAtPercentile(99);
+		assertTrue(p99 >= 9900 && p99 <= 10000);
+		assertEquals(10000, h.getValueAtPercentile(100));
+	}
+
+	@Test
+	public void testSnapshotSink() {
+		SnapshotMetricsSink sink = new SnapshotMetricsSink();
+		sink.recordLatency(MetricsSink.RequestType.JsUpdate, MetricsSink.Stage.LockWait, 1000);
+		sink.recordResponseSize(MetricsSink.RequestType.Page, 2048);
+
+		assertEquals(2, sink.getSnapshot().size());
+		assertEquals(1, sink.getSnapshot().get("JsUpdate.LockWait").getCount());
+		assertEquals(2048, sink.getResponseSize(MetricsSink.RequestType.Page).getMax());
+
+		sink.reset();
+		assertEquals(0, sink.getSnapshot().size());
+	}
+}
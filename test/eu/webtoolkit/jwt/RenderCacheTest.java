@@ -0,0 +1,121 @@
+package eu.webtoolkit.jwt;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class RenderCacheTest {
+	private static final String CHROME = "Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.36 (KHTML, like Gecko) "
+			+ "Chrome/120.0.0.0 Safari/537.36";
+	private static final AtomicInteger paintCount = new AtomicInteger();
+
+	private static class Chart extends WPaintedWidget {
+		Chart(RenderMethod method, String key) {
+			setPreferredMethod(method);
+			setRenderCacheKey(key);
+			resize(new WLength(200), new WLength(100));
+		}
+
+		@Override
+		protected void paintEvent(WPaintDevice paintDevice) {
+			paintCount.incrementAndGet();
+			WPainter painter = new WPainter(paintDevice);
+			painter.setBrush(new WBrush(new WColor(255, 0, 0)));
+			painter.drawRect(10, 10, 100, 50);
+			painter.drawText(new WRectF(0, 0, 200, 100), EnumSet.of(AlignmentFlag.Center, AlignmentFlag.Middle),
+					"Total");
+		}
+	}
+
+	/*
+	 * Renders a chart in a new session, and returns its DOM.
+	 */
+	private static String render(final RenderMethod method, final String key) throws Exception {
+		final StringBuilder result = new StringBuilder();
+		Thread t = new Thread(() -> {
+			WTestEnvironment env = new WTestEnvironment(new Configuration());
+			env.setUserAgent(CHROME);
+			WApplication app = new WApplication(env);
+			Chart chart = new Chart(method, key);
+			app.getRoot().addWidget(chart);
+			DomElement e = chart.createDomElement(app);
+			EscapeOStream out = new EscapeOStream();
+			EscapeOStream js = new EscapeOStream();
+			e.asHTML(out, js, new ArrayList<DomElement.TimeoutEvent>());
+			result.append(out.toString()).append(js.toString());
+		});
+		t.start();
+		t.join();
+		return result.toString();
+	}
+
+	@Test
+	public void testSharedAcrossSessions() throws Exception {
+		RenderCache cache = RenderCache.getInstance();
+		cache.clear();
+		cache.resetStatistics();
+		paintCount.set(0);
+
+		String first = render(RenderMethod.InlineSvgVml, "sales-v1");
+		String second = render(RenderMethod.InlineSvgVml, "sales-v1");
+		assertEquals(1, paintCount.get());
+		assertTrue(first.contains("<svg"));
+		assertEquals(first.substring(first.indexOf("<svg")), second.substring(second.indexOf("<svg")));
+		assertEquals(1, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+		assertEquals(0.5, cache.getHitRate(), 0);
+		assertTrue(cache.getSavedRenderTime() > 0);
+
+		render(RenderMethod.InlineSvgVml, "sales-v2");
+		render(RenderMethod.HtmlCanvas, "sales-v1");
+		render(RenderMethod.HtmlCanvas, "sales-v1");
+		assertEquals(3, paintCount.get());
+
+		render(RenderMethod.PngImage, "sales-v1");
+		String png = render(RenderMethod.PngImage, "sales-v1");
+		assertEquals(4, paintCount.get());
+		assertTrue(png.contains("<img"));
+		assertTrue(cache.getSize() > 0);
+
+		paintCount.set(0);
+		render(RenderMethod.InlineSvgVml, null);
+		render(RenderMethod.InlineSvgVml, null);
+		assertEquals(2, paintCount.get());
+	}
+
+	@Test
+	public void testEviction() {
+		RenderCache cache = new RenderCache(1000);
+		RenderCache.Entry a = cache.put("a", new String(new char[200]), null, null, 10);
+		cache.put("b", new String(new char[200]), null, null, 10);
+		assertSame(a, cache.get("a"));
+		assertSame(a, cache.getByDigest(a.getDigest()));
+		assertTrue(cache.getSize() <= 1000);
+
+		cache.put("c", new String(new char[200]), null, null, 10);
+		assertNull(cache.get("b"));
+		assertSame(a, cache.get("a"));
+		assertEquals(20, cache.getSavedRenderTime());
+
+		cache.setMaxSize(0);
+		assertEquals(0, cache.getSize());
+		assertNull(cache.getByDigest(a.getDigest()));
+	}
+
+	@Test
+	public void testImageDigest() {
+		RenderCache cache = new RenderCache(1000);
+		RenderCache.Entry a = cache.put("k", null, null, new byte[] { 1, 2, 3 }, 10);
+		assertEquals(a.getDigest(), new RenderCache(1000).put("k", null, null, new byte[] { 1, 2, 3 }, 10).getDigest());
+
+		// new output for the same key gets a new URL, and the old URL no longer resolves
+		RenderCache.Entry b = cache.put("k", null, null, new byte[] { 4, 5, 6 }, 10);
+		assertFalse(a.getDigest().equals(b.getDigest()));
+		assertNull(cache.getByDigest(a.getDigest()));
+		assertSame(b, cache.getByDigest(b.getDigest()));
+	}
+}
@@ -0,0 +1,222 @@
+package eu.webtoolkit.jwt;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Test;
+
+import eu.webtoolkit.jwt.servlet.ResponseContinuation;
+import eu.webtoolkit.jwt.servlet.WebRequest;
+import eu.webtoolkit.jwt.servlet.WebResponse;
+
+public class ResponseContinuationTest {
+	private static final int CHUNKS = 20;
+
+	/*
+	 * Writes one line per call, and waits for data every fifth line.
+	 */
+	private static class LinesResource extends WResource {
+		final AtomicInteger calls = new AtomicInteger();
+		volatile ResponseContinuation waiting;
+
+		@Override
+		protected void handleRequest(WebRequest request, WebResponse response) throws IOException {
+			calls.incrementAndGet();
+			ResponseContinuation continuation = request.getContinuation();
+			int line = continuation == null ? 0 : (Integer) continuation.getData();
+			response.out().append("line " + line + "\n");
+			if (line + 1 < CHUNKS) {
+				continuation = response.createContinuation();
+				continuation.setData(line + 1);
+				if (line % 5 == 4) {
+					continuation.waitForMoreData();
+					waiting = continuation;
+				}
+			}
+		}
+	}
+
+	private static String expected() {
+		StringBuilder result = new StringBuilder();
+		for (int i = 0; i < CHUNKS; ++i)
+			result.append("line " + i + "\n");
+		return result.toString();
+	}
+
+	/*
+	 * Supplies data to a continuation that is waiting for it.
+	 */
+	private static Thread supplier(final LinesResource resource, final CountDownLatch stop) {
+		Thread result = new Thread(() -> {
+			try {
+				while (!stop.await(1, TimeUnit.MILLISECONDS)) {
+					ResponseContinuation c = resource.waiting;
+					if (c != null && c.isWaitingForMoreData()) {
+						resource.waiting = null;
+						c.haveMoreData();
+					}
+				}
+			} catch (InterruptedException e) {
+			}
+		});
+		result.start();
+		return result;
+	}
+
+	private static class SlowClient extends ServletOutputStream {
+		final ByteArrayOutputStream data = new ByteArrayOutputStream();
+		volatile WriteListener listener;
+		volatile boolean ready = true;
+
+		@Override
+		public void write(int b) {
+			data.write(b);
+		}
+
+		@Override
+		public synchronized void write(byte[] b, int off, int len) {
+			data.write(b, off, len);
+			if (listener != null)
+				ready = false;
+		}
+
+		@Override
+		public boolean isReady() {
+			return ready;
+		}
+
+		@Override
+		public void setWriteListener(WriteListener listener) {
+			this.listener = listener;
+		}
+
+		void drain() throws IOException {
+			ready = true;
+			listener.onWritePossible();
+		}
+	}
+
+	private static HttpServletRequest createRequest(final AsyncContext context, final boolean[] started) {
+		return (HttpServletRequest) Proxy.newProxyInstance(
+				HttpServletRequest.class.getClassLoader(), new Class<?>[] { HttpServletRequest.class },
+				(proxy, m, args) -> {
+					switch (m.getName()) {
+					case "getMethod":
+						return "GET";
+					case "getServletPath":
+					case "getContextPath":
+					case "getPathInfo":
+						return "";
+					case "getRequestURI":
+						return "/";
+					case "getParameterMap":
+						return new HashMap<String, String[]>();
+					case "isAsyncSupported":
+						return context != null;
+					case "isAsyncStarted":
+						return started[0];
+					case "startAsync":
+						started[0] = true;
+						return context;
+					case "getAsyncContext":
+						return context;
+					default:
+						return m.getReturnType() == Boolean.TYPE ? false : m.getReturnType() == Integer.TYPE ? 0 : null;
+					}
+				});
+	}
+
+	private static void handle(final WResource resource, HttpServletRequest httpRequest, final SlowClient client)
+			throws Exception {
+		HttpServletResponse httpResponse = (HttpServletResponse) Proxy.newProxyInstance(
+				HttpServletResponse.class.getClassLoader(), new Class<?>[] { HttpServletResponse.class },
+				(proxy, m, args) -> m.getName().equals("getOutputStream") ? client : null);
+		final WebRequest request = new WebRequest(httpRequest, null, new Configuration());
+		final WebResponse response = new WebResponse(httpResponse, request);
+
+		// other tests leave an application bound to the main thread
+		Thread t = new Thread(() -> {
+			try {
+				resource.handle(request, response);
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		});
+		t.start();
+		t.join();
+	}
+
+	@Test
+	public void testBlocking() throws Exception {
+		LinesResource resource = new LinesResource();
+		CountDownLatch stop = new CountDownLatch(1);
+		Thread supplier = supplier(resource, stop);
+
+		SlowClient client = new SlowClient();
+		handle(resource, createRequest(null, new boolean[1]), client);
+		stop.countDown();
+		supplier.join();
+
+		assertEquals(expected(), new String(client.data.toByteArray(), StandardCharsets.UTF_8));
+		assertEquals(CHUNKS, resource.calls.get());
+	}
+
+	@Test
+	public void testNonBlocking() throws Exception {
+		final CountDownLatch completed = new CountDownLatch(1);
+		final AsyncContext context = (AsyncContext) Proxy.newProxyInstance(AsyncContext.class.getClassLoader(),
+				new Class<?>[] { AsyncContext.class }, (proxy, m, args) -> {
+					switch (m.getName()) {
+					case "start":
+						new Thread((Runnable) args[0]).start();
+						return null;
+					case "complete":
+						completed.countDown();
+						return null;
+					default:
+						return null;
+					}
+				});
+		final boolean[] started = new boolean[1];
+		HttpServletRequest httpRequest = createRequest(context, started);
+		final SlowClient client = new SlowClient();
+		final LinesResource resource = new LinesResource();
+		handle(resource, httpRequest, client);
+
+		assertTrue(started[0]);
+		assertNotNull(client.listener);
+		assertEquals(1, resource.calls.get());
+
+		CountDownLatch stop = new CountDownLatch(1);
+		Thread supplier = supplier(resource, stop);
+
+		// the resource writes the next line only when the client has read the previous one
+		long deadline = System.currentTimeMillis() + 10000;
+		while (completed.getCount() > 0 && System.currentTimeMillis() < deadline) {
+			int before = resource.calls.get();
+			client.drain();
+			assertTrue(resource.calls.get() - before <= 1);
+			Thread.sleep(1);
+		}
+		stop.countDown();
+		supplier.join();
+
+		assertTrue(completed.await(1, TimeUnit.SECONDS));
+		assertEquals(expected(), new String(client.data.toByteArray(), StandardCharsets.UTF_8));
+		assertEquals(CHUNKS, resource.calls.get());
+	}
+}
@@ -0,0 +1,154 @@
+package eu.webtoolkit.jwt;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Test;
+
+import eu.webtoolkit.jwt.servlet.WebRequest;
+import eu.webtoolkit.jwt.servlet.WebResponse;
+import eu.webtoolkit.jwt.utils.ThreadUtils;
+
+public class ServletApiTest {
+	private static final boolean VIRTUAL_THREADS = Runtime.version().feature() >= 21;
+
+	/*
+	 * Records the thread on which a request is handled.
+	 */
+	private static class RecordingServletApi extends ServletApi4 {
+		final CountDownLatch handled = new CountDownLatch(1);
+		volatile Thread thread;
+
+		@Override
+		protected void handleRequest(WtServlet servlet, WebRequest request, WebResponse response) {
+			thread = Thread.currentThread();
+			handled.countDown();
+		}
+	}
+
+	/*
+	 * An AsyncContext which runs started tasks on a new (container) thread.
+	 */
+	private static class ContainerContext {
+		volatile Thread thread;
+		final AsyncContext context = (AsyncContext) Proxy.newProxyInstance(AsyncContext.class.getClassLoader(),
+				new Class<?>[] { AsyncContext.class }, (proxy, m, args) -> {
+					if (m.getName().equals("start")) {
+						thread = new Thread((Runnable) args[0], "container");
+						thread.start();
+					}
+					return null;
+				});
+	}
+
+	private static WebRequest createRequest(final AsyncContext context) {
+		HttpServletRequest httpRequest = (HttpServletRequest) Proxy.newProxyInstance(
+				HttpServletRequest.class.getClassLoader(), new Class<?>[] { HttpServletRequest.class },
+				(proxy, m, args) -> {
+					switch (m.getName()) {
+					case "getMethod":
+						return "GET";
+					case "getServletPath":
+					case "getContextPath":
+					case "getPathInfo":
+						return "";
+					case "getRequestURI":
+						return "/";
+					case "getParameterMap":
+						return new HashMap<String, String[]>();
+					case "isAsyncSupported":
+						return true;
+					case "startAsync":
+					case "getAsyncContext":
+						return context;
+					default:
+						return m.getReturnType() == Boolean.TYPE ? false : m.getReturnType() == Integer.TYPE ? 0 : null;
+					}
+				});
+		return new WebRequest(httpRequest, null, new Configuration());
+	}
+
+	private static WebResponse createResponse() {
+		HttpServletResponse httpResponse = (HttpServletResponse) Proxy.newProxyInstance(
+				HttpServletResponse.class.getClassLoader(), new Class<?>[] { HttpServletResponse.class },
+				(proxy, m, args) -> null);
+		return new WebResponse(httpResponse, null);
+	}
+
+	private static boolean isVirtual(Thread t) throws Exception {
+		return (Boolean) Thread.class.getMethod("isVirtual").invoke(t);
+	}
+
+	/*
+	 * Dispatches a request, and returns the thread on which it was handled.
+	 */
+	private static Thread dispatch(boolean virtualThreads, ContainerContext container) throws Exception {
+		Field instance = WtServlet.class.getDeclaredField("instance");
+		instance.setAccessible(true);
+		Object previous = instance.get(null);
+		try {
+			WtServlet servlet = new WtServlet() {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				public WApplication createApplication(WEnvironment env) {
+					return null;
+				}
+			};
+			servlet.getConfiguration().setVirtualThreadsEnabled(virtualThreads);
+
+			RecordingServletApi api = new RecordingServletApi();
+			api.doHandleRequest(servlet, createRequest(container.context), createResponse());
+			assertTrue(api.handled.await(10, TimeUnit.SECONDS));
+			return api.thread;
+		} finally {
+			instance.set(null, previous);
+		}
+	}
+
+	@Test
+	public void testVirtualThreadExecutor() throws Exception {
+		ExecutorService executor = ThreadUtils.newVirtualThreadPerTaskExecutor();
+		if (!VIRTUAL_THREADS) {
+			assertNull(executor);
+			return;
+		}
+
+		assertNotNull(executor);
+		final Thread[] thread = new Thread[1];
+		executor.submit(() -> thread[0] = Thread.currentThread()).get(10, TimeUnit.SECONDS);
+		assertTrue(isVirtual(thread[0]));
+		executor.shutdown();
+	}
+
+	@Test
+	public void testContainerThreads() throws Exception {
+		ContainerContext container = new ContainerContext();
+		Thread thread = dispatch(false, container);
+		assertSame(container.thread, thread);
+	}
+
+	@Test
+	public void testVirtualThreads() throws Exception {
+		ContainerContext container = new ContainerContext();
+		Thread thread = dispatch(true, container);
+		if (VIRTUAL_THREADS) {
+			// the request does not use a container thread
+			assertNull(container.thread);
+			assertTrue(isVirtual(thread));
+		} else {
+			// before Java 21, requests fall back to the container
+			assertSame(container.thread, thread);
+		}
+	}
+}
@@ -4,7 +4,10 @@ import static org.junit.Assert.*;
 
 import org.junit.Test;
 
+import java.util.Calendar;
+import java.util.Date;
 import java.util.Locale;
+import java.util.Random;
 
 public class WDateTest {
 	@Test
@@ -38,4 +41,77 @@ public class WDateTest {
 		WDate date = new WDate(2020, 1, 3, 11, 32, 0, 0);
 		assertEquals("Fri, 03-Jan-2020 11:32:00 GMT", date.toString("EEE, dd-MMM-yyyy HH:mm:ss 'GMT'", false));
 	}
+
+	@Test
+	public void testFieldsMatchCalendar() {
+		Random random = new Random(42);
+		for (int i = 0; i < 10000; ++i) {
+			WDate date = new WDate(new Date(946684800000L + (long) (random.nextDouble() * 1E12)));
+			Calendar c = Calendar.getInstance();
+			c.setTime(date.getDate());
+			assertEquals(c.get(Calendar.YEAR), date.getYear());
+			assertEquals(c.get(Calendar.MONTH) + 1, date.getMonth());
+			assertEquals(c.get(Calendar.DATE), date.getDay());
+			assertEquals(c.get(Calendar.HOUR_OF_DAY), date.getHour());
+			assertEquals(c.get(Calendar.MINUTE), date.getMinute());
+			assertEquals(c.get(Calendar.MILLISECOND), date.getMillisecond());
+			assertEquals(c.get(Calendar.DAY_OF_WEEK), date.getDayOfWeek());
+
+			c.add(Calendar.MONTH, 7);
+			assertEquals(c.getTime(), date.addMonths(7).getDate());
+			c.add(Calendar.DATE, -40);
+			assertEquals(c.getTime(), date.addMonths(7).addDays(-40).getDate());
+		}
+	}
+
+	@Test
+	public void testSetDate() {
+		WDate date = new WDate(2020, 2, 29, 23, 59, 59, 999);
+		assertEquals(2020, date.getYear());
+		assertEquals(999, date.getMillisecond());
+		assertEquals(1, date.addMilliseconds(1).getMonth() - 2);
+
+		try {
+			new WDate(2021, 2, 29);
+			fail("Illegal date accepted");
+		} catch (IllegalArgumentException e) {
+		}
+		try {
+			new WDate(2021, 1, 1, 24, 0, 0, 0);
+			fail("Illegal time accepted");
+		} catch (IllegalArgumentException e) {
+		}
+	}
+
+	@Test
+	public void testFromString() {
+		Locale.setDefault(Locale.ENGLISH);
+
+		for (int i = 0; i < 3; ++i) {
+			WDate date = WDate.fromString("2020-01-03 11:32", "yyyy-MM-dd HH:mm");
+			assertEquals(new WDate(2020, 1, 3, 11, 32, 0, 0), date);
+			assertNull(WDate.fromString("2020-02-30 11:32", "yyyy-MM-dd HH:mm"));
+			assertNull(WDate.fromString("2020-1-3 11:32", "yyyy-MM-dd HH:mm"));
+		}
+		assertEquals("03/01/2020", new WDate(2020, 1, 3).toString("dd/MM/yyyy"));
+	}
+
+	@Test
+	public void testProlepticGregorian() {
+		Locale.setDefault(Locale.ENGLISH);
+
+		WDate date = new WDate(1500, 3, 1);
+		assertEquals("1500-03-01", date.toString("yyyy-MM-dd"));
+		WDate parsed = WDate.fromString("1500-03-01", "yyyy-MM-dd");
+		assertEquals(1500, parsed.getYear());
+		assertEquals(3, parsed.getMonth());
+		assertEquals(1, parsed.getDay());
+		assertEquals(date, parsed);
+
+		try {
+			new WDate(0, 1, 1);
+			fail("Illegal year accepted");
+		} catch (IllegalArgumentException e) {
+		}
+	}
 }
@@ -0,0 +1,225 @@
+package eu.webtoolkit.jwt;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import eu.webtoolkit.jwt.servlet.WebRequest;
+import eu.webtoolkit.jwt.servlet.WebResponse;
+
+public class WFileResourceTest {
+	private static File file;
+	private static String content;
+
+	private static class Response {
+		int status = 200;
+		Map<String, String> headers = new TreeMap<String, String>(String.CASE_INSENSITIVE_ORDER);
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+		String getBody() {
+			return new String(body.toByteArray(), StandardCharsets.US_ASCII);
+		}
+	}
+
+	@BeforeClass
+	public static void setUp() throws Exception {
+		StringBuilder s = new StringBuilder();
+		for (int i = 0; i < 1000; ++i)
+			s.append((char) ('a' + i % 26));
+		content = s.toString();
+		file = File.createTempFile("jwt", ".txt");
+		Files.write(file.toPath(), content.getBytes(StandardCharsets.US_ASCII));
+		file.setLastModified(System.currentTimeMillis() - 3600 * 1000);
+	}
+
+	@AfterClass
+	public static void tearDown() {
+		file.delete();
+	}
+
+	private static String httpDate(long millis) {
+		return DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneOffset.UTC));
+	}
+
+	private static Response get(String method, String... headers) throws Exception {
+		final Map<String, String> requestHeaders = new TreeMap<String, String>(String.CASE_INSENSITIVE_ORDER);
+		for (int i = 0; i < headers.length; i += 2)
+			requestHeaders.put(headers[i], headers[i + 1]);
+
+		HttpServletRequest httpRequest = (HttpServletRequest) Proxy.newProxyInstance(
+				HttpServletRequest.class.getClassLoader(), new Class<?>[] { HttpServletRequest.class },
+				(proxy, m, args) -> {
+					switch (m.getName()) {
+					case "getMethod":
+						return method;
+					case "getHeader":
+						return requestHeaders.get((String) args[0]);
+					case "getDateHeader":
+						String v = requestHeaders.get((String) args[0]);
+						if (v == null)
+							return -1L;
+						return ZonedDateTime.parse(v, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+					case "getServletPath":
+					case "getContextPath":
+					case "getPathInfo":
+						return "";
+					case "getRequestURI":
+						return "/";
+					case "getParameterMap":
+						return new HashMap<String, String[]>();
+					default:
+						return defaultValue(m.getReturnType());
+					}
+				});
+
+		final Response result = new Response();
+		final ServletOutputStream out = new ServletOutputStream() {
+			public void write(int b) {
+				result.body.write(b);
+			}
+
+			public boolean isReady() {
+				return true;
+			}
+
+			public void setWriteListener(WriteListener listener) {
+			}
+		};
+		HttpServletResponse httpResponse = (HttpServletResponse) Proxy.newProxyInstance(
+				HttpServletResponse.class.getClassLoader(), new Class<?>[] { HttpServletResponse.class },
+				(proxy, m, args) -> {
+					switch (m.getName()) {
+					case "getOutputStream":
+						return out;
+					case "setStatus":
+						result.status = (Integer) args[0];
+						return null;
+					case "setHeader":
+					case "setDateHeader":
+						result.headers.put((String) args[0], String.valueOf(args[1]));
+						return null;
+					case "setContentType":
+						result.headers.put("Content-Type", (String) args[0]);
+						return null;
+					case "setContentLength":
+					case "setContentLengthLong":
+						result.headers.put("Content-Length", String.valueOf(args[0]));
+						return null;
+					default:
+						return defaultValue(m.getReturnType());
+					}
+				});
+
+		WFileResource resource = new WFileResource("text/plain", file.getAbsolutePath());
+		WebRequest request = new WebRequest(httpRequest, null, new Configuration());
+		WebResponse response = new WebResponse(httpResponse, httpRequest);
+		resource.handleRequest(request, response);
+		return result;
+	}
+
+	private static Object defaultValue(Class<?> type) {
+		if (type == Boolean.TYPE)
+			return false;
+		if (type == Integer.TYPE)
+			return 0;
+		if (type == Long.TYPE)
+			return 0L;
+		return null;
+	}
+
+	@Test
+	public void testFullAndConditional() throws Exception {
+		Response r = get("GET");
+		assertEquals(200, r.status);
+		assertEquals(content, r.getBody());
+		assertEquals("1000", r.headers.get("Content-Length"));
+		assertEquals("bytes", r.headers.get("Accept-Ranges"));
+		String etag = r.headers.get("ETag");
+		assertTrue(etag, etag.startsWith("\""));
+
+		assertEquals(304, get("GET", "If-None-Match", "\"x\", " + etag).status);
+		assertEquals(304, get("GET", "If-None-Match", "W/" + etag).status);
+		assertEquals(200, get("GET", "If-None-Match", "\"x\"").status);
+		assertEquals(304, get("GET", "If-Modified-Since", httpDate(file.lastModified())).status);
+		assertEquals(200, get("GET", "If-Modified-Since", httpDate(file.lastModified() - 10000)).status);
+
+		r = get("HEAD");
+		assertEquals(200, r.status);
+		assertEquals("1000", r.headers.get("Content-Length"));
+		assertEquals("", r.getBody());
+	}
+
+	@Test
+	public void testRanges() throws Exception {
+		Response r = get("GET", "Range", "bytes=10-19");
+		assertEquals(206, r.status);
+		assertEquals(content.substring(10, 20), r.getBody());
+		assertEquals("bytes 10-19/1000", r.headers.get("Content-Range"));
+		assertEquals("10", r.headers.get("Content-Length"));
+
+		r = get("GET", "Range", "bytes=-5");
+		assertEquals(content.substring(995), r.getBody());
+		r = get("GET", "Range", "bytes=990-");
+		assertEquals(content.substring(990), r.getBody());
+
+		r = get("GET", "Range", "bytes=1000-");
+		assertEquals(416, r.status);
+		assertEquals("bytes */1000", r.headers.get("Content-Range"));
+
+		r = get("GET", "Range", "bytes=0-1,500-501");
+		assertEquals(206, r.status);
+		String type = r.headers.get("Content-Type");
+		assertTrue(type, type.startsWith("multipart/byteranges; boundary="));
+		String body = r.getBody();
+		assertEquals(Long.parseLong(r.headers.get("Content-Length")), body.length());
+		assertTrue(body.contains("Content-Range: bytes 0-1/1000\r\n\r\n" + content.substring(0, 2) + "\r\n"));
+		assertTrue(body.contains("Content-Range: bytes 500-501/1000\r\n\r\n" + content.substring(500, 502) + "\r\n"));
+		assertTrue(body.endsWith("--" + type.substring(type.indexOf('=') + 1) + "--\r\n"));
+
+		String etag = get("GET").headers.get("ETag");
+		assertEquals(206, get("GET", "Range", "bytes=0-0", "If-Range", etag).status);
+		assertEquals(200, get("GET", "Range", "bytes=0-0", "If-Range", "\"other\"").status);
+	}
+
+	@Test
+	public void testParseRanges() {
+		assertNull(WStreamResource.parseRanges(null, 100));
+		assertNull(WStreamResource.parseRanges("items=0-1", 100));
+		assertNull(WStreamResource.parseRanges("bytes=5-1", 100));
+		assertNull(WStreamResource.parseRanges("bytes=a-b", 100));
+		assertEquals(Collections.emptyList(), WStreamResource.parseRanges("bytes=100-200", 100));
+
+		List<long[]> r = WStreamResource.parseRanges("bytes=50-60, 0-9, 10-19, 55-70, -10", 100);
+		assertEquals(3, r.size());
+		assertArrayEquals(new long[] { 0, 19 }, r.get(0));
+		assertArrayEquals(new long[] { 50, 70 }, r.get(1));
+		assertArrayEquals(new long[] { 90, 99 }, r.get(2));
+
+		StringBuilder many = new StringBuilder("bytes=");
+		for (int i = 0; i < 2 * WStreamResource.MAX_RANGES; ++i)
+			many.append(i * 2).append('-').append(i * 2).append(',');
+		assertNull(WStreamResource.parseRanges(many.toString(), 1000));
+	}
+}
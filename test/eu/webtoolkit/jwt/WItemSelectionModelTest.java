@@ -0,0 +1,190 @@
+package eu.webtoolkit.jwt;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Iterator;
+
+import org.junit.Test;
+
+public class WItemSelectionModelTest {
+	private static class LargeModel extends WAbstractTableModel {
+		@Override
+		public int getRowCount(WModelIndex parent) {
+			return parent == null ? 1000000 : 0;
+		}
+
+		@Override
+		public int getColumnCount(WModelIndex parent) {
+			return parent == null ? 3 : 0;
+		}
+
+		@Override
+		public Object getData(WModelIndex index, ItemDataRole role) {
+			return role == ItemDataRole.Display ? index.getRow() : null;
+		}
+	}
+
+	@Test
+	public void testRowRanges() {
+		WItemSelectionModel.RowRanges rows = new WItemSelectionModel.RowRanges();
+		assertEquals(11, rows.add(10, 20));
+		assertEquals(5, rows.add(18, 25));
+		assertEquals(1, rows.add(26, 26));
+		assertEquals(17, rows.getSize());
+		assertTrue(rows.contains(26));
+		assertFalse(rows.contains(27));
+
+		assertEquals(3, rows.remove(14, 16));
+		assertFalse(rows.contains(15));
+		assertEquals(14, rows.getSize());
+
+		// insert 2 rows before row 12: [10,11] [14,15] [19,28]
+		rows.shift(12, 2);
+		assertTrue(rows.contains(11));
+		assertFalse(rows.contains(12));
+		assertTrue(rows.contains(14));
+		assertTrue(rows.contains(28));
+		assertEquals(14, rows.getSize());
+
+		// remove rows 12..18: [10,21]
+		assertEquals(2, rows.shift(12, -7));
+		assertEquals(12, rows.getSize());
+		assertTrue(rows.contains(13));
+		assertEquals(21, rows.getLast());
+
+		Iterator<Integer> it = rows.iterator();
+		int count = 0;
+		for (int expected = 10; it.hasNext(); ++expected, ++count)
+			assertEquals(expected, it.next().intValue());
+		assertEquals(12, count);
+	}
+
+	@Test
+	public void testLargeTableSelection() {
+		WApplication app = new WApplication(new WTestEnvironment(new Configuration()));
+
+		LargeModel model = new LargeModel();
+		WTableView table = new WTableView(app.getRoot());
+		table.setModel(model);
+		table.setSelectionMode(SelectionMode.Extended);
+
+		table.selectRange(model.getIndex(0, 0), model.getIndex(model.getRowCount() - 1, 0));
+
+		WItemSelectionModel selection = table.getSelectionModel();
+		assertEquals(1000000, selection.getSelectedIndexes().size());
+		assertTrue(table.isSelected(model.getIndex(500000, 2)));
+		assertTrue(selection.getSelectedIndexes().contains(model.getIndex(999999, 0)));
+		assertFalse(selection.getSelectedIndexes().contains(model.getIndex(999999, 1)));
+		assertEquals(model.getIndex(0, 0), selection.getSelectedIndexes().first());
+		assertEquals(model.getIndex(999999, 0), selection.getSelectedIndexes().last());
+
+		table.select(model.getIndex(500000, 0), SelectionFlag.Deselect);
+		assertFalse(table.isSelected(model.getIndex(500000, 0)));
+		assertEquals(999999, table.getSelectedIndexes().size());
+
+		int count = 0;
+		WModelIndex previous = null;
+		for (WModelIndex i : table.getSelectedIndexes()) {
+			if (previous != null)
+				assertTrue(previous.compareTo(i) < 0);
+			previous = i;
+			++count;
+		}
+		assertEquals(999999, count);
+
+		Iterator<WModelIndex> it = table.getSelectedIndexes().iterator();
+		for (int i = 0; i < 1000; ++i) {
+			it.next();
+			if (i % 2 == 0)
+				it.remove();
+		}
+		assertEquals(999499, table.getSelectedIndexes().size());
+		assertFalse(table.isSelected(model.getIndex(998, 0)));
+		assertTrue(table.isSelected(model.getIndex(999, 0)));
+
+		table.clearSelection();
+		assertTrue(table.getSelectedIndexes().isEmpty());
+		app.remove();
+	}
+
+	@Test
+	public void testRenderSelection() {
+		WApplication app = new WApplication(new WTestEnvironment(new Configuration()));
+		String active = app.getTheme().getActiveClass();
+
+		WStandardItemModel model = new WStandardItemModel();
+		for (int i = 0; i < 20; ++i)
+			model.appendRow(new WStandardItem("row " + i));
+		WTableView table = new WTableView(app.getRoot());
+		table.setModel(model);
+		table.setSelectionMode(SelectionMode.Extended);
+		table.setSelectionBehavior(SelectionBehavior.Items);
+		table.resize(new WLength(400), new WLength(300));
+		app.getRoot().createDomElement(app);
+
+		table.select(model.getIndex(3, 0));
+		table.selectRange(model.getIndex(5, 0), model.getIndex(7, 0));
+		assertTrue(table.itemWidget(model.getIndex(3, 0)).hasStyleClass(active));
+		assertTrue(table.itemWidget(model.getIndex(6, 0)).hasStyleClass(active));
+		assertFalse(table.itemWidget(model.getIndex(4, 0)).hasStyleClass(active));
+
+		table.clearSelection();
+		for (int r = 0; r < 10; ++r)
+			assertFalse(table.itemWidget(model.getIndex(r, 0)).hasStyleClass(active));
+
+		app.remove();
+	}
+
+	@Test
+	public void testShiftRows() {
+		WApplication app = new WApplication(new WTestEnvironment(new Configuration()));
+
+		WStandardItemModel model = new WStandardItemModel();
+		for (int i = 0; i < 10; ++i) {
+			WStandardItem item = new WStandardItem("row " + i);
+			for (int j = 0; j < 3; ++j)
+				item.appendRow(new WStandardItem("child " + j));
+			model.appendRow(item);
+		}
+
+		WTreeView tree = new WTreeView(app.getRoot());
+		tree.setModel(model);
+		tree.setSelectionMode(SelectionMode.Extended);
+
+		tree.select(model.getIndex(4, 0));
+		tree.select(model.getIndex(5, 0));
+		tree.select(model.getIndex(1, 0, model.getIndex(6, 0)));
+		tree.select(model.getIndex(2, 0, model.getIndex(8, 0)));
+		assertEquals(4, tree.getSelectedIndexes().size());
+
+		model.insertRows(2, 2);
+		assertTrue(tree.isSelected(model.getIndex(6, 0)));
+		assertTrue(tree.isSelected(model.getIndex(7, 0)));
+		assertFalse(tree.isSelected(model.getIndex(4, 0)));
+		assertTrue(tree.isSelected(model.getIndex(1, 0, model.getIndex(8, 0))));
+		assertTrue(tree.isSelected(model.getIndex(2, 0, model.getIndex(10, 0))));
+
+		model.removeRows(7, 2);
+		assertTrue(tree.isSelected(model.getIndex(6, 0)));
+		assertFalse(tree.isSelected(model.getIndex(7, 0)));
+		assertTrue(tree.isSelected(model.getIndex(2, 0, model.getIndex(8, 0))));
+		assertEquals(2, tree.getSelectedIndexes().size());
+
+		// a selection nested below a removed row is removed as well
+		WStandardItem a = model.getItem(0);
+		WStandardItem c = a.getChild(0);
+		WStandardItem g = new WStandardItem("g");
+		g.appendRow(new WStandardItem("x"));
+		c.appendRow(g);
+		tree.select(g.getChild(0).getIndex());
+		assertEquals(3, tree.getSelectedIndexes().size());
+
+		a.removeRow(0);
+		assertEquals(2, tree.getSelectedIndexes().size());
+		assertTrue(tree.isSelected(model.getIndex(6, 0)));
+
+		app.remove();
+	}
+}
@@ -0,0 +1,161 @@
+package eu.webtoolkit.jwt;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class WLeafletMarkerLayerTest {
+	private static final int MARKERS = 50000;
+
+	private static WApplication createApplication() {
+		Configuration configuration = new Configuration();
+		HashMap<String, String> properties = new HashMap<String, String>();
+		properties.put("leafletJSURL", "leaflet.js");
+		properties.put("leafletCSSURL", "leaflet.css");
+		configuration.setProperties(properties);
+		return new WApplication(new WTestEnvironment(configuration));
+	}
+
+	private static List<WLeafletMap.Marker> createMarkers(int count, long seed) {
+		Random random = new Random(seed);
+		List<WLeafletMap.Marker> result = new ArrayList<WLeafletMap.Marker>();
+		for (int i = 0; i < count; ++i) {
+			double lat = 50 + random.nextDouble() * 2;
+			double lng = 3 + random.nextDouble() * 3;
+			result.add(new WLeafletMap.LeafletMarker(new WLeafletMap.Coordinate(lat, lng)));
+		}
+		return result;
+	}
+
+	private static int countClusters(List<WLeafletMap.Marker> markers) {
+		int result = 0;
+		for (WLeafletMap.Marker m : markers)
+			if (m instanceof WLeafletMarkerLayer.ClusterMarker)
+				++result;
+		return result;
+	}
+
+	private static int countRepresented(List<WLeafletMap.Marker> markers) {
+		int result = 0;
+		for (WLeafletMap.Marker m : markers)
+			result += m instanceof WLeafletMarkerLayer.ClusterMarker ? ((WLeafletMarkerLayer.ClusterMarker) m).getCount() : 1;
+		return result;
+	}
+
+	@Test
+	public void testQuadTree() {
+		WLeafletMarkerLayer.QuadTree<Integer> tree = new WLeafletMarkerLayer.QuadTree<Integer>();
+		Random random = new Random(1);
+		double[] x = new double[2000];
+		double[] y = new double[2000];
+		Integer[] values = new Integer[x.length];
+		for (int i = 0; i < x.length; ++i) {
+			x[i] = random.nextDouble();
+			y[i] = random.nextDouble();
+			values[i] = i;
+			tree.insert(values[i], x[i], y[i]);
+		}
+		for (int i = 0; i < x.length; i += 2)
+			assertTrue(tree.remove(values[i], x[i], y[i]));
+		assertFalse(tree.remove(values[0], x[0], y[0]));
+		assertEquals(1000, tree.size());
+
+		List<WLeafletMarkerLayer.QuadTree.Item<Integer>> items = new ArrayList<WLeafletMarkerLayer.QuadTree.Item<Integer>>();
+		tree.query(0.2, 0.3, 0.6, 0.5, items);
+		int expected = 0;
+		for (int i = 1; i < x.length; i += 2)
+			if (x[i] >= 0.2 && x[i] <= 0.6 && y[i] >= 0.3 && y[i] <= 0.5)
+				++expected;
+		assertEquals(expected, items.size());
+
+		Map<Long, WLeafletMarkerLayer.QuadTree.Cluster<Integer>> clusters = new HashMap<Long, WLeafletMarkerLayer.QuadTree.Cluster<Integer>>();
+		tree.cluster(0, 0, 1, 1, 2, clusters);
+		assertEquals(16, clusters.size());
+		int total = 0;
+		for (WLeafletMarkerLayer.QuadTree.Cluster<Integer> c : clusters.values()) {
+			total += c.count;
+			double cx = c.sumX / c.count, cy = c.sumY / c.count;
+			assertEquals(c.cellX, (long) (cx * 4));
+			assertEquals(c.cellY, (long) (cy * 4));
+		}
+		assertEquals(1000, total);
+	}
+
+	@Test
+	public void testProjection() {
+		WLeafletMap.Coordinate c = new WLeafletMap.Coordinate(50.88, 4.70);
+		double[] p = WLeafletMarkerLayer.project(c);
+		WLeafletMap.Coordinate u = WLeafletMarkerLayer.unproject(p[0], p[1]);
+		assertEquals(c.getLatitude(), u.getLatitude(), 1E-9);
+		assertEquals(c.getLongitude(), u.getLongitude(), 1E-9);
+		assertEquals(0.5, WLeafletMarkerLayer.project(new WLeafletMap.Coordinate(0, 0))[1], 1E-12);
+	}
+
+	@Test
+	public void testViewportAndClusters() throws Exception {
+		Thread t = new Thread(() -> {
+			WApplication app = createApplication();
+			WLeafletMap map = new WLeafletMap(app.getRoot());
+			map.resize(new WLength(800), new WLength(600));
+			WLeafletMarkerLayer layer = new WLeafletMarkerLayer(map);
+			layer.setMargin(0);
+			layer.setMaxClusterZoomLevel(13);
+
+			List<WLeafletMap.Marker> markers = createMarkers(MARKERS, 42);
+			for (WLeafletMap.Marker m : markers)
+				layer.addMarker(m);
+			assertEquals(MARKERS, layer.getMarkerCount());
+
+			// zoomed out: everything is visible, in clusters
+			map.panTo(new WLeafletMap.Coordinate(51, 4.5));
+			map.setZoomLevel(6);
+			layer.update(false);
+			List<WLeafletMap.Marker> rendered = layer.getRenderedMarkers();
+			assertEquals(MARKERS, countRepresented(rendered));
+			assertTrue(rendered.size() < 100);
+			assertEquals(rendered.size(), countClusters(rendered));
+
+			// unchanged viewport: no deltas
+			layer.setChanged();
+			layer.update(false);
+			assertEquals(rendered, layer.getRenderedMarkers());
+
+			// zoomed in beyond clustering: only markers in the viewport
+			map.setZoomLevel(14);
+			layer.update(false);
+			rendered = layer.getRenderedMarkers();
+			assertEquals(0, countClusters(rendered));
+			assertTrue(rendered.size() > 5 && rendered.size() < 100);
+			for (WLeafletMap.Marker m : rendered) {
+				assertEquals(51, m.getPosition().getLatitude(), 0.03);
+				assertEquals(4.5, m.getPosition().getLongitude(), 0.04);
+			}
+
+			// panning keeps the markers that stay in view
+			map.panTo(new WLeafletMap.Coordinate(51, 4.51));
+			layer.update(false);
+			int kept = 0;
+			for (WLeafletMap.Marker m : layer.getRenderedMarkers())
+				if (rendered.contains(m))
+					++kept;
+			assertTrue(kept > rendered.size() / 2);
+
+			layer.removeMarker(rendered.get(0));
+			layer.update(false);
+			assertFalse(layer.getRenderedMarkers().contains(rendered.get(0)));
+			assertEquals(MARKERS - 1, layer.getMarkerCount());
+		});
+		final Throwable[] error = new Throwable[1];
+		t.setUncaughtExceptionHandler((th, e) -> error[0] = e);
+		t.start();
+		t.join();
+		if (error[0] != null)
+			throw new AssertionError(error[0]);
+	}
+}
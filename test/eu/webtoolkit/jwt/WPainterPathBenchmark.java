@@ -0,0 +1,66 @@
+package eu.webtoolkit.jwt;
+
+import java.lang.ref.Reference;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Measures the memory used by a large path, stored in WPainterPath's packed arrays, against
+ * the same path stored as a list of Segment objects.
+ *
+ * This is not part of the test suite: memory measurements depend on the JVM and the garbage
+ * collector. Run it with a fixed heap, for example:
+ *
+ *   java -Xms1g -Xmx1g -cp <classpath> eu.webtoolkit.jwt.WPainterPathBenchmark [points]
+ */
+public class WPainterPathBenchmark {
+	private static final int RUNS = 5;
+
+	private static long usedMemory() {
+		Runtime rt = Runtime.getRuntime();
+		for (int i = 0; i < 5; ++i)
+			System.gc();
+		return rt.totalMemory() - rt.freeMemory();
+	}
+
+	private static Object createPath(int points) {
+		WPainterPath result = new WPainterPath(new WPointF(0, 0));
+		for (int i = 1; i < points; ++i)
+			result.lineTo(i, Math.sin(i * 0.001));
+		return result;
+	}
+
+	private static Object createSegments(int points) {
+		List<WPainterPath.Segment> result = new ArrayList<WPainterPath.Segment>();
+		result.add(new WPainterPath.Segment(0, 0, SegmentType.MoveTo));
+		for (int i = 1; i < points; ++i)
+			result.add(new WPainterPath.Segment(i, Math.sin(i * 0.001), SegmentType.LineTo));
+		return result;
+	}
+
+	/*
+	 * Returns the smallest number of bytes per point over a number of runs.
+	 */
+	private static double measure(boolean packed, int points) {
+		double result = Double.MAX_VALUE;
+		for (int run = 0; run < RUNS; ++run) {
+			long before = usedMemory();
+			Object path = packed ? createPath(points) : createSegments(points);
+			long after = usedMemory();
+			result = Math.min(result, (double) (after - before) / points);
+			Reference.reachabilityFence(path);
+		}
+		return result;
+	}
+
+	public static void main(String[] args) {
+		int points = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+
+		double packed = measure(true, points);
+		double segments = measure(false, points);
+
+		System.out.printf("%d points%n", points);
+		System.out.printf("  WPainterPath:   %.1f bytes per point%n", packed);
+		System.out.printf("  List<Segment>:  %.1f bytes per point%n", segments);
+	}
+}
@@ -0,0 +1,127 @@
+package eu.webtoolkit.jwt;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class WPainterPathTest {
+	private static final int POINTS = 1000000;
+
+	@Test
+	public void testBulkLineTo() {
+		double[] x = { 1, 2, 3, 4 };
+		double[] y = { 5, 6, 7, 8 };
+
+		WPainterPath bulk = new WPainterPath(new WPointF(0, 0));
+		bulk.lineTo(x, y, 1, 3);
+
+		WPainterPath single = new WPainterPath(new WPointF(0, 0));
+		for (int i = 1; i < 4; ++i)
+			single.lineTo(x[i], y[i]);
+
+		assertTrue(bulk.equals(single));
+		assertEquals(4, bulk.getSegmentCount());
+		assertEquals(SegmentType.LineTo, bulk.getSegmentType(3));
+		assertEquals(4, bulk.getSegmentX(3), 0);
+		assertEquals(8, bulk.getSegmentY(3), 0);
+		assertEquals("[[0.0,0.0,0],[2.0,6.0,1],[3.0,7.0,1],[4.0,8.0,1]]", bulk.getJsValue());
+	}
+
+	@Test
+	public void testAddPolygon() {
+		double[] x = { 10, 20, 20, 10 };
+		double[] y = { 10, 10, 20, 20 };
+
+		WPainterPath arrays = new WPainterPath();
+		arrays.addPolygon(x, y);
+
+		List<WPointF> points = new ArrayList<WPointF>();
+		for (int i = 0; i < x.length; ++i)
+			points.add(new WPointF(x[i], y[i]));
+		WPainterPath list = new WPainterPath();
+		list.addPolygon(points);
+
+		assertTrue(arrays.equals(list));
+		assertEquals(SegmentType.MoveTo, arrays.getSegmentType(0));
+		assertTrue(arrays.isPointInPath(new WPointF(15, 15)));
+	}
+
+	@Test
+	public void testSegmentsView() {
+		WPainterPath path = new WPainterPath();
+		path.addRect(0, 0, 10, 20);
+		path.cubicTo(1, 2, 3, 4, 5, 6);
+		path.arcTo(5, 5, 2, 0, 90);
+
+		List<WPainterPath.Segment> segments = path.getSegments();
+		assertEquals(path.getSegmentCount(), segments.size());
+		for (int i = 0; i < segments.size(); ++i) {
+			assertEquals(path.getSegmentType(i), segments.get(i).getType());
+			assertEquals(path.getSegmentX(i), segments.get(i).getX(), 0);
+			assertEquals(path.getSegmentY(i), segments.get(i).getY(), 0);
+		}
+
+		try {
+			segments.get(segments.size());
+			fail();
+		} catch (IndexOutOfBoundsException e) {
+		}
+
+		path.lineTo(1, 1);
+		assertEquals(path.getSegmentCount(), segments.size());
+	}
+
+	@Test
+	public void testCopyAndAddPath() {
+		WPainterPath path = new WPainterPath();
+		path.addRect(0, 0, 10, 20);
+
+		WPainterPath copy = new WPainterPath(path);
+		path.lineTo(5, 5);
+		assertEquals(5, copy.getSegmentCount());
+
+		copy.setOpenSubPathsEnabled(true);
+		copy.addPath(copy);
+		assertEquals(10, copy.getSegmentCount());
+		for (int i = 0; i < 5; ++i) {
+			assertEquals(copy.getSegmentType(i), copy.getSegmentType(i + 5));
+			assertEquals(copy.getSegmentX(i), copy.getSegmentX(i + 5), 0);
+		}
+
+		WPainterPath moved = new WTransform().translate(1, 2).map(path);
+		assertEquals(path.getSegmentCount(), moved.getSegmentCount());
+		assertEquals(path.getSegmentX(1) + 1, moved.getSegmentX(1), 0);
+		assertEquals(path.getSegmentY(2) + 2, moved.getSegmentY(2), 0);
+	}
+
+	@Test
+	public void testLargePath() {
+		double[] x = new double[POINTS];
+		double[] y = new double[POINTS];
+		for (int i = 0; i < POINTS; ++i) {
+			x[i] = i;
+			y[i] = Math.sin(i);
+		}
+
+		WPainterPath path = new WPainterPath(new WPointF(0, 0));
+		path.lineTo(x, y, 0, POINTS);
+
+		assertEquals(POINTS + 1, path.getSegmentCount());
+		assertEquals(SegmentType.MoveTo, path.getSegmentType(0));
+		for (int i = 0; i < POINTS; i += 9973) {
+			assertEquals(SegmentType.LineTo, path.getSegmentType(i + 1));
+			assertEquals(x[i], path.getSegmentX(i + 1), 0);
+			assertEquals(y[i], path.getSegmentY(i + 1), 0);
+		}
+
+		List<WPainterPath.Segment> segments = path.getSegments();
+		assertEquals(POINTS + 1, segments.size());
+		assertEquals(y[POINTS - 1], segments.get(POINTS).getY(), 0);
+		WRectF rect = path.getControlPointRect();
+		assertEquals(0, rect.getLeft(), 0);
+		assertEquals(POINTS - 1, rect.getRight(), 0);
+	}
+}
@@ -0,0 +1,244 @@
+package eu.webtoolkit.jwt;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Field;
+import java.util.EnumSet;
+
+import org.junit.Test;
+
+/*
+ * Compares rendering a large table using widgets for every cell (WItemDelegate) with
+ * rendering it as HTML (WHtmlItemDelegate), scrolling the viewport through the table.
+ */
+public class WTableViewTest {
+	private static final int ROWS = 100000;
+	private static final int COLUMNS = 40;
+	private static final int SCROLLS = 50;
+
+	private static class LargeModel extends WAbstractTableModel {
+		@Override
+		public int getRowCount(WModelIndex parent) {
+			return parent == null ? ROWS : 0;
+		}
+
+		@Override
+		public int getColumnCount(WModelIndex parent) {
+			return parent == null ? COLUMNS : 0;
+		}
+
+		@Override
+		public Object getData(WModelIndex index, ItemDataRole role) {
+			return role == ItemDataRole.Display ? "<" + index.getRow() + "," + index.getColumn() + ">" : null;
+		}
+	}
+
+	private static class Result {
+		int widgets;
+		boolean htmlCells;
+	}
+
+	private static int countWidgets(WWidget w) {
+		int result = 1;
+		for (WWidget child : w.getChildren())
+			result += countWidgets(child);
+		return result;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static JSignal4<Integer, Integer, Integer, Integer> scrolled(WTableView table) throws Exception {
+		Field f = WTableView.class.getDeclaredField("scrolled_");
+		f.setAccessible(true);
+		return (JSignal4<Integer, Integer, Integer, Integer>) f.get(table);
+	}
+
+	private static String render(WApplication app, WTableView table, EnumSet<RenderFlag> flags) {
+		table.render(flags);
+		StringBuilder js = new StringBuilder();
+		table.createSDomElement(app).asJavaScript(js);
+		table.getWebWidget().propagateRenderOk(true);
+		return js.toString();
+	}
+
+	private Result run(boolean html) throws Exception {
+		WTestEnvironment env = new WTestEnvironment(new Configuration());
+		env.setAjax(true);
+		WApplication app = new WApplication(env);
+
+		WTableView table = new WTableView(app.getRoot());
+		table.resize(new WLength(1200), new WLength(800));
+		if (html)
+			table.setHtmlItemDelegate(new WHtmlTextItemDelegate());
+		table.setModel(new LargeModel());
+
+		Result result = new Result();
+		String js = render(app, table, EnumSet.of(RenderFlag.Full));
+		result.widgets = countWidgets(table);
+		result.htmlCells = js.contains("&lt;0,1&gt;");
+
+		JSignal4<Integer, Integer, Integer, Integer> scrolled = scrolled(table);
+		int rh = (int) table.getRowHeight().toPixels();
+		for (int i = 1; i <= SCROLLS; ++i) {
+			scrolled.trigger(0, i * 37 * rh, 1200, 800);
+			render(app, table, EnumSet.noneOf(RenderFlag.class));
+		}
+
+		assertTrue(table.getModel().getIndex(SCROLLS * 37, 0) != null);
+		if (html)
+			assertNull(table.itemWidget(table.getModel().getIndex(SCROLLS * 37, 0)));
+		else
+			assertTrue(table.itemWidget(table.getModel().getIndex(SCROLLS * 37, 0)) != null);
+
+		app.remove();
+		return result;
+	}
+
+	@Test
+	public void testHtmlItemDelegate() throws Exception {
+		Result widgets = run(false);
+		Result html = run(true);
+
+		// the HTML path creates only the view's own widgets (and none per cell)
+		assertTrue(html.widgets * 4 < widgets.widgets);
+		assertTrue(html.htmlCells);
+	}
+
+	private int scrollThrough(boolean adaptive) throws Exception {
+		WTestEnvironment env = new WTestEnvironment(new Configuration());
+		env.setAjax(true);
+		WApplication app = new WApplication(env);
+
+		WTableView table = new WTableView(app.getRoot());
+		table.resize(new WLength(300), new WLength(800));
+		table.setAdaptivePrefetch(adaptive);
+		LargeModel model = new LargeModel();
+		table.setModel(model);
+		render(app, table, EnumSet.of(RenderFlag.Full));
+
+		/*
+		 * Simulates a client that scrolls down 5 rows at a time, and reports its viewport
+		 * when less than half a page is rendered below it.
+		 */
+		JSignal4<Integer, Integer, Integer, Integer> scrolled = scrolled(table);
+		int rh = (int) table.getRowHeight().toPixels();
+		int pageRows = 800 / rh;
+		int roundTrips = 0;
+		int lastTop = 0;
+		for (int top = 0; top < 4000; top += 5) {
+			if (table.itemWidget(model.getIndex(top + pageRows + pageRows / 2, 0)) == null) {
+				scrolled.trigger(0, top * rh, 300, 800);
+				lastTop = top;
+				render(app, table, EnumSet.noneOf(RenderFlag.class));
+				++roundTrips;
+			}
+		}
+
+		if (adaptive) {
+			ViewportPrefetch prefetch = table.getViewportPrefetch();
+			assertEquals(roundTrips, prefetch.getRoundTrips());
+			assertTrue(prefetch.getVelocity() > 0);
+
+			// scrolling back a page reuses the rendered rows
+			WWidget w = table.itemWidget(model.getIndex(lastTop - pageRows, 0));
+			assertTrue(w != null);
+			scrolled.trigger(0, (lastTop - pageRows) * rh, 300, 800);
+			render(app, table, EnumSet.noneOf(RenderFlag.class));
+			assertTrue(table.itemWidget(model.getIndex(lastTop - pageRows, 0)) == w);
+			assertTrue(prefetch.getVelocity() < 0);
+		}
+
+		app.remove();
+		return roundTrips;
+	}
+
+	@Test
+	public void testAdaptivePrefetch() throws Exception {
+		int fixed = scrollThrough(false);
+		int adaptive = scrollThrough(true);
+		assertTrue(adaptive < fixed);
+	}
+
+	@Test
+	public void testPrefetchVelocity() {
+		ViewportPrefetch prefetch = new ViewportPrefetch();
+		assertEquals(prefetch.getRowsBefore(40), prefetch.getRowsAfter(40));
+
+		// scroll down 100 rows in 100 ms: 1000 rows/s
+		prefetch.scrolled(0, 0);
+		prefetch.scrolled(100, 100000000L);
+		assertEquals(1000, prefetch.getVelocity(), 1E-6);
+		assertTrue(prefetch.getRowsAfter(40) > prefetch.getRowsBefore(40));
+		assertEquals(0, prefetch.getFirstRow(-1, 100, 40) % ViewportPrefetch.BLOCK_ROWS);
+		assertEquals(ViewportPrefetch.BLOCK_ROWS - 1, prefetch.getLastRow(-1, 100, 40, 100000)
+				% ViewportPrefetch.BLOCK_ROWS);
+		assertEquals(299, prefetch.getLastRow(-1, 100, 40, 300));
+
+		// rows behind the viewport are kept
+		assertEquals(0, prefetch.getFirstRow(0, 100, 40));
+		assertEquals(96, prefetch.getFirstRow(96, 200, 40));
+		assertEquals(160, prefetch.getFirstRow(0, 200, 40));
+
+		// a new gesture starts idle
+		prefetch.scrolled(50, 1000000000L);
+		assertEquals(0, prefetch.getVelocity(), 1E-6);
+		assertEquals(2, prefetch.getGestures());
+		assertEquals(1.5, prefetch.getRoundTripsPerGesture(), 1E-6);
+	}
+
+	@Test
+	public void testHtmlCells() {
+		WTestEnvironment env = new WTestEnvironment(new Configuration());
+		env.setAjax(true);
+		WApplication app = new WApplication(env);
+
+		WStandardItemModel model = new WStandardItemModel(5, 2);
+		for (int r = 0; r < 5; ++r)
+			for (int c = 0; c < 2; ++c)
+				model.setData(r, c, "a<" + r + c + ">");
+
+		WTableView table = new WTableView(app.getRoot());
+		table.setHtmlItemDelegate(new WHtmlTextItemDelegate());
+		table.setModel(model);
+		table.setSelectionMode(SelectionMode.Single);
+		String js = render(app, table, EnumSet.of(RenderFlag.Full));
+		assertTrue(js, js.contains("a&lt;21&gt;"));
+
+		table.select(model.getIndex(2, 1));
+		model.setData(3, 0, "changed");
+		js = render(app, table, EnumSet.noneOf(RenderFlag.class));
+		assertTrue(js, js.contains("Wt-tv-c active") || js.contains("Wt-tv-c Wt-selected"));
+		assertTrue(js, js.contains("changed"));
+		assertNull(table.itemWidget(model.getIndex(3, 0)));
+
+		assertEquals(1, table.getSelectedIndexes().size());
+		app.remove();
+	}
+
+	@Test
+	public void testHtmlAttributeEscaping() {
+		WTestEnvironment env = new WTestEnvironment(new Configuration());
+		env.setAjax(true);
+		WApplication app = new WApplication(env);
+
+		WStandardItemModel model = new WStandardItemModel(1, 1);
+		model.setData(0, 0, "x");
+		model.setData(0, 0, "tip\" onmouseover=\"alert(1)", ItemDataRole.ToolTip);
+		model.setData(0, 0, "c\" onclick=\"alert(2)", ItemDataRole.StyleClass);
+
+		StringBuilder html = new StringBuilder();
+		new WHtmlTextItemDelegate().renderCell(html, model.getIndex(0, 0),
+				EnumSet.noneOf(ViewItemRenderFlag.class));
+		assertEquals("<span title=\"tip&#34; onmouseover=&#34;alert(1)\">x</span>", html.toString());
+
+		WTableView table = new WTableView(app.getRoot());
+		table.setHtmlItemDelegate(new WHtmlTextItemDelegate());
+		table.setModel(model);
+		String js = render(app, table, EnumSet.of(RenderFlag.Full));
+		assertTrue(js, js.contains("Wt-tv-c c&#34; onclick=&#34;alert(2)"));
+		assertTrue(js, js.contains("tip&#34; onmouseover=&#34;alert(1)"));
+
+		app.remove();
+	}
+}
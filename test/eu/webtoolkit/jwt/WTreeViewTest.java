@@ -59,4 +59,83 @@ public class WTreeViewTest {
 		assertFalse(tree.isExpanded(model.getIndex(1, 0, model.getIndex(2, 0))));
 		assertFalse(tree.isExpanded(model.getIndex(0, 0, model.getIndex(1, 0, model.getIndex(2, 0)))));
 	}
+
+	private static int visibleRows(WTreeView tree, WAbstractItemModel model, WModelIndex index) {
+		int result = index == null ? 0 : 1;
+		if (index == null || tree.isExpanded(index))
+			for (int r = 0; r < model.getRowCount(index); ++r)
+				result += visibleRows(tree, model, model.getIndex(r, 0, index));
+		return result;
+	}
+
+	@Test
+	public void test_TreeViewHeights() {
+		WApplication app = new WApplication(new WTestEnvironment(new Configuration()));
+
+		WStandardItemModel model = new WStandardItemModel();
+		WStandardItem root = model.getInvisibleRootItem();
+		for (int i = 0; i < 50; ++i) {
+			WStandardItem item = new WStandardItem("level 1, row " + i);
+			for (int j = 0; j < 20; ++j) {
+				WStandardItem subItem = new WStandardItem("level 2, row " + j);
+				for (int k = 0; k < 5; ++k)
+					subItem.appendRow(new WStandardItem("level 3, row " + k));
+				item.appendRow(subItem);
+			}
+			root.appendRow(item);
+		}
+
+		WTreeView tree = new WTreeView(app.getRoot());
+		tree.setModel(model);
+
+		for (int i = 0; i < 50; i += 3) {
+			tree.expand(model.getIndex(i, 0));
+			tree.expand(model.getIndex(i % 20, 0, model.getIndex(i, 0)));
+		}
+		assertEquals(visibleRows(tree, model, null), tree.subTreeHeight(null));
+
+		tree.collapse(model.getIndex(3, 0));
+		tree.expand(model.getIndex(4, 0, model.getIndex(4, 0)));
+		tree.expand(model.getIndex(4, 0));
+		assertEquals(visibleRows(tree, model, null), tree.subTreeHeight(null));
+
+		model.insertRows(2, 3);
+		model.getItem(6, 0).insertRows(0, 4);
+		assertEquals(visibleRows(tree, model, null), tree.subTreeHeight(null));
+
+		model.removeRows(10, 5);
+		model.getItem(7, 0).removeRows(1, 2);
+		assertEquals(visibleRows(tree, model, null), tree.subTreeHeight(null));
+
+		tree.collapseAll();
+		assertEquals(model.getRowCount(), tree.subTreeHeight(null));
+		app.remove();
+	}
+
+	@Test
+	public void test_TreeViewRootIndexHeights() {
+		WApplication app = new WApplication(new WTestEnvironment(new Configuration()));
+
+		WStandardItemModel model = new WStandardItemModel();
+		WStandardItem a = new WStandardItem("A");
+		WStandardItem b = new WStandardItem("B");
+		for (int i = 0; i < 3; ++i)
+			b.appendRow(new WStandardItem("child " + i));
+		a.appendRow(b);
+		model.appendRow(a);
+
+		WTreeView tree = new WTreeView(app.getRoot());
+		tree.setModel(model);
+		tree.expand(a.getIndex());
+		assertEquals(2, tree.subTreeHeight(null));
+
+		tree.setRootIndex(a.getIndex());
+		tree.expand(b.getIndex());
+		assertEquals(4, tree.subTreeHeight(a.getIndex()));
+
+		tree.setRootIndex(null);
+		assertEquals(5, tree.subTreeHeight(null));
+		assertEquals(visibleRows(tree, model, null), tree.subTreeHeight(null));
+		app.remove();
+	}
 }
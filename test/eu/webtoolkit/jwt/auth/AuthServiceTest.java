@@ -0,0 +1,98 @@
+package eu.webtoolkit.jwt.auth;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import eu.webtoolkit.jwt.WDate;
+
+public class AuthServiceTest {
+	private static AuthService createService(boolean update) {
+		AuthService service = new AuthService();
+		service.setAuthTokensEnabled(true);
+		service.setAuthTokenUpdateEnabled(update);
+		service.setAuthTokenCacheTimeout(300);
+		return service;
+	}
+
+	@Test
+	public void testCachedToken() {
+		AuthService service = createService(false);
+		MemoryUserDatabase tables = new MemoryUserDatabase();
+		String token = service.createAuthToken(tables.findWithId("alice"));
+
+		// every session uses its own database instance
+		int lookups = 0;
+		for (int i = 0; i < 10; ++i) {
+			MemoryUserDatabase db = new MemoryUserDatabase(tables);
+			AuthTokenResult result = service.processAuthToken(token, db);
+			assertEquals(AuthTokenState.Valid, result.getState());
+			assertEquals("alice", result.getUser().getId());
+			lookups += db.tokenLookups;
+		}
+		assertEquals(1, lookups);
+
+		// removing the token in another session invalidates the cached token
+		MemoryUserDatabase db = new MemoryUserDatabase(tables);
+		db.findWithId("alice").removeAuthToken(service.getTokenHashFunction().compute(token, ""));
+		db = new MemoryUserDatabase(tables);
+		assertEquals(AuthTokenState.Invalid, service.processAuthToken(token, db).getState());
+		assertEquals(AuthTokenState.Invalid, service.processAuthToken("unknown", db).getState());
+	}
+
+	@Test
+	public void testCachedTokenUpdate() {
+		AuthService service = createService(true);
+		MemoryUserDatabase tables = new MemoryUserDatabase();
+		String token = service.createAuthToken(tables.findWithId("bob"));
+
+		int lookups = 0;
+		for (int i = 0; i < 10; ++i) {
+			MemoryUserDatabase db = new MemoryUserDatabase(tables);
+			AuthTokenResult result = service.processAuthToken(token, db);
+			assertEquals(AuthTokenState.Valid, result.getState());
+			assertEquals("bob", result.getUser().getId());
+			assertTrue(result.getNewTokenValidity() > 0);
+
+			// the old token was replaced
+			assertEquals(AuthTokenState.Invalid, service.processAuthToken(token, db).getState());
+			token = result.getNewToken();
+			lookups += db.tokenLookups;
+		}
+
+		// one lookup for the first token, one for each replaced token
+		assertEquals(11, lookups);
+		assertTrue(service.getAuthTokenCache().getHits() >= 9);
+	}
+
+	@Test
+	public void testCacheExpiry() {
+		AuthService service = createService(false);
+		MemoryUserDatabase db = new MemoryUserDatabase();
+		User user = db.findWithId("dave");
+		String hash = service.getTokenHashFunction().compute("short-lived", "");
+		WDate expires = WDate.getCurrentServerDate().addSeconds(60);
+		user.addAuthToken(new Token(hash, expires));
+
+		assertEquals(AuthTokenState.Valid, service.processAuthToken("short-lived", db).getState());
+		long cached = service.getAuthTokenCache().getExpires(hash);
+		assertTrue(cached > 0);
+		assertTrue(cached <= expires.getDate().getTime() + 1000);
+	}
+
+	@Test
+	public void testLogoutInvalidates() {
+		AuthService service = createService(false);
+		MemoryUserDatabase db = new MemoryUserDatabase();
+		User user = db.findWithId("carol");
+		String token = service.createAuthToken(user);
+
+		assertEquals(AuthTokenState.Valid, service.processAuthToken(token, db).getState());
+		assertEquals(1, service.getAuthTokenCache().size());
+		service.removeCachedAuthTokens(user);
+		assertEquals(0, service.getAuthTokenCache().size());
+
+		assertEquals(AuthTokenState.Valid, service.processAuthToken(token, db).getState());
+		assertEquals(2, db.tokenLookups);
+	}
+}
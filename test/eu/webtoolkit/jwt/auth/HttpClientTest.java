@@ -0,0 +1,165 @@
+package eu.webtoolkit.jwt.auth;
+
+import static org.junit.Assert.*;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.Header;
+import org.apache.http.message.BasicHeader;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpServer;
+
+import eu.webtoolkit.jwt.Signal2;
+
+public class HttpClientTest {
+	private HttpServer server;
+	private String url;
+	private final AtomicInteger concurrent = new AtomicInteger();
+	private final AtomicInteger maxConcurrent = new AtomicInteger();
+
+	@Before
+	public void setUp() throws Exception {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/echo", exchange -> {
+			int c = concurrent.incrementAndGet();
+			maxConcurrent.accumulateAndGet(c, Math::max);
+			try {
+				if (exchange.getRequestURI().getQuery() != null)
+					Thread.sleep(50);
+				InputStream in = exchange.getRequestBody();
+				String body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+				String auth = exchange.getRequestHeaders().getFirst("Authorization");
+				byte[] reply = (exchange.getRequestMethod() + " " + auth + "\n" + body)
+						.getBytes(StandardCharsets.UTF_8);
+				exchange.getResponseHeaders().add("Content-Type", "text/plain");
+				exchange.sendResponseHeaders(200, reply.length);
+				try (OutputStream out = exchange.getResponseBody()) {
+					out.write(reply);
+				}
+			} catch (InterruptedException e) {
+				throw new RuntimeException(e);
+			} finally {
+				concurrent.decrementAndGet();
+			}
+		});
+		server.createContext("/large", exchange -> {
+			exchange.sendResponseHeaders(200, 0);
+			byte[] chunk = new byte[64 * 1024];
+			try (OutputStream out = exchange.getResponseBody()) {
+				for (int i = 0; i < 64; ++i)
+					out.write(chunk);
+			} catch (java.io.IOException e) {
+				// aborted by the client
+			}
+		});
+		server.setExecutor(Executors.newFixedThreadPool(32));
+		server.start();
+		url = "http://127.0.0.1:" + server.getAddress().getPort() + "/echo";
+	}
+
+	@After
+	public void tearDown() {
+		server.stop(0);
+	}
+
+	private static class Result {
+		Exception error;
+		HttpMessage message;
+	}
+
+	private static BlockingQueue<Result> listen(HttpClient client) {
+		final BlockingQueue<Result> results = new LinkedBlockingQueue<Result>();
+		client.done().addListener(null, new Signal2.Listener<Exception, HttpMessage>() {
+			public void trigger(Exception error, HttpMessage message) {
+				Result r = new Result();
+				r.error = error;
+				r.message = message;
+				results.add(r);
+			}
+		});
+		return results;
+	}
+
+	@Test
+	public void testGetPost() throws Exception {
+		final HttpClient client = new HttpClient();
+		BlockingQueue<Result> results = listen(client);
+
+		final List<Header> headers = new ArrayList<Header>();
+		headers.add(new BasicHeader("Authorization", "Bearer abc"));
+		OutsideSession.run(() -> client.get(url, headers));
+		Result r = results.poll(10, TimeUnit.SECONDS);
+		assertNull(r.error);
+		assertEquals(200, r.message.getStatus());
+		assertEquals("GET Bearer abc", r.message.getBody());
+		assertEquals("text/plain", r.message.getHeader("Content-Type"));
+
+		final HttpMessage post = new HttpMessage();
+		post.setHeader("Content-Type", "application/x-www-form-urlencoded");
+		post.addBodyText("grant_type=authorization_code&code=x");
+		OutsideSession.run(() -> client.post(url, post));
+		r = results.poll(10, TimeUnit.SECONDS);
+		assertEquals("POST nullgrant_type=authorization_code&code=x", r.message.getBody());
+
+		client.setMaximumResponseSize(4);
+		OutsideSession.run(() -> client.get(url));
+		r = results.poll(10, TimeUnit.SECONDS);
+		assertNotNull(r.error);
+		assertNull(r.message);
+
+		client.setMaximumResponseSize(100000);
+		OutsideSession.run(() -> client.get(url.replace("/echo", "/large")));
+		r = results.poll(10, TimeUnit.SECONDS);
+		assertTrue(r.error.getMessage(), r.error.getMessage().contains("maximum size"));
+		client.setMaximumResponseSize(0);
+
+		OutsideSession.run(() -> client.get(url));
+		client.await();
+		r = results.poll();
+		assertNotNull(r);
+		assertEquals(200, r.message.getStatus());
+
+		OutsideSession.run(() -> client.get("http://127.0.0.1:1/unreachable"));
+		r = results.poll(30, TimeUnit.SECONDS);
+		assertNotNull(r.error);
+	}
+
+	@Test
+	public void testConnectionsPerHost() throws Exception {
+		final int requests = 24;
+		final CountDownLatch done = new CountDownLatch(requests);
+		final HttpClient client = new HttpClient();
+		client.done().addListener(null, new Signal2.Listener<Exception, HttpMessage>() {
+			public void trigger(Exception error, HttpMessage message) {
+				assertNull(error);
+				done.countDown();
+			}
+		});
+
+		OutsideSession.run(() -> {
+			for (int i = 0; i < requests; ++i)
+				client.get(url + "?slow=" + i);
+		});
+
+		assertTrue(done.await(30, TimeUnit.SECONDS));
+		assertTrue("" + maxConcurrent.get(), maxConcurrent.get() <= 8);
+		HttpClient.HostQueue host = HttpClient.getHostQueue(URI.create(url));
+		assertEquals(0, host.getActive());
+		assertEquals(0, host.getWaiting());
+	}
+}
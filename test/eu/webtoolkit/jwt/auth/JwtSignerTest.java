@@ -0,0 +1,135 @@
+package eu.webtoolkit.jwt.auth;
+
+import static org.junit.Assert.*;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.spec.ECGenParameterSpec;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.google.gson.JsonObject;
+
+public class JwtSignerTest {
+	private static JwtSigner[] createSigners() throws Exception {
+		KeyPairGenerator rsa = KeyPairGenerator.getInstance("RSA");
+		rsa.initialize(2048);
+		KeyPair rsaKeys = rsa.generateKeyPair();
+
+		KeyPairGenerator ec = KeyPairGenerator.getInstance("EC");
+		ec.initialize(new ECGenParameterSpec("secp256r1"));
+		KeyPair ecKeys = ec.generateKeyPair();
+
+		return new JwtSigner[] {
+			JwtSigner.hs256("0123456789abcdef0123456789abcdef".getBytes("UTF-8"), "k1"),
+			JwtSigner.rs256(rsaKeys.getPrivate(), rsaKeys.getPublic(), "k2"),
+			JwtSigner.es256(ecKeys.getPrivate(), ecKeys.getPublic(), "k3")
+		};
+	}
+
+	private static JsonObject claims(String sub, long iat, long exp) {
+		JsonObject result = new JsonObject();
+		result.addProperty("sub", sub);
+		result.addProperty("client_id", "client");
+		result.addProperty("scope", "openid profile");
+		result.addProperty("iat", iat);
+		result.addProperty("exp", exp);
+		result.addProperty("jti", sub + "-" + iat);
+		return result;
+	}
+
+	@Test
+	public void testSignVerify() throws Exception {
+		long now = System.currentTimeMillis() / 1000;
+		JwtSigner[] signers = createSigners();
+		for (JwtSigner signer : signers) {
+			String token = signer.sign(claims("alice", now, now + 60));
+			assertTrue(JwtSigner.isJwt(token));
+			JsonObject claims = signer.verify(token);
+			assertNotNull(signer.getAlgorithm().name(), claims);
+			assertEquals("alice", claims.get("sub").getAsString());
+
+			// tampered payload
+			String[] parts = token.split("\\.");
+			String other = signer.sign(claims("mallory", now, now + 60)).split("\\.")[1];
+			assertNull(signer.verify(parts[0] + "." + other + "." + parts[2]));
+
+			// expired, malformed, and signed with another key
+			assertNull(signer.verify(signer.sign(claims("alice", now - 120, now - 60))));
+			assertNull(signer.verify("a.b.c"));
+			assertNull(signer.verify("not a token"));
+			for (JwtSigner s : signers)
+				if (s != signer)
+					assertNull(s.verify(token));
+
+			// an unsigned token is refused
+			assertNull(signer.verify("eyJhbGciOiJub25lIn0." + parts[1] + "."));
+		}
+	}
+
+	@Test
+	public void testRevocation() {
+		long now = System.currentTimeMillis() / 1000;
+		TokenRevocationList revocations = new TokenRevocationList(3600);
+		JsonObject a = claims("alice", now - 10, now + 60);
+		JsonObject b = claims("bob", now - 10, now + 60);
+		assertFalse(revocations.isRevoked(a));
+
+		revocations.revokeToken(a.get("jti").getAsString(), now + 60);
+		assertTrue(revocations.isRevoked(a));
+		assertFalse(revocations.isRevoked(b));
+
+		revocations.revokeSubject("bob");
+		assertTrue(revocations.isRevoked(b));
+		assertFalse(revocations.isRevoked(claims("bob", now + 10, now + 60)));
+		assertEquals(2, revocations.size());
+	}
+
+	/*
+	 * Signs and verifies tokens with the same signers from several threads.
+	 */
+	@Test
+	public void testConcurrentUse() throws Exception {
+		final int threads = 4;
+		final int iterations = 50;
+		final long now = System.currentTimeMillis() / 1000;
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			for (final JwtSigner signer : createSigners()) {
+				final String token = signer.sign(claims("alice", now, now + 3600));
+				List<Future<?>> results = new ArrayList<Future<?>>();
+				for (int t = 0; t < threads; ++t) {
+					final String sub = "user" + t;
+					results.add(executor.submit(() -> {
+						for (int i = 0; i < iterations; ++i) {
+							JsonObject claims = signer.verify(signer.sign(claims(sub, now, now + 3600)));
+							assertNotNull(claims);
+							assertEquals(sub, claims.get("sub").getAsString());
+							assertNotNull(signer.verify(token));
+						}
+						return null;
+					}));
+				}
+				for (Future<?> f : results) {
+					try {
+						f.get(60, TimeUnit.SECONDS);
+					} catch (ExecutionException e) {
+						if (e.getCause() instanceof Error)
+							throw (Error) e.getCause();
+						throw e;
+					}
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+}
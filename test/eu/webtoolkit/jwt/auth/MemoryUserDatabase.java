@@ -0,0 +1,137 @@
+package eu.webtoolkit.jwt.auth;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import eu.webtoolkit.jwt.WDate;
+
+/*
+ * A user database for tests, which keeps passwords, throttling state and authentication
+ * tokens in memory, and counts its transactions and token lookups.
+ */
+class MemoryUserDatabase extends AbstractUserDatabase {
+	private final Map<String, PasswordHash> passwords = new HashMap<String, PasswordHash>();
+	private final Map<String, Integer> failedAttempts = new HashMap<String, Integer>();
+	private final Map<String, WDate> lastAttempts = new HashMap<String, WDate>();
+	private final Map<String, String> authTokens;
+	private final Map<String, WDate> authTokenExpiry;
+	int transactions;
+	int tokenLookups;
+
+	MemoryUserDatabase() {
+		authTokens = new HashMap<String, String>();
+		authTokenExpiry = new HashMap<String, WDate>();
+	}
+
+	/*
+	 * Creates a database instance that shares the authentication tokens of another one, like
+	 * a database per session on top of the same tables.
+	 */
+	MemoryUserDatabase(MemoryUserDatabase shared) {
+		authTokens = shared.authTokens;
+		authTokenExpiry = shared.authTokenExpiry;
+	}
+
+	@Override
+	public synchronized Transaction startTransaction() {
+		++transactions;
+		return null;
+	}
+
+	@Override
+	public User findWithId(String id) {
+		return new User(id, this);
+	}
+
+	@Override
+	public User findWithIdentity(String provider, String identity) {
+		return new User(identity, this);
+	}
+
+	@Override
+	public void addIdentity(User user, String provider, String id) {
+	}
+
+	@Override
+	public String getIdentity(User user, String provider) {
+		return user.getId();
+	}
+
+	@Override
+	public void removeIdentity(User user, String provider) {
+	}
+
+	@Override
+	public synchronized void setPassword(User user, PasswordHash password) {
+		passwords.put(user.getId(), password);
+	}
+
+	@Override
+	public synchronized PasswordHash getPassword(User user) {
+		return passwords.get(user.getId());
+	}
+
+	@Override
+	public void setEmailToken(User user, Token token, EmailTokenRole role) {
+	}
+
+	@Override
+	public synchronized void setFailedLoginAttempts(User user, int count) {
+		failedAttempts.put(user.getId(), count);
+	}
+
+	@Override
+	public synchronized int getFailedLoginAttempts(User user) {
+		Integer result = failedAttempts.get(user.getId());
+		return result == null ? 0 : result;
+	}
+
+	@Override
+	public synchronized void setLastLoginAttempt(User user, WDate t) {
+		lastAttempts.put(user.getId(), t);
+	}
+
+	@Override
+	public synchronized WDate getLastLoginAttempt(User user) {
+		return lastAttempts.get(user.getId());
+	}
+
+	@Override
+	public synchronized void addAuthToken(User user, Token token) {
+		authTokens.put(token.getHash(), user.getId());
+		authTokenExpiry.put(token.getHash(), token.getExpirationTime());
+	}
+
+	@Override
+	public synchronized void removeAuthToken(User user, String hash) {
+		authTokens.remove(hash);
+		authTokenExpiry.remove(hash);
+	}
+
+	@Override
+	public synchronized User findWithAuthToken(String hash) {
+		++tokenLookups;
+		String id = authTokens.get(hash);
+		if (id != null && authTokenExpiry.get(hash).after(WDate.getCurrentServerDate()))
+			return new User(id, this);
+		else
+			return new User();
+	}
+
+	@Override
+	public synchronized WDate getAuthTokenExpirationTime(User user, String hash) {
+		return authTokenExpiry.get(hash);
+	}
+
+	@Override
+	public synchronized int updateAuthToken(User user, String hash, String newHash) {
+		String id = authTokens.remove(hash);
+		WDate expiry = authTokenExpiry.remove(hash);
+		if (id == null)
+			return 0;
+
+		authTokens.put(newHash, id);
+		authTokenExpiry.put(newHash, expiry);
+		return WDate.getCurrentServerDate().getSecondsTo(expiry);
+	}
+}
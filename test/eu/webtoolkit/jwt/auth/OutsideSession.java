@@ -0,0 +1,14 @@
+package eu.webtoolkit.jwt.auth;
+
+/*
+ * Other tests leave a test application bound to the main thread: this runs code
+ * outside of an application, so that asynchronous results are delivered on the
+ * thread that produces them.
+ */
+class OutsideSession {
+	static void run(Runnable r) throws InterruptedException {
+		Thread t = new Thread(r);
+		t.start();
+		t.join();
+	}
+}
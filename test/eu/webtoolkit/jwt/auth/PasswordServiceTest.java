@@ -0,0 +1,88 @@
+package eu.webtoolkit.jwt.auth;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import eu.webtoolkit.jwt.Signal1;
+
+public class PasswordServiceTest {
+	private static PasswordService createService() {
+		PasswordService service = new PasswordService(new AuthService());
+		PasswordVerifier verifier = new PasswordVerifier();
+		verifier.addHashFunction(new BCryptHashFunction());
+		service.setVerifier(verifier);
+		service.setAttemptThrottlingEnabled(true);
+		return service;
+	}
+
+	private static PasswordResult verify(final PasswordService service, final User user,
+			final String password) throws InterruptedException {
+		final BlockingQueue<PasswordResult> results = new LinkedBlockingQueue<PasswordResult>();
+		OutsideSession.run(() -> service.verifyPassword(user, password, new Signal1.Listener<PasswordResult>() {
+			public void trigger(PasswordResult result) {
+				results.add(result);
+			}
+		}));
+		PasswordResult result = results.poll(30, TimeUnit.SECONDS);
+		assertNotNull(result);
+		return result;
+	}
+
+	@Test
+	public void testAsyncVerification() throws Exception {
+		PasswordService service = createService();
+		MemoryUserDatabase db = new MemoryUserDatabase();
+		User user = db.findWithId("alice");
+		service.updatePassword(user, "secret");
+
+		assertEquals(PasswordResult.PasswordValid, verify(service, user, "secret"));
+		assertEquals(0, user.getFailedLoginAttempts());
+
+		assertEquals(PasswordResult.PasswordInvalid, verify(service, user, "wrong"));
+		assertEquals(1, user.getFailedLoginAttempts());
+		assertEquals(PasswordResult.LoginThrottling, verify(service, user, "secret"));
+
+		// one transaction to read the credentials, one to record the result
+		db.transactions = 0;
+		db.setFailedLoginAttempts(user, 0);
+		assertEquals(PasswordResult.PasswordValid, verify(service, user, "secret"));
+		assertEquals(2, db.transactions);
+		assertEquals(0, service.getPendingVerifications());
+	}
+
+	@Test
+	public void testQueueLimit() throws Exception {
+		final PasswordService service = createService();
+		service.setAttemptThrottlingEnabled(false);
+		service.setMaxPendingVerifications(2);
+		MemoryUserDatabase db = new MemoryUserDatabase();
+		final User user = db.findWithId("bob");
+		service.updatePassword(user, "secret");
+
+		final int attempts = 20;
+		final CountDownLatch done = new CountDownLatch(attempts);
+		final int[] counts = new int[PasswordResult.values().length];
+		OutsideSession.run(() -> {
+			for (int i = 0; i < attempts; ++i)
+				service.verifyPassword(user, "secret", new Signal1.Listener<PasswordResult>() {
+					public void trigger(PasswordResult result) {
+						synchronized (counts) {
+							++counts[result.ordinal()];
+						}
+						done.countDown();
+					}
+				});
+		});
+
+		assertTrue(done.await(60, TimeUnit.SECONDS));
+		assertTrue(counts[PasswordResult.LoginThrottling.ordinal()] > 0);
+		assertTrue(counts[PasswordResult.PasswordValid.ordinal()] >= 2);
+		assertEquals(0, counts[PasswordResult.PasswordInvalid.ordinal()]);
+	}
+}
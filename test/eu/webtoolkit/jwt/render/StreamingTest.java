@@ -0,0 +1,84 @@
+package eu.webtoolkit.jwt.render;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import eu.webtoolkit.jwt.Side;
+import eu.webtoolkit.jwt.WLength;
+import eu.webtoolkit.jwt.WPaintDevice;
+import eu.webtoolkit.jwt.WPainter;
+import eu.webtoolkit.jwt.WSvgImage;
+
+public class StreamingTest {
+	private static class Renderer extends WTextRenderer {
+		final StringBuilder out = new StringBuilder();
+		int pages;
+		int maxLayoutPage;
+		int maxLayoutPageAtFirstEnd = -1;
+
+		public double pageWidth(int page) {
+			return 500;
+		}
+
+		public double pageHeight(int page) {
+			maxLayoutPage = Math.max(maxLayoutPage, page);
+			return 200;
+		}
+
+		public double getMargin(Side side) {
+			return 10;
+		}
+
+		public WPaintDevice startPage(int page) {
+			assertEquals(pages, page);
+			return new WSvgImage(new WLength(500), new WLength(200));
+		}
+
+		public void endPage(WPaintDevice device) {
+			if (pages++ == 0)
+				maxLayoutPageAtFirstEnd = maxLayoutPage;
+		}
+
+		public WPainter getPainter(WPaintDevice device) {
+			return new WPainter(device);
+		}
+
+		@Override
+		public void paintNode(WPainter painter, Node node) {
+			super.paintNode(painter, node);
+			// the document itself is not painted in streaming mode
+			if (node.getBlock().getParent() == null)
+				return;
+			out.append(node.getType()).append(' ').append(node.getPage()).append(' ')
+					.append(node.getX()).append(',').append(node.getY()).append(' ')
+					.append(node.getWidth()).append('x').append(node.getHeight()).append('\n');
+		}
+	}
+
+	@Test
+	public void testStreaming() {
+		StringBuilder text = new StringBuilder("<style>p { margin: 4px 0 } .f { float: right; width: 40px }</style>");
+		for (int i = 0; i < 60; ++i) {
+			if (i % 10 == 0)
+				text.append("<div class=\"f\">float ").append(i).append("</div>");
+			text.append("<p>Paragraph <b>").append(i).append("</b> with some text that wraps over a line.</p>");
+			if (i % 7 == 0)
+				text.append("loose <i>inline</i> text");
+		}
+
+		Renderer normal = new Renderer();
+		double y = normal.render(text);
+
+		Renderer streaming = new Renderer();
+		streaming.setStreaming(true);
+		assertEquals(y, streaming.render(text), 1E-9);
+
+		assertTrue(normal.pages > 5);
+		assertEquals(normal.pages, streaming.pages);
+		assertEquals(normal.out.toString(), streaming.out.toString());
+
+		assertEquals(normal.pages - 1, normal.maxLayoutPageAtFirstEnd);
+		assertTrue(streaming.maxLayoutPageAtFirstEnd <= 1);
+	}
+}
@@ -0,0 +1,62 @@
+package eu.webtoolkit.jwt.render;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import eu.webtoolkit.jwt.Property;
+
+public class StyleIndexTest {
+	private static Block render(String css, String xhtml) {
+		StyleSheet styles = new CssParser().parse(css);
+		assertNotNull(styles);
+		Block doc = new Block(RenderUtils.parseXHTML(xhtml), null);
+		doc.setStyleSheet(styles);
+		return doc;
+	}
+
+	@Test
+	public void testCascade() {
+		Block doc = render("p { color: red } .a p { color: green } .b { color: blue } #x { color: black }"
+				+ " * { width: 5px } div p.c { width: 7px } span { margin: 3px }"
+				+ " .c { height: 1px } .b { height: 2px }",
+				"<div class=\"a\"><p id=\"x\" class=\"b c\" style=\"margin: 1px 2px\">t</p>"
+						+ "<p class=\"b c\">u</p><p class=\"b c\">w</p><span>v</span></div>");
+
+		List<Block> blocks = doc.getChildren().get(0).getChildren();
+		Block x = blocks.get(0), p = blocks.get(1), span = blocks.get(3);
+
+		assertEquals("black", x.cssProperty(Property.StyleColor));
+		assertEquals("7px", x.cssProperty(Property.StyleWidth));
+		assertEquals("1px", x.cssProperty(Property.StyleMarginTop));
+		assertEquals("2px", x.cssProperty(Property.StyleMarginRight));
+
+		assertEquals("green", p.cssProperty(Property.StyleColor));
+		assertEquals("7px", p.cssProperty(Property.StyleWidth));
+		assertEquals("", p.cssProperty(Property.StyleMarginTop));
+		// equal specificity: the last ruleset wins, regardless of the order of the classes
+		assertEquals("2px", p.cssProperty(Property.StyleHeight));
+		assertEquals("2px", blocks.get(2).cssProperty(Property.StyleHeight));
+
+		assertEquals("", span.cssProperty(Property.StyleColor));
+		assertEquals("5px", span.cssProperty(Property.StyleWidth));
+		assertEquals("3px", span.cssProperty(Property.StyleMarginLeft));
+	}
+
+	@Test
+	public void testCandidates() {
+		StyleIndex index = new StyleIndex(new CssParser().parse("#x {} .a {} p {} * {} .b.a {} p.a {} div {}"));
+		Block doc = new Block(RenderUtils.parseXHTML("<p class=\"a b\">t</p>"), null);
+		Block p = doc.getChildren().get(0);
+
+		assertEquals(List.of(1, 2, 3, 4, 5), index.getCandidates(p));
+
+		int parent = index.getMatchKey(0, p.getType(), "", List.of());
+		assertEquals(index.getMatchKey(parent, p.getType(), "y", List.of("a", "c")),
+				index.getMatchKey(parent, p.getType(), "", List.of("a")));
+		assertNotEquals(index.getMatchKey(parent, p.getType(), "x", List.of("a")),
+				index.getMatchKey(parent, p.getType(), "", List.of("a")));
+	}
+}
@@ -0,0 +1,92 @@
+package eu.webtoolkit.jwt.render;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import eu.webtoolkit.jwt.Side;
+import eu.webtoolkit.jwt.WLength;
+import eu.webtoolkit.jwt.WPaintDevice;
+import eu.webtoolkit.jwt.WPainter;
+import eu.webtoolkit.jwt.WSvgImage;
+
+public class TemplateTest {
+	private static class SvgRenderer extends WTextRenderer {
+		final StringBuilder out = new StringBuilder();
+
+		public double pageWidth(int page) {
+			return 400;
+		}
+
+		public double pageHeight(int page) {
+			return 1000;
+		}
+
+		public double getMargin(Side side) {
+			return 10;
+		}
+
+		public WPaintDevice startPage(int page) {
+			return new WSvgImage(new WLength(400), new WLength(1000));
+		}
+
+		public void endPage(WPaintDevice device) {
+		}
+
+		@Override
+		public void paintNode(WPainter painter, Node node) {
+			super.paintNode(painter, node);
+			out.append(node.getType()).append(' ').append(node.attributeValue("title")).append(' ')
+					.append(node.getX()).append(',').append(node.getY()).append(' ')
+					.append(node.getWidth()).append('x').append(node.getHeight()).append('\n');
+		}
+
+		public WPainter getPainter(WPaintDevice device) {
+			return new WPainter(device);
+		}
+	}
+
+	private static final String TEMPLATE = "<style>.total { color: #ff0000; margin: 2px 4px }</style>"
+			+ "<h1 title=\"${title}\">Report ${title}</h1><p class=\"total\">Total: <b>${total}</b> ${unit}</p>";
+
+	@Test
+	public void testSubstitute() {
+		Map<String, Object> data = new HashMap<String, Object>();
+		data.put("a", 1);
+		assertEquals("x1y${b}z", RenderUtils.substitute("x${a}y${b}z", data));
+		assertEquals("${a", RenderUtils.substitute("${a", data));
+	}
+
+	@Test
+	public void testRenderTemplate() {
+		Map<String, Object> data = new HashMap<String, Object>();
+		data.put("title", "Q3");
+		data.put("total", 42);
+
+		WTextRenderer.Template template = new WTextRenderer.Template(TEMPLATE);
+		SvgRenderer fromText = new SvgRenderer();
+		double y1 = fromText.render("<style>.total { color: #ff0000; margin: 2px 4px }</style>"
+				+ "<h1 title=\"${title}\">Report Q3</h1><p class=\"total\">Total: <b>42</b> ${unit}</p>");
+		assertTrue(fromText.out.toString(), fromText.out.toString().contains("H1 ${title}"));
+		for (int i = 0; i < 2; ++i) {
+			SvgRenderer fromTemplate = new SvgRenderer();
+			assertEquals(y1, fromTemplate.render(template, data), 1E-9);
+			assertEquals(fromText.out.toString(), fromTemplate.out.toString());
+		}
+	}
+
+	@Test
+	public void testStyleSheetCache() {
+		CssParser parser = new CssParser();
+		StyleSheet s = parser.parseCached("p { color: red }");
+		assertNotNull(s);
+		assertSame(s, parser.parseCached("p { color: red }"));
+		assertNull(parser.parseCached("h1 h2 & h3 {}"));
+		assertFalse(parser.getLastError().isEmpty());
+		assertSame(s, parser.parseCached("p { color: red }"));
+		assertTrue(parser.getLastError().isEmpty());
+	}
+}
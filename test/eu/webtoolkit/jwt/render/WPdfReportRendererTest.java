@@ -0,0 +1,153 @@
+package eu.webtoolkit.jwt.render;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.pdfjet.PDF;
+import com.pdfjet.Page;
+
+import org.junit.Test;
+
+public class WPdfReportRendererTest {
+	private static final int INVOICES = 24;
+
+	private static String invoice(int number, int lines) {
+		StringBuilder result = new StringBuilder();
+		result.append("<div><h1>Invoice ").append(number).append("</h1><table class=\"lines\">");
+		for (int i = 0; i < lines; ++i)
+			result.append("<tr><td>Item ").append(i).append("</td><td class=\"amount\">")
+					.append(i * 7 % 100).append(".00</td></tr>");
+		result.append("</table><p>Thank you for your business.</p></div>");
+		return result.toString();
+	}
+
+	private static List<String> invoices(int count, int lines) {
+		List<String> result = new ArrayList<String>();
+		for (int i = 0; i < count; ++i)
+			result.add(invoice(i, lines));
+		return result;
+	}
+
+	private static WPdfReportRenderer createRenderer(int threads) {
+		WPdfReportRenderer result = new WPdfReportRenderer(threads);
+		result.setMargin(2);
+		assertTrue(result.setStyleSheetText("h1 { font-size: 18pt; } td.amount { text-align: right; }"));
+		return result;
+	}
+
+	@Test
+	public void testRenderAll() throws Exception {
+		WPdfReportRenderer renderer = createRenderer(2);
+		final List<ByteArrayOutputStream> outputs = new ArrayList<ByteArrayOutputStream>();
+		List<String> documents = new ArrayList<String>();
+		documents.add(invoice(0, 5));
+		documents.add(invoice(1, 200));
+		for (int i = 0; i < documents.size(); ++i)
+			outputs.add(new ByteArrayOutputStream());
+
+		List<WPdfReportRenderer.Result> results = renderer.renderAll(documents, i -> outputs.get(i));
+		renderer.shutdown();
+		assertTrue(renderer.awaitTermination(10, TimeUnit.SECONDS));
+
+		assertEquals(2, results.size());
+		assertEquals(1, results.get(0).getPageCount());
+		assertTrue(results.get(1).getPageCount() > 1);
+		for (int i = 0; i < results.size(); ++i) {
+			WPdfReportRenderer.Result r = results.get(i);
+			assertTrue(r.isSuccess());
+			assertTrue(r.getWaitTime() >= 0);
+			assertTrue(r.getRenderTime() > 0);
+			String pdf = new String(outputs.get(i).toByteArray(), StandardCharsets.ISO_8859_1);
+			assertTrue(pdf.startsWith("%PDF"));
+			assertTrue(pdf.trim().endsWith("%%EOF"));
+		}
+	}
+
+	@Test
+	public void testTemplate() throws Exception {
+		WPdfReportRenderer renderer = createRenderer(1);
+		WTextRenderer.Template template = new WTextRenderer.Template("<h1>Invoice ${number}</h1><p>${customer}</p>");
+		Map<String, Object> data = new HashMap<String, Object>();
+		data.put("number", 42);
+		data.put("customer", "ACME");
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		WPdfReportRenderer.Result result = renderer.submit(template, data, out).get();
+		renderer.shutdown();
+
+		assertTrue(result.isSuccess());
+		assertEquals(1, result.getPageCount());
+		assertTrue(out.size() > 0);
+	}
+
+	@Test
+	public void testError() throws Exception {
+		WPdfReportRenderer renderer = createRenderer(1);
+		OutputStream broken = new OutputStream() {
+			@Override
+			public void write(int b) throws IOException {
+				throw new IOException("disk full");
+			}
+		};
+
+		WPdfReportRenderer.Result result = renderer.submit(invoice(0, 5), broken).get();
+		renderer.shutdown();
+
+		assertFalse(result.isSuccess());
+		assertNotNull(result.getError());
+	}
+
+	/*
+	 * Renders a batch of invoices on several workers. Every worker waits in
+	 * createRenderer() until all workers have started a document, which only
+	 * happens if the documents are rendered concurrently.
+	 */
+	@Test
+	public void testConcurrentRendering() throws Exception {
+		final int threads = 4;
+		final CountDownLatch started = new CountDownLatch(threads);
+		final AtomicInteger overlapping = new AtomicInteger();
+		WPdfReportRenderer renderer = new WPdfReportRenderer(threads) {
+			@Override
+			protected WPdfRenderer createRenderer(PDF pdf, Page page) {
+				started.countDown();
+				try {
+					if (started.await(30, TimeUnit.SECONDS))
+						overlapping.incrementAndGet();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return super.createRenderer(pdf, page);
+			}
+		};
+
+		List<String> documents = invoices(INVOICES, 60);
+		final List<ByteArrayOutputStream> outputs = new ArrayList<ByteArrayOutputStream>();
+		for (int i = 0; i < documents.size(); ++i)
+			outputs.add(new ByteArrayOutputStream());
+
+		List<WPdfReportRenderer.Result> results = renderer.renderAll(documents, i -> outputs.get(i));
+		renderer.shutdown();
+
+		assertEquals(INVOICES, overlapping.get());
+		assertEquals(INVOICES, results.size());
+		for (int i = 0; i < results.size(); ++i) {
+			assertTrue(results.get(i).isSuccess());
+			assertTrue(results.get(i).getPageCount() > 0);
+			String pdf = new String(outputs.get(i).toByteArray(), StandardCharsets.ISO_8859_1);
+			assertTrue(pdf.startsWith("%PDF"));
+			assertTrue(pdf.trim().endsWith("%%EOF"));
+		}
+	}
+}